@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.parser.index.IndexManager;
+import org.eclipse.mat.parser.internal.SnapshotImpl;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.SnapshotFactory;
+import org.eclipse.mat.util.VoidProgressListener;
+
+/**
+ * Helpers shared by the benchmarks to create, parse and clean up synthetic dumps.
+ */
+final class BenchmarkDumps
+{
+    /** Length of the node chains in the generated dumps */
+    static final int CHAIN_LENGTH = 100;
+    /** Number of references held by each holder array */
+    static final int HOLDER_FANOUT = 64;
+    /** Seed so every run sees the same heap */
+    static final long SEED = 20260101L;
+
+    private BenchmarkDumps()
+    {}
+
+    /**
+     * Write a synthetic dump into a fresh temporary directory.
+     * @param nodes the number of nodes in the heap
+     * @return the dump file
+     * @throws IOException if the dump cannot be written
+     */
+    static File createDump(int nodes) throws IOException
+    {
+        File dir = Files.createTempDirectory("mat-jmh").toFile(); //$NON-NLS-1$
+        File dump = new File(dir, "synthetic" + nodes + ".hprof"); //$NON-NLS-1$ //$NON-NLS-2$
+        return new SyntheticHprofWriter(nodes, CHAIN_LENGTH, HOLDER_FANOUT, SEED).write(dump);
+    }
+
+    /**
+     * The index file prefix, as chosen by the snapshot factory.
+     * @param dump the dump file
+     * @return the prefix, ending with a dot
+     */
+    static String prefix(File dump)
+    {
+        String name = dump.getName();
+        int p = name.lastIndexOf('.');
+        name = p >= 0 ? name.substring(0, p + 1) : name + "."; //$NON-NLS-1$
+        return new File(dump.getParentFile(), name).getAbsolutePath();
+    }
+
+    /**
+     * Parse or reopen the dump.
+     * @param dump the dump file
+     * @return the snapshot
+     * @throws SnapshotException if the dump cannot be opened
+     */
+    static ISnapshot open(File dump) throws SnapshotException
+    {
+        return SnapshotFactory.openSnapshot(dump, Collections.<String, String> emptyMap(), new VoidProgressListener());
+    }
+
+    /**
+     * The index manager of an open snapshot.
+     * @param snapshot the snapshot
+     * @return its indexes
+     */
+    static IndexManager indexes(ISnapshot snapshot)
+    {
+        return ((SnapshotImpl) snapshot).getIndexManager();
+    }
+
+    /**
+     * Remove everything the parser wrote next to the dump, so the next open parses again.
+     * @param dump the dump file
+     */
+    static void deleteIndexFiles(File dump)
+    {
+        File[] files = dump.getParentFile().listFiles();
+        if (files == null)
+            return;
+        for (File f : files)
+        {
+            if (!f.equals(dump))
+                f.delete();
+        }
+    }
+
+    /**
+     * Remove the dump, its indexes and the temporary directory.
+     * @param dump the dump file
+     */
+    static void deleteAll(File dump)
+    {
+        if (dump == null)
+            return;
+        deleteIndexFiles(dump);
+        dump.delete();
+        dump.getParentFile().delete();
+    }
+}
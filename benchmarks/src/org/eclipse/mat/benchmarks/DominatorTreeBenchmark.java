@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.parser.index.IIndexReader;
+import org.eclipse.mat.parser.index.IndexManager;
+import org.eclipse.mat.parser.index.IndexManager.Index;
+import org.eclipse.mat.parser.internal.SnapshotImpl;
+import org.eclipse.mat.parser.internal.snapshot.ObjectMarker;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.SnapshotFactory;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Graph algorithms run over a parsed snapshot: object marking from the GC roots
+ * and the dominator tree calculation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class DominatorTreeBenchmark
+{
+    @Param({ "500000" })
+    public int nodes;
+
+    @Param({ "1", "4" })
+    public int threads;
+
+    private File dump;
+    private ISnapshot snapshot;
+    private int[] roots;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException, SnapshotException
+    {
+        dump = BenchmarkDumps.createDump(nodes);
+        snapshot = BenchmarkDumps.open(dump);
+        roots = snapshot.getGCRoots();
+    }
+
+    /**
+     * The dominator tree calculation writes new index files, so close the old ones first.
+     */
+    @Setup(Level.Invocation)
+    public void closeDominatorIndexes() throws IOException
+    {
+        IndexManager indexes = BenchmarkDumps.indexes(snapshot);
+        for (Index index : new Index[] { Index.DOMINATOR, Index.DOMINATED, Index.O2RETAINED })
+        {
+            IIndexReader reader = indexes.getReader(index);
+            if (reader != null)
+            {
+                reader.close();
+                indexes.setReader(index, null);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close()
+    {
+        SnapshotFactory.dispose(snapshot);
+        BenchmarkDumps.deleteAll(dump);
+    }
+
+    @Benchmark
+    public boolean[] objectMarker() throws InterruptedException
+    {
+        boolean[] bits = new boolean[snapshot.getSnapshotInfo().getNumberOfObjects()];
+        new ObjectMarker(roots, bits, BenchmarkDumps.indexes(snapshot).outbound(), new VoidProgressListener())
+                        .markMultiThreaded(threads);
+        return bits;
+    }
+
+    @Benchmark
+    public int dominatorTree() throws SnapshotException
+    {
+        ((SnapshotImpl) snapshot).calculateDominatorTree(new VoidProgressListener());
+        return BenchmarkDumps.indexes(snapshot).dominated().size();
+    }
+}
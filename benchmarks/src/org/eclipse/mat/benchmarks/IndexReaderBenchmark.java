@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.parser.index.IndexManager;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.SnapshotFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sequential and random reads of the 1:1 and 1:N indexes of a parsed snapshot.
+ * With <code>cold=true</code> the page caches are dropped before each iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class IndexReaderBenchmark
+{
+    private static final int RANDOM_READS = 1 << 16;
+
+    @Param({ "500000" })
+    public int nodes;
+
+    @Param({ "false", "true" })
+    public boolean cold;
+
+    private File dump;
+    private ISnapshot snapshot;
+    private IndexManager indexes;
+    private int[] randomIds;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException, SnapshotException
+    {
+        dump = BenchmarkDumps.createDump(nodes);
+        snapshot = BenchmarkDumps.open(dump);
+        indexes = BenchmarkDumps.indexes(snapshot);
+        int n = snapshot.getSnapshotInfo().getNumberOfObjects();
+        Random r = new Random(BenchmarkDumps.SEED);
+        randomIds = new int[RANDOM_READS];
+        for (int i = 0; i < randomIds.length; ++i)
+            randomIds[i] = r.nextInt(n);
+    }
+
+    @Setup(Level.Iteration)
+    public void dropCaches() throws IOException
+    {
+        if (cold)
+        {
+            indexes.o2class().unload();
+            indexes.o2address().unload();
+            indexes.outbound().unload();
+            indexes.inbound().unload();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close()
+    {
+        SnapshotFactory.dispose(snapshot);
+        BenchmarkDumps.deleteAll(dump);
+    }
+
+    @Benchmark
+    public long o2classSequential()
+    {
+        long sum = 0;
+        int n = indexes.o2class().size();
+        for (int i = 0; i < n; ++i)
+            sum += indexes.o2class().get(i);
+        return sum;
+    }
+
+    @Benchmark
+    public long o2classRandom()
+    {
+        long sum = 0;
+        for (int id : randomIds)
+            sum += indexes.o2class().get(id);
+        return sum;
+    }
+
+    @Benchmark
+    public long o2addressRandom()
+    {
+        long sum = 0;
+        for (int id : randomIds)
+            sum += indexes.o2address().get(id);
+        return sum;
+    }
+
+    @Benchmark
+    public long outboundSequential()
+    {
+        long sum = 0;
+        int n = indexes.outbound().size();
+        for (int i = 0; i < n; ++i)
+            sum += indexes.outbound().get(i).length;
+        return sum;
+    }
+
+    @Benchmark
+    public long outboundRandom()
+    {
+        long sum = 0;
+        for (int id : randomIds)
+            sum += indexes.outbound().get(id).length;
+        return sum;
+    }
+
+    @Benchmark
+    public long inboundRandom()
+    {
+        long sum = 0;
+        for (int id : randomIds)
+            sum += indexes.inbound().get(id).length;
+        return sum;
+    }
+}
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.HashMapIntObject;
+import org.eclipse.mat.hprof.HprofIndexBuilder;
+import org.eclipse.mat.parser.IPreliminaryIndex;
+import org.eclipse.mat.parser.index.IIndexReader;
+import org.eclipse.mat.parser.model.ClassImpl;
+import org.eclipse.mat.parser.model.XGCRootInfo;
+import org.eclipse.mat.parser.model.XSnapshotInfo;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.SnapshotFactory;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing a synthetic dump: the HPROF passes alone, and the complete parse
+ * including garbage cleaning and the dominator tree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class ParseBenchmark
+{
+    @Param({ "500000" })
+    public int nodes;
+
+    private File dump;
+
+    @Setup(Level.Trial)
+    public void createDump() throws IOException
+    {
+        dump = BenchmarkDumps.createDump(nodes);
+    }
+
+    @Setup(Level.Invocation)
+    public void removeIndexes()
+    {
+        BenchmarkDumps.deleteIndexFiles(dump);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteDump()
+    {
+        BenchmarkDumps.deleteAll(dump);
+    }
+
+    /**
+     * Pass1Parser and Pass2Parser via {@link HprofIndexBuilder#fill}.
+     */
+    @Benchmark
+    public int hprofPasses() throws SnapshotException, IOException
+    {
+        String prefix = BenchmarkDumps.prefix(dump);
+        HprofIndexBuilder builder = new HprofIndexBuilder();
+        builder.init(dump, prefix);
+        XSnapshotInfo info = new XSnapshotInfo();
+        info.setPath(dump.getAbsolutePath());
+        info.setPrefix(prefix);
+        CollectingIndex idx = new CollectingIndex(info);
+        try
+        {
+            builder.fill(idx, new VoidProgressListener());
+            return idx.identifiers.size();
+        }
+        finally
+        {
+            idx.delete();
+            builder.cancel();
+        }
+    }
+
+    /**
+     * Everything done by {@link SnapshotFactory#openSnapshot} for a new dump.
+     */
+    @Benchmark
+    public int fullParse() throws SnapshotException
+    {
+        ISnapshot snapshot = BenchmarkDumps.open(dump);
+        try
+        {
+            return snapshot.getSnapshotInfo().getNumberOfObjects();
+        }
+        finally
+        {
+            SnapshotFactory.dispose(snapshot);
+        }
+    }
+
+    /**
+     * Receives the results of the HPROF passes so that the temporary index files can be removed.
+     */
+    static final class CollectingIndex implements IPreliminaryIndex
+    {
+        private final XSnapshotInfo info;
+        IIndexReader.IOne2ManyIndex outbound;
+        IIndexReader.IOne2LongIndex identifiers;
+        IIndexReader.IOne2OneIndex object2classId;
+        IIndexReader.IOne2SizeIndex array2size;
+
+        CollectingIndex(XSnapshotInfo info)
+        {
+            this.info = info;
+        }
+
+        public XSnapshotInfo getSnapshotInfo()
+        {
+            return info;
+        }
+
+        public void setClassesById(HashMapIntObject<ClassImpl> classesById)
+        {}
+
+        public void setGcRoots(HashMapIntObject<List<XGCRootInfo>> gcRoots)
+        {}
+
+        public void setThread2objects2roots(HashMapIntObject<HashMapIntObject<List<XGCRootInfo>>> thread2objects2roots)
+        {}
+
+        public void setOutbound(IIndexReader.IOne2ManyIndex outbound)
+        {
+            this.outbound = outbound;
+        }
+
+        public void setIdentifiers(IIndexReader.IOne2LongIndex identifiers)
+        {
+            this.identifiers = identifiers;
+        }
+
+        public void setObject2classId(IIndexReader.IOne2OneIndex object2classId)
+        {
+            this.object2classId = object2classId;
+        }
+
+        public void setArray2size(IIndexReader.IOne2SizeIndex array2size)
+        {
+            this.array2size = array2size;
+        }
+
+        void delete()
+        {
+            for (IIndexReader r : new IIndexReader[] { outbound, identifiers, object2classId, array2size })
+            {
+                if (r != null)
+                    r.delete();
+            }
+        }
+    }
+}
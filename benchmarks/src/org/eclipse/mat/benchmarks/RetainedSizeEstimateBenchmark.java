@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.RetainedSizeEstimate;
+import org.eclipse.mat.snapshot.SnapshotFactory;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The retained size of all the objects of a class: the sampled estimate
+ * against the minimum retained size and the precise retained size. The error
+ * of the estimate against the other two is printed when the trial ends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class RetainedSizeEstimateBenchmark
+{
+    @Param({ "2000000" })
+    public int nodes;
+
+    @Param({ "bench.Node", "java.lang.String" })
+    public String className;
+
+    @Param({ "100", "1000" })
+    public int sampleSize;
+
+    private File dump;
+    private ISnapshot snapshot;
+    private int[] objectIds;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException, SnapshotException
+    {
+        dump = BenchmarkDumps.createDump(nodes);
+        snapshot = BenchmarkDumps.open(dump);
+        IClass cls = snapshot.getClassesByName(className, false).iterator().next();
+        objectIds = cls.getObjectIds();
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SnapshotException
+    {
+        RetainedSizeEstimate estimate = estimate();
+        long min = minRetainedSize();
+        long precise = preciseRetainedSize();
+        System.out.println();
+        System.out.println(className + ": " + estimate + ", error " + error(estimate.getEstimate(), min) //$NON-NLS-1$ //$NON-NLS-2$
+                        + " of min " + min + ", " + error(estimate.getEstimate(), precise) + " of precise " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                        + precise + ", min in interval " + (min >= estimate.getLowerBound() //$NON-NLS-1$
+                                        && min <= estimate.getUpperBound()));
+        SnapshotFactory.dispose(snapshot);
+        BenchmarkDumps.deleteAll(dump);
+    }
+
+    private static String error(long estimate, long actual)
+    {
+        return String.format("%+.2f%%", 100.0 * (estimate - actual) / actual); //$NON-NLS-1$
+    }
+
+    @Benchmark
+    public RetainedSizeEstimate estimate() throws SnapshotException
+    {
+        return snapshot.estimateRetainedSize(objectIds, sampleSize, new VoidProgressListener());
+    }
+
+    @Benchmark
+    public long minRetainedSize() throws SnapshotException
+    {
+        return snapshot.getMinRetainedSize(objectIds, new VoidProgressListener());
+    }
+
+    @Benchmark
+    public long preciseRetainedSize() throws SnapshotException
+    {
+        return snapshot.getHeapSize(snapshot.getRetainedSet(objectIds, new VoidProgressListener()));
+    }
+}
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.SnapshotFactory;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@link ISnapshot} operations which analyses call most often.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class SnapshotQueryBenchmark
+{
+    private static final int RANDOM_READS = 1 << 12;
+
+    @Param({ "500000" })
+    public int nodes;
+
+    private File dump;
+    private ISnapshot snapshot;
+    private int[] randomIds;
+    private long[] randomAddresses;
+    private int[] retainedSetRoots;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException, SnapshotException
+    {
+        dump = BenchmarkDumps.createDump(nodes);
+        snapshot = BenchmarkDumps.open(dump);
+        int n = snapshot.getSnapshotInfo().getNumberOfObjects();
+        Random r = new Random(BenchmarkDumps.SEED);
+        randomIds = new int[RANDOM_READS];
+        randomAddresses = new long[RANDOM_READS];
+        for (int i = 0; i < randomIds.length; ++i)
+        {
+            randomIds[i] = r.nextInt(n);
+            randomAddresses[i] = snapshot.mapIdToAddress(randomIds[i]);
+        }
+        int[] roots = snapshot.getGCRoots();
+        retainedSetRoots = new int[Math.min(16, roots.length)];
+        for (int i = 0; i < retainedSetRoots.length; ++i)
+            retainedSetRoots[i] = roots[r.nextInt(roots.length)];
+    }
+
+    @TearDown(Level.Trial)
+    public void close()
+    {
+        SnapshotFactory.dispose(snapshot);
+        BenchmarkDumps.deleteAll(dump);
+    }
+
+    @Benchmark
+    public long mapAddressToId() throws SnapshotException
+    {
+        long sum = 0;
+        for (long address : randomAddresses)
+            sum += snapshot.mapAddressToId(address);
+        return sum;
+    }
+
+    @Benchmark
+    public long getObject() throws SnapshotException
+    {
+        long sum = 0;
+        for (int id : randomIds)
+            sum += snapshot.getObject(id).getUsedHeapSize();
+        return sum;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int getRetainedSet() throws SnapshotException
+    {
+        int root = retainedSetRoots[next++ % retainedSetRoots.length];
+        return snapshot.getRetainedSet(new int[] { root }, new VoidProgressListener()).length;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object oqlSelectClass() throws SnapshotException
+    {
+        return SnapshotFactory.createQuery("SELECT * FROM bench.Node") //$NON-NLS-1$
+                        .execute(snapshot, new VoidProgressListener());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object oqlWhereField() throws SnapshotException
+    {
+        return SnapshotFactory.createQuery("SELECT n FROM bench.Node n WHERE n.value > 0 AND n.left != null") //$NON-NLS-1$
+                        .execute(snapshot, new VoidProgressListener());
+    }
+}
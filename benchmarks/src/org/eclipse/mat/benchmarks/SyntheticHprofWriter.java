@@ -0,0 +1,383 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Writes a reproducible HPROF heap dump without needing a running JVM.
+ * <p>
+ * The heap consists of linked chains of <code>bench.Node</code> objects with
+ * random cross references (so that the dominator tree is not just a copy of
+ * the reference graph), some <code>java.lang.String</code> objects with
+ * <code>char[]</code> values, and <code>bench.Holder</code> objects each holding
+ * an <code>Object[]</code> of node references. The same seed and sizes always
+ * produce a byte-for-byte identical file.
+ */
+public class SyntheticHprofWriter
+{
+    private static final int ID_SIZE = 8;
+    private static final long TIMESTAMP = 1700000000000L;
+    /** Flush a heap dump segment once it gets to this size */
+    private static final int SEGMENT_SIZE = 1 << 20;
+
+    // HPROF record tags, see org.eclipse.mat.hprof.AbstractParser.Constants
+    private static final int STRING_IN_UTF8 = 0x01;
+    private static final int LOAD_CLASS = 0x02;
+    private static final int HEAP_DUMP_SEGMENT = 0x1c;
+    private static final int HEAP_DUMP_END = 0x2c;
+    private static final int ROOT_JNI_GLOBAL = 0x01;
+    private static final int ROOT_STICKY_CLASS = 0x05;
+    private static final int CLASS_DUMP = 0x20;
+    private static final int INSTANCE_DUMP = 0x21;
+    private static final int OBJECT_ARRAY_DUMP = 0x22;
+    private static final int PRIMITIVE_ARRAY_DUMP = 0x23;
+
+    // basic types, see org.eclipse.mat.snapshot.model.IObject.Type
+    private static final int OBJECT = 2;
+    private static final int CHAR = 5;
+    private static final int INT = 10;
+    private static final int LONG = 11;
+
+    // class object addresses
+    private static final long CLS_OBJECT = 0x1000;
+    private static final long CLS_CLASS = 0x1100;
+    private static final long CLS_CLASSLOADER = 0x1200;
+    private static final long CLS_STRING = 0x1300;
+    private static final long CLS_CHAR_ARRAY = 0x1400;
+    private static final long CLS_OBJECT_ARRAY = 0x1500;
+    private static final long CLS_NODE = 0x1600;
+    private static final long CLS_HOLDER = 0x1700;
+
+    /** Node: next, left, right, name, value */
+    private static final int NODE_SIZE = 4 * ID_SIZE + 8;
+    private static final long NODE_STRIDE = 64;
+    private static final long STRING_STRIDE = 32;
+    private static final long HOLDER_STRIDE = 32;
+
+    private final int nodes;
+    private final int chainLength;
+    private final int holderFanout;
+    private final long seed;
+
+    private final long nodeBase;
+    private final long stringBase;
+    private final long charsBase;
+    private final long holderBase;
+    private final long arrayBase;
+
+    private final int strings;
+    private final int holders;
+
+    private long nextStringId = 0x100;
+
+    /**
+     * Describe a synthetic heap.
+     * @param nodes number of <code>bench.Node</code> objects
+     * @param chainLength nodes are linked via <code>next</code> in chains of this length
+     * @param holderFanout number of node references held by each <code>Object[]</code>
+     * @param seed seed for the random cross references
+     */
+    public SyntheticHprofWriter(int nodes, int chainLength, int holderFanout, long seed)
+    {
+        if (nodes <= 0 || chainLength <= 0 || holderFanout <= 0)
+            throw new IllegalArgumentException();
+        this.nodes = nodes;
+        this.chainLength = chainLength;
+        this.holderFanout = holderFanout;
+        this.seed = seed;
+
+        this.strings = (nodes + 15) / 16;
+        this.holders = (nodes + holderFanout * 4 - 1) / (holderFanout * 4);
+
+        this.nodeBase = 0x100000L;
+        this.stringBase = nodeBase + nodes * NODE_STRIDE;
+        // char[] of up to 32 chars
+        this.charsBase = stringBase + strings * STRING_STRIDE;
+        this.holderBase = charsBase + strings * 96L;
+        this.arrayBase = holderBase + holders * HOLDER_STRIDE;
+    }
+
+    /**
+     * The total number of objects written, excluding classes.
+     * @return the number of instances and arrays
+     */
+    public int getNumberOfObjects()
+    {
+        return nodes + 2 * strings + 2 * holders;
+    }
+
+    /**
+     * Write the dump.
+     * @param file the destination
+     * @return the file
+     * @throws IOException if the file cannot be written
+     */
+    public File write(File file) throws IOException
+    {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024)))
+        {
+            out.write("JAVA PROFILE 1.0.2".getBytes(StandardCharsets.US_ASCII)); //$NON-NLS-1$
+            out.write(0);
+            out.writeInt(ID_SIZE);
+            out.writeLong(TIMESTAMP);
+
+            long fNext = string(out, "next"); //$NON-NLS-1$
+            long fLeft = string(out, "left"); //$NON-NLS-1$
+            long fRight = string(out, "right"); //$NON-NLS-1$
+            long fName = string(out, "name"); //$NON-NLS-1$
+            long fValue = string(out, "value"); //$NON-NLS-1$
+            long fHash = string(out, "hash"); //$NON-NLS-1$
+            long fItems = string(out, "items"); //$NON-NLS-1$
+
+            int serial = 1;
+            loadClass(out, serial++, CLS_OBJECT, string(out, "java/lang/Object")); //$NON-NLS-1$
+            loadClass(out, serial++, CLS_CLASS, string(out, "java/lang/Class")); //$NON-NLS-1$
+            loadClass(out, serial++, CLS_CLASSLOADER, string(out, "java/lang/ClassLoader")); //$NON-NLS-1$
+            loadClass(out, serial++, CLS_STRING, string(out, "java/lang/String")); //$NON-NLS-1$
+            loadClass(out, serial++, CLS_CHAR_ARRAY, string(out, "[C")); //$NON-NLS-1$
+            loadClass(out, serial++, CLS_OBJECT_ARRAY, string(out, "[Ljava/lang/Object;")); //$NON-NLS-1$
+            loadClass(out, serial++, CLS_NODE, string(out, "bench/Node")); //$NON-NLS-1$
+            loadClass(out, serial++, CLS_HOLDER, string(out, "bench/Holder")); //$NON-NLS-1$
+
+            Segments seg = new Segments(out);
+
+            classDump(seg.buf, CLS_OBJECT, 0, 0);
+            classDump(seg.buf, CLS_CLASS, CLS_OBJECT, 0);
+            classDump(seg.buf, CLS_CLASSLOADER, CLS_OBJECT, 0);
+            classDump(seg.buf, CLS_STRING, CLS_OBJECT, ID_SIZE + 4, fValue, OBJECT, fHash, INT);
+            classDump(seg.buf, CLS_CHAR_ARRAY, CLS_OBJECT, 0);
+            classDump(seg.buf, CLS_OBJECT_ARRAY, CLS_OBJECT, 0);
+            classDump(seg.buf, CLS_NODE, CLS_OBJECT, NODE_SIZE, fNext, OBJECT, fLeft, OBJECT, fRight, OBJECT, fName,
+                            OBJECT, fValue, LONG);
+            classDump(seg.buf, CLS_HOLDER, CLS_OBJECT, ID_SIZE, fItems, OBJECT);
+            for (long cls = CLS_OBJECT; cls <= CLS_HOLDER; cls += 0x100)
+            {
+                seg.buf.writeByte(ROOT_STICKY_CLASS);
+                seg.buf.writeLong(cls);
+            }
+            seg.maybeFlush();
+
+            Random r = new Random(seed);
+
+            // chains of nodes with random references to earlier nodes
+            for (int i = 0; i < nodes; ++i)
+            {
+                long next = (i + 1) % chainLength != 0 && i + 1 < nodes ? node(i + 1) : 0;
+                long left = i > 0 && r.nextInt(4) == 0 ? node(r.nextInt(i)) : 0;
+                long right = i > 0 && r.nextInt(8) == 0 ? node(r.nextInt(i)) : 0;
+                long name = i % 16 == 0 ? string(i / 16) : 0;
+                seg.buf.writeByte(INSTANCE_DUMP);
+                seg.buf.writeLong(node(i));
+                seg.buf.writeInt(0);
+                seg.buf.writeLong(CLS_NODE);
+                seg.buf.writeInt(NODE_SIZE);
+                seg.buf.writeLong(next);
+                seg.buf.writeLong(left);
+                seg.buf.writeLong(right);
+                seg.buf.writeLong(name);
+                seg.buf.writeLong(r.nextLong());
+                if (i % chainLength == 0)
+                {
+                    seg.buf.writeByte(ROOT_JNI_GLOBAL);
+                    seg.buf.writeLong(node(i));
+                    seg.buf.writeLong(0);
+                }
+                seg.maybeFlush();
+            }
+
+            // strings, some with duplicate values
+            for (int i = 0; i < strings; ++i)
+            {
+                int len = 8 + r.nextInt(25);
+                seg.buf.writeByte(INSTANCE_DUMP);
+                seg.buf.writeLong(string(i));
+                seg.buf.writeInt(0);
+                seg.buf.writeLong(CLS_STRING);
+                seg.buf.writeInt(ID_SIZE + 4);
+                seg.buf.writeLong(chars(i));
+                seg.buf.writeInt(0);
+
+                seg.buf.writeByte(PRIMITIVE_ARRAY_DUMP);
+                seg.buf.writeLong(chars(i));
+                seg.buf.writeInt(0);
+                seg.buf.writeInt(len);
+                seg.buf.writeByte(CHAR);
+                int v = r.nextInt(Math.max(1, strings / 4));
+                for (int j = 0; j < len; ++j)
+                    seg.buf.writeChar('a' + (v + j) % 26);
+                seg.maybeFlush();
+            }
+
+            // holders with arrays of random nodes
+            for (int i = 0; i < holders; ++i)
+            {
+                seg.buf.writeByte(INSTANCE_DUMP);
+                seg.buf.writeLong(holder(i));
+                seg.buf.writeInt(0);
+                seg.buf.writeLong(CLS_HOLDER);
+                seg.buf.writeInt(ID_SIZE);
+                seg.buf.writeLong(array(i));
+
+                seg.buf.writeByte(OBJECT_ARRAY_DUMP);
+                seg.buf.writeLong(array(i));
+                seg.buf.writeInt(0);
+                seg.buf.writeInt(holderFanout);
+                seg.buf.writeLong(CLS_OBJECT_ARRAY);
+                for (int j = 0; j < holderFanout; ++j)
+                    seg.buf.writeLong(node(r.nextInt(nodes)));
+
+                seg.buf.writeByte(ROOT_JNI_GLOBAL);
+                seg.buf.writeLong(holder(i));
+                seg.buf.writeLong(0);
+                seg.maybeFlush();
+            }
+            seg.flush();
+
+            record(out, HEAP_DUMP_END, 0);
+        }
+        return file;
+    }
+
+    private long node(int i)
+    {
+        return nodeBase + i * NODE_STRIDE;
+    }
+
+    private long string(int i)
+    {
+        return stringBase + i * STRING_STRIDE;
+    }
+
+    private long chars(int i)
+    {
+        return charsBase + i * 96L;
+    }
+
+    private long holder(int i)
+    {
+        return holderBase + i * HOLDER_STRIDE;
+    }
+
+    private long array(int i)
+    {
+        return arrayBase + (long) i * (16 + holderFanout * ID_SIZE + 8);
+    }
+
+    private long string(DataOutputStream out, String s) throws IOException
+    {
+        long id = nextStringId++;
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        record(out, STRING_IN_UTF8, ID_SIZE + b.length);
+        out.writeLong(id);
+        out.write(b);
+        return id;
+    }
+
+    private static void loadClass(DataOutputStream out, int serial, long classId, long nameId) throws IOException
+    {
+        record(out, LOAD_CLASS, 4 + ID_SIZE + 4 + ID_SIZE);
+        out.writeInt(serial);
+        out.writeLong(classId);
+        out.writeInt(0);
+        out.writeLong(nameId);
+    }
+
+    /**
+     * Class dump with alternating field name ids and types.
+     */
+    private static void classDump(DataOutputStream out, long classId, long superId, int instanceSize, long... fields)
+                    throws IOException
+    {
+        out.writeByte(CLASS_DUMP);
+        out.writeLong(classId);
+        out.writeInt(0);
+        out.writeLong(superId);
+        out.writeLong(0); // class loader
+        out.writeLong(0); // signers
+        out.writeLong(0); // protection domain
+        out.writeLong(0); // reserved
+        out.writeLong(0); // reserved
+        out.writeInt(instanceSize);
+        out.writeShort(0); // constant pool
+        out.writeShort(0); // statics
+        out.writeShort(fields.length / 2);
+        for (int i = 0; i < fields.length; i += 2)
+        {
+            out.writeLong(fields[i]);
+            out.writeByte((int) fields[i + 1]);
+        }
+    }
+
+    private static void record(DataOutputStream out, int tag, int length) throws IOException
+    {
+        out.writeByte(tag);
+        out.writeInt(0);
+        out.writeInt(length);
+    }
+
+    /**
+     * Buffers heap dump sub-records so each segment can be prefixed with its length.
+     */
+    private static final class Segments
+    {
+        final DataOutputStream out;
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(SEGMENT_SIZE + 64 * 1024);
+        final DataOutputStream buf = new DataOutputStream(bytes);
+
+        Segments(DataOutputStream out)
+        {
+            this.out = out;
+        }
+
+        void maybeFlush() throws IOException
+        {
+            if (bytes.size() >= SEGMENT_SIZE)
+                flush();
+        }
+
+        void flush() throws IOException
+        {
+            if (bytes.size() == 0)
+                return;
+            record(out, HEAP_DUMP_SEGMENT, bytes.size());
+            bytes.writeTo((OutputStream) out);
+            bytes.reset();
+        }
+    }
+
+    /**
+     * Write a dump from the command line.
+     * @param args file [nodes [chainLength [holderFanout [seed]]]]
+     * @throws IOException if the dump cannot be written
+     */
+    public static void main(String[] args) throws IOException
+    {
+        File file = new File(args.length > 0 ? args[0] : "synthetic.hprof"); //$NON-NLS-1$
+        int nodes = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+        int chain = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int fanout = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 1L;
+        SyntheticHprofWriter w = new SyntheticHprofWriter(nodes, chain, fanout, seed);
+        w.write(file);
+        System.out.println("Wrote " + w.getNumberOfObjects() + " objects to " + file.getAbsolutePath()); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+}
@@ -47,10 +47,35 @@ sourceSets {
             include("**/*.properties")
         }
     }
+    // JMH 基准测试：使用合成的 HPROF 文件，不依赖外部 dump，不打包进 jar
+    create("jmh") {
+        java {
+            setSrcDirs(listOf("benchmarks/src"))
+        }
+        resources {
+            setSrcDirs(emptyList<String>())
+        }
+        compileClasspath += sourceSets["main"].output
+        runtimeClasspath += sourceSets["main"].output
+    }
 }
 
+val jmhVersion = "1.37"
+
 dependencies {
     // 零外部依赖 - 纯 Java API
+    // 以下依赖仅用于 jmh 源集
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:$jmhVersion")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:$jmhVersion")
+}
+
+// 运行基准测试，例如: ./gradlew jmh -PjmhArgs="ParseBenchmark -p nodes=2000000"
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "Runs the JMH benchmarks against synthetic heap dumps."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    args((project.findProperty("jmhArgs") as String? ?: "").split(" ").filter { it.isNotBlank() })
 }
 
 tasks.jar {
@@ -9,6 +9,7 @@
  *
  * Contributors:
  *    SAP AG - initial API and implementation
+ *    Standalone adaptation - paged dominator tree
  *******************************************************************************/
 package org.eclipse.mat.inspections;
 
@@ -33,7 +34,8 @@ public class BiggestObjectsPieQuery implements IQuery
 
     public IResultPie execute(IProgressListener listener) throws Exception
     {
-        int[] objects = snapshot.getImmediateDominatedIds(-1);
+        // at most 10 slices, from the biggest top-level dominators
+        int[] objects = snapshot.getImmediateDominatedIds(-1, 0, 10);
 
         final long totalHeapSize = snapshot.getSnapshotInfo().getUsedHeapSize();
 
@@ -9,6 +9,7 @@
  *
  * Contributors:
  *    Andrew Johnson/IBM Corporation - initial API and implementation
+ *    Standalone adaptation - concurrent histograms
  *******************************************************************************/
 package org.eclipse.mat.inspections;
 
@@ -20,6 +21,7 @@ import org.eclipse.mat.query.annotations.CommandName;
 import org.eclipse.mat.query.annotations.Icon;
 import org.eclipse.mat.query.annotations.Argument.Advice;
 import org.eclipse.mat.snapshot.Histogram;
+import org.eclipse.mat.snapshot.HistogramComparison;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.SnapshotFactory;
 import org.eclipse.mat.util.IProgressListener;
@@ -37,9 +39,22 @@ public class DeltaHistogram extends HistogramQuery
     {
         int parts[] = new int[] {40,40,20};
         SimpleMonitor sm = new SimpleMonitor(Messages.DeltaHistogram_Progress, listener, parts);
-        Histogram h1 = (Histogram) super.execute(sm.nextMonitor());
-        snapshot = baseline;
-        Histogram h2 = (Histogram) super.execute(sm.nextMonitor());
+        Histogram h1, h2;
+        if (objects == null && groupBy == Grouping.BY_CLASS)
+        {
+            // Whole snapshot histograms, so build both at the same time
+            Histogram histograms[] = HistogramComparison.computeHistograms(new ISnapshot[] { snapshot, baseline },
+                            sm.nextMonitor());
+            sm.nextMonitor();
+            h1 = histograms[0];
+            h2 = histograms[1];
+        }
+        else
+        {
+            h1 = (Histogram) super.execute(sm.nextMonitor());
+            snapshot = baseline;
+            h2 = (Histogram) super.execute(sm.nextMonitor());
+        }
         sm.nextMonitor();
         Histogram h3 = h1.diffWithBaseline(h2);
         // Currently it seems a SECONDARY_SNAPSHOT is not disposed by the caller.
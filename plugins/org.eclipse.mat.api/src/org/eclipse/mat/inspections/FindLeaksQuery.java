@@ -10,6 +10,7 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    Andrew Johnson (IBM Corporation)- for comparisons
+ *    Standalone adaptation - paged dominator tree, biggest retained sizes
  *******************************************************************************/
 package org.eclipse.mat.inspections;
 
@@ -28,6 +29,7 @@ import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayInt;
 import org.eclipse.mat.collect.ArrayIntBig;
 import org.eclipse.mat.collect.BitField;
+import org.eclipse.mat.collect.SetInt;
 import org.eclipse.mat.internal.Messages;
 import org.eclipse.mat.internal.snapshot.inspections.Path2GCRootsQuery;
 import org.eclipse.mat.query.Bytes;
@@ -50,6 +52,7 @@ import org.eclipse.mat.snapshot.Histogram;
 import org.eclipse.mat.snapshot.IMultiplePathsFromGCRootsComputer;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.MultiplePathsFromGCRootsRecord;
+import org.eclipse.mat.snapshot.TopRetainedTable;
 import org.eclipse.mat.snapshot.model.GCRootInfo;
 import org.eclipse.mat.snapshot.model.IClass;
 import org.eclipse.mat.snapshot.model.IObject;
@@ -104,9 +107,24 @@ public class FindLeaksQuery implements IQuery
         int[] topDominators;
 
         totalHeap = snapshot.getSnapshotInfo().getUsedHeapSize();
-        topDominators = snapshot.getImmediateDominatedIds(-1);
         long threshold = threshold_percent * totalHeap / 100;
 
+        /*
+         * The biggest objects and the top-level dominator classes recorded
+         * with the dominator tree answer without reading its root.
+         */
+        TopRetainedTable top = snapshot.getTopRetainedTable();
+        int[] bigObjects = top != null ? top.getTopLevelObjectIds(threshold) : null;
+        if (bigObjects != null)
+        {
+            listener.subTask(Messages.FindLeaksQuery_SearchingGroupsOfObjects);
+            ArrayList<ClassHistogramRecord> suspiciousClasses = findSuspiciousClasses(top, bigObjects, threshold,
+                            listener);
+            return buildResult(new ArrayInt(bigObjects), suspiciousClasses, totalHeap, listener);
+        }
+
+        topDominators = snapshot.getImmediateDominatedIds(-1);
+
         /*
          * find suspect single objects
          */
@@ -160,6 +178,49 @@ public class FindLeaksQuery implements IQuery
 
     }
 
+    /**
+     * The classes whose top-level dominators, apart from the single
+     * suspects, retain more than the threshold, as
+     * {@link #groupByClasses(int[], IProgressListener)} finds them.
+     */
+    private ArrayList<ClassHistogramRecord> findSuspiciousClasses(TopRetainedTable top, int[] bigObjects,
+                    long threshold, IProgressListener listener) throws SnapshotException
+    {
+        SetInt single = new SetInt();
+        for (int objectId : bigObjects)
+            single.add(objectId);
+
+        ArrayList<ClassHistogramRecord> suspiciousClasses = new ArrayList<ClassHistogramRecord>();
+        for (int classId : top.getClassIds())
+        {
+            // ordered by the retained size including the single suspects
+            if (top.getTopLevelRetainedHeapSize(classId) <= threshold)
+                break;
+            if (listener.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
+
+            IClass clazz = (IClass) snapshot.getObject(classId);
+            ArrayInt objectIds = new ArrayInt();
+            long retained = 0;
+            for (int objectId : clazz.getObjectIds())
+            {
+                if (snapshot.getImmediateDominatorId(objectId) == -1 && !single.contains(objectId))
+                {
+                    objectIds.add(objectId);
+                    retained += snapshot.getRetainedHeapSize(objectId);
+                }
+            }
+            if (retained > threshold)
+            {
+                int[] ids = objectIds.toArray();
+                suspiciousClasses.add(new ClassHistogramRecord(clazz.getName(), classId, ids,
+                                snapshot.getHeapSize(ids), retained));
+            }
+        }
+        Collections.sort(suspiciousClasses, Histogram.reverseComparator(Histogram.COMPARATOR_FOR_RETAINEDHEAPSIZE));
+        return suspiciousClasses;
+    }
+
     private Histogram groupByClasses(int[] dominated, IProgressListener listener) throws SnapshotException
     {
         Histogram histogram = snapshot.getHistogram(dominated, listener);
@@ -212,7 +273,8 @@ public class FindLeaksQuery implements IQuery
     {
         int dominator = bigObjectId;
         double dominatorRetainedSize = snapshot.getRetainedHeapSize(dominator);
-        int dominated[] = snapshot.getImmediateDominatedIds(dominator);
+        // only the biggest dominated object is followed
+        int dominated[] = snapshot.getImmediateDominatedIds(dominator, 0, 1);
 
         int depth = 0;
         while (dominated != null && dominated.length != 0 && depth < MAX_DEPTH)
@@ -223,7 +285,7 @@ public class FindLeaksQuery implements IQuery
 
             dominatorRetainedSize = dominatedRetainedSize;
             dominator = dominated[0];
-            dominated = snapshot.getImmediateDominatedIds(dominator);
+            dominated = snapshot.getImmediateDominatedIds(dominator, 0, 1);
             depth++;
         }
 
@@ -9,15 +9,18 @@
  *
  * Contributors:
  *    SAP AG - initial API and implementation
+ *    Standalone adaptation - string table
  *******************************************************************************/
 package org.eclipse.mat.inspections;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.regex.Pattern;
 
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayInt;
+import org.eclipse.mat.collect.SetLong;
 import org.eclipse.mat.internal.Messages;
 import org.eclipse.mat.query.IQuery;
 import org.eclipse.mat.query.IResult;
@@ -26,6 +29,7 @@ import org.eclipse.mat.query.annotations.CommandName;
 import org.eclipse.mat.query.annotations.HelpUrl;
 import org.eclipse.mat.query.annotations.Icon;
 import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.StringTable;
 import org.eclipse.mat.snapshot.extension.Subject;
 import org.eclipse.mat.snapshot.model.IClass;
 import org.eclipse.mat.snapshot.model.IObject;
@@ -64,13 +68,21 @@ public class FindStringsQuery implements IQuery
     @Argument
     public Pattern pattern;
 
+    /** the length of the names of strings, as from {@link CommonNameResolver.StringResolver} */
+    private static final int NAME_LIMIT = 1024;
+
     public IResult execute(IProgressListener listener) throws Exception
     {
         boolean onlyStrings = false;
         ArrayInt result = new ArrayInt();
 
         Collection<IClass> classes = snapshot.getClassesByName("java.lang.String", false); //$NON-NLS-1$
-        if (objects == null)
+        StringTable strings = snapshot.getStringTable();
+        if (objects == null && strings != null)
+        {
+            findInStringTable(strings, result, listener);
+        }
+        else if (objects == null)
         {
             if (classes != null)
                 ClassesLoop: for (IClass clasz : classes)
@@ -118,6 +130,15 @@ public class FindStringsQuery implements IQuery
                             continue;
                         }
 
+                        String tableValue = strings != null ? strings.getDisplayValue(id, NAME_LIMIT) : null;
+                        if (tableValue != null)
+                        {
+                            if (pattern.matcher(tableValue).matches())
+                                result.add(id);
+                            listener.worked(hot.work());
+                            continue;
+                        }
+
                         IObject instance = snapshot.getObject(id);
                         // if (!classes.contains(instance.getClazz()))
                         if (onlyStrings && !javaLangString.equals(instance.getClazz()))
@@ -146,4 +167,33 @@ public class FindStringsQuery implements IQuery
 
         return new ObjectListResult.Outbound(snapshot, result.toArray());
     }
+
+    /**
+     * Match each distinct value once, then collect the strings with a
+     * matching value, reading the table from start to end twice.
+     */
+    private void findInStringTable(StringTable strings, ArrayInt result, IProgressListener listener)
+                    throws IOException
+    {
+        listener.beginTask(Messages.FindStringsQuery_SearchingStrings, strings.getDistinctCount() + strings.size());
+        SetLong matching = new SetLong();
+        try
+        {
+            strings.scanContents((contentId, value, kind) -> {
+                if (pattern.matcher(StringTable.toDisplayValue(value, kind, NAME_LIMIT)).matches())
+                    matching.add(contentId);
+                listener.worked(1);
+            }, listener);
+            strings.scanObjects((objectId, contentId, hashCode) -> {
+                if (matching.contains(contentId))
+                    result.add(objectId);
+                listener.worked(1);
+            }, listener);
+        }
+        catch (IProgressListener.OperationCanceledException e)
+        {
+            // keep what has been found so far
+        }
+        listener.done();
+    }
 }
@@ -10,6 +10,7 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    IBM Corporation - enhancements and fixes
+ *    Standalone adaptation - parse statistics
  *******************************************************************************/
 package org.eclipse.mat.inspections;
 
@@ -34,6 +35,7 @@ import org.eclipse.mat.query.annotations.Category;
 import org.eclipse.mat.query.annotations.CommandName;
 import org.eclipse.mat.query.annotations.Icon;
 import org.eclipse.mat.query.results.ListResult;
+import org.eclipse.mat.snapshot.IParseStatistics;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.SnapshotInfo;
 import org.eclipse.mat.snapshot.query.SnapshotQuery;
@@ -182,6 +184,15 @@ public class HeapDumpInfoQuery implements IQuery
         {
             entries.add(new TextEntry(Messages.HeapDumpInfoQuery_DiscardSeed, MessageUtil.format(Messages.HeapDumpInfoQuery_DiscardSeed_format, discard_seed)));
         }
+        IParseStatistics statistics = info.getParseStatistics();
+        if (statistics != null)
+        {
+            entries.add(new TextEntry(Messages.HeapDumpInfoQuery_ParseTime, MessageUtil.format(Messages.HeapDumpInfoQuery_ParseTime_format, statistics.getTotalWallTimeMillis())));
+            for (IParseStatistics.Phase phase : statistics.getPhases())
+            {
+                entries.add(new TextEntry(MessageUtil.format(Messages.HeapDumpInfoQuery_ParsePhase, phase.getName()), getPhaseSummary(phase)));
+            }
+        }
 
         return new ListResult(TextEntry.class, entries, "propertyName", "propertyValue"); //$NON-NLS-1$ //$NON-NLS-2$
     }
@@ -192,6 +203,23 @@ public class HeapDumpInfoQuery implements IQuery
 
     }
 
+    private String getPhaseSummary(IParseStatistics.Phase phase)
+    {
+        NumberFormat numberFormatter = NumberFormat.getIntegerInstance();
+        return MessageUtil.format(Messages.HeapDumpInfoQuery_ParsePhase_format, phase.getWallTimeMillis(),
+                        phase.getCpuTimeMillis() >= 0 ? numberFormatter.format(phase.getCpuTimeMillis()) : Messages.HeapDumpInfoQuery_NotAvailable,
+                        phase.getObjects() >= 0 ? numberFormatter.format(phase.getObjects()) : Messages.HeapDumpInfoQuery_NotAvailable,
+                        phase.getObjectsPerSecond() >= 0 ? numberFormatter.format(phase.getObjectsPerSecond()) : Messages.HeapDumpInfoQuery_NotAvailable,
+                        getBytes(phase.getBytesRead()), getBytes(phase.getPeakHeapBytes()), getBytes(phase.getIndexFileBytes()));
+    }
+
+    private String getBytes(long bytes)
+    {
+        if (bytes < 0)
+            return Messages.HeapDumpInfoQuery_NotAvailable;
+        return Units.Storage.of(bytes).format(bytes);
+    }
+
     private String getSize(int identifierSize)
     {
         switch (identifierSize)
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.inspections;
+
+import java.util.List;
+
+import org.eclipse.mat.query.IQuery;
+import org.eclipse.mat.query.IResult;
+import org.eclipse.mat.query.annotations.Argument;
+import org.eclipse.mat.query.annotations.Argument.Advice;
+import org.eclipse.mat.query.annotations.CommandName;
+import org.eclipse.mat.query.annotations.Icon;
+import org.eclipse.mat.snapshot.HistogramComparison;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.SnapshotFactory;
+import org.eclipse.mat.util.IProgressListener;
+
+/**
+ * Compare the histogram of this snapshot with the histograms of several
+ * later snapshots in one pass.
+ * @since 1.17
+ */
+@CommandName("compare_histograms")
+@Icon("/META-INF/icons/delta_histogram.gif")
+public class HistogramComparisonQuery implements IQuery
+{
+    @Argument
+    public ISnapshot snapshot;
+
+    @Argument(advice = Advice.SECONDARY_SNAPSHOT)
+    public List<ISnapshot> snapshots;
+
+    public IResult execute(IProgressListener listener) throws Exception
+    {
+        try
+        {
+            return HistogramComparison.compare(snapshot, snapshots, listener);
+        }
+        finally
+        {
+            // As with DeltaHistogram, the secondary snapshots are not disposed by the caller.
+            for (ISnapshot other : snapshots)
+            {
+                if (other != snapshot)
+                    SnapshotFactory.dispose(other);
+            }
+        }
+    }
+}
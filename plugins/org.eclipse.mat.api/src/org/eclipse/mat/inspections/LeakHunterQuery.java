@@ -10,6 +10,7 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    Andrew Johnson - improve progress monitor checking
+ *    Standalone adaptation - paged dominator tree
  *******************************************************************************/
 package org.eclipse.mat.inspections;
 
@@ -1339,8 +1340,8 @@ public class LeakHunterQuery implements IQuery
             e = tmp.pop();
             treeBuilder.addChild(e, e == objectId);
         }
-        int[] dominatedByAccPoint = snapshot.getImmediateDominatedIds(objectId);
-        for (int i = 0; i < 20 && i < dominatedByAccPoint.length; i++)
+        int[] dominatedByAccPoint = snapshot.getImmediateDominatedIds(objectId, 0, 20);
+        for (int i = 0; i < dominatedByAccPoint.length; i++)
         {
             treeBuilder.addSibling(dominatedByAccPoint[i], false);
         }
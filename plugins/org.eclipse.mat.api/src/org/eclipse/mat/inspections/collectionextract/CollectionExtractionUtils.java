@@ -11,6 +11,7 @@
  *    SAP AG - initial API and implementation
  *    IBM Corporation - enhancements and fixes
  *    James Livingston - expose collection utils as API
+ *    Standalone adaptation - thread safe extractor cache
  *******************************************************************************/
 package org.eclipse.mat.inspections.collectionextract;
 
@@ -60,32 +61,41 @@ public class CollectionExtractionUtils
         IClass collectionClass = collection.getClazz();
 
         /* Cache the lookup */
-        HashMapIntObject<ICollectionExtractor>c1 = cache.get(snapshot);
-        if (c1 == null)
+        HashMapIntObject<ICollectionExtractor>c1;
+        synchronized (cache)
         {
-            c1 = new HashMapIntObject<ICollectionExtractor>();
-            cache.put(snapshot, c1);
+            c1 = cache.get(snapshot);
+            if (c1 == null)
+            {
+                c1 = new HashMapIntObject<ICollectionExtractor>();
+                cache.put(snapshot, c1);
+            }
         }
-        else
+        // the collection queries look up extractors from several threads
+        synchronized (c1)
         {
             if (c1.containsKey(collectionClass.getObjectId()))
                 return c1.get(collectionClass.getObjectId());
         }
         JdkVersion version = ExtractionUtils.resolveVersion(snapshot);
 
+        ICollectionExtractor extractor = null;
         for (CollectionExtractionInfo info : CollectionExtractorProviderRegistry.instance().getCollectionExtractionInfo())
         {
             if (info.version.contains(version))
             {
                 if (collectionClass.doesExtend(info.className))
                 { 
-                    c1.put(collectionClass.getObjectId(), info.extractor);
-                    return info.extractor;
+                    extractor = info.extractor;
+                    break;
                 }
             }
         }
-        c1.put(collectionClass.getObjectId(), null);
-        return null;
+        synchronized (c1)
+        {
+            c1.put(collectionClass.getObjectId(), extractor);
+        }
+        return extractor;
     }
 
     /**
@@ -11,11 +11,10 @@
  *    SAP AG - initial API and implementation
  *    IBM Corporation - enhancements and fixes
  *    James Livingston - expose collection utils as API
+ *    Standalone adaptation - parallel extraction
  *******************************************************************************/
 package org.eclipse.mat.inspections.collections;
 
-import java.util.Arrays;
-
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayInt;
 import org.eclipse.mat.collect.ArrayIntBig;
@@ -30,7 +29,10 @@ import org.eclipse.mat.collect.SetInt;
 import org.eclipse.mat.collect.SetLong;
 import org.eclipse.mat.inspections.collectionextract.AbstractExtractedCollection;
 import org.eclipse.mat.inspections.collectionextract.CollectionExtractionUtils;
+import org.eclipse.mat.inspections.collectionextract.ExtractedCollection;
+import org.eclipse.mat.inspections.collectionextract.ExtractedMap;
 import org.eclipse.mat.inspections.collectionextract.ICollectionExtractor;
+import org.eclipse.mat.inspections.collectionextract.IMapExtractor;
 import org.eclipse.mat.internal.Messages;
 import org.eclipse.mat.query.quantize.Quantize;
 import org.eclipse.mat.snapshot.ISnapshot;
@@ -56,8 +58,27 @@ public class AbstractFillRatioQuery
         }
     }
 
-    protected void runQuantizer(IProgressListener listener, Quantize quantize, ICollectionExtractor specificExtractor,
-                    String specificClass, ISnapshot snapshot, Iterable<int[]> objects, String msg) throws SnapshotException
+    /**
+     * How the collections of a class are extracted.
+     */
+    private static class ClassExtraction
+    {
+        /** the extractor given to the query is used for the class */
+        final boolean specific;
+        final ICollectionExtractor extractor;
+        /** the size of a slot of the backing array */
+        final int refsize;
+        public ClassExtraction(boolean specific, ICollectionExtractor extractor, int refsize)
+        {
+            this.specific = specific;
+            this.extractor = extractor;
+            this.refsize = refsize;
+        }
+    }
+
+    protected void runQuantizer(IProgressListener listener, final Quantize quantize,
+                    final ICollectionExtractor specificExtractor, final String specificClass, ISnapshot snapshot,
+                    Iterable<int[]> objects, String msg) throws SnapshotException
     {
         SnapshotInfo info = snapshot.getSnapshotInfo();
         final int refsize = info.getIdentifierSize() == 8
@@ -65,140 +86,130 @@ public class AbstractFillRatioQuery
                                         ? 4
                                         : info.getIdentifierSize();
         final long LIMIT = 20;
-        HashMapIntLong exceptions = new HashMapIntLong();
-        int counter = 0;
-        IClass type = null;
-        for (int[] objectIds : objects)
+        final HashMapIntLong exceptions = new HashMapIntLong();
+        final IProgressListener progress = listener;
+
+        CollectionScan.run(snapshot, objects, new CollectionScan.Extraction<ClassExtraction, Result>()
         {
-            HashMapIntObject<Result> resultMap = null;
-            int sortedObjs[] = objectIds;
-            int prev = Integer.MIN_VALUE;
-            for (int objectId : objectIds)
+            public ClassExtraction prepare(IObject first) throws SnapshotException
             {
-                if (objectId < prev)
-                {
-                    sortedObjs = objectIds.clone();
-                    Arrays.sort(sortedObjs);
-                    resultMap = new HashMapIntObject<Result>();
-                    break;
-                }
-                prev = objectId;
+                boolean specific = specificClass != null && first.getClazz().doesExtend(specificClass);
+                ICollectionExtractor extractor = specific ? specificExtractor
+                                : CollectionExtractionUtils.findCollectionExtractor(first);
+                return new ClassExtraction(specific, extractor, slotSize(first.getClazz(), refsize));
             }
-            for (int objectId : sortedObjs)
-            {
-                if (listener.isCanceled())
-                    break;
 
-                IObject obj = snapshot.getObject(objectId);
-                if (counter++ % 1000 == 0 && !obj.getClazz().equals(type))
-                {
-                    type = obj.getClazz();
-                    listener.subTask(msg + "\n" + type.getName()); //$NON-NLS-1$
-                }
-                try
+            public Result extract(IObject obj, ClassExtraction cls) throws SnapshotException
+            {
+                AbstractExtractedCollection<?, ?> coll;
+                if (cls.specific)
+                    coll = new ExtractedCollection(obj, cls.extractor);
+                else if (cls.extractor == null)
+                    coll = null;
+                else if (cls.extractor instanceof IMapExtractor)
+                    coll = new ExtractedMap(obj, (IMapExtractor) cls.extractor);
+                else
+                    coll = new ExtractedCollection(obj, cls.extractor);
+                if (coll != null && coll.hasCapacity())
                 {
-                    AbstractExtractedCollection<?, ?> coll = CollectionExtractionUtils.extractCollection(obj, specificClass,
-                                    specificExtractor);
-                    if (coll != null && coll.hasCapacity())
+                    Double fillRatio = coll.getFillRatio();
+                    if (fillRatio != null)
                     {
-                        Double fillRatio = coll.getFillRatio();
-                        if (fillRatio != null)
+                        long wasted = 0;
+                        if (coll.hasCapacity())
                         {
-                            long wasted = 0;
-                            if (coll.hasCapacity())
+                            Integer c = coll.getCapacity();
+                            if (c != null)
                             {
-                                Integer c = coll.getCapacity();
-                                if (c != null)
-                                {
-                                    // These don't have reference sized slots
-                                    int refsize2;
-                                    if (obj.getClazz().getName().equals(SetInt.class.getName()))
-                                        refsize2 = 4;
-                                    else if (obj.getClazz().getName().equals(ArrayInt.class.getName()))
-                                        refsize2 = 4;
-                                    else if (obj.getClazz().getName().equals(QueueInt.class.getName()))
-                                        refsize2 = 4;
-                                    else if (obj.getClazz().getName().equals(SetLong.class.getName()))
-                                        refsize2 = 8;
-                                    else if (obj.getClazz().getName().equals(ArrayLong.class.getName()))
-                                        refsize2 = 8;
-                                    else if (obj.getClazz().getName().equals(HashMapIntLong.class.getName()))
-                                        refsize2 = 13;
-                                    else if (obj.getClazz().getName().equals(HashMapIntObject.class.getName()))
-                                        refsize2 = 5 + refsize;
-                                    else if (obj.getClazz().getName().equals(HashMapLongObject.class.getName()))
-                                        refsize2 = 9 + refsize;
-                                    else if (obj.getClazz().getName().equals(HashMapObjectLong.class.getName()))
-                                        refsize2 = 9 + refsize;
-                                    else if (obj.getClazz().getName().equals(ArrayIntBig.class.getName()))
-                                        refsize2 = 4;
-                                    else if (obj.getClazz().getName().equals(ArrayLongBig.class.getName()))
-                                        refsize2 = 8;
-                                    else
-                                        refsize2 = refsize;
-                                    wasted = (long)(c * refsize2 * (1 - fillRatio));
-                                }
+                                wasted = (long)(c * cls.refsize * (1 - fillRatio));
                             }
-                            else if (coll.hasExtractableArray())
+                        }
+                        else if (coll.hasExtractableArray())
+                        {
+                            IObjectArray backing = coll.extractEntries();
+                            if (backing != null)
                             {
-                                IObjectArray backing = coll.extractEntries();
-                                if (backing != null)
-                                {
-                                    wasted = (long)(backing.getClazz().getHeapSizePerInstance() * (1 - fillRatio));
-                                }
+                                wasted = (long)(backing.getClazz().getHeapSizePerInstance() * (1 - fillRatio));
                             }
-                            else if (coll.hasSize())
+                        }
+                        else if (coll.hasSize())
+                        {
+                            Integer size = coll.size();
+                            if (size != null)
                             {
-                                Integer size = coll.size();
-                                if (size != null)
+                                int s = size;
+                                // Try to have some limits on what might be calculated
+                                if (fillRatio > 0)
                                 {
-                                    int s = size;
-                                    // Try to have some limits on what might be calculated
-                                    if (fillRatio > 0)
-                                    {
-                                        wasted = (long) Math.min((s * refsize / (1 - fillRatio)),
-                                                        coll.getUsedHeapSize());
-                                    }
+                                    wasted = (long) Math.min((s * refsize / (1 - fillRatio)),
+                                                    coll.getUsedHeapSize());
                                 }
                             }
-                            if (resultMap != null)
-                                resultMap.put(objectId, new Result(fillRatio, coll.getUsedHeapSize(),wasted));
-                            else
-                                quantize.addValue(objectId, fillRatio, 1, coll.getUsedHeapSize(), wasted);
                         }
+                        return new Result(fillRatio, coll.getUsedHeapSize(), wasted);
                     }
                 }
-                catch (RuntimeException e)
-                {
-                    int classId = obj.getClazz().getObjectId();
-                    if (!exceptions.containsKey(classId))
-                    {
-                        exceptions.put(classId, 0);
-                    }
-                    long c =  exceptions.get(classId);
-                    exceptions.put(classId, c + 1);
-                    if (c < LIMIT)
-                    {
-                        listener.sendUserMessage(
-                                        IProgressListener.Severity.INFO,
-                                        MessageUtil.format(Messages.CollectionFillRatioQuery_IgnoringCollection,
-                                                        obj.getTechnicalName()), e);
-                    }
-                }
+                return null;
             }
-            if (resultMap != null)
+        }, new CollectionScan.Sink<Result>()
+        {
+            public void accept(int objectId, Result r) throws SnapshotException
             {
-                for (int objectId : objectIds)
+                quantize.addValue(objectId, r.fill, 1, r.used, r.wasted);
+            }
+
+            public void failed(IObject obj, Exception e) throws SnapshotException
+            {
+                if (!(e instanceof RuntimeException))
+                    throw SnapshotException.rethrow(e);
+                int classId = obj.getClazz().getObjectId();
+                if (!exceptions.containsKey(classId))
                 {
-                    if (resultMap.containsKey(objectId))
-                    {
-                        Result r = resultMap.get(objectId);
-                        quantize.addValue(objectId, r.fill, 1, r.used, r.wasted);
-                    }
+                    exceptions.put(classId, 0);
+                }
+                long c =  exceptions.get(classId);
+                exceptions.put(classId, c + 1);
+                if (c < LIMIT)
+                {
+                    progress.sendUserMessage(
+                                    IProgressListener.Severity.INFO,
+                                    MessageUtil.format(Messages.CollectionFillRatioQuery_IgnoringCollection,
+                                                    obj.getTechnicalName()), e);
                 }
             }
-            if (listener.isCanceled())
-                break;
-        }
+        }, msg, listener);
+    }
+
+    /**
+     * The size of a slot of the backing array of the collections of a class.
+     */
+    private static int slotSize(IClass cls, int refsize)
+    {
+        // These don't have reference sized slots
+        String name = cls.getName();
+        if (name.equals(SetInt.class.getName()))
+            return 4;
+        else if (name.equals(ArrayInt.class.getName()))
+            return 4;
+        else if (name.equals(QueueInt.class.getName()))
+            return 4;
+        else if (name.equals(SetLong.class.getName()))
+            return 8;
+        else if (name.equals(ArrayLong.class.getName()))
+            return 8;
+        else if (name.equals(HashMapIntLong.class.getName()))
+            return 13;
+        else if (name.equals(HashMapIntObject.class.getName()))
+            return 5 + refsize;
+        else if (name.equals(HashMapLongObject.class.getName()))
+            return 9 + refsize;
+        else if (name.equals(HashMapObjectLong.class.getName()))
+            return 9 + refsize;
+        else if (name.equals(ArrayIntBig.class.getName()))
+            return 4;
+        else if (name.equals(ArrayLongBig.class.getName()))
+            return 8;
+        else
+            return refsize;
     }
 }
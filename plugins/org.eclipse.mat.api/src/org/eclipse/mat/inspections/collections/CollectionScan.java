@@ -0,0 +1,307 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.inspections.collections;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.HashMapIntObject;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.model.IObject;
+import org.eclipse.mat.util.IProgressListener;
+
+/**
+ * Extracts the collections given to a collection query on several threads.
+ * <p>
+ * The ids of each argument are sorted, so that the objects are read in index
+ * order, and split into chunks which are extracted on a pool of threads.
+ * What depends only on the class of a collection, such as its extractor, is
+ * prepared once per class. The results are handed back on the calling thread
+ * in the order of the argument, as they were when the queries ran on one
+ * thread, so the results of a query do not depend on the number of threads.
+ * @param <C> what is prepared for each class
+ * @param <R> the result of the extraction of a collection
+ */
+class CollectionScan<C, R>
+{
+    /**
+     * The work done for each collection, on any thread.
+     */
+    interface Extraction<C, R>
+    {
+        /**
+         * Prepare the extraction of the collections of a class.
+         * @param first the first collection of the class
+         * @return what the extraction of each collection of the class needs
+         */
+        C prepare(IObject first) throws SnapshotException;
+
+        /**
+         * Extract one collection.
+         * @param collection the collection
+         * @param prepared what was prepared for the class of the collection
+         * @return the result, or null to skip the collection
+         */
+        R extract(IObject collection, C prepared) throws SnapshotException;
+    }
+
+    /**
+     * What is done with the results, on the calling thread.
+     */
+    interface Sink<R>
+    {
+        /**
+         * Take the result of a collection, in the order of the argument.
+         */
+        void accept(int objectId, R result) throws SnapshotException;
+
+        /**
+         * A collection could not be extracted. Called in the order of the
+         * sorted ids, before the results of the argument are taken if its ids
+         * were not sorted.
+         * @param collection the collection
+         * @param e the exception from the extraction
+         * @throws SnapshotException to stop the scan
+         */
+        void failed(IObject collection, Exception e) throws SnapshotException;
+    }
+
+    /** the most and fewest collections extracted by a worker at a time */
+    private static final int MAX_CHUNK_SIZE = 1024;
+    private static final int MIN_CHUNK_SIZE = 64;
+    /** chunks in flight per thread, which bounds the results held back */
+    private static final int CHUNKS_PER_THREAD = 4;
+    /** marks a class with nothing prepared */
+    private static final Object NONE = new Object();
+
+    private static final class Failure
+    {
+        final IObject collection;
+        final Exception exception;
+
+        Failure(IObject collection, Exception exception)
+        {
+            this.collection = collection;
+            this.exception = exception;
+        }
+    }
+
+    private final ISnapshot snapshot;
+    private final Extraction<C, R> extraction;
+    private final Sink<R> sink;
+    private final String message;
+    private final IProgressListener listener;
+    private final ConcurrentHashMap<Integer, Object> prepared = new ConcurrentHashMap<Integer, Object>();
+    private IClass type;
+
+    private CollectionScan(ISnapshot snapshot, Extraction<C, R> extraction, Sink<R> sink, String message,
+                    IProgressListener listener)
+    {
+        this.snapshot = snapshot;
+        this.extraction = extraction;
+        this.sink = sink;
+        this.message = message;
+        this.listener = listener;
+    }
+
+    /**
+     * Extract the collections of a query argument. Stops early when
+     * cancelled.
+     * @param snapshot the snapshot
+     * @param objects the argument, a series of arrays of object ids
+     * @param extraction the work done for each collection
+     * @param sink what is done with the results
+     * @param message the progress message, followed by the class being extracted
+     * @param listener for progress and cancellation
+     * @throws SnapshotException if an extraction or the sink fails
+     */
+    static <C, R> void run(ISnapshot snapshot, Iterable<int[]> objects, Extraction<C, R> extraction, Sink<R> sink,
+                    String message, IProgressListener listener) throws SnapshotException
+    {
+        new CollectionScan<C, R>(snapshot, extraction, sink, message, listener).run(objects);
+    }
+
+    private void run(Iterable<int[]> objects) throws SnapshotException
+    {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService es = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        try
+        {
+            for (int[] objectIds : objects)
+            {
+                scan(objectIds, es, threads * CHUNKS_PER_THREAD);
+                if (listener.isCanceled())
+                    break;
+            }
+        }
+        catch (InterruptedException e)
+        {
+            throw new SnapshotException(e);
+        }
+        catch (ExecutionException e)
+        {
+            throw SnapshotException.rethrow(e.getCause());
+        }
+        finally
+        {
+            if (es != null)
+                es.shutdown();
+        }
+    }
+
+    private void scan(int[] objectIds, ExecutorService es, int window)
+                    throws SnapshotException, InterruptedException, ExecutionException
+    {
+        HashMapIntObject<R> resultMap = null;
+        int sortedObjs[] = objectIds;
+        int prev = Integer.MIN_VALUE;
+        for (int objectId : objectIds)
+        {
+            if (objectId < prev)
+            {
+                sortedObjs = objectIds.clone();
+                Arrays.sort(sortedObjs);
+                resultMap = new HashMapIntObject<R>();
+                break;
+            }
+            prev = objectId;
+        }
+
+        final int[] ids = sortedObjs;
+        // small enough chunks to keep all the threads busy on a few big collections
+        final int chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, ids.length / window));
+        int chunks = (ids.length + chunkSize - 1) / chunkSize;
+        if (es == null || chunks <= 1)
+        {
+            for (int chunk = 0; chunk < chunks && !listener.isCanceled(); chunk++)
+                merge(ids, chunk * chunkSize, extract(ids, chunk * chunkSize, chunkSize), resultMap);
+        }
+        else
+        {
+            Deque<Future<Object[]>> inFlight = new ArrayDeque<Future<Object[]>>(window);
+            int submitted = 0;
+            try
+            {
+                for (int chunk = 0; chunk < chunks && !listener.isCanceled(); chunk++)
+                {
+                    while (submitted < chunks && inFlight.size() < window)
+                    {
+                        final int from = submitted++ * chunkSize;
+                        inFlight.add(es.submit(new Callable<Object[]>()
+                        {
+                            public Object[] call() throws SnapshotException
+                            {
+                                return extract(ids, from, chunkSize);
+                            }
+                        }));
+                    }
+                    merge(ids, chunk * chunkSize, inFlight.poll().get(), resultMap);
+                }
+            }
+            finally
+            {
+                // not interrupted, as an interrupt closes the channels the objects are read from
+                for (Future<Object[]> f : inFlight)
+                    f.cancel(false);
+            }
+        }
+
+        if (resultMap != null)
+        {
+            for (int objectId : objectIds)
+            {
+                if (resultMap.containsKey(objectId))
+                    sink.accept(objectId, resultMap.get(objectId));
+            }
+        }
+    }
+
+    /**
+     * Extract the collections of a chunk, on any thread.
+     * @return for each collection the result, a {@link Failure} or null
+     */
+    private Object[] extract(int[] ids, int from, int chunkSize) throws SnapshotException
+    {
+        Object[] results = new Object[Math.min(chunkSize, ids.length - from)];
+        for (int ii = 0; ii < results.length; ii++)
+        {
+            if (listener.isCanceled())
+                break;
+            IObject obj = snapshot.getObject(ids[from + ii]);
+            try
+            {
+                R result = extraction.extract(obj, prepare(obj));
+                results[ii] = result;
+            }
+            catch (RuntimeException | SnapshotException e)
+            {
+                results[ii] = new Failure(obj, e);
+            }
+        }
+        return results;
+    }
+
+    @SuppressWarnings("unchecked")
+    private C prepare(IObject obj) throws SnapshotException
+    {
+        Integer classId = obj.getClazz().getObjectId();
+        Object p = prepared.get(classId);
+        if (p == null)
+        {
+            // another thread may prepare the same class, with the same result
+            p = extraction.prepare(obj);
+            prepared.put(classId, p != null ? p : NONE);
+        }
+        return p == NONE ? null : (C) p;
+    }
+
+    /**
+     * Hand back the results of a chunk, on the calling thread.
+     */
+    @SuppressWarnings("unchecked")
+    private void merge(int[] ids, int from, Object[] results, HashMapIntObject<R> resultMap)
+                    throws SnapshotException
+    {
+        IClass cls = snapshot.getClassOf(ids[from]);
+        if (!cls.equals(type))
+        {
+            type = cls;
+            listener.subTask(message + "\n" + type.getName()); //$NON-NLS-1$
+        }
+        for (int ii = 0; ii < results.length; ii++)
+        {
+            Object result = results[ii];
+            if (result instanceof Failure)
+            {
+                Failure failure = (Failure) result;
+                sink.failed(failure.collection, failure.exception);
+            }
+            else if (result != null)
+            {
+                if (resultMap != null)
+                    resultMap.put(ids[from + ii], (R) result);
+                else
+                    sink.accept(ids[from + ii], (R) result);
+            }
+        }
+    }
+}
@@ -11,20 +11,20 @@
  *    SAP AG - initial API and implementation
  *    IBM Corporation - enhancements and fixes
  *    James Livingston - expose collection utils as API
+ *    Standalone adaptation - parallel extraction
  *******************************************************************************/
 package org.eclipse.mat.inspections.collections;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.eclipse.mat.SnapshotException;
-import org.eclipse.mat.collect.HashMapIntObject;
 import org.eclipse.mat.inspections.InspectionAssert;
 import org.eclipse.mat.inspections.collectionextract.CollectionExtractionUtils;
 import org.eclipse.mat.inspections.collectionextract.ExtractedMap;
+import org.eclipse.mat.inspections.collectionextract.ICollectionExtractor;
 import org.eclipse.mat.inspections.collectionextract.IMapExtractor;
 import org.eclipse.mat.internal.Messages;
 import org.eclipse.mat.internal.collectionextract.HashMapCollectionExtractor;
@@ -42,7 +42,6 @@ import org.eclipse.mat.query.annotations.Icon;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.OQL;
 import org.eclipse.mat.snapshot.extension.Subjects;
-import org.eclipse.mat.snapshot.model.IClass;
 import org.eclipse.mat.snapshot.model.IObject;
 import org.eclipse.mat.snapshot.query.IHeapObjectArgument;
 import org.eclipse.mat.util.IProgressListener;
@@ -382,7 +381,7 @@ public class HashEntriesQuery implements IQuery
         InspectionAssert.heapFormatIsNot(snapshot, "DTFJ-PHD"); //$NON-NLS-1$
         listener.subTask(Messages.HashEntriesQuery_Msg_Extracting);
 
-        IMapExtractor specificExtractor;
+        final IMapExtractor specificExtractor;
         if (collection != null)
         {
             specificExtractor = new HashMapCollectionExtractor(null, array_attribute, key_attribute, value_attribute);
@@ -392,93 +391,64 @@ public class HashEntriesQuery implements IQuery
             specificExtractor = null;
         }
 
-        List<Entry> hashEntries = new ArrayList<Entry>();
+        final List<Entry> hashEntries = new ArrayList<Entry>();
 
-        int counter = 0;
-        IClass type = null;
-        for (int[] objectIds : objects)
+        CollectionScan.run(snapshot, objects, new CollectionScan.Extraction<IMapExtractor, List<Entry>>()
         {
-            HashMapIntObject<List<Entry>> resultMap = null;
-            int sortedObjs[] = objectIds;
-            int prev = Integer.MIN_VALUE;
-            for (int objectId : objectIds)
+            public IMapExtractor prepare(IObject first) throws SnapshotException
             {
-                if (objectId < prev)
-                {
-                    sortedObjs = objectIds.clone();
-                    Arrays.sort(sortedObjs);
-                    resultMap = new HashMapIntObject<List<Entry>>();
-                    break;
-                }
-                prev = objectId;
+                if (collection != null && first.getClazz().doesExtend(collection))
+                    return specificExtractor;
+                ICollectionExtractor extractor = CollectionExtractionUtils.findCollectionExtractor(first);
+                return extractor instanceof IMapExtractor ? (IMapExtractor) extractor : null;
             }
-            for (int objectId : sortedObjs)
-            {
-                if (listener.isCanceled())
-                    break;
 
-                IObject obj = snapshot.getObject(objectId);
-                if (counter++ % 1000 == 0 && !obj.getClazz().equals(type))
-                {
-                    type = obj.getClazz();
-                    listener.subTask(Messages.HashEntriesQuery_Msg_Extracting + "\n" + type.getName()); //$NON-NLS-1$
-                }
-                ExtractedMap map = CollectionExtractionUtils.extractMap(obj, collection, specificExtractor);
-
-                if (map != null)
+            public List<Entry> extract(IObject obj, IMapExtractor extractor) throws SnapshotException
+            {
+                if (extractor == null)
+                    return null;
+                ExtractedMap map = new ExtractedMap(obj, extractor);
+                int objectId = obj.getObjectId();
+                String displayName = obj.getDisplayName();
+                List<Entry> hashEntries1 = new ArrayList<Entry>();
+                for (Map.Entry<IObject, IObject> me : map)
                 {
-                    List<Entry> hashEntries1 = resultMap != null ? new ArrayList<Entry>() : hashEntries;
-                    for (Map.Entry<IObject, IObject> me : map)
+                    int keyId,valueId;
+                    Map.Entry<IObject, IObject> me2 = null;
+                    try
                     {
-                        Entry e;
-                        int keyId,valueId;
-                        Map.Entry<IObject, IObject> me2 = null;
-                        try
-                        {
-                            keyId = (me.getKey() != null) ? me.getKey().getObjectId() : -1;
-                        }
-                        catch (RuntimeException e1)
-                        {
-                            keyId = -1;
-                            me2 = me;
-                        }
-                        try
-                        {
-                            valueId = (me.getValue() != null) ? me.getValue().getObjectId() : -1;
-                        }
-                        catch (RuntimeException e1)
-                        {
-                            valueId = -1;
-                            me2 = me;
-                        }
-                        if (me instanceof IObject)
-                        {
-                            IObject meObject = (IObject) me;
-                            e = new Entry(obj.getObjectId(), obj.getDisplayName(), keyId, valueId, me2);
-                        }
-                        else
-                        {
-                            e = new Entry(objectId, obj.getDisplayName(), keyId, valueId, me2);
-                        }
-                        hashEntries1.add(e);
+                        keyId = (me.getKey() != null) ? me.getKey().getObjectId() : -1;
                     }
-                    if (resultMap != null)
-                        resultMap.put(objectId, hashEntries1);
-                }
-            }
-            if (resultMap != null)
-            {
-                for (int objectId : objectIds)
-                {
-                    if (resultMap.containsKey(objectId))
+                    catch (RuntimeException e1)
+                    {
+                        keyId = -1;
+                        me2 = me;
+                    }
+                    try
                     {
-                        hashEntries.addAll(resultMap.get(objectId));
+                        valueId = (me.getValue() != null) ? me.getValue().getObjectId() : -1;
                     }
+                    catch (RuntimeException e1)
+                    {
+                        valueId = -1;
+                        me2 = me;
+                    }
+                    hashEntries1.add(new Entry(objectId, displayName, keyId, valueId, me2));
                 }
+                return hashEntries1;
             }
-            if (listener.isCanceled())
-                break;
-        }
+        }, new CollectionScan.Sink<List<Entry>>()
+        {
+            public void accept(int objectId, List<Entry> entries)
+            {
+                hashEntries.addAll(entries);
+            }
+
+            public void failed(IObject obj, Exception e) throws SnapshotException
+            {
+                throw SnapshotException.rethrow(e);
+            }
+        }, Messages.HashEntriesQuery_Msg_Extracting, listener);
 
         listener.done();
         return new Result(snapshot, hashEntries);
@@ -11,16 +11,15 @@
  *    SAP AG - initial API and implementation
  *    IBM Corporation - enhancements and fixes
  *    James Livingston - expose collection utils as API
+ *    Standalone adaptation - parallel extraction
  *******************************************************************************/
 package org.eclipse.mat.inspections.collections;
 
-import java.util.Arrays;
-
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.HashMapIntLong;
-import org.eclipse.mat.collect.HashMapIntObject;
 import org.eclipse.mat.inspections.collectionextract.CollectionExtractionUtils;
 import org.eclipse.mat.inspections.collectionextract.ExtractedMap;
+import org.eclipse.mat.inspections.collectionextract.ICollectionExtractor;
 import org.eclipse.mat.inspections.collectionextract.IMapExtractor;
 import org.eclipse.mat.internal.Messages;
 import org.eclipse.mat.internal.collectionextract.HashMapCollectionExtractor;
@@ -33,7 +32,6 @@ import org.eclipse.mat.query.annotations.Icon;
 import org.eclipse.mat.query.quantize.Quantize;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.extension.Subjects;
-import org.eclipse.mat.snapshot.model.IClass;
 import org.eclipse.mat.snapshot.model.IObject;
 import org.eclipse.mat.snapshot.query.IHeapObjectArgument;
 import org.eclipse.mat.snapshot.query.RetainedSizeDerivedData;
@@ -112,94 +110,65 @@ public class MapCollisionRatioQuery implements IQuery
         builder.column(Messages.MapCollisionRatioQuery_Column_NumObjects, Quantize.COUNT);
         builder.column(Messages.Column_ShallowHeap, Quantize.SUM_BYTES);
         builder.addDerivedData(RetainedSizeDerivedData.APPROXIMATE);
-        Quantize quantize = builder.build();
+        final Quantize quantize = builder.build();
 
-        IMapExtractor specificExtractor = new HashMapCollectionExtractor(size_attribute, array_attribute, null, null);
+        final IMapExtractor specificExtractor = new HashMapCollectionExtractor(size_attribute, array_attribute, null, null);
         final long LIMIT = 20;
-        HashMapIntLong exceptions = new HashMapIntLong();
-        int counter = 0;
-        IClass type = null;
-        for (int[] objectIds : objects)
+        final HashMapIntLong exceptions = new HashMapIntLong();
+        final IProgressListener progress = listener;
+        CollectionScan.run(snapshot, objects, new CollectionScan.Extraction<IMapExtractor, Result>()
         {
-            HashMapIntObject<Result> resultMap = null;
-            int sortedObjs[] = objectIds;
-            int prev = Integer.MIN_VALUE;
-            for (int objectId : objectIds)
+            public IMapExtractor prepare(IObject first) throws SnapshotException
             {
-                if (objectId < prev)
-                {
-                    sortedObjs = objectIds.clone();
-                    Arrays.sort(sortedObjs);
-                    resultMap = new HashMapIntObject<Result>();
-                    break;
-                }
-                prev = objectId;
+                if (collection != null && first.getClazz().doesExtend(collection))
+                    return specificExtractor;
+                ICollectionExtractor extractor = CollectionExtractionUtils.findCollectionExtractor(first);
+                return extractor instanceof IMapExtractor ? (IMapExtractor) extractor : null;
             }
-            for (int objectId : sortedObjs)
-            {
-                if (listener.isCanceled())
-                    break;
 
-                IObject obj = snapshot.getObject(objectId);
-                if (counter++ % 1000 == 0 && !obj.getClazz().equals(type))
+            public Result extract(IObject obj, IMapExtractor extractor) throws SnapshotException
+            {
+                if (extractor == null)
+                    return null;
+                ExtractedMap coll = new ExtractedMap(obj, extractor);
+                /*
+                 * @FIXME - shouldn't really count maps without a collision ratio
+                 * but current tests presume TreeSet/TreeMap have one.
+                 */
+                if (coll.hasCollisionRatio() || true)
                 {
-                    type = obj.getClazz();
-                    listener.subTask(Messages.MapCollisionRatioQuery_CalculatingCollisionRatios + "\n" + type.getName()); //$NON-NLS-1$
+                    Double collisionRatio = coll.getCollisionRatio();
+                    if (collisionRatio == null)
+                        collisionRatio = 0.0;
+                    return new Result(collisionRatio, coll.getUsedHeapSize());
                 }
-                try
-                {
-                    ExtractedMap coll = CollectionExtractionUtils.extractMap(obj, collection, specificExtractor);
+                return null;
+            }
+        }, new CollectionScan.Sink<Result>()
+        {
+            public void accept(int objectId, Result r) throws SnapshotException
+            {
+                quantize.addValue(objectId, r.ratio, null, r.used);
+            }
 
-                    if (coll != null)
-                    {
-                        /*
-                         * @FIXME - shouldn't really count maps without a collision ratio
-                         * but current tests presume TreeSet/TreeMap have one.
-                         */
-                        if (coll.hasCollisionRatio() || true)
-                        {
-                            Double collisionRatio = coll.getCollisionRatio();
-                            if (collisionRatio == null)
-                                collisionRatio = 0.0;
-                            if (resultMap != null)
-                                resultMap.put(objectId, new Result(collisionRatio, coll.getUsedHeapSize()));
-                            else
-                                quantize.addValue(objectId, collisionRatio, null, coll.getUsedHeapSize());
-                        }
-                    }
-                }
-                catch (RuntimeException | SnapshotException e)
+            public void failed(IObject obj, Exception e)
+            {
+                int classId = obj.getClazz().getObjectId();
+                if (!exceptions.containsKey(classId))
                 {
-                    int classId = obj.getClazz().getObjectId();
-                    if (!exceptions.containsKey(classId))
-                    {
-                        exceptions.put(classId, 0);
-                    }
-                    long c =  exceptions.get(classId);
-                    exceptions.put(classId, c + 1);
-                    if (c < LIMIT)
-                    {
-                        listener.sendUserMessage(
-                                        IProgressListener.Severity.INFO,
-                                        MessageUtil.format(Messages.MapCollisionRatioQuery_IgnoringCollection,
-                                                        obj.getTechnicalName()), e);
-                    }
+                    exceptions.put(classId, 0);
                 }
-            }
-            if (resultMap != null)
-            {
-                for (int objectId : objectIds)
+                long c =  exceptions.get(classId);
+                exceptions.put(classId, c + 1);
+                if (c < LIMIT)
                 {
-                    if (resultMap.containsKey(objectId))
-                    {
-                        Result r = resultMap.get(objectId);
-                        quantize.addValue(objectId, r.ratio, null, r.used);
-                    }
+                    progress.sendUserMessage(
+                                    IProgressListener.Severity.INFO,
+                                    MessageUtil.format(Messages.MapCollisionRatioQuery_IgnoringCollection,
+                                                    obj.getTechnicalName()), e);
                 }
             }
-            if (listener.isCanceled())
-                break;
-        }
+        }, Messages.MapCollisionRatioQuery_CalculatingCollisionRatios, listener);
 
         return quantize.getResult();
     }
@@ -11,6 +11,7 @@
  *    Chris Grindstaff - initial API and implementation
  *    James Livingston - expose collection utils as API
  *    Andrew Johnson/IBM Corporation - add icon
+ *    Standalone adaptation - chunked reading
  *******************************************************************************/
 package org.eclipse.mat.inspections.collections;
 
@@ -65,6 +66,8 @@ public class PrimitiveArraysWithAConstantValueQuery implements IQuery
             this.used = used;
         }
     }
+    private static final int BUFSIZE = 16 * 1024;
+
     public IResult execute(IProgressListener listener) throws Exception
     {
         InspectionAssert.heapFormatIsNot(snapshot, "DTFJ-PHD"); //$NON-NLS-1$
@@ -120,37 +123,13 @@ public class PrimitiveArraysWithAConstantValueQuery implements IQuery
                 if (length > 1)
                 {
                     // Read in chunks as DTFJ is slow for single reads
-                    final int BUFSIZE = 16 * 1024;
-                    boolean allSame = true;
-                    Object value0 = null;
-                    for (int i = 0; allSame && i < length;)
-                    {
-                        int buflen = Math.min(length - i, BUFSIZE);
-                        Object o = array.getValueArray(i, buflen);
-                        int j;
-                        if (i == 0)
-                        {
-                            value0 = Array.get(objectIds, 0);
-                            j = 1;
-                        }
-                        else
-                        {
-                            j = 0;
-                        }
-                        int actlen = Array.getLength(o);
-                        i += actlen;
-                        for (;j < actlen; ++j)
-                        {
-                            Object valueAt = Array.get(o, j);
-                            if (valueAt.equals(value0))
-                                continue;
-                            else
-                            {
-                                allSame = false;
-                                break;
-                            }
-                        }
-                    }
+                    final Object[] first = new Object[1];
+                    boolean allSame = array.visitValueArray(BUFSIZE, (offset, chunk) -> {
+                        if (offset == 0)
+                            first[0] = Array.get(chunk, 0);
+                        return allEqual(chunk, first[0]);
+                    });
+                    Object value0 = first[0];
                     if (allSame)
                     {
                         long size = snapshot.getHeapSize(objectId);
@@ -178,4 +157,76 @@ public class PrimitiveArraysWithAConstantValueQuery implements IQuery
         }
         return quantize.getResult();
     }
+
+    /**
+     * Whether all the elements of a chunk are the value, compared as the
+     * boxed values would be.
+     */
+    private static boolean allEqual(Object chunk, Object value)
+    {
+        if (chunk instanceof byte[])
+        {
+            byte v = (Byte) value;
+            for (byte b : (byte[]) chunk)
+                if (b != v)
+                    return false;
+        }
+        else if (chunk instanceof char[])
+        {
+            char v = (Character) value;
+            for (char c : (char[]) chunk)
+                if (c != v)
+                    return false;
+        }
+        else if (chunk instanceof short[])
+        {
+            short v = (Short) value;
+            for (short c : (short[]) chunk)
+                if (c != v)
+                    return false;
+        }
+        else if (chunk instanceof int[])
+        {
+            int v = (Integer) value;
+            for (int c : (int[]) chunk)
+                if (c != v)
+                    return false;
+        }
+        else if (chunk instanceof long[])
+        {
+            long v = (Long) value;
+            for (long c : (long[]) chunk)
+                if (c != v)
+                    return false;
+        }
+        else if (chunk instanceof boolean[])
+        {
+            boolean v = (Boolean) value;
+            for (boolean c : (boolean[]) chunk)
+                if (c != v)
+                    return false;
+        }
+        else if (chunk instanceof float[])
+        {
+            int v = Float.floatToIntBits((Float) value);
+            for (float c : (float[]) chunk)
+                if (Float.floatToIntBits(c) != v)
+                    return false;
+        }
+        else if (chunk instanceof double[])
+        {
+            long v = Double.doubleToLongBits((Double) value);
+            for (double c : (double[]) chunk)
+                if (Double.doubleToLongBits(c) != v)
+                    return false;
+        }
+        else
+        {
+            int length = Array.getLength(chunk);
+            for (int j = 0; j < length; ++j)
+                if (!Array.get(chunk, j).equals(value))
+                    return false;
+        }
+        return true;
+    }
 }
@@ -11,6 +11,7 @@
  *    SAP AG - initial API and implementation
  *    IBM Corporation - enhancements and fixes
  *    James Livingston - expose collection utils as API
+ *    Standalone adaptation - finalizer roots by type
  *******************************************************************************/
 package org.eclipse.mat.inspections.component;
 
@@ -1660,22 +1661,12 @@ public class ComponentReportQuery implements IQuery
             }
         }
         // Add other objects marked as not yet finalized
-        for (int root : snapshot.getGCRoots())
+        for (int referentId : snapshot.getGCRoots(GCRootInfo.Type.UNFINALIZED | GCRootInfo.Type.FINALIZABLE))
         {
-            GCRootInfo ifo[] = snapshot.getGCRootInfo(root);
-            for (GCRootInfo rootInfo : ifo)
+            foundSomeFinalizers = true;
+            if (useBits ? retainedIds.get(referentId) : retainedSet.contains(referentId))
             {
-                if (rootInfo.getType() == GCRootInfo.Type.UNFINALIZED
-                                || rootInfo.getType() == GCRootInfo.Type.FINALIZABLE)
-                {
-                    foundSomeFinalizers = true;
-                    int referentId = rootInfo.getObjectId();
-                    if (useBits ? retainedIds.get(referentId) : retainedSet.contains(referentId))
-                    {
-                        finalizers.add(referentId);
-                    }
-                    break;
-                }
+                finalizers.add(referentId);
             }
         }
 
@@ -10,6 +10,7 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    IBM Corporation - enhancements and fixes
+ *    Standalone adaptation - finalizable roots by type
  *******************************************************************************/
 package org.eclipse.mat.inspections.finalizer;
 
@@ -117,17 +118,9 @@ public class FinalizerQueueQuery implements IQuery
         }
 
         // Add other objects marked as finalizable
-        for (int root : snapshot.getGCRoots())
+        for (int root : snapshot.getGCRoots(GCRootInfo.Type.FINALIZABLE))
         {
-            GCRootInfo ifo[] = snapshot.getGCRootInfo(root);
-            for (GCRootInfo rootInfo : ifo)
-            {
-                if (rootInfo.getType() == GCRootInfo.Type.FINALIZABLE)
-                {
-                    result.add(rootInfo.getObjectId());
-                    break;
-                }
-            }
+            result.add(root);
         }
 
         SectionSpec spec = new SectionSpec(Messages.FinalizerQueueQuery_ReadyForFinalizerThread);
@@ -10,6 +10,7 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    IBM Corporation - optional columns, cancellation
+ *    Standalone adaptation - parallel node construction, thread roots by type
  *******************************************************************************/
 package org.eclipse.mat.inspections.threads;
 
@@ -23,6 +24,12 @@ import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 import org.eclipse.mat.SnapshotException;
@@ -63,6 +70,7 @@ import org.eclipse.mat.snapshot.query.ObjectListResult;
 import org.eclipse.mat.snapshot.query.SnapshotQuery;
 import org.eclipse.mat.util.IProgressListener;
 import org.eclipse.mat.util.MessageUtil;
+import org.eclipse.mat.util.VoidProgressListener;
 
 @CommandName("thread_overview")
 @Icon("/META-INF/icons/threads.gif")
@@ -84,7 +92,7 @@ public class ThreadOverviewQuery implements IQuery
     {
         listener.subTask(Messages.ThreadOverviewQuery_SearchingThreads);
 
-        List<ThreadOverviewNode> result = new ArrayList<ThreadOverviewNode>();
+        ArrayInt threadIds = new ArrayInt();
 
         if (objects != null)
         {
@@ -95,7 +103,7 @@ public class ThreadOverviewQuery implements IQuery
                     if (listener.isCanceled())
                         break;
                     if (isThread(snapshot, objectId)) {
-                        result.add(buildThreadOverviewNode(objectId, listener));
+                        threadIds.add(objectId);
                     }
                 }
             }
@@ -111,32 +119,33 @@ public class ThreadOverviewQuery implements IQuery
                     {
                         if (listener.isCanceled())
                             break;
-                        result.add(buildThreadOverviewNode(id, listener));
+                        threadIds.add(id);
                     }
                 }
             }
             // Add objects marked as a GCRoot THREAD_OBJ
-            for (int objectId : snapshot.getGCRoots())
+            for (int objectId : snapshot.getGCRoots(Type.THREAD_OBJ))
             {
-                GCRootInfo gcs[] = snapshot.getGCRootInfo(objectId);
-                if (gcs != null)
-                {
-                    for (GCRootInfo gc : gcs)
-                    {
-                        // Sometime PHD files have threads marked as objects
-                        if (gc.getType() == Type.THREAD_OBJ)
-                        {
-                            if (isThread(snapshot, objectId)) {
-                                result.add(buildThreadOverviewNode(objectId, listener));
-                            }
-                        }
-                    }
+                // Sometime PHD files have threads marked as objects
+                if (isThread(snapshot, objectId)) {
+                    threadIds.add(objectId);
                 }
                 if (listener.isCanceled())
                     break;
             }
         }
 
+        // a thread can be found both by class and as a root
+        int[] ids = threadIds.toArray();
+        Arrays.sort(ids);
+        int unique = 0;
+        for (int ii = 0; ii < ids.length; ii++)
+        {
+            if (unique == 0 || ids[ii] != ids[unique - 1])
+                ids[unique++] = ids[ii];
+        }
+        List<ThreadOverviewNode> result = buildThreadOverviewNodes(Arrays.copyOf(ids, unique), listener);
+
         Collections.sort(result, new Comparator<ThreadOverviewNode>()
         {
             public int compare(ThreadOverviewNode o1, ThreadOverviewNode o2)
@@ -204,6 +213,89 @@ public class ThreadOverviewQuery implements IQuery
         return false;
     }
 
+    /** fewer threads than this are not worth a thread pool */
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    /**
+     * Build the nodes of the threads, on several threads when there are many.
+     * Stops early when cancelled, with the nodes built so far.
+     */
+    private List<ThreadOverviewNode> buildThreadOverviewNodes(final int[] threadIds, IProgressListener listener)
+                    throws SnapshotException
+    {
+        List<ThreadOverviewNode> result = new ArrayList<ThreadOverviewNode>(threadIds.length);
+        int threads = Math.min(Runtime.getRuntime().availableProcessors(), threadIds.length / PARALLEL_THRESHOLD);
+        if (threads <= 1)
+        {
+            for (int objectId : threadIds)
+            {
+                if (listener.isCanceled())
+                    break;
+                result.add(buildThreadOverviewNode(objectId, listener));
+            }
+            return result;
+        }
+
+        final IProgressListener parent = listener;
+        // the workers share only the cancel state of the listener, and stop when one of them fails
+        final VoidProgressListener child = new VoidProgressListener()
+        {
+            @Override
+            public boolean isCanceled()
+            {
+                return super.isCanceled() || parent.isCanceled();
+            }
+        };
+        final ThreadOverviewNode[] nodes = new ThreadOverviewNode[threadIds.length];
+        final AtomicInteger next = new AtomicInteger();
+        ExecutorService es = Executors.newFixedThreadPool(threads);
+        List<Future<Void>> tasks = new ArrayList<Future<Void>>(threads);
+        try
+        {
+            for (int t = 0; t < threads; t++)
+            {
+                tasks.add(es.submit(new Callable<Void>()
+                {
+                    public Void call() throws SnapshotException
+                    {
+                        for (int ii = next.getAndIncrement(); ii < threadIds.length; ii = next.getAndIncrement())
+                        {
+                            if (child.isCanceled())
+                                break;
+                            nodes[ii] = buildThreadOverviewNode(threadIds[ii], child);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> task : tasks)
+                task.get();
+        }
+        catch (InterruptedException e)
+        {
+            throw new SnapshotException(e);
+        }
+        catch (ExecutionException e)
+        {
+            throw SnapshotException.rethrow(e.getCause());
+        }
+        finally
+        {
+            // not interrupted, as an interrupt closes the channels of the index files
+            child.setCanceled(true);
+            for (Future<Void> task : tasks)
+                task.cancel(false);
+            es.shutdown();
+        }
+
+        for (ThreadOverviewNode node : nodes)
+        {
+            if (node != null)
+                result.add(node);
+        }
+        return result;
+    }
+
     private ThreadOverviewNode buildThreadOverviewNode(int objectId, IProgressListener listener) throws SnapshotException
     {
         ThreadOverviewNode result = new ThreadOverviewNode();
@@ -835,52 +927,51 @@ public class ThreadOverviewQuery implements IQuery
             final int numFrames = ton.stack.getStackFrames().length;
             int frameIds[] = new int[numFrames];
             Arrays.fill(frameIds, -1);
-            IObject to = ton.threadInfo.getThreadObject();
-            for (NamedReference ref : to.getOutboundReferences())
+            int stackFrameIds[];
+            try
             {
-                if (ref instanceof ThreadToLocalReference)
+                stackFrameIds = snapshot.getGCRootsOfThread(ton.threadInfo.getThreadId(),
+                                GCRootInfo.Type.JAVA_STACK_FRAME);
+            }
+            catch (SnapshotException e)
+            {
+                return frameIds;
+            }
+            for (int stackFrameId : stackFrameIds)
+            {
+                try
                 {
-                    ThreadToLocalReference tlr = (ThreadToLocalReference)ref;
-                    for (GCRootInfo gcRootInfo : tlr.getGcRootInfo())
+                    Object fn = snapshot.getObject(stackFrameId).resolveValue("frameNumber"); //$NON-NLS-1$
+                    if (fn instanceof Integer)
                     {
-                        if (gcRootInfo.getType() == GCRootInfo.Type.JAVA_STACK_FRAME)
+                        int f = (Integer)fn;
+                        if (f >= 0 && f < numFrames)
                         {
-                            try
-                            {
-                                Object fn = tlr.getObject().resolveValue("frameNumber"); //$NON-NLS-1$
-                                if (fn instanceof Integer)
-                                {
-                                    int f = (Integer)fn;
-                                    if (f >= 0 && f < numFrames)
-                                    {
-                                        frameIds[f] = tlr.getObjectId();
-                                        break;
-                                    }
-                                }
-                                /*
-                                 * See if a reference from the thread is to
-                                 * the pseudo-object stack frame
-                                 */
-                                for (int f = 0; f < ton.stack.getStackFrames().length; ++f)
-                                {
-                                    IStackFrame fm = ton.stack.getStackFrames()[f];
-                                    for (int o : fm.getLocalObjectsIds())
-                                    {
-                                        if (o == tlr.getObjectId())
-                                        {
-                                            frameIds[f] = o;
-                                            break;
-                                        }
-                                    }
-                                }
-                            }
-                            catch (SnapshotException e)
+                            frameIds[f] = stackFrameId;
+                            continue;
+                        }
+                    }
+                    /*
+                     * See if a reference from the thread is to
+                     * the pseudo-object stack frame
+                     */
+                    for (int f = 0; f < ton.stack.getStackFrames().length; ++f)
+                    {
+                        IStackFrame fm = ton.stack.getStackFrames()[f];
+                        for (int o : fm.getLocalObjectsIds())
+                        {
+                            if (o == stackFrameId)
                             {
-                                // Ignore
+                                frameIds[f] = o;
+                                break;
                             }
                         }
                     }
                 }
+                catch (SnapshotException e)
+                {
+                    // Ignore
+                }
             }
             return frameIds;
         }
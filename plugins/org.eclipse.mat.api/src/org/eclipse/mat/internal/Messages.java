@@ -64,6 +64,9 @@ public class Messages extends NLS
     public static String BundleRegistryQuery_Services;
     public static String BundleRegistryQuery_UserServices;
 
+    public static String ClassGrowthSeries_Column_Growth;
+    public static String ClassGrowthSeries_Loading;
+    public static String ClassIdentityTable_Error_WrongFormat;
     public static String ClassLoaderExplorerQuery_Class;
     public static String ClassLoaderExplorerQuery_ClassLoader;
     public static String ClassLoaderExplorerQuery_Column_DefinedClasses;
@@ -371,6 +374,11 @@ public class Messages extends NLS
     public static String HeapDumpInfoQuery_NumClassLoadersFormat;
     public static String HeapDumpInfoQuery_NumGCRootsFormat;
     public static String HeapDumpInfoQuery_NumObjectsFormat;
+    public static String HeapDumpInfoQuery_NotAvailable;
+    public static String HeapDumpInfoQuery_ParsePhase;
+    public static String HeapDumpInfoQuery_ParsePhase_format;
+    public static String HeapDumpInfoQuery_ParseTime;
+    public static String HeapDumpInfoQuery_ParseTime_format;
     public static String HeapDumpInfoQuery_PropertyName;
     public static String HeapDumpInfoQuery_ProperyValue;
     public static String HeapDumpInfoQuery_TimeFormat;
@@ -409,6 +417,8 @@ public class Messages extends NLS
     public static String Histogram_Description;
     public static String Histogram_Difference;
     public static String Histogram_Intersection;
+    public static String HistogramComparison_Column;
+    public static String HistogramComparison_DeltaColumn;
 
     public static String HistogramQuery_GroupByClass;
     public static String HistogramQuery_GroupByClassLoader;
@@ -592,13 +602,18 @@ public class Messages extends NLS
     public static String RetainedSetQuery_ProgressName;
 
     public static String RetainedSizeDerivedData_Approximate;
+    public static String RetainedSizeDerivedData_ErrorBound;
+    public static String RetainedSizeDerivedData_Estimate;
     public static String RetainedSizeDerivedData_Error_IllegalContext;
     public static String RetainedSizeDerivedData_Error_IllegalObjectId;
     public static String RetainedSizeDerivedData_ErrorMsg_IllegalContextObject;
     public static String RetainedSizeDerivedData_ErrorMsg_IllegalObjectId;
     public static String RetainedSizeDerivedData_Label_Approximate;
+    public static String RetainedSizeDerivedData_Label_Estimate;
     public static String RetainedSizeDerivedData_Label_Precise;
 
+    public static String RetainedSizeEstimate_Sampling;
+
     public static String SelectObjectsByFieldQuery_Evaluating;
 
     public static String Service_ErrorMsg_MismatchKeysServices;
@@ -637,6 +652,9 @@ public class Messages extends NLS
     public static String StackFrameResolver_method_file_line_compiled;
     public static String StackFrameResolver_method_file_line_native;
 
+    public static String StringTable_Error_Closed;
+    public static String StringTable_Error_WrongFormat;
+
     public static String SubjectRegistry_DuplicateResolver;
     public static String SubjectRegistry_Error_MissingAnnotation;
     public static String SubjectRegistry_ErrorMsg_MissingSubjectAnnotation;
@@ -719,6 +737,8 @@ public class Messages extends NLS
 
     public static String TopConsumersQuery_ColumnLabels;
 
+    public static String TopRetainedTable_Error_WrongFormat;
+
     public static String TQuantize_Label_GroupByClassLoader;
     public static String TQuantize_Label_GroupByPackage;
     public static String TQuantize_Label_GroupedByClassLoader;
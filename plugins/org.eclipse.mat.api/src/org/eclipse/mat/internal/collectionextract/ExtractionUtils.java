@@ -12,6 +12,7 @@
  *    IBM Corporation - enhancements and fixes
  *    James Livingston - expose collection utils as API
  *                       introduce CollectionExtractor extension
+ *    Standalone adaptation - field probe
  *******************************************************************************/
 package org.eclipse.mat.internal.collectionextract;
 
@@ -26,16 +27,20 @@ import static org.eclipse.mat.snapshot.extension.JdkVersion.JAVA19;
 import static org.eclipse.mat.snapshot.extension.JdkVersion.JAVA_11;
 import static org.eclipse.mat.snapshot.extension.JdkVersion.SUN;
 
+import java.util.Arrays;
 import java.util.Collection;
 
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayInt;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.extension.JdkVersion;
+import org.eclipse.mat.snapshot.model.IArray;
 import org.eclipse.mat.snapshot.model.IInstance;
 import org.eclipse.mat.snapshot.model.IClass;
 import org.eclipse.mat.snapshot.model.IObject;
 import org.eclipse.mat.snapshot.model.IObjectArray;
+import org.eclipse.mat.snapshot.model.IPrimitiveArray;
+import org.eclipse.mat.snapshot.model.ObjectReference;
 
 public class ExtractionUtils
 {
@@ -47,6 +52,59 @@ public class ExtractionUtils
             return null;
     }
 
+    /**
+     * Read an integer field of a collection without reading the other fields,
+     * for the size or the capacity of the collection.
+     *
+     * @param coll the collection
+     * @param field the field, or a path of fields
+     * @return the value, or null if the field is missing or not a number
+     * @throws SnapshotException if a field on the path is not a reference
+     * @see ISnapshot#readField(int, String)
+     */
+    public static Integer readInteger(IObject coll, String field) throws SnapshotException
+    {
+        return toInteger(coll.getSnapshot().readField(coll.getObjectId(), field));
+    }
+
+    /**
+     * Get the length of the array a field of a collection refers to, without
+     * reading the other fields or the array.
+     *
+     * @param coll the collection
+     * @param field the field, or a path of fields
+     * @param type the kind of array expected
+     * @return the length, or null if the field is missing or null or does not
+     *         refer to an array of the kind, for the caller to find the
+     *         array another way or to report it
+     * @throws SnapshotException if a field on the path is not a reference
+     * @see ISnapshot#getArrayLength(int)
+     */
+    public static Integer readArrayLength(IObject coll, String field, Class<? extends IArray> type)
+                    throws SnapshotException
+    {
+        ISnapshot snapshot = coll.getSnapshot();
+        Object ref = snapshot.readField(coll.getObjectId(), field);
+        if (!(ref instanceof ObjectReference))
+            return null;
+        int arrayId;
+        try
+        {
+            arrayId = snapshot.mapAddressToId(((ObjectReference) ref).getObjectAddress());
+        }
+        catch (SnapshotException e)
+        {
+            return null;
+        }
+        if (!snapshot.isArray(arrayId))
+            return null;
+        // the kind of array from the name of its class, so the array object is not created
+        boolean primitive = Arrays.asList(IPrimitiveArray.TYPE).contains(snapshot.getClassOf(arrayId).getName());
+        if (!type.isAssignableFrom(primitive ? IPrimitiveArray.class : IObjectArray.class))
+            return null;
+        return snapshot.getArrayLength(arrayId);
+    }
+
     public static int getNumberOfNotNullArrayElements(IObjectArray arrayObject)
     {
         // Fast path using referentIds for arrays with same number of outbounds
@@ -11,6 +11,7 @@
  *    SAP AG - initial API and implementation
  *    IBM Corporation - enhancements and fixes
  *    James Livingston - expose collection utils as API
+ *    Standalone adaptation - field probe
  *******************************************************************************/
 package org.eclipse.mat.internal.collectionextract;
 
@@ -50,6 +51,10 @@ public class FieldArrayCollectionExtractor implements ICollectionExtractor
 
     public Integer getCapacity(IObject coll) throws SnapshotException
     {
+        // fast path, without reading the array
+        Integer length = ExtractionUtils.readArrayLength(coll, arrayField, IObjectArray.class);
+        if (length != null)
+            return length;
         IObjectArray arrayObject = extractEntries(coll);
         if (arrayObject == null)
             return null;
@@ -11,6 +11,7 @@
  *    SAP AG - initial API and implementation
  *    IBM Corporation - enhancements and fixes
  *    James Livingston - expose collection utils as API
+ *    Standalone adaptation - field probe
  *******************************************************************************/
 package org.eclipse.mat.internal.collectionextract;
 
@@ -40,7 +41,7 @@ public class FieldSizeArrayCollectionExtractor extends FieldArrayCollectionExtra
     public Integer getSize(IObject coll) throws SnapshotException
     {
         // fast path, check the size field
-        Integer value = ExtractionUtils.toInteger(coll.resolveValue(sizeField));
+        Integer value = ExtractionUtils.readInteger(coll, sizeField);
         if (value != null)
         {
             return value;
@@ -9,6 +9,7 @@
  *
  * Contributors:
  *    Andrew Johnson - initial API and implementation
+ *    Standalone adaptation - field probe
  *******************************************************************************/
 package org.eclipse.mat.internal.collectionextract;
 
@@ -79,6 +80,10 @@ public class FieldSizedCapacityCollectionExtractor extends FieldSizeArrayCollect
     @Override
     public Integer getCapacity(IObject coll) throws SnapshotException
     {
+        // fast path, without reading the array
+        Integer length = ExtractionUtils.readArrayLength(coll, arrayField, IArray.class);
+        if (length != null)
+            return length;
         IArray obj = getArray(coll);
         if (obj != null)
             return obj.getLength();
@@ -9,6 +9,7 @@
  *
  * Contributors:
  *    Andrew Johnson - initial API and implementation
+ *    Standalone adaptation - field probe
  *******************************************************************************/
 package org.eclipse.mat.internal.collectionextract;
 
@@ -37,7 +38,7 @@ public class FieldSizedCapacityMapExtractor extends FieldSizedCapacityCollection
     {
         if (capacityField != null)
         {
-            Integer i = ExtractionUtils.toInteger(coll.resolveValue(capacityField));
+            Integer i = ExtractionUtils.readInteger(coll, capacityField);
             if (i != null)
                 return i;
         }
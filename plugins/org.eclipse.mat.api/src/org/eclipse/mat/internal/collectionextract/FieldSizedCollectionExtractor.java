@@ -11,6 +11,7 @@
  *    SAP AG - initial API and implementation
  *    IBM Corporation - enhancements and fixes
  *    James Livingston - expose collection utils as API
+ *    Standalone adaptation - field probe
  *******************************************************************************/
 package org.eclipse.mat.internal.collectionextract;
 
@@ -35,7 +36,7 @@ public class FieldSizedCollectionExtractor implements ICollectionExtractor
 
     public Integer getSize(IObject coll) throws SnapshotException
     {
-        return ExtractionUtils.toInteger(coll.resolveValue(sizeField));
+        return ExtractionUtils.readInteger(coll, sizeField);
     }
 
     public boolean hasCapacity()
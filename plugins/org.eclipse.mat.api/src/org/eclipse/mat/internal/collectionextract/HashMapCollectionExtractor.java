@@ -11,6 +11,7 @@
  *    SAP AG - initial API and implementation
  *    IBM Corporation - enhancements and fixes
  *    James Livingston - expose collection utils as API
+ *    Standalone adaptation - field probe
  *******************************************************************************/
 package org.eclipse.mat.internal.collectionextract;
 
@@ -79,6 +80,13 @@ public class HashMapCollectionExtractor extends HashedMapCollectionExtractorBase
     @Override
     public Integer getCapacity(IObject coll) throws SnapshotException
     {
+        // fast path, without reading the table
+        if (arrayField != null)
+        {
+            Integer length = ExtractionUtils.readArrayLength(coll, arrayField, IObjectArray.class);
+            if (length != null)
+                return length;
+        }
         IObjectArray table = getBackingArray(coll);
         if (table != null)
         {
@@ -98,7 +106,7 @@ public class HashMapCollectionExtractor extends HashedMapCollectionExtractorBase
     public Integer getSize(IObject coll) throws SnapshotException
     {
         // fast path
-        Object value = ExtractionUtils.toInteger(coll.resolveValue(sizeField));
+        Object value = ExtractionUtils.readInteger(coll, sizeField);
         if (value != null)
             return ((Number) value).intValue();
 
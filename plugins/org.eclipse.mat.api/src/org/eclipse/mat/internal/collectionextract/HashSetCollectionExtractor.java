@@ -11,6 +11,7 @@
  *    SAP AG - initial API and implementation
  *    IBM Corporation - enhancements and fixes
  *    James Livingston - expose collection utils as API
+ *    Standalone adaptation - field probe
  *******************************************************************************/
 package org.eclipse.mat.internal.collectionextract;
 
@@ -63,7 +64,7 @@ public class HashSetCollectionExtractor implements IMapExtractor
     {
         if (size_attribute != null)
         {
-            Integer ret = ExtractionUtils.toInteger(coll.resolveValue(size_attribute));
+            Integer ret = ExtractionUtils.readInteger(coll, size_attribute);
             if (ret != null)
                 return ret;
             ret = createHashMapExtractor().getSize(coll);
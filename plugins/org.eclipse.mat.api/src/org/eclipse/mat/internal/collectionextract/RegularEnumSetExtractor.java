@@ -9,6 +9,7 @@
  *
  * Contributors:
  *    IBM Corporation - initial API and implementation
+ *    Standalone adaptation - field probe
  *******************************************************************************/
 package org.eclipse.mat.internal.collectionextract;
 
@@ -36,7 +37,7 @@ public class RegularEnumSetExtractor extends FieldSizeArrayCollectionExtractor i
 
     public Integer getSize(IObject coll) throws SnapshotException
     {
-        Object o = coll.resolveValue(sizeField);
+        Object o = coll.getSnapshot().readField(coll.getObjectId(), sizeField);
         if (o instanceof Number)
         {
             return Long.bitCount(((Number)o).longValue());
@@ -11,6 +11,7 @@
  *    SAP AG - initial API and implementation
  *    IBM Corporation - enhancements and fixes
  *    James Livingston - expose collection utils as API
+ *    Standalone adaptation - field probe
  *******************************************************************************/
 package org.eclipse.mat.internal.collectionextract;
 
@@ -92,6 +93,6 @@ public class ReplicatedValueCollectionExtractor implements ICollectionExtractor
 
     public Integer getCount(IObject coll) throws SnapshotException
     {
-        return ExtractionUtils.toInteger(coll.resolveValue(countField));
+        return ExtractionUtils.readInteger(coll, countField);
     }
 }
@@ -11,6 +11,7 @@
  *    SAP AG - initial API and implementation
  *    IBM Corporation - enhancements and fixes
  *    James Livingston - expose collection utils as API
+ *    Standalone adaptation - field probe
  *******************************************************************************/
 package org.eclipse.mat.internal.collectionextract;
 
@@ -132,7 +133,7 @@ public class TreeMapCollectionExtractor extends MapCollectionExtractorBase
 
     public Integer getSize(IObject coll) throws SnapshotException
     {
-        Integer ret = ExtractionUtils.toInteger(coll.resolveValue(sizeField));
+        Integer ret = ExtractionUtils.readInteger(coll, sizeField);
         if (ret != null)
             return ret;
         int e[] = this.extractEntryIds(coll);
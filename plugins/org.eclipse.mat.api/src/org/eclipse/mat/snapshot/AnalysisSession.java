@@ -0,0 +1,364 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.snapshot;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.VoidProgressListener;
+
+/**
+ * Runs queries concurrently against one open snapshot, for a service which
+ * answers questions from many users about the same heap dump.
+ * <p>
+ * The queries run on a fixed number of worker threads, and at most a given
+ * number of queries wait for a thread. Submitting a query when the queue is
+ * full throws a {@link RejectedExecutionException}, so that the caller can
+ * push back rather than pile up work.
+ * <p>
+ * Each query has its own progress listener, which is cancelled by
+ * {@link Query#cancel(boolean)}, when the timeout of the query expires or when
+ * the session is closed. Cancellation is cooperative: a query stops at the
+ * next check of its listener. The worker threads are never interrupted, as an
+ * interrupt could close index files which the other queries are reading.
+ * <p>
+ * The session does not own the snapshot. Closing the session cancels its
+ * queries but leaves the snapshot open.
+ * @since 1.17
+ */
+public class AnalysisSession implements Closeable
+{
+    /**
+     * Work run against the snapshot of a session.
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    public interface Task<T>
+    {
+        /**
+         * Run the work.
+         * @param snapshot the snapshot of the session
+         * @param listener the listener of the query, to check for cancellation
+         * @return the result
+         * @throws Exception if the work failed
+         */
+        T run(ISnapshot snapshot, IProgressListener listener) throws Exception;
+    }
+
+    /**
+     * A query submitted to a session.
+     * @param <T> the type of the result
+     */
+    public static final class Query<T> implements Future<T>
+    {
+        private final VoidProgressListener listener = new VoidProgressListener();
+        private final FutureTask<T> future;
+        /** runs the query on a worker thread, and counts it as active until the thread is done with it */
+        private final Runnable worker;
+        private volatile ScheduledFuture<?> timeout;
+        private volatile boolean timedOut;
+
+        private Query(final ISnapshot snapshot, final Task<T> task, final Set<Query<?>> active)
+        {
+            this.future = new FutureTask<T>(() -> task.run(snapshot, listener))
+            {
+                @Override
+                protected void done()
+                {
+                    ScheduledFuture<?> t = timeout;
+                    if (t != null)
+                        t.cancel(false);
+                }
+            };
+            // not in done(), which is called on cancel while the task may still be running
+            this.worker = () -> {
+                try
+                {
+                    future.run();
+                }
+                finally
+                {
+                    active.remove(Query.this);
+                }
+            };
+        }
+
+        /**
+         * Cancel the query. A query which is running stops at the next check
+         * of its progress listener, and its thread is not interrupted.
+         * @param mayInterruptIfRunning ignored
+         * @return false if the query had already finished
+         */
+        public boolean cancel(boolean mayInterruptIfRunning)
+        {
+            listener.setCanceled(true);
+            return future.cancel(false);
+        }
+
+        /**
+         * Whether the query was cancelled because it ran out of time.
+         * @return true if the timeout expired before the query finished
+         */
+        public boolean isTimedOut()
+        {
+            return timedOut;
+        }
+
+        public boolean isCancelled()
+        {
+            return future.isCancelled();
+        }
+
+        public boolean isDone()
+        {
+            return future.isDone();
+        }
+
+        public T get() throws InterruptedException, ExecutionException
+        {
+            return future.get();
+        }
+
+        public T get(long time, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException
+        {
+            return future.get(time, unit);
+        }
+
+        private void timeOut()
+        {
+            if (!future.isDone())
+            {
+                timedOut = true;
+                cancel(false);
+            }
+        }
+    }
+
+    private final ISnapshot snapshot;
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService timer;
+    private final Set<Query<?>> active = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Create a session.
+     * @param snapshot the snapshot to query, which stays open when the session is closed
+     * @param threads the number of queries to run at the same time
+     * @param queueCapacity how many more queries can wait for a thread
+     */
+    public AnalysisSession(ISnapshot snapshot, int threads, int queueCapacity)
+    {
+        this.snapshot = snapshot;
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<Runnable>(Math.max(1, queueCapacity)),
+                        new DaemonThreadFactory("MAT analysis session worker-")); //$NON-NLS-1$
+        this.timer = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("MAT analysis session timer-")); //$NON-NLS-1$
+    }
+
+    /**
+     * The snapshot queried by the session.
+     * @return the snapshot
+     */
+    public ISnapshot getSnapshot()
+    {
+        return snapshot;
+    }
+
+    /**
+     * Submit a query without a timeout.
+     * @param task the work to run
+     * @param <T> the type of the result
+     * @return the query, to wait for the result or to cancel it
+     * @throws RejectedExecutionException if the queue is full or the session is closed
+     */
+    public <T> Query<T> submit(Task<T> task)
+    {
+        return submit(task, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Submit a query.
+     * @param task the work to run
+     * @param timeout the time allowed for the query from now, including waiting for a thread, or 0 for no limit
+     * @param unit the unit of the timeout
+     * @param <T> the type of the result
+     * @return the query, to wait for the result or to cancel it
+     * @throws RejectedExecutionException if the queue is full or the session is closed
+     */
+    public <T> Query<T> submit(Task<T> task, long timeout, TimeUnit unit)
+    {
+        Query<T> query = new Query<T>(snapshot, task, active);
+        active.add(query);
+        try
+        {
+            workers.execute(query.worker);
+        }
+        catch (RejectedExecutionException e)
+        {
+            active.remove(query);
+            throw e;
+        }
+        if (timeout > 0)
+        {
+            try
+            {
+                query.timeout = timer.schedule(query::timeOut, timeout, unit);
+            }
+            catch (RejectedExecutionException e)
+            {
+                // closed meanwhile
+                query.cancel(false);
+                throw e;
+            }
+            // finished before the timeout was set
+            if (query.isDone())
+                query.timeout.cancel(false);
+        }
+        return query;
+    }
+
+    /**
+     * The class histogram of the snapshot.
+     * @param timeout the time allowed, or 0 for no limit
+     * @param unit the unit of the timeout
+     * @return the query
+     * @see ISnapshot#getHistogram(IProgressListener)
+     */
+    public Query<Histogram> histogram(long timeout, TimeUnit unit)
+    {
+        return submit((s, listener) -> s.getHistogram(listener), timeout, unit);
+    }
+
+    /**
+     * The objects immediately dominated by an object, a level of the dominator tree.
+     * @param objectId the object, or -1 for the roots of the dominator tree
+     * @param timeout the time allowed, or 0 for no limit
+     * @param unit the unit of the timeout
+     * @return the query
+     * @see ISnapshot#getImmediateDominatedIds(int)
+     */
+    public Query<int[]> dominatorTree(int objectId, long timeout, TimeUnit unit)
+    {
+        return submit((s, listener) -> s.getImmediateDominatedIds(objectId), timeout, unit);
+    }
+
+    /**
+     * A page of the objects immediately dominated by an object, biggest first.
+     * @param objectId the object, or -1 for the roots of the dominator tree
+     * @param offset the position of the first dominated object
+     * @param limit the most dominated objects to return
+     * @param timeout the time allowed, or 0 for no limit
+     * @param unit the unit of the timeout
+     * @return the query
+     * @see ISnapshot#getImmediateDominatedIds(int, int, int)
+     */
+    public Query<int[]> dominatorTree(int objectId, int offset, int limit, long timeout, TimeUnit unit)
+    {
+        return submit((s, listener) -> s.getImmediateDominatedIds(objectId, offset, limit), timeout, unit);
+    }
+
+    /**
+     * Run an OQL query.
+     * @param oql the query
+     * @param timeout the time allowed, or 0 for no limit
+     * @param unit the unit of the timeout
+     * @return the query, with the result as in {@link IOQLQuery#execute(ISnapshot, IProgressListener)}
+     */
+    public Query<Object> oql(String oql, long timeout, TimeUnit unit)
+    {
+        return submit((s, listener) -> SnapshotFactory.createQuery(oql).execute(s, listener), timeout, unit);
+    }
+
+    /**
+     * The shortest paths from the GC roots to an object.
+     * @param objectId the object
+     * @param excludeMap references not to follow, or null, as in {@link ISnapshot#getPathsFromGCRoots(int, Map)}
+     * @param maxPaths the most paths to find
+     * @param timeout the time allowed, or 0 for no limit
+     * @param unit the unit of the timeout
+     * @return the query, with the paths from the object to a GC root
+     */
+    public Query<List<int[]>> paths(int objectId, Map<IClass, Set<String>> excludeMap, int maxPaths, long timeout,
+                    TimeUnit unit)
+    {
+        return submit((s, listener) -> {
+            IPathsFromGCRootsComputer computer = s.getPathsFromGCRoots(objectId, excludeMap);
+            List<int[]> paths = new ArrayList<int[]>();
+            int[] path;
+            while (paths.size() < maxPaths && (path = computer.getNextShortestPath()) != null)
+            {
+                if (listener.isCanceled())
+                    throw new IProgressListener.OperationCanceledException();
+                paths.add(path);
+            }
+            return paths;
+        }, timeout, unit);
+    }
+
+    /**
+     * The number of queries submitted which have not yet finished. A
+     * cancelled query counts until its thread has stopped running it.
+     * @return the number of running and waiting queries
+     */
+    public int getActiveCount()
+    {
+        return active.size();
+    }
+
+    /**
+     * Cancel all the queries and stop the threads of the session. The snapshot stays open.
+     */
+    public void close()
+    {
+        workers.shutdown();
+        for (Query<?> query : active)
+            query.cancel(false);
+        timer.shutdownNow();
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory
+    {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        DaemonThreadFactory(String prefix)
+        {
+            this.prefix = prefix;
+        }
+
+        public Thread newThread(Runnable r)
+        {
+            Thread t = new Thread(r, prefix + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
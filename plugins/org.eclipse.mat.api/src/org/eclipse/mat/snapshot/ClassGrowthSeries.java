@@ -0,0 +1,374 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.mat.internal.Messages;
+import org.eclipse.mat.query.Bytes;
+import org.eclipse.mat.query.Column;
+import org.eclipse.mat.query.IContextObject;
+import org.eclipse.mat.query.IIconProvider;
+import org.eclipse.mat.query.IResultTable;
+import org.eclipse.mat.query.ResultMetaData;
+import org.eclipse.mat.snapshot.query.Icons;
+import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.MessageUtil;
+
+/**
+ * The number of objects and the shallow and retained sizes of each class over
+ * a series of heap dumps, built from the {@link ClassIdentityTable} of each
+ * dump without opening the snapshots.
+ * <p>
+ * The classes are joined by their identity with an open addressing hash
+ * table, and the values are held in columns indexed first by dump and then by
+ * row. A class missing from a dump has zero objects in that dump. As a table
+ * the shallow size of each class is shown for every dump, followed by the
+ * growth from the first dump to the last.
+ * @since 1.17
+ */
+public class ClassGrowthSeries implements IResultTable, IIconProvider
+{
+    private final ClassIdentityTable[] tables;
+    private int rowCount;
+    private long[] identities;
+    private String[] classNames;
+    private String[] classLoaderNames;
+    private final long[][] numberOfObjects;
+    private final long[][] usedHeapSize;
+    private final long[][] retainedHeapSize;
+
+    /** open addressing table of row + 1, 0 for an empty slot */
+    private int[] table;
+
+    private ClassGrowthSeries(ClassIdentityTable[] tables, int expectedRows)
+    {
+        this.tables = tables;
+        int capacity = Math.max(16, expectedRows);
+        this.identities = new long[capacity];
+        this.classNames = new String[capacity];
+        this.classLoaderNames = new String[capacity];
+        this.numberOfObjects = new long[tables.length][capacity];
+        this.usedHeapSize = new long[tables.length][capacity];
+        this.retainedHeapSize = new long[tables.length][capacity];
+        this.table = new int[Integer.highestOneBit(capacity) << 2];
+    }
+
+    /**
+     * Read the class identity tables of a series of dumps.
+     * @param files the heap dump files, or the class identity table files, in time order
+     * @param listener to show progress and to cancel the load
+     * @return the series
+     * @throws IOException if a table is missing or cannot be read; a dump
+     *             parsed before the tables were introduced needs to be opened once to write its table
+     */
+    public static ClassGrowthSeries load(List<File> files, IProgressListener listener) throws IOException
+    {
+        ClassIdentityTable[] tables = new ClassIdentityTable[files.size()];
+        listener.beginTask(Messages.ClassGrowthSeries_Loading, files.size());
+        for (int i = 0; i < tables.length; ++i)
+        {
+            File file = files.get(i);
+            if (!file.getName().endsWith(ClassIdentityTable.FILE_SUFFIX))
+                file = ClassIdentityTable.getFileForDump(file);
+            tables[i] = ClassIdentityTable.read(file);
+            if (listener.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
+            listener.worked(1);
+        }
+        listener.done();
+        return of(tables);
+    }
+
+    /**
+     * Join class identity tables which have already been read.
+     * @param tables the tables, in time order
+     * @return the series
+     */
+    public static ClassGrowthSeries of(ClassIdentityTable... tables)
+    {
+        int expectedRows = 0;
+        for (ClassIdentityTable t : tables)
+            expectedRows = Math.max(expectedRows, t.size());
+        ClassGrowthSeries series = new ClassGrowthSeries(tables, expectedRows + (expectedRows >> 3));
+        for (int i = 0; i < tables.length; ++i)
+            series.add(i, tables[i]);
+        return series;
+    }
+
+    private void add(int dump, ClassIdentityTable t)
+    {
+        long[] ids = t.getIdentities();
+        String[] names = t.getClassNames();
+        String[] loaders = t.getClassLoaderNames();
+        long[] objects = t.getNumberOfObjects();
+        long[] used = t.getUsedHeapSize();
+        long[] retained = t.getRetainedHeapSize();
+        for (int i = 0; i < ids.length; ++i)
+        {
+            int row = row(ids[i], names[i], loaders[i]);
+            numberOfObjects[dump][row] = objects[i];
+            usedHeapSize[dump][row] = used[i];
+            retainedHeapSize[dump][row] = retained[i];
+        }
+    }
+
+    /**
+     * Find the row for a class identity, adding a new one if it has not been seen.
+     */
+    private int row(long identity, String className, String classLoaderName)
+    {
+        int mask = table.length - 1;
+        for (int slot = hash(identity) & mask;; slot = (slot + 1) & mask)
+        {
+            int row = table[slot] - 1;
+            if (row < 0)
+            {
+                row = newRow(identity, className, classLoaderName);
+                table[slot] = row + 1;
+                if (rowCount > table.length >>> 1)
+                    rehash();
+                return row;
+            }
+            if (identities[row] == identity)
+                return row;
+        }
+    }
+
+    private static int hash(long identity)
+    {
+        return (int) (identity ^ (identity >>> 32));
+    }
+
+    private int newRow(long identity, String className, String classLoaderName)
+    {
+        if (rowCount == identities.length)
+        {
+            int capacity = rowCount + (rowCount >> 1);
+            identities = Arrays.copyOf(identities, capacity);
+            classNames = Arrays.copyOf(classNames, capacity);
+            classLoaderNames = Arrays.copyOf(classLoaderNames, capacity);
+            for (int i = 0; i < tables.length; ++i)
+            {
+                numberOfObjects[i] = Arrays.copyOf(numberOfObjects[i], capacity);
+                usedHeapSize[i] = Arrays.copyOf(usedHeapSize[i], capacity);
+                retainedHeapSize[i] = Arrays.copyOf(retainedHeapSize[i], capacity);
+            }
+        }
+        identities[rowCount] = identity;
+        classNames[rowCount] = className;
+        classLoaderNames[rowCount] = classLoaderName;
+        return rowCount++;
+    }
+
+    private void rehash()
+    {
+        table = new int[table.length << 1];
+        int mask = table.length - 1;
+        for (int row = 0; row < rowCount; ++row)
+        {
+            int slot = hash(identities[row]) & mask;
+            while (table[slot] != 0)
+                slot = (slot + 1) & mask;
+            table[slot] = row + 1;
+        }
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // columnar access
+    // //////////////////////////////////////////////////////////////
+
+    /**
+     * The number of dumps in the series.
+     * @return the number of dumps
+     */
+    public int getDumpCount()
+    {
+        return tables.length;
+    }
+
+    /**
+     * The path of a heap dump.
+     * @param dump the position of the dump in the series
+     * @return the path
+     */
+    public String getPath(int dump)
+    {
+        return tables[dump].getPath();
+    }
+
+    /**
+     * When a heap dump was written.
+     * @param dump the position of the dump in the series
+     * @return the time in milliseconds, or 0 if not known
+     */
+    public long getCreationDate(int dump)
+    {
+        return tables[dump].getCreationDate();
+    }
+
+    /**
+     * The identities of the classes of all the rows.
+     * @return a copy of the column, indexed by row
+     */
+    public long[] getIdentities()
+    {
+        return Arrays.copyOf(identities, rowCount);
+    }
+
+    /**
+     * The class names of all the rows.
+     * @return a copy of the column, indexed by row
+     */
+    public String[] getClassNames()
+    {
+        return Arrays.copyOf(classNames, rowCount);
+    }
+
+    /**
+     * The class loader names of all the rows.
+     * @return a copy of the column, indexed by row
+     */
+    public String[] getClassLoaderNames()
+    {
+        return Arrays.copyOf(classLoaderNames, rowCount);
+    }
+
+    /**
+     * The number of objects of each class in one dump.
+     * @param dump the position of the dump in the series
+     * @return a copy of the column, indexed by row
+     */
+    public long[] getNumberOfObjects(int dump)
+    {
+        return Arrays.copyOf(numberOfObjects[dump], rowCount);
+    }
+
+    /**
+     * The shallow size of the objects of each class in one dump.
+     * @param dump the position of the dump in the series
+     * @return a copy of the column, indexed by row
+     */
+    public long[] getUsedHeapSize(int dump)
+    {
+        return Arrays.copyOf(usedHeapSize[dump], rowCount);
+    }
+
+    /**
+     * The retained size of the objects of each class in one dump.
+     * @param dump the position of the dump in the series
+     * @return a copy of the column, indexed by row; negative for approximate sizes, 0 if not known
+     */
+    public long[] getRetainedHeapSize(int dump)
+    {
+        return Arrays.copyOf(retainedHeapSize[dump], rowCount);
+    }
+
+    /**
+     * The shallow size of each class in the last dump minus that in the first dump.
+     * @return a new column, indexed by row
+     */
+    public long[] getUsedHeapSizeGrowth()
+    {
+        long[] growth = new long[rowCount];
+        if (tables.length > 0)
+        {
+            long[] first = usedHeapSize[0];
+            long[] last = usedHeapSize[tables.length - 1];
+            for (int row = 0; row < rowCount; ++row)
+                growth[row] = last[row] - first[row];
+        }
+        return growth;
+    }
+
+    /**
+     * Count the dumps in which the shallow size of a class is larger than in
+     * the dump before, which picks out slow leaks better than the overall growth.
+     * @return a new column, indexed by row
+     */
+    public int[] getUsedHeapSizeIncreases()
+    {
+        int[] increases = new int[rowCount];
+        for (int dump = 1; dump < tables.length; ++dump)
+        {
+            long[] previous = usedHeapSize[dump - 1];
+            long[] current = usedHeapSize[dump];
+            for (int row = 0; row < rowCount; ++row)
+            {
+                if (current[row] > previous[row])
+                    increases[row]++;
+            }
+        }
+        return increases;
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // implementation as a IResultTable
+    // //////////////////////////////////////////////////////////////
+
+    public ResultMetaData getResultMetaData()
+    {
+        return null;
+    }
+
+    public Column[] getColumns()
+    {
+        List<Column> columns = new ArrayList<Column>(tables.length + 3);
+        columns.add(new Column(Messages.Column_ClassName, String.class));
+        columns.add(new Column(Messages.Column_ClassLoaderName, String.class));
+        for (int i = 0; i < tables.length; ++i)
+            columns.add(new Column(MessageUtil.format(Messages.HistogramComparison_Column, Messages.Column_ShallowHeap,
+                            i), Bytes.class));
+        columns.add(new Column(Messages.ClassGrowthSeries_Column_Growth, Bytes.class).sorting(Column.SortDirection.DESC));
+        return columns.toArray(new Column[columns.size()]);
+    }
+
+    public int getRowCount()
+    {
+        return rowCount;
+    }
+
+    public Object getRow(int rowId)
+    {
+        return rowId;
+    }
+
+    public Object getColumnValue(Object row, int columnIndex)
+    {
+        int r = (Integer) row;
+        if (columnIndex == 0)
+            return classNames[r];
+        if (columnIndex == 1)
+            return classLoaderNames[r];
+        int dump = columnIndex - 2;
+        if (dump < tables.length)
+            return new Bytes(usedHeapSize[dump][r]);
+        return new Bytes(usedHeapSize[tables.length - 1][r] - usedHeapSize[0][r]);
+    }
+
+    public IContextObject getContext(Object row)
+    {
+        // the snapshots are not open
+        return null;
+    }
+
+    public URL getIcon(Object row)
+    {
+        return Icons.CLASS;
+    }
+}
@@ -0,0 +1,338 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Date;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.HashMapLongObject;
+import org.eclipse.mat.internal.Messages;
+import org.eclipse.mat.snapshot.model.FieldDescriptor;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.model.IClassLoader;
+import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.MessageUtil;
+
+/**
+ * The classes of a snapshot with a stable identity, the number of objects
+ * and their shallow and retained sizes, stored next to the other index files
+ * of the snapshot.
+ * <p>
+ * The identity of a class is a 64-bit hash of the class name, the name of its
+ * class loader and the names and types of its declared fields, so the same
+ * class can be recognised in dumps of different runs of an application even
+ * though the object addresses have changed. Classes with the same identity,
+ * for example the same class loaded by several similar class loaders, are
+ * counted together.
+ * <p>
+ * The table is small and can be read without opening the snapshot, see
+ * {@link ClassGrowthSeries}.
+ * @since 1.17
+ */
+public class ClassIdentityTable
+{
+    /** The suffix added to the snapshot prefix to name the file */
+    public static final String FILE_SUFFIX = "clsid.index"; //$NON-NLS-1$
+
+    private static final int MAGIC = 0x4d415449; // MATI
+    private static final int VERSION = 1;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final String path;
+    private final long creationDate;
+    private final long[] identities;
+    private final String[] classNames;
+    private final String[] classLoaderNames;
+    private final long[] numberOfObjects;
+    private final long[] usedHeapSize;
+    private final long[] retainedHeapSize;
+
+    private ClassIdentityTable(String path, long creationDate, int size)
+    {
+        this.path = path;
+        this.creationDate = creationDate;
+        this.identities = new long[size];
+        this.classNames = new String[size];
+        this.classLoaderNames = new String[size];
+        this.numberOfObjects = new long[size];
+        this.usedHeapSize = new long[size];
+        this.retainedHeapSize = new long[size];
+    }
+
+    /**
+     * Build the table for an open snapshot from its class histogram.
+     * The retained sizes are only those already known, they are not calculated.
+     * @param snapshot the snapshot
+     * @param listener to show progress
+     * @return the table
+     * @throws SnapshotException if the classes could not be read
+     */
+    public static ClassIdentityTable of(ISnapshot snapshot, IProgressListener listener) throws SnapshotException
+    {
+        Collection<ClassHistogramRecord> records = snapshot.getHistogram(listener).getClassHistogramRecords();
+        SnapshotInfo info = snapshot.getSnapshotInfo();
+        Date date = info.getCreationDate();
+        ClassIdentityTable table = new ClassIdentityTable(info.getPath(), date != null ? date.getTime() : 0,
+                        records.size());
+        HashMapLongObject<Integer> rows = new HashMapLongObject<Integer>(records.size());
+        int size = 0;
+        for (ClassHistogramRecord record : records)
+        {
+            IClass cls = (IClass) snapshot.getObject(record.getClassId());
+            String loaderName = classLoaderName(snapshot, cls);
+            long identity = identity(cls.getName(), loaderName, cls.getFieldDescriptors());
+            Integer r = rows.get(identity);
+            int row = r != null ? r : size;
+            if (row == size)
+            {
+                rows.put(identity, row);
+                table.identities[row] = identity;
+                table.classNames[row] = cls.getName();
+                table.classLoaderNames[row] = loaderName;
+                size++;
+            }
+            table.numberOfObjects[row] += record.getNumberOfObjects();
+            table.usedHeapSize[row] += record.getUsedHeapSize();
+            long retained = cls.getRetainedHeapSizeOfObjects(false, true, listener);
+            // a negative size is an approximation, which stays negative when added to
+            table.retainedHeapSize[row] = table.retainedHeapSize[row] < 0 || retained < 0
+                            ? -Math.abs(table.retainedHeapSize[row]) - Math.abs(retained)
+                            : table.retainedHeapSize[row] + retained;
+        }
+        return size == records.size() ? table : table.truncate(size);
+    }
+
+    /**
+     * The name of the class loader without its address, which changes from
+     * dump to dump.
+     */
+    private static String classLoaderName(ISnapshot snapshot, IClass cls) throws SnapshotException
+    {
+        IClassLoader loader = (IClassLoader) snapshot.getObject(cls.getClassLoaderId());
+        String name = loader.getClassSpecificName();
+        if (name == null)
+            name = loader.getClazz().getName();
+        return name;
+    }
+
+    /**
+     * The stable identity of a class.
+     * @param className the name of the class
+     * @param classLoaderName the name of the class loader, without an address
+     * @param fields the declared instance fields of the class
+     * @return a 64-bit hash of the name, the loader and the field layout
+     */
+    public static long identity(String className, String classLoaderName, Collection<FieldDescriptor> fields)
+    {
+        long hash = hash(FNV_OFFSET, className);
+        hash = hash(hash, classLoaderName);
+        for (FieldDescriptor field : fields)
+        {
+            hash = (hash ^ field.getType()) * FNV_PRIME;
+            hash = hash(hash, field.getName());
+        }
+        return hash;
+    }
+
+    private static long hash(long hash, String s)
+    {
+        for (int i = 0; i < s.length(); ++i)
+            hash = (hash ^ s.charAt(i)) * FNV_PRIME;
+        // separator, so that "ab"+"c" differs from "a"+"bc"
+        return (hash ^ 0xffff) * FNV_PRIME;
+    }
+
+    private ClassIdentityTable truncate(int size)
+    {
+        ClassIdentityTable table = new ClassIdentityTable(path, creationDate, size);
+        System.arraycopy(identities, 0, table.identities, 0, size);
+        System.arraycopy(classNames, 0, table.classNames, 0, size);
+        System.arraycopy(classLoaderNames, 0, table.classLoaderNames, 0, size);
+        System.arraycopy(numberOfObjects, 0, table.numberOfObjects, 0, size);
+        System.arraycopy(usedHeapSize, 0, table.usedHeapSize, 0, size);
+        System.arraycopy(retainedHeapSize, 0, table.retainedHeapSize, 0, size);
+        return table;
+    }
+
+    /**
+     * The file holding the table of a snapshot.
+     * @param prefix the prefix of the index files of the snapshot, see {@link SnapshotInfo#getPrefix()}
+     * @return the file
+     */
+    public static File getFile(String prefix)
+    {
+        return new File(prefix + FILE_SUFFIX);
+    }
+
+    /**
+     * The file holding the table of a dump, when the dump was opened with the
+     * default index file names.
+     * @param dump the heap dump file
+     * @return the file, which might not exist
+     */
+    public static File getFileForDump(File dump)
+    {
+        String name = dump.getName();
+        int p = name.lastIndexOf('.');
+        name = p >= 0 ? name.substring(0, p + 1) : name + "."; //$NON-NLS-1$
+        return getFile(new File(dump.getParentFile(), name).getPath());
+    }
+
+    /**
+     * Write the table.
+     * @param file the file to write, usually from {@link #getFile(String)}
+     * @throws IOException if the file could not be written
+     */
+    public void write(File file) throws IOException
+    {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(path != null ? path : ""); //$NON-NLS-1$
+            out.writeLong(creationDate);
+            out.writeInt(identities.length);
+            for (int i = 0; i < identities.length; ++i)
+            {
+                out.writeLong(identities[i]);
+                out.writeUTF(classNames[i]);
+                out.writeUTF(classLoaderNames[i]);
+                out.writeLong(numberOfObjects[i]);
+                out.writeLong(usedHeapSize[i]);
+                out.writeLong(retainedHeapSize[i]);
+            }
+        }
+    }
+
+    /**
+     * Read a table written by {@link #write(File)}.
+     * @param file the table file
+     * @return the table
+     * @throws IOException if the file could not be read or is not a class identity table
+     */
+    public static ClassIdentityTable read(File file) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException(MessageUtil.format(Messages.ClassIdentityTable_Error_WrongFormat, file));
+            String path = in.readUTF();
+            long creationDate = in.readLong();
+            int size = in.readInt();
+            ClassIdentityTable table = new ClassIdentityTable(path, creationDate, size);
+            for (int i = 0; i < size; ++i)
+            {
+                table.identities[i] = in.readLong();
+                table.classNames[i] = in.readUTF();
+                table.classLoaderNames[i] = in.readUTF();
+                table.numberOfObjects[i] = in.readLong();
+                table.usedHeapSize[i] = in.readLong();
+                table.retainedHeapSize[i] = in.readLong();
+            }
+            return table;
+        }
+    }
+
+    /**
+     * The path of the heap dump.
+     * @return the path
+     */
+    public String getPath()
+    {
+        return path;
+    }
+
+    /**
+     * When the heap dump was written.
+     * @return the time in milliseconds, or 0 if not known
+     */
+    public long getCreationDate()
+    {
+        return creationDate;
+    }
+
+    /**
+     * The number of rows, one per class identity.
+     * @return the number of rows
+     */
+    public int size()
+    {
+        return identities.length;
+    }
+
+    /**
+     * The identities of the classes.
+     * @return a copy of the column, indexed by row
+     */
+    public long[] getIdentities()
+    {
+        return identities.clone();
+    }
+
+    /**
+     * The class names.
+     * @return a copy of the column, indexed by row
+     */
+    public String[] getClassNames()
+    {
+        return classNames.clone();
+    }
+
+    /**
+     * The class loader names, without addresses.
+     * @return a copy of the column, indexed by row
+     */
+    public String[] getClassLoaderNames()
+    {
+        return classLoaderNames.clone();
+    }
+
+    /**
+     * The number of objects of each class.
+     * @return a copy of the column, indexed by row
+     */
+    public long[] getNumberOfObjects()
+    {
+        return numberOfObjects.clone();
+    }
+
+    /**
+     * The shallow size of the objects of each class.
+     * @return a copy of the column, indexed by row
+     */
+    public long[] getUsedHeapSize()
+    {
+        return usedHeapSize.clone();
+    }
+
+    /**
+     * The retained size of the objects of each class, as in
+     * {@link ClassHistogramRecord#getRetainedHeapSize()}.
+     * @return a copy of the column, indexed by row; negative for approximate sizes, 0 if not known
+     */
+    public long[] getRetainedHeapSize()
+    {
+        return retainedHeapSize.clone();
+    }
+}
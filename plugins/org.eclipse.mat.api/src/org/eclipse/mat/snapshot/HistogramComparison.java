@@ -0,0 +1,426 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.snapshot;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.internal.Messages;
+import org.eclipse.mat.query.Bytes;
+import org.eclipse.mat.query.Column;
+import org.eclipse.mat.query.IContextObject;
+import org.eclipse.mat.query.IIconProvider;
+import org.eclipse.mat.query.IResultTable;
+import org.eclipse.mat.query.ResultMetaData;
+import org.eclipse.mat.snapshot.query.Icons;
+import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.MessageUtil;
+import org.eclipse.mat.util.VoidProgressListener;
+
+/**
+ * Comparison of the class histograms of a baseline snapshot and one or more
+ * later snapshots.
+ * <p>
+ * The histograms are computed concurrently, one task per snapshot, and the
+ * classes are joined by class name and class loader name with an open
+ * addressing hash table of row numbers. The result is held in columns: one
+ * array of class names, one array of class loader names and, for each
+ * snapshot, one array of object counts and one of shallow sizes, all indexed
+ * by row. As a table the first snapshot is shown with absolute values and the
+ * others as the difference to the first.
+ * @since 1.17
+ */
+public class HistogramComparison implements IResultTable, IIconProvider
+{
+    private final String[] labels;
+    private int rowCount;
+    private String[] classNames;
+    private String[] classLoaderNames;
+    private int[] hashes;
+    private final long[][] numberOfObjects;
+    private final long[][] usedHeapSize;
+
+    /** open addressing table of row + 1, 0 for an empty slot */
+    private int[] table;
+
+    private HistogramComparison(String[] labels, int expectedRows)
+    {
+        this.labels = labels;
+        int capacity = Math.max(16, expectedRows);
+        this.classNames = new String[capacity];
+        this.classLoaderNames = new String[capacity];
+        this.hashes = new int[capacity];
+        this.numberOfObjects = new long[labels.length][capacity];
+        this.usedHeapSize = new long[labels.length][capacity];
+        this.table = new int[Integer.highestOneBit(capacity) << 2];
+    }
+
+    /**
+     * Compare the full class histograms of some snapshots.
+     * @param baseline the snapshot to compare against
+     * @param others the later snapshots
+     * @param listener to show progress and to cancel the computation
+     * @return the comparison, with the baseline as snapshot 0
+     * @throws SnapshotException if a histogram could not be computed
+     */
+    public static HistogramComparison compare(ISnapshot baseline, List<ISnapshot> others, IProgressListener listener)
+                    throws SnapshotException
+    {
+        ISnapshot[] snapshots = new ISnapshot[others.size() + 1];
+        snapshots[0] = baseline;
+        for (int i = 0; i < others.size(); ++i)
+            snapshots[i + 1] = others.get(i);
+        return compare(computeHistograms(snapshots, listener));
+    }
+
+    /**
+     * Join histograms which have already been computed.
+     * @param histograms the baseline histogram followed by the histograms to compare with it
+     * @return the comparison
+     */
+    public static HistogramComparison compare(Histogram... histograms)
+    {
+        String[] labels = new String[histograms.length];
+        int expectedRows = 0;
+        for (int i = 0; i < histograms.length; ++i)
+        {
+            labels[i] = histograms[i].getLabel();
+            expectedRows = Math.max(expectedRows, histograms[i].getClassHistogramRecords().size());
+        }
+        HistogramComparison comparison = new HistogramComparison(labels, expectedRows + (expectedRows >> 3));
+        for (int i = 0; i < histograms.length; ++i)
+            comparison.add(i, histograms[i]);
+        return comparison;
+    }
+
+    /**
+     * Compute the class histograms of several snapshots at the same time.
+     * A snapshot which is passed more than once is only examined once.
+     * @param snapshots the snapshots
+     * @param listener to show progress and to cancel the computation
+     * @return the histograms, in the same order as the snapshots
+     * @throws SnapshotException if a histogram could not be computed
+     */
+    public static Histogram[] computeHistograms(ISnapshot[] snapshots, IProgressListener listener)
+                    throws SnapshotException
+    {
+        final IProgressListener parent = listener != null ? listener : new VoidProgressListener();
+        // the listeners passed to the snapshots are not shared between threads, only the cancel state is
+        final IProgressListener child = new VoidProgressListener()
+        {
+            @Override
+            public boolean isCanceled()
+            {
+                return parent.isCanceled();
+            }
+        };
+
+        Map<ISnapshot, Future<Histogram>> tasks = new IdentityHashMap<ISnapshot, Future<Histogram>>();
+        int threads = Math.max(1, Math.min(snapshots.length, Runtime.getRuntime().availableProcessors()));
+        ExecutorService es = Executors.newFixedThreadPool(threads);
+        try
+        {
+            parent.beginTask(Messages.DeltaHistogram_Progress, snapshots.length);
+            for (final ISnapshot snapshot : snapshots)
+            {
+                if (!tasks.containsKey(snapshot))
+                {
+                    tasks.put(snapshot, es.submit(new Callable<Histogram>()
+                    {
+                        public Histogram call() throws SnapshotException
+                        {
+                            return snapshot.getHistogram(child);
+                        }
+                    }));
+                }
+            }
+
+            Histogram[] histograms = new Histogram[snapshots.length];
+            for (int i = 0; i < snapshots.length; ++i)
+            {
+                histograms[i] = tasks.get(snapshots[i]).get();
+                parent.worked(1);
+            }
+            if (parent.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
+            parent.done();
+            return histograms;
+        }
+        catch (InterruptedException e)
+        {
+            throw new SnapshotException(e);
+        }
+        catch (ExecutionException e)
+        {
+            throw SnapshotException.rethrow(e.getCause());
+        }
+        finally
+        {
+            es.shutdownNow();
+        }
+    }
+
+    private void add(int snapshot, Histogram histogram)
+    {
+        Collection<ClassLoaderHistogramRecord> loaders = histogram.getClassLoaderHistogramRecords();
+        if (loaders == null || loaders.isEmpty())
+        {
+            // no class loader information, so join by class name alone
+            for (ClassHistogramRecord record : histogram.getClassHistogramRecords())
+                add(snapshot, "", record); //$NON-NLS-1$
+            return;
+        }
+        for (ClassLoaderHistogramRecord loader : loaders)
+        {
+            for (ClassHistogramRecord record : loader.getClassHistogramRecords())
+                add(snapshot, loader.getLabel(), record);
+        }
+    }
+
+    private void add(int snapshot, String classLoaderName, ClassHistogramRecord record)
+    {
+        int row = row(record.getLabel(), classLoaderName);
+        numberOfObjects[snapshot][row] += record.getNumberOfObjects();
+        usedHeapSize[snapshot][row] += record.getUsedHeapSize();
+    }
+
+    /**
+     * Find the row for a class, adding a new one if the class has not been seen.
+     */
+    private int row(String className, String classLoaderName)
+    {
+        int hash = className.hashCode() * 31 + classLoaderName.hashCode();
+        hash ^= hash >>> 16;
+        int mask = table.length - 1;
+        for (int slot = hash & mask;; slot = (slot + 1) & mask)
+        {
+            int row = table[slot] - 1;
+            if (row < 0)
+            {
+                row = newRow(className, classLoaderName, hash);
+                table[slot] = row + 1;
+                if (rowCount > table.length >>> 1)
+                    rehash();
+                return row;
+            }
+            if (hashes[row] == hash && classNames[row].equals(className)
+                            && classLoaderNames[row].equals(classLoaderName))
+                return row;
+        }
+    }
+
+    private int newRow(String className, String classLoaderName, int hash)
+    {
+        if (rowCount == classNames.length)
+        {
+            int capacity = rowCount + (rowCount >> 1);
+            classNames = Arrays.copyOf(classNames, capacity);
+            classLoaderNames = Arrays.copyOf(classLoaderNames, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+            for (int i = 0; i < labels.length; ++i)
+            {
+                numberOfObjects[i] = Arrays.copyOf(numberOfObjects[i], capacity);
+                usedHeapSize[i] = Arrays.copyOf(usedHeapSize[i], capacity);
+            }
+        }
+        classNames[rowCount] = className;
+        classLoaderNames[rowCount] = classLoaderName;
+        hashes[rowCount] = hash;
+        return rowCount++;
+    }
+
+    private void rehash()
+    {
+        table = new int[table.length << 1];
+        int mask = table.length - 1;
+        for (int row = 0; row < rowCount; ++row)
+        {
+            int slot = hashes[row] & mask;
+            while (table[slot] != 0)
+                slot = (slot + 1) & mask;
+            table[slot] = row + 1;
+        }
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // columnar access
+    // //////////////////////////////////////////////////////////////
+
+    /**
+     * The number of snapshots compared, including the baseline.
+     * @return the number of snapshots
+     */
+    public int getSnapshotCount()
+    {
+        return labels.length;
+    }
+
+    /**
+     * The label of the histogram of a snapshot.
+     * @param snapshot the snapshot number, 0 for the baseline
+     * @return the label
+     */
+    public String getLabel(int snapshot)
+    {
+        return labels[snapshot];
+    }
+
+    /**
+     * The class names of all the rows.
+     * @return a copy of the column, indexed by row
+     */
+    public String[] getClassNames()
+    {
+        return Arrays.copyOf(classNames, rowCount);
+    }
+
+    /**
+     * The class loader names of all the rows.
+     * @return a copy of the column, indexed by row
+     */
+    public String[] getClassLoaderNames()
+    {
+        return Arrays.copyOf(classLoaderNames, rowCount);
+    }
+
+    /**
+     * The number of objects of each class in one snapshot.
+     * @param snapshot the snapshot number, 0 for the baseline
+     * @return a copy of the column, indexed by row, with 0 for classes not in the snapshot
+     */
+    public long[] getNumberOfObjects(int snapshot)
+    {
+        return Arrays.copyOf(numberOfObjects[snapshot], rowCount);
+    }
+
+    /**
+     * The shallow size of the objects of each class in one snapshot.
+     * @param snapshot the snapshot number, 0 for the baseline
+     * @return a copy of the column, indexed by row, with 0 for classes not in the snapshot
+     */
+    public long[] getUsedHeapSize(int snapshot)
+    {
+        return Arrays.copyOf(usedHeapSize[snapshot], rowCount);
+    }
+
+    /**
+     * The change in the number of objects of each class from the baseline.
+     * @param snapshot the snapshot number
+     * @return a new column, indexed by row
+     */
+    public long[] getNumberOfObjectsDelta(int snapshot)
+    {
+        return delta(numberOfObjects, snapshot);
+    }
+
+    /**
+     * The change in the shallow size of the objects of each class from the baseline.
+     * @param snapshot the snapshot number
+     * @return a new column, indexed by row
+     */
+    public long[] getUsedHeapSizeDelta(int snapshot)
+    {
+        return delta(usedHeapSize, snapshot);
+    }
+
+    private long[] delta(long[][] columns, int snapshot)
+    {
+        long[] delta = new long[rowCount];
+        long[] current = columns[snapshot];
+        long[] base = columns[0];
+        for (int row = 0; row < rowCount; ++row)
+            delta[row] = current[row] - base[row];
+        return delta;
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // implementation as a IResultTable
+    // //////////////////////////////////////////////////////////////
+
+    public ResultMetaData getResultMetaData()
+    {
+        return null;
+    }
+
+    public Column[] getColumns()
+    {
+        List<Column> columns = new ArrayList<Column>(2 + 2 * labels.length);
+        columns.add(new Column(Messages.Column_ClassName, String.class));
+        columns.add(new Column(Messages.Column_ClassLoaderName, String.class));
+        columns.add(new Column(MessageUtil.format(Messages.HistogramComparison_Column, Messages.Column_Objects, 0),
+                        long.class));
+        columns.add(new Column(MessageUtil.format(Messages.HistogramComparison_Column, Messages.Column_ShallowHeap, 0),
+                        Bytes.class).sorting(Column.SortDirection.DESC));
+        for (int i = 1; i < labels.length; ++i)
+        {
+            columns.add(new Column(MessageUtil.format(Messages.HistogramComparison_DeltaColumn,
+                            Messages.Column_Objects, i), long.class));
+            columns.add(new Column(MessageUtil.format(Messages.HistogramComparison_DeltaColumn,
+                            Messages.Column_ShallowHeap, i), Bytes.class));
+        }
+        return columns.toArray(new Column[columns.size()]);
+    }
+
+    public int getRowCount()
+    {
+        return rowCount;
+    }
+
+    public Object getRow(int rowId)
+    {
+        return rowId;
+    }
+
+    public Object getColumnValue(Object row, int columnIndex)
+    {
+        int r = (Integer) row;
+        switch (columnIndex)
+        {
+            case 0:
+                return classNames[r];
+            case 1:
+                return classLoaderNames[r];
+            case 2:
+                return numberOfObjects[0][r];
+            case 3:
+                return new Bytes(usedHeapSize[0][r]);
+            default:
+                int snapshot = (columnIndex - 2) / 2;
+                if ((columnIndex & 1) == 0)
+                    return numberOfObjects[snapshot][r] - numberOfObjects[0][r];
+                return new Bytes(usedHeapSize[snapshot][r] - usedHeapSize[0][r]);
+        }
+    }
+
+    public IContextObject getContext(Object row)
+    {
+        // the rows span several snapshots, so there are no objects to select
+        return null;
+    }
+
+    public URL getIcon(Object row)
+    {
+        return Icons.CLASS;
+    }
+}
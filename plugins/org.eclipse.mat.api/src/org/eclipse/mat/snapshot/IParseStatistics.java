@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.snapshot;
+
+import java.util.List;
+
+/**
+ * Timings and counters collected for each phase while a heap dump was parsed.
+ * The statistics are stored with the snapshot, so they are also available
+ * when the snapshot is reopened from its index files.
+ * <p>
+ * Values which could not be measured, for example the CPU time on a JVM
+ * without the platform management extensions or the bytes read by a phase
+ * which does not read the dump, are reported as -1.
+ *
+ * @see SnapshotInfo#getParseStatistics()
+ * @since 1.17
+ */
+public interface IParseStatistics
+{
+    /** First pass over the dump, finding the objects and classes */
+    String PHASE_PASS1 = "pass1"; //$NON-NLS-1$
+    /** Second pass over the dump, extracting the references */
+    String PHASE_PASS2 = "pass2"; //$NON-NLS-1$
+    /** Writing the preliminary indexes after the passes */
+    String PHASE_FILL_INDEXES = "fillIndexes"; //$NON-NLS-1$
+    /** Removing unreachable objects and rewriting the indexes, including the inbound index */
+    String PHASE_GARBAGE_CLEANING = "garbageCleaning"; //$NON-NLS-1$
+    /** Flushing the inbound index, part of garbage cleaning */
+    String PHASE_INBOUND_INDEX = "inboundIndex"; //$NON-NLS-1$
+    /** Rewriting the parser specific indexes for the purged objects */
+    String PHASE_PURGE_INDEXES = "purgeIndexes"; //$NON-NLS-1$
+    /** Building the snapshot and writing the master index file */
+    String PHASE_CREATE_SNAPSHOT = "createSnapshot"; //$NON-NLS-1$
+    /** Calculating the dominator tree and the retained sizes */
+    String PHASE_DOMINATOR_TREE = "dominatorTree"; //$NON-NLS-1$
+    /** Calculating the minimum retained sizes of the classes */
+    String PHASE_MIN_RETAINED_SIZES = "minRetainedSizes"; //$NON-NLS-1$
+
+    /**
+     * Measurements for one phase of the parse.
+     */
+    interface Phase
+    {
+        /**
+         * The name of the phase, for example {@link IParseStatistics#PHASE_PASS1}.
+         * @return the name
+         */
+        String getName();
+
+        /**
+         * Elapsed time of the phase.
+         * @return the wall clock time in milliseconds
+         */
+        long getWallTimeMillis();
+
+        /**
+         * CPU time used by the whole process during the phase, so this can
+         * exceed the wall time when several threads are busy.
+         * @return the CPU time in milliseconds, or -1 if not available
+         */
+        long getCpuTimeMillis();
+
+        /**
+         * Number of bytes of the dump processed by the phase.
+         * @return the number of bytes, or -1 if the phase does not read the dump
+         */
+        long getBytesRead();
+
+        /**
+         * Number of objects processed by the phase.
+         * @return the number of objects, or -1 if not known
+         */
+        long getObjects();
+
+        /**
+         * Throughput of the phase.
+         * @return objects processed per second, or -1 if not known
+         */
+        double getObjectsPerSecond();
+
+        /**
+         * The highest Java heap usage seen during the phase.
+         * @return the peak heap usage in bytes, or -1 if not available
+         */
+        long getPeakHeapBytes();
+
+        /**
+         * Total size of the index files of the snapshot when the phase finished.
+         * @return the size in bytes
+         */
+        long getIndexFileBytes();
+    }
+
+    /**
+     * All the recorded phases, in the order in which they finished.
+     * Phases can be nested, for example {@link #PHASE_INBOUND_INDEX} is
+     * part of {@link #PHASE_GARBAGE_CLEANING}.
+     * @return the phases
+     */
+    List<? extends Phase> getPhases();
+
+    /**
+     * Look up a phase by name.
+     * @param name the name of the phase
+     * @return the phase, or null if it was not recorded
+     */
+    Phase getPhase(String name);
+
+    /**
+     * Elapsed time from the start of the first phase to the end of the last phase.
+     * @return the time in milliseconds
+     */
+    long getTotalWallTimeMillis();
+}
@@ -10,19 +10,29 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    IBM Corporation - enhancements and fixes
+ *    Standalone adaptation - paged dominator tree, biggest retained sizes, string table,
+ *                            GC roots by type, field probe, retained size estimate
  *******************************************************************************/
 package org.eclipse.mat.snapshot;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
 
 import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.ArrayInt;
+import org.eclipse.mat.snapshot.model.Field;
 import org.eclipse.mat.snapshot.model.GCRootInfo;
+import org.eclipse.mat.snapshot.model.IArray;
 import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.model.IInstance;
 import org.eclipse.mat.snapshot.model.IObject;
 import org.eclipse.mat.snapshot.model.IThreadStack;
+import org.eclipse.mat.snapshot.model.NamedReference;
+import org.eclipse.mat.snapshot.model.ObjectReference;
+import org.eclipse.mat.snapshot.model.ThreadToLocalReference;
 import org.eclipse.mat.util.IProgressListener;
 
 /**
@@ -76,6 +86,71 @@ public interface ISnapshot
      */
     public int[] getGCRoots() throws SnapshotException;
 
+    /**
+     * Get the GC roots of some types, e.g. all the finalizable objects,
+     * without looking at the roots of the other types.
+     *
+     * @param typeMask
+     *            one or more of the types of {@link GCRootInfo.Type} or'ed
+     *            together
+     * @return the objectIds, ascending, of the objects which are a GC root of
+     *         at least one of the types
+     * @throws SnapshotException on an unexpected problem
+     * @since 1.17
+     */
+    public default int[] getGCRoots(int typeMask) throws SnapshotException
+    {
+        ArrayInt result = new ArrayInt();
+        for (int root : getGCRoots())
+        {
+            for (GCRootInfo info : getGCRootInfo(root))
+            {
+                if ((info.getType() & typeMask) != 0)
+                {
+                    result.add(root);
+                    break;
+                }
+            }
+        }
+        result.sort();
+        return result.toArray();
+    }
+
+    /**
+     * Get the objects a thread keeps alive as GC roots of some types, e.g.
+     * the local variables on its stack.
+     *
+     * @param threadId
+     *            the id of the thread object
+     * @param typeMask
+     *            one or more of the types of {@link GCRootInfo.Type} or'ed
+     *            together
+     * @return the objectIds, ascending, of the objects which are a GC root of
+     *         the thread of at least one of the types
+     * @throws SnapshotException on an unexpected problem
+     * @since 1.17
+     */
+    public default int[] getGCRootsOfThread(int threadId, int typeMask) throws SnapshotException
+    {
+        ArrayInt result = new ArrayInt();
+        for (NamedReference ref : getObject(threadId).getOutboundReferences())
+        {
+            if (!(ref instanceof ThreadToLocalReference))
+                continue;
+            ThreadToLocalReference local = (ThreadToLocalReference) ref;
+            for (GCRootInfo info : local.getGcRootInfo())
+            {
+                if ((info.getType() & typeMask) != 0)
+                {
+                    result.add(local.getObjectId());
+                    break;
+                }
+            }
+        }
+        result.sort();
+        return result.toArray();
+    }
+
     /**
      * Get all classes.
      * <p>
@@ -421,6 +496,31 @@ public interface ISnapshot
      */
     public long getMinRetainedSize(int[] objectIds, IProgressListener listener) throws SnapshotException;
 
+    /**
+     * Estimate the minimum retained size of the given objects from a random
+     * sample of them, with a confidence interval. Reads the dominator tree
+     * only above the sampled objects, so it takes about as long for a class
+     * with millions of objects as for one with a thousand.
+     * 
+     * @param objectIds
+     *            objects whose minimum retained size should be estimated
+     * @param sampleSize
+     *            how many of the objects to sample, all of them if there are
+     *            no more
+     * @param listener
+     *            progress listener informing about the current state of
+     *            execution
+     * @return the estimate, exact if all the objects were sampled
+     * @throws SnapshotException if there was a problem, such as on cancellation
+     * @see #getMinRetainedSize(int[], IProgressListener)
+     * @since 1.17
+     */
+    public default RetainedSizeEstimate estimateRetainedSize(int[] objectIds, int sampleSize,
+                    IProgressListener listener) throws SnapshotException
+    {
+        return RetainedSizeEstimate.estimate(this, objectIds, sampleSize, listener);
+    }
+
     /**
      * Get objects the given object directly dominates, i.e. the objects which
      * are life-time dependent on the given object (not recursively, so just the
@@ -435,6 +535,75 @@ public interface ISnapshot
      */
     public int[] getImmediateDominatedIds(int objectId) throws SnapshotException;
 
+    /**
+     * Get a page of the objects the given object directly dominates. The
+     * dominated objects are ordered by descending retained size, so the first
+     * page holds the biggest of them, and expanding a node with very many
+     * children only reads the part which is shown.
+     *
+     * @param objectId
+     *            object for which the directly dominated objects should be
+     *            returned, or -1 for the roots of the dominator tree
+     * @param offset
+     *            the position of the first dominated object to return
+     * @param limit
+     *            the most dominated objects to return
+     * @return the directly dominated objects from the offset, biggest first
+     * @throws SnapshotException if the dominator tree has not been calculated
+     * @see #getImmediateDominatedCount(int)
+     * @since 1.17
+     */
+    public default int[] getImmediateDominatedIds(int objectId, int offset, int limit) throws SnapshotException
+    {
+        int[] ids = getImmediateDominatedIds(objectId);
+        int from = Math.min(Math.max(offset, 0), ids.length);
+        return Arrays.copyOfRange(ids, from, from + Math.max(0, Math.min(limit, ids.length - from)));
+    }
+
+    /**
+     * Get the number of objects the given object directly dominates, without
+     * reading them.
+     *
+     * @param objectId
+     *            object for which the directly dominated objects should be
+     *            counted, or -1 for the roots of the dominator tree
+     * @return the number of directly dominated objects
+     * @throws SnapshotException if the dominator tree has not been calculated
+     * @since 1.17
+     */
+    public default int getImmediateDominatedCount(int objectId) throws SnapshotException
+    {
+        return getImmediateDominatedIds(objectId).length;
+    }
+
+    /**
+     * Get the objects with the biggest retained sizes, overall and for each
+     * class, and the retained size of the top-level dominators of each class,
+     * as recorded when the dominator tree was calculated.
+     *
+     * @return the table, or null if the dominator tree has not been calculated
+     * @throws SnapshotException if the table could not be read or rebuilt
+     * @since 1.17
+     */
+    public default TopRetainedTable getTopRetainedTable() throws SnapshotException
+    {
+        return null;
+    }
+
+    /**
+     * Get the values of the <code>java.lang.String</code> objects, as
+     * extracted when the dump was parsed with the option
+     * {@link StringTable#OPTION}.
+     *
+     * @return the table, or null if the strings were not extracted
+     * @throws SnapshotException if the table could not be read
+     * @since 1.17
+     */
+    public default StringTable getStringTable() throws SnapshotException
+    {
+        return null;
+    }
+
     /**
      * Get object which directly dominates the given object, i.e. the object
      * which controls the life-time of the given object (not recursively, so
@@ -514,6 +683,60 @@ public interface ISnapshot
      */
     public IObject getObject(int objectId) throws SnapshotException;
 
+    /**
+     * Read the value of one field of an object, without reading its other
+     * fields.
+     * <p>
+     * If the name is in the form <code>&lt;FIELD&gt;{.&lt;FIELD&gt;}</code> the
+     * fields are followed as with {@link IObject#resolveValue(String)}, but
+     * the objects on the way are not read either.
+     * <p>
+     * Performance: Fast - for a dump which can be read in place, a single read
+     * of the field from the dump, at an offset known for each class.
+     * 
+     * @param objectId
+     *            id of the object
+     * @param name
+     *            the name of the field, or a path of fields
+     * @return the value as {@link Field#getValue()} gives it: a boxed
+     *         primitive or an {@link ObjectReference}, or null for a null
+     *         reference or if there is no such field
+     * @throws SnapshotException if a field on the path is not a reference or
+     *             could not be read
+     * @since 1.17
+     */
+    public default Object readField(int objectId, String name) throws SnapshotException
+    {
+        IObject object = getObject(objectId);
+        if (object instanceof IInstance && name.indexOf('.') < 0)
+        {
+            Field field = ((IInstance) object).getField(name);
+            return field != null ? field.getValue() : null;
+        }
+        Object value = object.resolveValue(name);
+        return value instanceof IObject ? new ObjectReference(this, ((IObject) value).getObjectAddress()) : value;
+    }
+
+    /**
+     * Get the length of an array without reading its contents.
+     * <p>
+     * Performance: Fast - for a dump which can be read in place, a single read
+     * from the dump.
+     * 
+     * @param objectId
+     *            id of the object
+     * @return the length in elements, or -1 if the object is not an array
+     * @throws SnapshotException if the array could not be read
+     * @since 1.17
+     */
+    public default int getArrayLength(int objectId) throws SnapshotException
+    {
+        if (!isArray(objectId))
+            return -1;
+        IObject object = getObject(objectId);
+        return object instanceof IArray ? ((IArray) object).getLength() : -1;
+    }
+
     /**
      * Get the GC root info for an object. If the provided object is not a GC
      * root, then null will be returned; otherwise, a GCRootInfo[]. An object
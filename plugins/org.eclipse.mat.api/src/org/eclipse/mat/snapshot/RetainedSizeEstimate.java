@@ -0,0 +1,411 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.snapshot;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.ArrayInt;
+import org.eclipse.mat.collect.SetInt;
+import org.eclipse.mat.internal.Messages;
+import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.IProgressListener.OperationCanceledException;
+
+/**
+ * An estimate of the minimum retained size of a set of objects, from a random
+ * sample of the objects, with a confidence interval.
+ * <p>
+ * The minimum retained size of a set is the sum of the retained sizes of the
+ * objects of the set which are not dominated by another object of the set,
+ * as returned by {@link ISnapshot#getMinRetainedSize(int[], IProgressListener)}.
+ * For each sampled object the dominator tree is walked up towards the root to
+ * find whether another object of the set dominates it. If not, its exact
+ * retained size is counted. The objects of the set in the
+ * {@link TopRetainedTable} are counted exactly and not sampled, as a few
+ * objects retaining most of the heap would otherwise be missed by most
+ * samples. The rest of the set is estimated from the mean of the sample, and
+ * the interval from the variance of the sample.
+ * <p>
+ * The interval relies on the mean of the sample being normally distributed,
+ * which needs a sample of some hundreds of objects when the retained sizes of
+ * the objects are very uneven. A set no bigger than the sample is measured
+ * exactly.
+ * <p>
+ * The estimate is a {@link Number} whose value is the estimated size, so that
+ * it can be shown and sorted in a retained size column.
+ * @see ISnapshot#estimateRetainedSize(int[], int, IProgressListener)
+ * @since 1.17
+ */
+public final class RetainedSizeEstimate extends Number implements Comparable<RetainedSizeEstimate>
+{
+    private static final long serialVersionUID = 1L;
+
+    /** the sample size used by the retained size column */
+    public static final int DEFAULT_SAMPLE_SIZE = 1000;
+
+    /** the confidence level of the interval */
+    public static final double CONFIDENCE_LEVEL = 0.95;
+
+    /** the quantile of the normal distribution for {@link #CONFIDENCE_LEVEL} */
+    private static final double Z = 1.959963984540054;
+
+    /** the same sample for the same set, so that the results can be repeated */
+    private static final long SEED = 0x4d41542d52455445L;
+
+    private final long estimate;
+    private final long lowerBound;
+    private final long upperBound;
+    private final long countedSize;
+    private final int sampleSize;
+    private final int populationSize;
+
+    private RetainedSizeEstimate(long estimate, long lowerBound, long upperBound, long countedSize, int sampleSize,
+                    int populationSize)
+    {
+        this.estimate = estimate;
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        this.countedSize = countedSize;
+        this.sampleSize = sampleSize;
+        this.populationSize = populationSize;
+    }
+
+    /**
+     * Estimate the minimum retained size of a set of objects.
+     * @param snapshot the snapshot, whose dominator tree has been calculated
+     * @param objectIds the set of objects
+     * @param sampleSize the number of objects to sample
+     * @param listener for progress and cancellation
+     * @return the estimate
+     * @throws SnapshotException if the dominator tree could not be read
+     * @throws OperationCanceledException if cancelled
+     */
+    public static RetainedSizeEstimate estimate(ISnapshot snapshot, int[] objectIds, int sampleSize,
+                    IProgressListener listener) throws SnapshotException
+    {
+        if (sampleSize <= 0)
+            throw new IllegalArgumentException(Integer.toString(sampleSize));
+
+        int[] members = objectIds;
+        for (int ii = 1; ii < members.length; ii++)
+        {
+            if (members[ii] <= members[ii - 1])
+            {
+                members = distinct(objectIds);
+                break;
+            }
+        }
+
+        // the few objects retaining the most are counted exactly, and only the others sampled
+        int[] certain = biggestMembers(snapshot, members);
+        int[] frame = certain.length > 0 ? without(members, certain) : members;
+        int[] sample;
+        if (frame.length <= sampleSize)
+        {
+            sample = frame;
+        }
+        else
+        {
+            // Floyd's algorithm, distinct positions without shuffling the set
+            Random random = new Random(SEED ^ frame.length);
+            SetInt chosen = new SetInt(2 * sampleSize);
+            sample = new int[sampleSize];
+            int n = 0;
+            for (int jj = frame.length - sampleSize; jj < frame.length; jj++)
+            {
+                int t = random.nextInt(jj + 1);
+                int pick = chosen.add(t) ? t : jj;
+                chosen.add(pick);
+                sample[n++] = frame[pick];
+            }
+        }
+
+        listener.beginTask(Messages.RetainedSizeEstimate_Sampling, certain.length + sample.length);
+        Walker walker = new Walker(snapshot, members);
+        long exact = 0;
+        for (int objectId : certain)
+        {
+            if (walker.isTopAncestor(objectId))
+                exact += snapshot.getRetainedHeapSize(objectId);
+            listener.worked(1);
+        }
+        double sumOfSquares = 0;
+        long counted = 0;
+        for (int objectId : sample)
+        {
+            long size = walker.isTopAncestor(objectId) ? snapshot.getRetainedHeapSize(objectId) : 0;
+            counted += size;
+            sumOfSquares += (double) size * size;
+            listener.worked(1);
+            if (listener.isCanceled())
+                throw new OperationCanceledException();
+        }
+        listener.done();
+
+        int population = members.length;
+        int n = sample.length;
+        if (n == frame.length)
+            return new RetainedSizeEstimate(exact + counted, exact + counted, exact + counted, exact + counted,
+                            population, population);
+
+        double mean = (double) counted / n;
+        double variance = n > 1 ? Math.max(0, (sumOfSquares - n * mean * mean) / (n - 1)) : 0;
+        // sampled without replacement, so the variance shrinks as the sample covers the set
+        double finite = (double) (frame.length - n) / (frame.length - 1);
+        double error = Z * frame.length * Math.sqrt(variance / n * finite);
+        double total = exact + frame.length * mean;
+        // the objects counted are disjoint parts of the size
+        long lower = Math.max(exact + counted, Math.round(total - error));
+        long upper = Math.max(lower, Math.round(total + error));
+        long used = snapshot.getSnapshotInfo().getUsedHeapSize();
+        if (used > 0)
+            upper = Math.max(lower, Math.min(upper, used));
+        return new RetainedSizeEstimate(Math.max(lower, Math.min(upper, Math.round(total))), lower, upper,
+                        exact + counted, certain.length + n, population);
+    }
+
+    /**
+     * The objects of the set among the biggest objects overall and of each
+     * class, as recorded when the dominator tree was calculated.
+     * @return the object ids, ascending
+     */
+    private static int[] biggestMembers(ISnapshot snapshot, int[] members) throws SnapshotException
+    {
+        TopRetainedTable table = snapshot.getTopRetainedTable();
+        if (table == null)
+            return new int[0];
+        SetInt found = new SetInt();
+        for (int objectId : table.getObjectIds())
+        {
+            if (Arrays.binarySearch(members, objectId) >= 0)
+                found.add(objectId);
+        }
+        for (int classId : table.getClassIds())
+        {
+            for (int objectId : table.getObjectIdsOfClass(classId))
+            {
+                if (Arrays.binarySearch(members, objectId) >= 0)
+                    found.add(objectId);
+            }
+        }
+        int[] answer = found.toArray();
+        Arrays.sort(answer);
+        return answer;
+    }
+
+    /**
+     * The ascending ids without some of them.
+     */
+    private static int[] without(int[] members, int[] removed)
+    {
+        int[] answer = new int[members.length - removed.length];
+        int length = 0;
+        int r = 0;
+        for (int objectId : members)
+        {
+            if (r < removed.length && removed[r] == objectId)
+                r++;
+            else
+                answer[length++] = objectId;
+        }
+        return answer;
+    }
+
+    private static int[] distinct(int[] objectIds)
+    {
+        int[] sorted = objectIds.clone();
+        Arrays.sort(sorted);
+        int length = 0;
+        for (int ii = 0; ii < sorted.length; ii++)
+        {
+            if (length == 0 || sorted[length - 1] != sorted[ii])
+                sorted[length++] = sorted[ii];
+        }
+        return length < sorted.length ? Arrays.copyOf(sorted, length) : sorted;
+    }
+
+    /**
+     * Finds whether an object is dominated by another object of a set,
+     * remembering the paths already walked.
+     */
+    private static final class Walker
+    {
+        private final ISnapshot snapshot;
+        private final int[] members;
+        /** objects with an object of the set above them in the dominator tree */
+        private final SetInt covered = new SetInt();
+        /** objects with no object of the set above them */
+        private final SetInt clear = new SetInt();
+        private final ArrayInt path = new ArrayInt();
+
+        Walker(ISnapshot snapshot, int[] members)
+        {
+            this.snapshot = snapshot;
+            this.members = members;
+        }
+
+        boolean isTopAncestor(int objectId) throws SnapshotException
+        {
+            path.clear();
+            boolean top = true;
+            int dominator = snapshot.getImmediateDominatorId(objectId);
+            while (dominator >= 0)
+            {
+                if (clear.contains(dominator))
+                    break;
+                if (covered.contains(dominator) || Arrays.binarySearch(members, dominator) >= 0)
+                {
+                    top = false;
+                    break;
+                }
+                path.add(dominator);
+                dominator = snapshot.getImmediateDominatorId(dominator);
+            }
+            SetInt known = top ? clear : covered;
+            for (int ii = 0; ii < path.size(); ii++)
+                known.add(path.get(ii));
+            return top;
+        }
+    }
+
+    /**
+     * The estimated minimum retained size.
+     * @return the size in bytes
+     */
+    public long getEstimate()
+    {
+        return estimate;
+    }
+
+    /**
+     * The lower end of the confidence interval. Never less than
+     * {@link #getCountedSize()}.
+     * @return the size in bytes
+     */
+    public long getLowerBound()
+    {
+        return lowerBound;
+    }
+
+    /**
+     * The upper end of the confidence interval.
+     * @return the size in bytes
+     */
+    public long getUpperBound()
+    {
+        return upperBound;
+    }
+
+    /**
+     * The retained sizes counted for the objects looked at which are not
+     * dominated by another object of the set. These are disjoint parts of the
+     * minimum retained size, so this is never more than the minimum retained
+     * size, whatever the sample.
+     * @return the size in bytes
+     */
+    public long getCountedSize()
+    {
+        return countedSize;
+    }
+
+    /**
+     * Half the width of the confidence interval, rounded up.
+     * @return the size in bytes
+     */
+    public long getErrorBound()
+    {
+        return (upperBound - lowerBound + 1) / 2;
+    }
+
+    /**
+     * The number of objects looked at, those sampled and those counted
+     * exactly as some of the biggest.
+     * @return the sample size
+     */
+    public int getSampleSize()
+    {
+        return sampleSize;
+    }
+
+    /**
+     * The number of objects in the set.
+     * @return the size of the set
+     */
+    public int getPopulationSize()
+    {
+        return populationSize;
+    }
+
+    /**
+     * Whether every object of the set was looked at, so that the estimate is
+     * the minimum retained size.
+     * @return true if exact
+     */
+    public boolean isExact()
+    {
+        return sampleSize == populationSize;
+    }
+
+    @Override
+    public long longValue()
+    {
+        return estimate;
+    }
+
+    @Override
+    public int intValue()
+    {
+        return (int) estimate;
+    }
+
+    @Override
+    public float floatValue()
+    {
+        return estimate;
+    }
+
+    @Override
+    public double doubleValue()
+    {
+        return estimate;
+    }
+
+    public int compareTo(RetainedSizeEstimate o)
+    {
+        return Long.compare(estimate, o.estimate);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (!(obj instanceof RetainedSizeEstimate))
+            return false;
+        RetainedSizeEstimate o = (RetainedSizeEstimate) obj;
+        return estimate == o.estimate && lowerBound == o.lowerBound && upperBound == o.upperBound
+                        && countedSize == o.countedSize && sampleSize == o.sampleSize
+                        && populationSize == o.populationSize;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(estimate) * 31 + Long.hashCode(upperBound - lowerBound);
+    }
+
+    @Override
+    public String toString()
+    {
+        return estimate + " [" + lowerBound + ", " + upperBound + "] (" + sampleSize + "/" + populationSize + ")"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+    }
+}
@@ -11,6 +11,7 @@
  *    SAP AG - initial API and implementation
  *    IBM Corporation - enhancements and fixes
  *    Standalone adaptation - removed OSGi extension point dependency
+ *    Standalone adaptation - budget for the index page caches
  *******************************************************************************/
 package org.eclipse.mat.snapshot;
 
@@ -36,6 +37,9 @@ public final class SnapshotFactory
         void dispose(ISnapshot snapshot);
         IOQLQuery createQuery(String queryString) throws OQLParseException, SnapshotException;
         List<SnapshotFormat> getSupportedFormats();
+        void setCacheBudget(long budget);
+        long getCacheBudget();
+        long getCachedSize();
     }
 
     private static final Implementation factory = new SnapshotFactoryImpl();
@@ -66,6 +70,41 @@ public final class SnapshotFactory
         return factory.getSupportedFormats();
     }
 
+    /**
+     * Limit the memory used by the index page caches of all the open
+     * snapshots together, for a service keeping many dumps open at once.
+     * When the caches grow beyond the budget those of the least recently used
+     * snapshots are freed, and the pages are read again from the index files
+     * when next needed. The initial budget can be set with the system property
+     * <code>org.eclipse.mat.snapshot.cache_budget</code>, for example <code>2g</code>.
+     * @param budget the number of bytes, or {@link Long#MAX_VALUE} for no limit, the default
+     * @since 1.17
+     */
+    public static void setCacheBudget(long budget)
+    {
+        factory.setCacheBudget(budget);
+    }
+
+    /**
+     * The budget for the index page caches of all the open snapshots.
+     * @return the number of bytes, {@link Long#MAX_VALUE} for no limit
+     * @since 1.17
+     */
+    public static long getCacheBudget()
+    {
+        return factory.getCacheBudget();
+    }
+
+    /**
+     * An estimate of the memory held by the index page caches of all the open snapshots.
+     * @return the number of bytes
+     * @since 1.17
+     */
+    public static long getCachedSize()
+    {
+        return factory.getCachedSize();
+    }
+
     private SnapshotFactory()
     {}
 }
@@ -9,6 +9,7 @@
  *
  * Contributors:
  *    SAP AG - initial API and implementation
+ *    Standalone adaptation - parse statistics
  *******************************************************************************/
 package org.eclipse.mat.snapshot;
 
@@ -104,6 +105,7 @@ public class SnapshotInfo implements Serializable
      * keep_unreachable_objects - {@link Type}
      * hprof.version
      * org.eclipse.mat.snapshot.UnreachableObjectsHistogram
+     * org.eclipse.mat.snapshot.IParseStatistics
      * $heapFormat
      * @return the extra (serializable) information
      */
@@ -127,6 +129,19 @@ public class SnapshotInfo implements Serializable
         return properties.put(name, value);
     }
 
+    /**
+     * Get the timings and counters recorded while the heap dump was parsed.
+     * They are stored as the property named after {@link IParseStatistics}.
+     * 
+     * @return the statistics, or null if the snapshot was parsed without them
+     * @since 1.17
+     */
+    public IParseStatistics getParseStatistics()
+    {
+        Serializable statistics = properties.get(IParseStatistics.class.getName());
+        return statistics instanceof IParseStatistics ? (IParseStatistics) statistics : null;
+    }
+
     /**
      * Get the absolute path of the heap dump file.
      * 
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.snapshot;
+
+import java.io.Closeable;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.model.IClassLoader;
+
+/**
+ * Computes the derived data which the first queries on a snapshot would
+ * otherwise compute in the thread of the caller, on low priority background
+ * threads right after the snapshot is opened.
+ * <p>
+ * The warm-up is opt-in: open the snapshot with {@link #OPTION} set to true,
+ * then get the warm-up with
+ * <code>snapshot.getSnapshotAddons(SnapshotWarmUp.class)</code>, which is null
+ * if the option was not given. What is computed is kept in the index files of
+ * the snapshot, so that it is not computed again when the snapshot is opened
+ * the next time.
+ * <p>
+ * Each {@link Piece} is independent. A caller which needs a piece only waits
+ * for that piece, either by calling the method of {@link ISnapshot} which
+ * reads it, or with {@link #await(Piece)}. The warm-up is stopped when the
+ * snapshot is disposed.
+ * @since 1.17
+ */
+public interface SnapshotWarmUp extends Closeable
+{
+    /**
+     * The option of {@link SnapshotFactory#openSnapshot(java.io.File, java.util.Map, org.eclipse.mat.util.IProgressListener)}
+     * to warm up the snapshot after it is opened.
+     */
+    String OPTION = "warm_up"; //$NON-NLS-1$
+
+    /**
+     * The derived data computed by a warm-up, in the order it is computed.
+     */
+    enum Piece
+    {
+        /**
+         * the string table, see {@link ISnapshot#getStringTable()}, written
+         * from the strings of the snapshot if the dump was parsed without
+         * {@link StringTable#OPTION}
+         */
+        STRING_TABLE,
+        /** the biggest retained sizes, see {@link ISnapshot#getTopRetainedTable()} */
+        TOP_RETAINED,
+        /** the thread stacks and the GC roots of the threads, see {@link ISnapshot#getThreadStack(int)} */
+        THREADS,
+        /** the minimum retained size of each class, see {@link IClass#getRetainedHeapSizeOfObjects(boolean, boolean, org.eclipse.mat.util.IProgressListener)} */
+        CLASS_RETAINED_SIZES,
+        /** the minimum retained size of each class loader, see {@link IClassLoader#getRetainedHeapSizeOfObjects(boolean, boolean, org.eclipse.mat.util.IProgressListener)} */
+        CLASSLOADER_RETAINED_SIZES
+    }
+
+    /**
+     * Whether a piece has been computed, has failed or was stopped.
+     * @param piece the piece
+     * @return true if waiting for the piece would not block
+     */
+    boolean isDone(Piece piece);
+
+    /**
+     * Wait for a piece to be computed.
+     * @param piece the piece
+     * @throws SnapshotException if the piece could not be computed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void await(Piece piece) throws SnapshotException, InterruptedException;
+
+    /**
+     * Stop the warm-up, and wait for the pieces being computed to stop, which
+     * they do at their next check for cancellation. What was not computed is
+     * computed by the queries which need it.
+     */
+    void close();
+}
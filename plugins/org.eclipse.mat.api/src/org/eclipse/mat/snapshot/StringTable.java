@@ -0,0 +1,674 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import org.eclipse.mat.internal.Messages;
+import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.MessageUtil;
+
+/**
+ * The contents of the <code>java.lang.String</code> objects of a snapshot,
+ * extracted while the dump is parsed and stored next to the other index files
+ * of the snapshot.
+ * <p>
+ * Each string has a record with its hash code and the position of its
+ * contents in a pool, in which equal contents are stored once. The position
+ * serves as the identity of the contents, so equal strings are found without
+ * comparing them. The records are sorted by object id and mapped into memory,
+ * the pool is read when a value is asked for, and
+ * {@link #scanContents(ContentVisitor, IProgressListener)} reads the pool from
+ * start to end, visiting each distinct value once, so that a search over all
+ * the strings does not read the dump.
+ * <p>
+ * The table is written when the dump is parsed with the option
+ * {@link #OPTION} set to true.
+ * @see ISnapshot#getStringTable()
+ * @since 1.17
+ */
+public class StringTable implements Closeable
+{
+    /** The parse option to write the table, with the value true */
+    public static final String OPTION = "string_table"; //$NON-NLS-1$
+
+    /** The suffix added to the snapshot prefix to name the file */
+    public static final String FILE_SUFFIX = "strings.index"; //$NON-NLS-1$
+
+    /** The value is held in a <code>char[]</code> */
+    public static final int CHARS = 0;
+
+    /** The value is held in a <code>byte[]</code> of a compact string, one byte per character */
+    public static final int LATIN1 = 1;
+
+    /** The value is held in a <code>byte[]</code>, two bytes per character */
+    public static final int UTF16 = 2;
+
+    private static final int MAGIC = 0x4d415453; // MATS
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int RECORD_SIZE = 16;
+    /** the length and the kind of a value in the pool */
+    private static final int ENTRY_HEADER_SIZE = 5;
+    /** 64M records, 1GB, in each mapped segment */
+    private static final int SEGMENT_SHIFT = 26;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Receives the distinct values of the table.
+     */
+    @FunctionalInterface
+    public interface ContentVisitor
+    {
+        /**
+         * Visit a value.
+         * @param contentId the identity of the value, see {@link StringTable#getContentId(int)}
+         * @param value the value
+         * @param kind how the value is held in the dump, {@link StringTable#CHARS},
+         *            {@link StringTable#LATIN1} or {@link StringTable#UTF16}
+         */
+        void visit(long contentId, String value, int kind);
+    }
+
+    /**
+     * Receives the strings of the table.
+     */
+    @FunctionalInterface
+    public interface ObjectVisitor
+    {
+        /**
+         * Visit a string.
+         * @param objectId the string
+         * @param contentId the identity of its value
+         * @param hashCode the hash code of its value, as {@link String#hashCode()}
+         */
+        void visit(int objectId, long contentId, int hashCode);
+    }
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final int size;
+    private final int distinctCount;
+    private final long poolPosition;
+    private final ByteBuffer[] records;
+    /** set by {@link #close()}, checked before the records or the pool are read */
+    private volatile boolean closed;
+
+    private StringTable(File file, RandomAccessFile raf, int size, int distinctCount) throws IOException
+    {
+        this.file = file;
+        this.raf = raf;
+        this.channel = raf.getChannel();
+        this.size = size;
+        this.distinctCount = distinctCount;
+        this.poolPosition = HEADER_SIZE + (long) size * RECORD_SIZE;
+        int segments = size == 0 ? 0 : ((size - 1) >>> SEGMENT_SHIFT) + 1;
+        this.records = new ByteBuffer[segments];
+        for (int s = 0; s < segments; s++)
+        {
+            long first = (long) s << SEGMENT_SHIFT;
+            long count = Math.min(size - first, 1L << SEGMENT_SHIFT);
+            records[s] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * RECORD_SIZE,
+                            count * RECORD_SIZE);
+        }
+    }
+
+    /**
+     * The file holding the table of a snapshot.
+     * @param prefix the prefix of the index files of the snapshot, see {@link SnapshotInfo#getPrefix()}
+     * @return the file
+     */
+    public static File getFile(String prefix)
+    {
+        return new File(prefix + FILE_SUFFIX);
+    }
+
+    /**
+     * Open a table written by {@link Builder#write(File, int[], int[])}.
+     * @param file the table file
+     * @return the table, to be closed when no longer needed
+     * @throws IOException if the file could not be read or is not a string table
+     */
+    public static StringTable open(File file) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+        try
+        {
+            if (raf.length() < HEADER_SIZE || raf.readInt() != MAGIC || raf.readInt() != VERSION)
+                throw new IOException(MessageUtil.format(Messages.StringTable_Error_WrongFormat, file));
+            int size = raf.readInt();
+            int distinctCount = raf.readInt();
+            long poolLength = raf.readLong();
+            if (size < 0 || raf.length() != HEADER_SIZE + (long) size * RECORD_SIZE + poolLength)
+                throw new IOException(MessageUtil.format(Messages.StringTable_Error_WrongFormat, file));
+            return new StringTable(file, raf, size, distinctCount);
+        }
+        catch (IOException e)
+        {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * The number of strings in the table.
+     * @return the number of strings
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * The number of distinct values of the strings.
+     * @return the number of values
+     */
+    public int getDistinctCount()
+    {
+        return distinctCount;
+    }
+
+    /**
+     * Whether the table holds the value of an object.
+     * @param objectId the object
+     * @return true for a string extracted from the dump
+     */
+    public boolean contains(int objectId)
+    {
+        checkOpen();
+        return find(objectId) >= 0;
+    }
+
+    /**
+     * The strings of the table.
+     * @return the object ids in ascending order
+     */
+    public int[] getObjectIds()
+    {
+        checkOpen();
+        int[] objectIds = new int[size];
+        for (int i = 0; i < size; i++)
+            objectIds[i] = objectId(i);
+        return objectIds;
+    }
+
+    /**
+     * The identity of the value of a string. Strings with equal values have
+     * the same identity.
+     * @param objectId the string
+     * @return the identity, or -1 if the string is not in the table
+     */
+    public long getContentId(int objectId)
+    {
+        checkOpen();
+        int i = find(objectId);
+        return i >= 0 ? contentId(i) : -1;
+    }
+
+    /**
+     * The hash code of the value of a string.
+     * @param objectId the string
+     * @return the hash code as {@link String#hashCode()}, or 0 if the string is not in the table
+     */
+    public int getHashCode(int objectId)
+    {
+        checkOpen();
+        int i = find(objectId);
+        return i >= 0 ? hashCode(i) : 0;
+    }
+
+    /**
+     * The value of a string.
+     * @param objectId the string
+     * @return the value, or null if the string is not in the table
+     * @throws IOException if the table could not be read
+     */
+    public String getValue(int objectId) throws IOException
+    {
+        checkOpen();
+        int i = find(objectId);
+        if (i < 0)
+            return null;
+        ByteBuffer header = read(contentId(i), ENTRY_HEADER_SIZE);
+        int length = header.getInt(0);
+        int kind = header.get(4);
+        return new String(readChars(contentId(i), kind, length));
+    }
+
+    /**
+     * The value of a string as shown for the string, with unprintable
+     * characters as <code>\\unnnn</code>, as
+     * {@link org.eclipse.mat.snapshot.model.PrettyPrinter#objectAsString(org.eclipse.mat.snapshot.model.IObject, int)}.
+     * Only the characters shown are read.
+     * @param objectId the string
+     * @param limit the most characters to show
+     * @return the value shown, or null if the string is not in the table
+     * @throws IOException if the table could not be read
+     */
+    public String getDisplayValue(int objectId, int limit) throws IOException
+    {
+        checkOpen();
+        int i = find(objectId);
+        if (i < 0)
+            return null;
+        ByteBuffer header = read(contentId(i), ENTRY_HEADER_SIZE);
+        int length = header.getInt(0);
+        int kind = header.get(4);
+        return display(readChars(contentId(i), kind, Math.min(length, limit)), kind, length, limit);
+    }
+
+    /**
+     * The value of a string as shown for the string, from a value visited by
+     * {@link #scanContents(ContentVisitor, IProgressListener)}.
+     * @param value the value
+     * @param kind how the value is held in the dump
+     * @param limit the most characters to show
+     * @return the value shown, as {@link #getDisplayValue(int, int)}
+     */
+    public static String toDisplayValue(String value, int kind, int limit)
+    {
+        int length = value.length();
+        char[] chars = new char[Math.min(length, limit)];
+        value.getChars(0, chars.length, chars, 0);
+        return display(chars, kind, length, limit);
+    }
+
+    private static String display(char[] chars, int kind, int length, int limit)
+    {
+        StringBuilder result = new StringBuilder(chars.length);
+        for (char val : chars)
+        {
+            if (val >= 32 && val < 127)
+                result.append(val);
+            else if (kind == LATIN1 && val >= 128)
+                // a sign extended byte, as shown for the byte[] of a compact string
+                result.append("\\u").append(String.format("%04x", 0xff00 | val)); //$NON-NLS-1$//$NON-NLS-2$
+            else
+                result.append("\\u").append(String.format("%04x", 0xFFFF & val)); //$NON-NLS-1$//$NON-NLS-2$
+        }
+        if (limit < length)
+            result.append("..."); //$NON-NLS-1$
+        return result.toString();
+    }
+
+    /**
+     * Visit each distinct value once, reading the pool from start to end.
+     * @param visitor receives the values in the order of their first string
+     * @param listener to check for cancellation
+     * @throws IOException if the table could not be read
+     */
+    public void scanContents(ContentVisitor visitor, IProgressListener listener) throws IOException
+    {
+        checkOpen();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16)))
+        {
+            long skip = poolPosition;
+            while (skip > 0)
+            {
+                long n = in.skip(skip);
+                if (n <= 0)
+                    throw new EOFException();
+                skip -= n;
+            }
+            long contentId = 0;
+            byte[] data = new byte[256];
+            for (int i = 0; i < distinctCount; i++)
+            {
+                if ((i & 0xffff) == 0 && listener.isCanceled())
+                    throw new IProgressListener.OperationCanceledException();
+                int length = in.readInt();
+                int kind = in.readByte();
+                int bytes = kind == LATIN1 ? length : length * 2;
+                if (data.length < bytes)
+                    data = new byte[bytes];
+                in.readFully(data, 0, bytes);
+                visitor.visit(contentId, new String(decode(data, kind, length)), kind);
+                contentId += ENTRY_HEADER_SIZE + bytes;
+            }
+        }
+    }
+
+    /**
+     * Visit each string of the table.
+     * @param visitor receives the strings in ascending order of object id
+     * @param listener to check for cancellation
+     */
+    public void scanObjects(ObjectVisitor visitor, IProgressListener listener)
+    {
+        checkOpen();
+        for (int i = 0; i < size; i++)
+        {
+            if ((i & 0xffff) == 0 && listener.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
+            visitor.visit(objectId(i), contentId(i), hashCode(i));
+        }
+    }
+
+    /**
+     * Close the file of the table. The table can no longer be used, and its
+     * methods throw an {@link IllegalStateException}. The records stay mapped
+     * until the table is garbage collected, as a mapping cannot be released
+     * explicitly, so a reader which checked just before the table was closed
+     * still reads valid records.
+     */
+    public void close() throws IOException
+    {
+        closed = true;
+        raf.close();
+    }
+
+    private void checkOpen()
+    {
+        if (closed)
+            throw new IllegalStateException(MessageUtil.format(Messages.StringTable_Error_Closed, file));
+    }
+
+    private int find(int objectId)
+    {
+        int lo = 0;
+        int hi = size - 1;
+        while (lo <= hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            int id = objectId(mid);
+            if (id < objectId)
+                lo = mid + 1;
+            else if (id > objectId)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    private int objectId(int i)
+    {
+        return records[i >>> SEGMENT_SHIFT].getInt((i & SEGMENT_MASK) * RECORD_SIZE);
+    }
+
+    private int hashCode(int i)
+    {
+        return records[i >>> SEGMENT_SHIFT].getInt((i & SEGMENT_MASK) * RECORD_SIZE + 4);
+    }
+
+    private long contentId(int i)
+    {
+        return records[i >>> SEGMENT_SHIFT].getLong((i & SEGMENT_MASK) * RECORD_SIZE + 8);
+    }
+
+    private char[] readChars(long contentId, int kind, int length) throws IOException
+    {
+        ByteBuffer data = read(contentId + ENTRY_HEADER_SIZE, kind == LATIN1 ? length : length * 2);
+        return decode(data.array(), kind, length);
+    }
+
+    private static char[] decode(byte[] data, int kind, int length)
+    {
+        char[] chars = new char[length];
+        if (kind == LATIN1)
+        {
+            for (int i = 0; i < length; i++)
+                chars[i] = (char) (data[i] & 0xff);
+        }
+        else
+        {
+            for (int i = 0; i < length; i++)
+                chars[i] = (char) ((data[2 * i] & 0xff) << 8 | (data[2 * i + 1] & 0xff));
+        }
+        return chars;
+    }
+
+    /**
+     * Positional read from the pool, which other threads can do at the same time.
+     */
+    private ByteBuffer read(long poolOffset, int length) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        long position = poolPosition + poolOffset;
+        while (buffer.hasRemaining())
+        {
+            int n = channel.read(buffer, position);
+            if (n < 0)
+                throw new EOFException();
+            position += n;
+        }
+        return buffer;
+    }
+
+    /**
+     * Collects the distinct values of the strings of a dump and writes the table.
+     * The values are held encoded in chunks of bytes, and found again by a
+     * 64-bit hash in an open addressing table.
+     */
+    public static final class Builder
+    {
+        private static final int CHUNK_SHIFT = 20;
+        private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+        private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+        private byte[][] chunks = new byte[16][];
+        private long used;
+
+        private int count;
+        private long[] starts = new long[1024];
+        private int[] lengths = new int[1024];
+        private byte[] kinds = new byte[1024];
+        private int[] hashCodes = new int[1024];
+        private long[] keys = new long[1024];
+        /** open addressing table of value + 1, 0 for an empty slot */
+        private int[] table = new int[2048];
+        private byte[] scratch = new byte[256];
+
+        /**
+         * Add a value.
+         * @param value the characters
+         * @param offset the first character of the value
+         * @param length the number of characters
+         * @param kind how the value is held in the dump, {@link StringTable#CHARS},
+         *            {@link StringTable#LATIN1} for characters below 256 or {@link StringTable#UTF16}
+         * @return the value number, the same for equal values of the same kind
+         */
+        public int add(char[] value, int offset, int length, int kind)
+        {
+            int bytes = kind == LATIN1 ? length : length * 2;
+            if (scratch.length < bytes)
+                scratch = new byte[Math.max(bytes, scratch.length * 2)];
+            int hashCode = 0;
+            long key = FNV_OFFSET;
+            for (int i = 0; i < length; i++)
+            {
+                char c = value[offset + i];
+                hashCode = 31 * hashCode + c;
+                key = (key ^ c) * FNV_PRIME;
+                if (kind == LATIN1)
+                {
+                    scratch[i] = (byte) c;
+                }
+                else
+                {
+                    scratch[2 * i] = (byte) (c >>> 8);
+                    scratch[2 * i + 1] = (byte) c;
+                }
+            }
+            key = (key ^ kind) * FNV_PRIME;
+
+            int mask = table.length - 1;
+            int slot = slot(key) & mask;
+            for (; table[slot] != 0; slot = (slot + 1) & mask)
+            {
+                int v = table[slot] - 1;
+                if (keys[v] == key && lengths[v] == length && kinds[v] == kind && equal(starts[v], scratch, bytes))
+                    return v;
+            }
+
+            if (count == starts.length)
+            {
+                int capacity = count << 1;
+                starts = Arrays.copyOf(starts, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+                kinds = Arrays.copyOf(kinds, capacity);
+                hashCodes = Arrays.copyOf(hashCodes, capacity);
+                keys = Arrays.copyOf(keys, capacity);
+            }
+            starts[count] = used;
+            lengths[count] = length;
+            kinds[count] = (byte) kind;
+            hashCodes[count] = hashCode;
+            keys[count] = key;
+            append(scratch, bytes);
+            table[slot] = ++count;
+            if (count > table.length >>> 1)
+                rehash();
+            return count - 1;
+        }
+
+        /**
+         * The number of distinct values added.
+         * @return the number of values
+         */
+        public int size()
+        {
+            return count;
+        }
+
+        /**
+         * Write the table. Only the values of the given strings are written,
+         * in the order of their first string.
+         * @param file the file to write, usually from {@link StringTable#getFile(String)}
+         * @param objectIds the strings, in ascending order
+         * @param values the value number of each string, from {@link #add(char[], int, int, int)}
+         * @throws IOException if the file could not be written
+         */
+        public void write(File file, int[] objectIds, int[] values) throws IOException
+        {
+            long[] offsets = new long[count];
+            Arrays.fill(offsets, -1L);
+            int[] order = new int[count];
+            int distinct = 0;
+            long poolLength = 0;
+            for (int v : values)
+            {
+                if (offsets[v] < 0)
+                {
+                    offsets[v] = poolLength;
+                    order[distinct++] = v;
+                    poolLength += ENTRY_HEADER_SIZE + bytes(v);
+                }
+            }
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16)))
+            {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(objectIds.length);
+                out.writeInt(distinct);
+                out.writeLong(poolLength);
+                for (int i = 0; i < objectIds.length; i++)
+                {
+                    out.writeInt(objectIds[i]);
+                    out.writeInt(hashCodes[values[i]]);
+                    out.writeLong(offsets[values[i]]);
+                }
+                for (int k = 0; k < distinct; k++)
+                {
+                    int v = order[k];
+                    out.writeInt(lengths[v]);
+                    out.writeByte(kinds[v]);
+                    copy(out, starts[v], bytes(v));
+                }
+            }
+        }
+
+        private int bytes(int v)
+        {
+            return kinds[v] == LATIN1 ? lengths[v] : lengths[v] * 2;
+        }
+
+        private static int slot(long key)
+        {
+            return (int) (key ^ (key >>> 32));
+        }
+
+        private void rehash()
+        {
+            table = new int[table.length << 1];
+            int mask = table.length - 1;
+            for (int v = 0; v < count; v++)
+            {
+                int slot = slot(keys[v]) & mask;
+                while (table[slot] != 0)
+                    slot = (slot + 1) & mask;
+                table[slot] = v + 1;
+            }
+        }
+
+        private void append(byte[] src, int length)
+        {
+            int done = 0;
+            while (done < length)
+            {
+                int chunk = (int) (used >>> CHUNK_SHIFT);
+                if (chunk == chunks.length)
+                    chunks = Arrays.copyOf(chunks, chunk << 1);
+                if (chunks[chunk] == null)
+                    chunks[chunk] = new byte[CHUNK_SIZE];
+                int off = (int) (used & CHUNK_MASK);
+                int n = Math.min(length - done, CHUNK_SIZE - off);
+                System.arraycopy(src, done, chunks[chunk], off, n);
+                done += n;
+                used += n;
+            }
+        }
+
+        private boolean equal(long start, byte[] src, int length)
+        {
+            for (int i = 0; i < length; i++)
+            {
+                long p = start + i;
+                if (chunks[(int) (p >>> CHUNK_SHIFT)][(int) (p & CHUNK_MASK)] != src[i])
+                    return false;
+            }
+            return true;
+        }
+
+        private void copy(DataOutputStream out, long start, int length) throws IOException
+        {
+            int done = 0;
+            while (done < length)
+            {
+                long p = start + done;
+                int off = (int) (p & CHUNK_MASK);
+                int n = Math.min(length - done, CHUNK_SIZE - off);
+                out.write(chunks[(int) (p >>> CHUNK_SHIFT)], off, n);
+                done += n;
+            }
+        }
+    }
+}
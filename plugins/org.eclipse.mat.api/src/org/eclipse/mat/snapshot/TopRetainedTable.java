@@ -0,0 +1,575 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.eclipse.mat.collect.ArrayInt;
+import org.eclipse.mat.collect.HashMapIntObject;
+import org.eclipse.mat.collect.IteratorInt;
+import org.eclipse.mat.internal.Messages;
+import org.eclipse.mat.util.MessageUtil;
+
+/**
+ * The objects with the biggest retained sizes, overall and for each class,
+ * with their depths in the dominator tree, and for each class the total
+ * retained size of its objects at the top of the dominator tree.
+ * <p>
+ * The table is collected while the retained sizes are calculated and stored
+ * next to the other index files of the snapshot, so that the biggest objects
+ * and the classes of the top-level dominators are known on a reopened
+ * snapshot without reading the children of the dominator tree root.
+ * @see ISnapshot#getTopRetainedTable()
+ * @since 1.17
+ */
+public class TopRetainedTable
+{
+    /** The suffix added to the snapshot prefix to name the file */
+    public static final String FILE_SUFFIX = "topret.index"; //$NON-NLS-1$
+
+    /** The number of objects kept overall */
+    public static final int DEFAULT_OBJECTS = 1000;
+
+    /** The number of objects kept for each class */
+    public static final int DEFAULT_OBJECTS_PER_CLASS = 10;
+
+    private static final int MAGIC = 0x4d41544b; // MATK
+    private static final int VERSION = 1;
+
+    private final boolean truncated;
+    private final int[] objectIds;
+    private final int[] objectClassIds;
+    private final long[] retainedHeapSizes;
+    private final int[] depths;
+
+    /** classes by descending retained size of their top-level dominators */
+    private final int[] classIds;
+    private final long[] classTopLevelRetained;
+    private final int[] classTopLevelCount;
+    /** the objects of class row r are from classStart[r] to classStart[r + 1] */
+    private final int[] classStart;
+    private final int[] classObjectIds;
+    private final long[] classRetainedHeapSizes;
+    private final int[] classDepths;
+    private final HashMapIntObject<Integer> classRows;
+
+    private TopRetainedTable(boolean truncated, int objects, int classes, int classObjects)
+    {
+        this.truncated = truncated;
+        this.objectIds = new int[objects];
+        this.objectClassIds = new int[objects];
+        this.retainedHeapSizes = new long[objects];
+        this.depths = new int[objects];
+        this.classIds = new int[classes];
+        this.classTopLevelRetained = new long[classes];
+        this.classTopLevelCount = new int[classes];
+        this.classStart = new int[classes + 1];
+        this.classObjectIds = new int[classObjects];
+        this.classRetainedHeapSizes = new long[classObjects];
+        this.classDepths = new int[classObjects];
+        this.classRows = new HashMapIntObject<Integer>(classes);
+    }
+
+    /**
+     * Collects the table from the retained size of every object.
+     */
+    public static final class Collector
+    {
+        private final Leaders objects;
+        private final int objectsPerClass;
+        private final HashMapIntObject<ClassLeaders> classes = new HashMapIntObject<ClassLeaders>();
+
+        /**
+         * Start a collection.
+         * @param objects the number of objects to keep overall
+         * @param objectsPerClass the number of objects to keep for each class
+         */
+        public Collector(int objects, int objectsPerClass)
+        {
+            this.objects = new Leaders(objects);
+            this.objectsPerClass = objectsPerClass;
+        }
+
+        /**
+         * Add an object.
+         * @param objectId the object
+         * @param classId the class of the object
+         * @param retainedHeapSize the retained size of the object
+         * @param depth the depth of the object in the dominator tree, 1 for a top-level dominator
+         */
+        public void add(int objectId, int classId, long retainedHeapSize, int depth)
+        {
+            objects.offer(objectId, classId, retainedHeapSize, depth);
+            ClassLeaders c = classes.get(classId);
+            if (c == null)
+                classes.put(classId, c = new ClassLeaders(objectsPerClass));
+            c.offer(objectId, classId, retainedHeapSize, depth);
+            if (depth == 1)
+            {
+                c.topLevelRetained += retainedHeapSize;
+                c.topLevelCount++;
+            }
+        }
+
+        /**
+         * Finish the collection.
+         * @return the table
+         */
+        public TopRetainedTable build()
+        {
+            int classObjects = 0;
+            int[] ids = new int[classes.size()];
+            long[] keys = new long[ids.length];
+            int n = 0;
+            for (IteratorInt it = classes.keys(); it.hasNext();)
+            {
+                int classId = it.next();
+                ClassLeaders c = classes.get(classId);
+                ids[n] = classId;
+                keys[n++] = c.topLevelRetained;
+                classObjects += c.size;
+            }
+            sortDesc(keys, ids, null, null);
+
+            TopRetainedTable table = new TopRetainedTable(objects.seen > objects.size, objects.size, ids.length,
+                            classObjects);
+            objects.sorted();
+            System.arraycopy(objects.ids, 0, table.objectIds, 0, objects.size);
+            System.arraycopy(objects.classIds, 0, table.objectClassIds, 0, objects.size);
+            System.arraycopy(objects.sizes, 0, table.retainedHeapSizes, 0, objects.size);
+            System.arraycopy(objects.depths, 0, table.depths, 0, objects.size);
+
+            int pos = 0;
+            for (int r = 0; r < ids.length; ++r)
+            {
+                ClassLeaders c = classes.get(ids[r]);
+                c.sorted();
+                table.classIds[r] = ids[r];
+                table.classTopLevelRetained[r] = c.topLevelRetained;
+                table.classTopLevelCount[r] = c.topLevelCount;
+                table.classStart[r] = pos;
+                System.arraycopy(c.ids, 0, table.classObjectIds, pos, c.size);
+                System.arraycopy(c.sizes, 0, table.classRetainedHeapSizes, pos, c.size);
+                System.arraycopy(c.depths, 0, table.classDepths, pos, c.size);
+                pos += c.size;
+            }
+            table.classStart[ids.length] = pos;
+            table.indexClasses();
+            return table;
+        }
+    }
+
+    /**
+     * A bounded min-heap on the retained size, keeping the biggest objects offered.
+     */
+    private static class Leaders
+    {
+        final int limit;
+        int size;
+        long seen;
+        int[] ids = new int[4];
+        int[] classIds = new int[4];
+        long[] sizes = new long[4];
+        int[] depths = new int[4];
+
+        Leaders(int limit)
+        {
+            this.limit = limit;
+        }
+
+        void offer(int objectId, int classId, long retained, int depth)
+        {
+            seen++;
+            if (size < limit)
+            {
+                if (size == ids.length)
+                {
+                    int capacity = Math.min(limit, size << 1);
+                    ids = Arrays.copyOf(ids, capacity);
+                    classIds = Arrays.copyOf(classIds, capacity);
+                    sizes = Arrays.copyOf(sizes, capacity);
+                    depths = Arrays.copyOf(depths, capacity);
+                }
+                int i = size++;
+                set(i, objectId, classId, retained, depth);
+                // sift up
+                while (i > 0)
+                {
+                    int p = (i - 1) >>> 1;
+                    if (!less(i, p))
+                        break;
+                    swap(i, p);
+                    i = p;
+                }
+            }
+            else if (limit > 0 && (retained > sizes[0] || retained == sizes[0] && objectId < ids[0]))
+            {
+                set(0, objectId, classId, retained, depth);
+                // sift down
+                int i = 0;
+                while (true)
+                {
+                    int c = 2 * i + 1;
+                    if (c >= size)
+                        break;
+                    if (c + 1 < size && less(c + 1, c))
+                        c++;
+                    if (!less(c, i))
+                        break;
+                    swap(i, c);
+                    i = c;
+                }
+            }
+        }
+
+        /**
+         * The order of the heap: smaller retained size first, then the
+         * bigger object id, so the objects kept do not depend on the order
+         * they are offered in.
+         */
+        private boolean less(int i, int j)
+        {
+            return sizes[i] < sizes[j] || sizes[i] == sizes[j] && ids[i] > ids[j];
+        }
+
+        private void set(int i, int objectId, int classId, long retained, int depth)
+        {
+            ids[i] = objectId;
+            classIds[i] = classId;
+            sizes[i] = retained;
+            depths[i] = depth;
+        }
+
+        private void swap(int i, int j)
+        {
+            int t = ids[i];
+            ids[i] = ids[j];
+            ids[j] = t;
+            t = classIds[i];
+            classIds[i] = classIds[j];
+            classIds[j] = t;
+            t = depths[i];
+            depths[i] = depths[j];
+            depths[j] = t;
+            long s = sizes[i];
+            sizes[i] = sizes[j];
+            sizes[j] = s;
+        }
+
+        /** Put the heap in descending order of retained size */
+        void sorted()
+        {
+            sortDesc(sizes, ids, classIds, depths, size);
+        }
+    }
+
+    private static final class ClassLeaders extends Leaders
+    {
+        long topLevelRetained;
+        int topLevelCount;
+
+        ClassLeaders(int limit)
+        {
+            super(limit);
+        }
+    }
+
+    private static void sortDesc(long[] keys, int[] ids, int[] a, int[] b)
+    {
+        sortDesc(keys, ids, a, b, keys.length);
+    }
+
+    /**
+     * Sort by descending key, then ascending id, moving the other columns too.
+     */
+    private static void sortDesc(long[] keys, int[] ids, int[] a, int[] b, int length)
+    {
+        Integer[] order = new Integer[length];
+        for (int i = 0; i < length; ++i)
+            order[i] = i;
+        Arrays.sort(order, (x, y) -> keys[x] != keys[y] ? Long.compare(keys[y], keys[x])
+                        : Integer.compare(ids[x], ids[y]));
+        long[] k2 = keys.clone();
+        int[] i2 = ids.clone();
+        int[] a2 = a != null ? a.clone() : null;
+        int[] b2 = b != null ? b.clone() : null;
+        for (int i = 0; i < length; ++i)
+        {
+            int o = order[i];
+            keys[i] = k2[o];
+            ids[i] = i2[o];
+            if (a != null)
+                a[i] = a2[o];
+            if (b != null)
+                b[i] = b2[o];
+        }
+    }
+
+    private void indexClasses()
+    {
+        for (int r = 0; r < classIds.length; ++r)
+            classRows.put(classIds[r], r);
+    }
+
+    /**
+     * The file holding the table of a snapshot.
+     * @param prefix the prefix of the index files of the snapshot, see {@link SnapshotInfo#getPrefix()}
+     * @return the file
+     */
+    public static File getFile(String prefix)
+    {
+        return new File(prefix + FILE_SUFFIX);
+    }
+
+    /**
+     * Write the table.
+     * @param file the file to write, usually from {@link #getFile(String)}
+     * @throws IOException if the file could not be written
+     */
+    public void write(File file) throws IOException
+    {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeBoolean(truncated);
+            out.writeInt(objectIds.length);
+            for (int i = 0; i < objectIds.length; ++i)
+            {
+                out.writeInt(objectIds[i]);
+                out.writeInt(objectClassIds[i]);
+                out.writeLong(retainedHeapSizes[i]);
+                out.writeInt(depths[i]);
+            }
+            out.writeInt(classIds.length);
+            out.writeInt(classObjectIds.length);
+            for (int r = 0; r < classIds.length; ++r)
+            {
+                out.writeInt(classIds[r]);
+                out.writeLong(classTopLevelRetained[r]);
+                out.writeInt(classTopLevelCount[r]);
+                out.writeInt(classStart[r + 1] - classStart[r]);
+                for (int i = classStart[r]; i < classStart[r + 1]; ++i)
+                {
+                    out.writeInt(classObjectIds[i]);
+                    out.writeLong(classRetainedHeapSizes[i]);
+                    out.writeInt(classDepths[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read a table written by {@link #write(File)}.
+     * @param file the table file
+     * @return the table
+     * @throws IOException if the file could not be read or is not a table of retained sizes
+     */
+    public static TopRetainedTable read(File file) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException(MessageUtil.format(Messages.TopRetainedTable_Error_WrongFormat, file));
+            boolean truncated = in.readBoolean();
+            int objects = in.readInt();
+            int[] ids = new int[objects];
+            int[] classOfIds = new int[objects];
+            long[] sizes = new long[objects];
+            int[] depths = new int[objects];
+            for (int i = 0; i < objects; ++i)
+            {
+                ids[i] = in.readInt();
+                classOfIds[i] = in.readInt();
+                sizes[i] = in.readLong();
+                depths[i] = in.readInt();
+            }
+            int classes = in.readInt();
+            int classObjects = in.readInt();
+            TopRetainedTable table = new TopRetainedTable(truncated, objects, classes, classObjects);
+            System.arraycopy(ids, 0, table.objectIds, 0, objects);
+            System.arraycopy(classOfIds, 0, table.objectClassIds, 0, objects);
+            System.arraycopy(sizes, 0, table.retainedHeapSizes, 0, objects);
+            System.arraycopy(depths, 0, table.depths, 0, objects);
+            int pos = 0;
+            for (int r = 0; r < classes; ++r)
+            {
+                table.classIds[r] = in.readInt();
+                table.classTopLevelRetained[r] = in.readLong();
+                table.classTopLevelCount[r] = in.readInt();
+                table.classStart[r] = pos;
+                int n = in.readInt();
+                for (int i = 0; i < n; ++i, ++pos)
+                {
+                    table.classObjectIds[pos] = in.readInt();
+                    table.classRetainedHeapSizes[pos] = in.readLong();
+                    table.classDepths[pos] = in.readInt();
+                }
+            }
+            table.classStart[classes] = pos;
+            table.indexClasses();
+            return table;
+        }
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // the biggest objects
+    // //////////////////////////////////////////////////////////////
+
+    /**
+     * The biggest objects by retained size.
+     * @return a copy of the object ids, biggest first
+     */
+    public int[] getObjectIds()
+    {
+        return objectIds.clone();
+    }
+
+    /**
+     * The classes of the biggest objects.
+     * @return a copy of the class ids, in the order of {@link #getObjectIds()}
+     */
+    public int[] getObjectClassIds()
+    {
+        return objectClassIds.clone();
+    }
+
+    /**
+     * The retained sizes of the biggest objects.
+     * @return a copy of the sizes, in the order of {@link #getObjectIds()}
+     */
+    public long[] getRetainedHeapSizes()
+    {
+        return retainedHeapSizes.clone();
+    }
+
+    /**
+     * The depths in the dominator tree of the biggest objects, 1 for a
+     * top-level dominator.
+     * @return a copy of the depths, in the order of {@link #getObjectIds()}
+     */
+    public int[] getDepths()
+    {
+        return depths.clone();
+    }
+
+    /**
+     * Whether the table holds every object retaining more than a size.
+     * @param threshold the retained size
+     * @return true if no object left out of the table retains more than the threshold
+     */
+    public boolean isCompleteAbove(long threshold)
+    {
+        return !truncated || retainedHeapSizes.length == 0
+                        || retainedHeapSizes[retainedHeapSizes.length - 1] <= threshold;
+    }
+
+    /**
+     * The top-level dominators retaining more than a size, as found by reading
+     * the children of the dominator tree root until one is not bigger.
+     * @param threshold the retained size
+     * @return the object ids, biggest first, or null if the table does not hold all of them
+     * @see #isCompleteAbove(long)
+     */
+    public int[] getTopLevelObjectIds(long threshold)
+    {
+        if (!isCompleteAbove(threshold))
+            return null;
+        ArrayInt answer = new ArrayInt();
+        for (int i = 0; i < objectIds.length && retainedHeapSizes[i] > threshold; ++i)
+        {
+            if (depths[i] == 1)
+                answer.add(objectIds[i]);
+        }
+        return answer.toArray();
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // classes
+    // //////////////////////////////////////////////////////////////
+
+    /**
+     * The classes of the snapshot, ordered by the total retained size of
+     * their objects at the top of the dominator tree, biggest first.
+     * @return a copy of the class ids
+     */
+    public int[] getClassIds()
+    {
+        return classIds.clone();
+    }
+
+    /**
+     * The total retained size of the top-level dominators of a class, which
+     * does not count any object twice.
+     * @param classId the class
+     * @return the size, 0 for a class without top-level dominators
+     */
+    public long getTopLevelRetainedHeapSize(int classId)
+    {
+        Integer r = classRows.get(classId);
+        return r != null ? classTopLevelRetained[r] : 0;
+    }
+
+    /**
+     * The number of top-level dominators of a class.
+     * @param classId the class
+     * @return the number of objects
+     */
+    public int getTopLevelCount(int classId)
+    {
+        Integer r = classRows.get(classId);
+        return r != null ? classTopLevelCount[r] : 0;
+    }
+
+    /**
+     * The biggest objects of a class by retained size.
+     * @param classId the class
+     * @return the object ids, biggest first
+     */
+    public int[] getObjectIdsOfClass(int classId)
+    {
+        Integer r = classRows.get(classId);
+        return r != null ? Arrays.copyOfRange(classObjectIds, classStart[r], classStart[r + 1]) : new int[0];
+    }
+
+    /**
+     * The retained sizes of the biggest objects of a class.
+     * @param classId the class
+     * @return the sizes, in the order of {@link #getObjectIdsOfClass(int)}
+     */
+    public long[] getRetainedHeapSizesOfClass(int classId)
+    {
+        Integer r = classRows.get(classId);
+        return r != null ? Arrays.copyOfRange(classRetainedHeapSizes, classStart[r], classStart[r + 1])
+                        : new long[0];
+    }
+
+    /**
+     * The depths in the dominator tree of the biggest objects of a class.
+     * @param classId the class
+     * @return the depths, in the order of {@link #getObjectIdsOfClass(int)}
+     */
+    public int[] getDepthsOfClass(int classId)
+    {
+        Integer r = classRows.get(classId);
+        return r != null ? Arrays.copyOfRange(classDepths, classStart[r], classStart[r + 1]) : new int[0];
+    }
+}
@@ -9,9 +9,12 @@
  *
  * Contributors:
  *    SAP AG - initial API and implementation
+ *    Standalone adaptation - chunked reading, buffer views
  *******************************************************************************/
 package org.eclipse.mat.snapshot.model;
 
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
 
 /**
  * Interface for primitive arrays in the heap dump.
@@ -110,4 +113,85 @@ public interface IPrimitiveArray extends IArray
      * @return the contents of the primitive array starting at the index for length entries
      */
     public Object getValueArray(int offset, int length);
+
+    /**
+     * Get the contents as bytes, with each element big endian as in the
+     * dump. Typed views are available from the buffer, for example
+     * <code>getValueBuffer().asCharBuffer()</code> for a char array.
+     * <p>
+     * When the dump is mapped into memory the buffer is a view of the mapping
+     * and the contents are not copied, otherwise it holds a copy of
+     * {@link #getValueArray()}.
+     * @return a read-only buffer of {@link #getLength()} times the element size bytes
+     * @since 1.17
+     */
+    public default ByteBuffer getValueBuffer()
+    {
+        Object content = getValueArray();
+        if (content instanceof byte[])
+            return ByteBuffer.wrap((byte[]) content).asReadOnlyBuffer();
+        int length = Array.getLength(content);
+        ByteBuffer buffer = ByteBuffer.allocate(Math.multiplyExact(length, ELEMENT_SIZE[getType()]));
+        if (content instanceof boolean[])
+        {
+            boolean[] values = (boolean[]) content;
+            for (int ii = 0; ii < length; ii++)
+                buffer.put(ii, values[ii] ? (byte) 1 : (byte) 0);
+        }
+        else if (content instanceof char[])
+            buffer.asCharBuffer().put((char[]) content);
+        else if (content instanceof short[])
+            buffer.asShortBuffer().put((short[]) content);
+        else if (content instanceof int[])
+            buffer.asIntBuffer().put((int[]) content);
+        else if (content instanceof long[])
+            buffer.asLongBuffer().put((long[]) content);
+        else if (content instanceof float[])
+            buffer.asFloatBuffer().put((float[]) content);
+        else if (content instanceof double[])
+            buffer.asDoubleBuffer().put((double[]) content);
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * Receives the contents of a primitive array one chunk at a time.
+     * @since 1.17
+     */
+    @FunctionalInterface
+    public interface ChunkVisitor
+    {
+        /**
+         * Look at the next chunk of the array.
+         * @param offset the index in the array of the first element of the chunk
+         * @param chunk a primitive Java array of the component type, which must not be modified
+         * @return true to read the next chunk, false to stop
+         */
+        boolean visit(int offset, Object chunk);
+    }
+
+    /**
+     * Read the contents of the array a chunk at a time, so that a huge array
+     * can be scanned without holding all of it in memory.
+     * @param chunkLength the most elements in a chunk
+     * @param visitor receives the chunks in order
+     * @return true if all of the array was read, false if the visitor stopped
+     * @since 1.17
+     */
+    public default boolean visitValueArray(int chunkLength, ChunkVisitor visitor)
+    {
+        if (chunkLength <= 0)
+            throw new IllegalArgumentException();
+        int length = getLength();
+        for (int offset = 0; offset < length;)
+        {
+            Object chunk = getValueArray(offset, Math.min(chunkLength, length - offset));
+            int read = chunk != null ? Array.getLength(chunk) : 0;
+            if (read == 0)
+                return false;
+            if (!visitor.visit(offset, chunk))
+                return false;
+            offset += read;
+        }
+        return true;
+    }
 }
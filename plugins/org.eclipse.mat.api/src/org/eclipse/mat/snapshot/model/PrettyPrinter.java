@@ -10,12 +10,16 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    Stefan Eggerstorfer - JDK7u6 doesn't have count/offset fields
+ *    Standalone adaptation - string table
  *******************************************************************************/
 package org.eclipse.mat.snapshot.model;
 
+import java.io.IOException;
 import java.util.Collection;
 
 import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.StringTable;
 
 /**
  * Utility class to extract String representations of heap dump objects.
@@ -31,6 +35,23 @@ public final class PrettyPrinter
      */
     public static String objectAsString(IObject stringObject, int limit) throws SnapshotException
     {
+        // the value extracted when the dump was parsed
+        ISnapshot snapshot = stringObject.getSnapshot();
+        StringTable strings = snapshot != null ? snapshot.getStringTable() : null;
+        if (strings != null)
+        {
+            try
+            {
+                String value = strings.getDisplayValue(stringObject.getObjectId(), limit);
+                if (value != null)
+                    return value;
+            }
+            catch (IOException e)
+            {
+                throw new SnapshotException(e);
+            }
+        }
+
         Object valueObj = stringObject.resolveValue("value"); //$NON-NLS-1$
         if (!(valueObj instanceof IPrimitiveArray))
             return null;
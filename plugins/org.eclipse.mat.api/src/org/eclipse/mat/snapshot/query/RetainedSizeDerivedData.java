@@ -9,13 +9,16 @@
  *
  * Contributors:
  *    SAP AG - initial API and implementation
+ *    Standalone adaptation - sampled retained size estimate
  *******************************************************************************/
 package org.eclipse.mat.snapshot.query;
 
 import java.text.FieldPosition;
 import java.text.ParsePosition;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -36,6 +39,7 @@ import org.eclipse.mat.snapshot.ClassHistogramRecord;
 import org.eclipse.mat.snapshot.ClassLoaderHistogramRecord;
 import org.eclipse.mat.snapshot.Histogram;
 import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.RetainedSizeEstimate;
 import org.eclipse.mat.util.IProgressListener;
 import org.eclipse.mat.util.MessageUtil;
 import org.eclipse.mat.util.VoidProgressListener;
@@ -52,8 +56,16 @@ public class RetainedSizeDerivedData extends ContextDerivedData
     /** Indicates exact retained size. Shallow size of retained set of the objects. */
     public static final DerivedOperation PRECISE = new DerivedOperation("PRECISE", //$NON-NLS-1$
                     Messages.RetainedSizeDerivedData_Label_Precise);
+    /**
+     * Indicates estimated retained size. Minimum retained size estimated from a
+     * sample of the objects, see {@link RetainedSizeEstimate}.
+     * @since 1.17
+     */
+    public static final DerivedOperation ESTIMATE = new DerivedOperation("ESTIMATE", //$NON-NLS-1$
+                    Messages.RetainedSizeDerivedData_Label_Estimate);
 
-    private static final DerivedColumn COLUMN = new DerivedColumn(Messages.Column_RetainedHeap, APPROXIMATE, PRECISE);
+    private static final DerivedColumn COLUMN = new DerivedColumn(Messages.Column_RetainedHeap, APPROXIMATE, PRECISE,
+                    ESTIMATE);
 
     private ISnapshot snapshot;
 
@@ -133,12 +145,15 @@ public class RetainedSizeDerivedData extends ContextDerivedData
         protected final ISnapshot snapshot;
         protected final ContextProvider provider;
         protected final HashMapObjectLong<Object> values;
+        /** estimates of the rows without a calculated value, guarded by values */
+        protected final Map<Object, RetainedSizeEstimate> estimates;
 
         /* package */DerivedCalculatorImpl(ISnapshot snaphot, ContextProvider provider)
         {
             this.snapshot = snaphot;
             this.provider = provider;
             this.values = new HashMapObjectLong<Object>();
+            this.estimates = new HashMap<Object, RetainedSizeEstimate>();
         }
 
         /**
@@ -177,7 +192,10 @@ public class RetainedSizeDerivedData extends ContextDerivedData
             catch (NoSuchElementException e)
             {
                 // $JL-EXC$
-                return null;
+                synchronized (values)
+                {
+                    return estimates.get(row);
+                }
             }
         }
 
@@ -193,13 +211,21 @@ public class RetainedSizeDerivedData extends ContextDerivedData
             try
             {
                 long v = valuesget(row);
-                if (v > 0 || operation == APPROXIMATE)
+                if (v > 0 || operation == APPROXIMATE || operation == ESTIMATE)
                     return;
             }
             catch (NoSuchElementException e)
             {
                 // $JL-EXC$
             }
+            if (operation == ESTIMATE)
+            {
+                synchronized (values)
+                {
+                    if (estimates.containsKey(row))
+                        return;
+                }
+            }
 
             if (contextObject instanceof IContextObjectSet)
             {
@@ -226,7 +252,17 @@ public class RetainedSizeDerivedData extends ContextDerivedData
                         }
                         else
                         {
-                            if (operation == APPROXIMATE)
+                            if (operation == ESTIMATE)
+                            {
+                                RetainedSizeEstimate estimate = snapshot.estimateRetainedSize(retainedSet,
+                                                RetainedSizeEstimate.DEFAULT_SAMPLE_SIZE, listener);
+                                synchronized (values)
+                                {
+                                    estimates.put(row, estimate);
+                                }
+                                return;
+                            }
+                            else if (operation == APPROXIMATE)
                             {
                                 retainedSize = snapshot.getMinRetainedSize(retainedSet, listener);
                                 retainedSize = -retainedSize;
@@ -331,12 +367,12 @@ public class RetainedSizeDerivedData extends ContextDerivedData
             if (row instanceof ClassHistogramRecord)
             {
                 long size = ((ClassHistogramRecord) row).getRetainedHeapSize();
-                return size != 0 ? size : null;
+                return size != 0 ? size : super.lookup(row);
             }
             else if (row instanceof ClassLoaderHistogramRecord)
             {
                 long size = ((ClassLoaderHistogramRecord) row).getRetainedHeapSize();
-                return size != 0 ? size : null;
+                return size != 0 ? size : super.lookup(row);
             }
             else
             {
@@ -348,7 +384,16 @@ public class RetainedSizeDerivedData extends ContextDerivedData
         public void calculate(DerivedOperation operation, Object row, IProgressListener listener)
                         throws SnapshotException
         {
-            if (row instanceof ClassHistogramRecord)
+            if (operation == ESTIMATE)
+            {
+                // an estimate only for the records without a calculated size
+                if (row instanceof ClassHistogramRecord && ((ClassHistogramRecord) row).getRetainedHeapSize() != 0
+                                || row instanceof ClassLoaderHistogramRecord
+                                                && ((ClassLoaderHistogramRecord) row).getRetainedHeapSize() != 0)
+                    return;
+                super.calculate(operation, row, listener);
+            }
+            else if (row instanceof ClassHistogramRecord)
             {
                 ((ClassHistogramRecord) row).calculateRetainedSize(snapshot, true, operation == APPROXIMATE, listener);
             }
@@ -371,6 +416,15 @@ public class RetainedSizeDerivedData extends ContextDerivedData
         @Override
         public StringBuffer format(Object obj, StringBuffer toAppendTo, FieldPosition pos)
         {
+            if (obj instanceof RetainedSizeEstimate && !((RetainedSizeEstimate) obj).isExact())
+            {
+                RetainedSizeEstimate estimate = (RetainedSizeEstimate) obj;
+                toAppendTo.append(Messages.RetainedSizeDerivedData_Estimate);
+                super.format(new Bytes(estimate.getEstimate()), toAppendTo, pos);
+                toAppendTo.append(Messages.RetainedSizeDerivedData_ErrorBound);
+                return super.format(new Bytes(estimate.getErrorBound()), toAppendTo, pos);
+            }
+
             Number v;
             if (obj instanceof Bytes)
                 v = ((Bytes)obj).getValue();
@@ -393,6 +447,13 @@ public class RetainedSizeDerivedData extends ContextDerivedData
         public Object parseObject(String source, ParsePosition pos)
         {
             Object ret;
+            if (source.regionMatches(pos.getIndex(), Messages.RetainedSizeDerivedData_Estimate, 0,
+                            Messages.RetainedSizeDerivedData_Estimate.length()))
+            {
+                // the estimate, without the error bound
+                pos.setIndex(pos.getIndex() + Messages.RetainedSizeDerivedData_Estimate.length());
+                return super.parseObject(source, pos);
+            }
             if (source.regionMatches(pos.getIndex(), Messages.RetainedSizeDerivedData_Approximate, 0, Messages.RetainedSizeDerivedData_Approximate.length()))
             {
                 int pi = pos.getIndex();
@@ -436,8 +497,8 @@ public class RetainedSizeDerivedData extends ContextDerivedData
 
         public int compare(Object o1, Object o2)
         {
-            Long retainedSize_o1 = (Long) calculator.lookup(o1);
-            Long retainedSize_o2 = (Long) calculator.lookup(o2);
+            Number retainedSize_o1 = (Number) calculator.lookup(o1);
+            Number retainedSize_o2 = (Number) calculator.lookup(o2);
 
             if (retainedSize_o1 == null)
                 return retainedSize_o2 == null ? 0 : -1;
@@ -10,17 +10,22 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    IBM Corporation - refactor to use SubjectRegistry
+ *    Standalone adaptation - resolver cache
  *******************************************************************************/
 package org.eclipse.mat.snapshot.registry;
 
+import java.lang.ref.WeakReference;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.internal.MATPlugin;
 import org.eclipse.mat.internal.Messages;
+import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.extension.IClassSpecificNameResolver;
 import org.eclipse.mat.snapshot.model.IClass;
 import org.eclipse.mat.snapshot.model.IObject;
@@ -56,17 +61,34 @@ public final class ClassSpecificNameResolverRegistry
             try
             {
                 IClass clazz = object.getClazz();
-                while (clazz != null)
+                if (clazz == null)
+                    return null;
+                SnapshotCache cache = cacheOf(object.getSnapshot());
+                if (cache == null)
+                    return resolve(clazz, object);
+
+                int objectId = object.getObjectId();
+                Name[] names = cache.names;
+                if (names != null)
                 {
-                    // For registerResolver()
-                    IClassSpecificNameResolver resolver = resolvers.get(clazz.getName());
-                    if (resolver != null) { return resolver.resolve(object); }
+                    Name name = names[objectId & (names.length - 1)];
+                    if (name != null && name.objectId == objectId)
+                        return name.value;
+                }
 
-                    resolver = lookup(clazz.getName());
-                    if (resolver != null) { return resolver.resolve(object); }
-                    clazz = clazz.getSuperClass();
+                IClassSpecificNameResolver resolver = cache.resolvers.get(clazz.getObjectId());
+                if (resolver == null)
+                {
+                    resolver = find(clazz);
+                    if (resolver == null)
+                        resolver = NONE;
+                    cache.resolvers.put(clazz.getObjectId(), resolver);
                 }
-                return null;
+                String value = resolver != NONE ? resolver.resolve(object) : null;
+
+                if (names != null)
+                    names[objectId & (names.length - 1)] = new Name(objectId, value);
+                return value;
             }
             catch (RuntimeException e)
             {
@@ -86,8 +108,108 @@ public final class ClassSpecificNameResolverRegistry
             }
         }
 
+        private String resolve(IClass clazz, IObject object) throws SnapshotException
+        {
+            IClassSpecificNameResolver resolver = find(clazz);
+            return resolver != null ? resolver.resolve(object) : null;
+        }
+
+        /**
+         * The resolver of the class or of its nearest superclass.
+         */
+        private IClassSpecificNameResolver find(IClass clazz)
+        {
+            while (clazz != null)
+            {
+                // For registerResolver()
+                IClassSpecificNameResolver resolver = resolvers.get(clazz.getName());
+                if (resolver != null) { return resolver; }
+
+                resolver = lookup(clazz.getName());
+                if (resolver != null) { return resolver; }
+                clazz = clazz.getSuperClass();
+            }
+            return null;
+        }
+
+        private SnapshotCache cacheOf(ISnapshot snapshot)
+        {
+            if (snapshot == null)
+                return null;
+            // the workers resolving names of the same snapshot do not lock
+            SnapshotCache cache = lastCache;
+            if (cache != null && cache.snapshot.get() == snapshot)
+                return cache;
+            synchronized (caches)
+            {
+                cache = caches.get(snapshot);
+                if (cache == null)
+                {
+                    cache = new SnapshotCache(snapshot, nameCacheSize);
+                    caches.put(snapshot, cache);
+                }
+                lastCache = cache;
+                return cache;
+            }
+        }
+
+        private void clearCaches()
+        {
+            synchronized (caches)
+            {
+                caches.clear();
+                lastCache = null;
+            }
+        }
+    }
+
+    /** marks a class without a resolver in the cache */
+    private static final IClassSpecificNameResolver NONE = object -> null;
+
+    /**
+     * The resolvers found for the classes of a snapshot, and the names last
+     * resolved.
+     */
+    private static final class SnapshotCache
+    {
+        /** weakly, so that the cache does not keep the snapshot */
+        final WeakReference<ISnapshot> snapshot;
+        /** class id to resolver, {@link #NONE} if the class has none */
+        final Map<Integer, IClassSpecificNameResolver> resolvers = new ConcurrentHashMap<Integer, IClassSpecificNameResolver>();
+        /** slot by object id, a newer name replacing an older one, or null if names are not cached */
+        final Name[] names;
+
+        SnapshotCache(ISnapshot snapshot, int nameCacheSize)
+        {
+            this.snapshot = new WeakReference<ISnapshot>(snapshot);
+            if (nameCacheSize <= 0)
+                names = null;
+            else if (nameCacheSize == 1)
+                names = new Name[1];
+            else
+                names = new Name[Integer.highestOneBit(Math.min(nameCacheSize - 1, 1 << 29)) << 1];
+        }
+    }
+
+    /** immutable, so safely read from other threads without locking */
+    private static final class Name
+    {
+        final int objectId;
+        final String value;
+
+        Name(int objectId, String value)
+        {
+            this.objectId = objectId;
+            this.value = value;
+        }
     }
 
+    /** per snapshot, dropped with the snapshot */
+    private static final Map<ISnapshot, SnapshotCache> caches = new WeakHashMap<ISnapshot, SnapshotCache>();
+    /** the cache last looked up, read without locking the caches */
+    private static volatile SnapshotCache lastCache;
+    private static volatile int nameCacheSize;
+
     private static ClassSpecificNameResolverRegistry instance = new ClassSpecificNameResolverRegistry();
 
     public static ClassSpecificNameResolverRegistry instance()
@@ -121,6 +243,25 @@ public final class ClassSpecificNameResolverRegistry
     public static void registerResolver(String className, IClassSpecificNameResolver resolver)
     {
         instance().registry.resolvers.put(className, resolver);
+        instance().registry.clearCaches();
+    }
+
+    /**
+     * Keep the names last resolved, so that showing the same objects again
+     * does not resolve them again. The cache holds at most one name per slot,
+     * chosen by object id.
+     * 
+     * @param size
+     *            the number of names to keep per snapshot, rounded up to a
+     *            power of two, or 0 to resolve every name each time
+     * @since 1.17
+     */
+    public static void setNameCacheSize(int size)
+    {
+        if (size < 0)
+            throw new IllegalArgumentException();
+        nameCacheSize = size;
+        instance().registry.clearCaches();
     }
 
     /**
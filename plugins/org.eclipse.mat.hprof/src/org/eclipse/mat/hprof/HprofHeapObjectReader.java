@@ -10,14 +10,19 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    Andrew Johnson (IBM Corporation) - additional properties
+ *    Standalone adaptation - bulk array decoding, mapped dump, field probe
  *******************************************************************************/
 package org.eclipse.mat.hprof;
 
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.hprof.describer.Version;
@@ -30,6 +35,8 @@ import org.eclipse.mat.parser.model.AbstractArrayImpl;
 import org.eclipse.mat.parser.model.ObjectArrayImpl;
 import org.eclipse.mat.parser.model.PrimitiveArrayImpl;
 import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.model.FieldDescriptor;
+import org.eclipse.mat.snapshot.model.IClass;
 import org.eclipse.mat.snapshot.model.IObject;
 import org.eclipse.mat.snapshot.model.IPrimitiveArray;
 
@@ -41,8 +48,11 @@ public class HprofHeapObjectReader implements IObjectReader
 
     private ISnapshot snapshot;
     private HprofRandomAccessParser hprofDump;
+    private MappedDump mappedDump;
     private IIndexReader.IOne2LongIndex o2hprof;
     private List<IRuntimeEnhancer> enhancers;
+    /** the offset and type of each instance field, by class id */
+    private final Map<Integer, Map<String, int[]>> fieldLayouts = new ConcurrentHashMap<Integer, Map<String, int[]>>();
 
     public void open(ISnapshot snapshot) throws IOException
     {
@@ -61,6 +71,8 @@ public class HprofHeapObjectReader implements IObjectReader
                         snapshot.getSnapshotInfo().getIdentifierSize(), len, strictnessPreference);
         this.o2hprof = new IndexReader.LongIndexReader(new File(snapshot.getSnapshotInfo().getPrefix()
                         + "o2hprof.index")); //$NON-NLS-1$
+        if (HprofPreferences.useMappedDump())
+            this.mappedDump = MappedDump.open(new File(snapshot.getSnapshotInfo().getPath()));
 
         this.enhancers = new ArrayList<IRuntimeEnhancer>();
         for (EnhancerRegistry.Enhancer enhancer : EnhancerRegistry.instance().delegates())
@@ -145,49 +157,76 @@ public class HprofHeapObjectReader implements IObjectReader
         }
     }
 
+    public ByteBuffer readPrimitiveArrayBuffer(PrimitiveArrayImpl array) throws IOException
+    {
+        if (mappedDump == null)
+            return null;
+        Object info = array.getInfo();
+        if (!(info instanceof ArrayDescription.Offline))
+            return null;
+        ArrayDescription.Offline description = (ArrayDescription.Offline) info;
+        return mappedDump.slice(description.getPosition(),
+                        (long) description.getArraySize() * description.getElementSize());
+    }
+
     private Object convert(PrimitiveArrayImpl array, byte[] content)
     {
         int type = array.getType();
         if (type == IObject.Type.BYTE)
             return content;
 
-        int elementSize = IPrimitiveArray.ELEMENT_SIZE[type];
-        int length = content.length / elementSize;
+        int length = content.length / IPrimitiveArray.ELEMENT_SIZE[type];
 
-        Object answer = Array.newInstance(IPrimitiveArray.COMPONENT_TYPE[type], length);
-
-        int index = 0;
-        for (int ii = 0; ii < content.length; ii += elementSize)
+        // the dump is big endian, as is a buffer unless told otherwise
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+        switch (type)
         {
-            switch (type)
+            case IObject.Type.BOOLEAN:
             {
-                case IObject.Type.BOOLEAN:
-                    Array.set(answer, index, content[ii] != 0);
-                    break;
-                case IObject.Type.CHAR:
-                    Array.set(answer, index, readChar(content, ii));
-                    break;
-                case IObject.Type.FLOAT:
-                    Array.set(answer, index, readFloat(content, ii));
-                    break;
-                case IObject.Type.DOUBLE:
-                    Array.set(answer, index, readDouble(content, ii));
-                    break;
-                case IObject.Type.SHORT:
-                    Array.set(answer, index, readShort(content, ii));
-                    break;
-                case IObject.Type.INT:
-                    Array.set(answer, index, readInt(content, ii));
-                    break;
-                case IObject.Type.LONG:
-                    Array.set(answer, index, readLong(content, ii));
-                    break;
+                boolean[] answer = new boolean[length];
+                for (int ii = 0; ii < length; ii++)
+                    answer[ii] = content[ii] != 0;
+                return answer;
             }
-
-            index++;
+            case IObject.Type.CHAR:
+            {
+                char[] answer = new char[length];
+                buffer.asCharBuffer().get(answer);
+                return answer;
+            }
+            case IObject.Type.FLOAT:
+            {
+                float[] answer = new float[length];
+                buffer.asFloatBuffer().get(answer);
+                return answer;
+            }
+            case IObject.Type.DOUBLE:
+            {
+                double[] answer = new double[length];
+                buffer.asDoubleBuffer().get(answer);
+                return answer;
+            }
+            case IObject.Type.SHORT:
+            {
+                short[] answer = new short[length];
+                buffer.asShortBuffer().get(answer);
+                return answer;
+            }
+            case IObject.Type.INT:
+            {
+                int[] answer = new int[length];
+                buffer.asIntBuffer().get(answer);
+                return answer;
+            }
+            case IObject.Type.LONG:
+            {
+                long[] answer = new long[length];
+                buffer.asLongBuffer().get(answer);
+                return answer;
+            }
+            default:
+                return Array.newInstance(IPrimitiveArray.COMPONENT_TYPE[type], length);
         }
-
-        return answer;
     }
 
     private Object fragment(AbstractArrayImpl array, Object content, int offset, int length)
@@ -206,6 +245,60 @@ public class HprofHeapObjectReader implements IObjectReader
         return hprofDump.read(objectId, filePosition, snapshot, o2hprof);
     }
 
+    @Override
+    public Object readField(int objectId, String name, ISnapshot snapshot) throws SnapshotException, IOException
+    {
+        long position = o2hprof.get(objectId);
+        // other records, such as for stack frame pseudo-objects, are read as a whole
+        if (!hprofDump.isInstanceDump(position))
+            return IObjectReader.super.readField(objectId, name, snapshot);
+        int[] field = fieldLayout(snapshot.getClassOf(objectId), snapshot).get(name);
+        if (field == null)
+            return null;
+        return hprofDump.readInstanceField(position, field[0], field[1], snapshot);
+    }
+
+    @Override
+    public int readArrayLength(int objectId, ISnapshot snapshot) throws SnapshotException, IOException
+    {
+        if (!snapshot.isArray(objectId))
+            return -1;
+        return hprofDump.readArrayLength(o2hprof.get(objectId));
+    }
+
+    /**
+     * The offset and type of each instance field of a class in the instance
+     * dump records. The fields of the class come first, then those of each
+     * superclass. Where a name is repeated the field of the superclass is
+     * kept, as {@link org.eclipse.mat.snapshot.model.IInstance#getField(String)}
+     * finds it.
+     */
+    private Map<String, int[]> fieldLayout(IClass clazz, ISnapshot snapshot) throws SnapshotException, IOException
+    {
+        Map<String, int[]> layout = fieldLayouts.get(clazz.getObjectId());
+        if (layout != null)
+            return layout;
+
+        List<IClass> hierarchy = hprofDump.resolveClassHierarchy(snapshot, clazz);
+        if (hierarchy == null)
+            throw new IOException(Messages.HprofRandomAccessParser_Error_DumpIncomplete);
+        int idSize = snapshot.getSnapshotInfo().getIdentifierSize();
+        layout = new HashMap<String, int[]>();
+        int offset = 0;
+        for (IClass c : hierarchy)
+        {
+            for (FieldDescriptor field : c.getFieldDescriptors())
+            {
+                int type = field.getType();
+                layout.put(field.getName(), new int[] { offset, type });
+                offset += type == IObject.Type.OBJECT ? idSize : IPrimitiveArray.ELEMENT_SIZE[type];
+            }
+        }
+        // another thread may build the same layout
+        fieldLayouts.put(clazz.getObjectId(), layout);
+        return layout;
+    }
+
     /**
      * Returns extra data to be provided by
      * {@link ISnapshot#getSnapshotAddons(Class addon)}. Also can be returned
@@ -248,55 +341,16 @@ public class HprofHeapObjectReader implements IObjectReader
         }
         catch (IOException ignore)
         {}
-    }
-
-    // //////////////////////////////////////////////////////////////
-    // conversion routines
-    // //////////////////////////////////////////////////////////////
-
-    private short readShort(byte[] data, int offset)
-    {
-        int b1 = (data[offset] & 0xff);
-        int b2 = (data[offset + 1] & 0xff);
-        return (short) ((b1 << 8) + b2);
-    }
-
-    private char readChar(byte[] data, int offset)
-    {
-        int b1 = (data[offset] & 0xff);
-        int b2 = (data[offset + 1] & 0xff);
-        return (char) ((b1 << 8) + b2);
-    }
-
-    private int readInt(byte[] data, int offset)
-    {
-        int ch1 = data[offset] & 0xff;
-        int ch2 = data[offset + 1] & 0xff;
-        int ch3 = data[offset + 2] & 0xff;
-        int ch4 = data[offset + 3] & 0xff;
-        return ((ch1 << 24) + (ch2 << 16) + (ch3 << 8) + (ch4 << 0));
-    }
-
-    private float readFloat(byte[] data, int offset)
-    {
-        return Float.intBitsToFloat(readInt(data, offset));
-    }
 
-    private long readLong(byte[] data, int offset)
-    {
-        return ((((long) data[offset] & 0xff) << 56) + //
-                        ((long) (data[offset + 1] & 0xff) << 48) + //
-                        ((long) (data[offset + 2] & 0xff) << 40) + //
-                        ((long) (data[offset + 3] & 0xff) << 32) + //
-                        ((long) (data[offset + 4] & 0xff) << 24) + //
-                        ((data[offset + 5] & 0xff) << 16) + //
-                        ((data[offset + 6] & 0xff) << 8) + //
-        ((data[offset + 7] & 0xff) << 0));
-    }
-
-    private double readDouble(byte[] data, int offset)
-    {
-        return Double.longBitsToDouble(readLong(data, offset));
+        if (mappedDump != null)
+        {
+            try
+            {
+                mappedDump.close();
+            }
+            catch (IOException ignore)
+            {}
+        }
     }
 
 }
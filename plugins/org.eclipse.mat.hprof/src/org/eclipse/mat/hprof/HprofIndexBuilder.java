@@ -10,6 +10,7 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    IBM Corporation - multiple heap dumps
+ *    Standalone adaptation - parse statistics, memory budget, string table
  *******************************************************************************/
 package org.eclipse.mat.hprof;
 
@@ -25,8 +26,12 @@ import org.eclipse.mat.hprof.extension.IParsingEnhancer;
 import org.eclipse.mat.hprof.ui.HprofPreferences;
 import org.eclipse.mat.parser.IIndexBuilder;
 import org.eclipse.mat.parser.IPreliminaryIndex;
+import org.eclipse.mat.parser.ParsePlanner;
 import org.eclipse.mat.parser.index.IIndexReader.IOne2LongIndex;
 import org.eclipse.mat.parser.index.IndexWriter;
+import org.eclipse.mat.parser.model.XParseStatistics;
+import org.eclipse.mat.snapshot.IParseStatistics;
+import org.eclipse.mat.snapshot.StringTable;
 import org.eclipse.mat.util.IProgressListener;
 import org.eclipse.mat.util.MessageUtil;
 import org.eclipse.mat.util.SimpleMonitor;
@@ -37,6 +42,7 @@ public class HprofIndexBuilder implements IIndexBuilder
     private String prefix;
     private IOne2LongIndex id2position;
     private List<IParsingEnhancer> enhancers;
+    private StringExtractor strings;
 
     public void init(File file, String prefix)
     {
@@ -60,7 +66,8 @@ public class HprofIndexBuilder implements IIndexBuilder
         SimpleMonitor monitor = new SimpleMonitor(MessageUtil.format(Messages.HprofIndexBuilder_Parsing,
                         new Object[] { file.getAbsolutePath() }), listener, new int[] { 500, 1500 });
 
-        IHprofParserHandler handler = new HprofParserHandlerImpl();
+        XParseStatistics statistics = XParseStatistics.of(preliminary.getSnapshotInfo());
+        HprofParserHandlerImpl handler = new HprofParserHandlerImpl();
         handler.beforePass1(preliminary.getSnapshotInfo());
         long estimatedLength = CompressedRandomAccessFile.estimatedLength(file);
         int pass1Work = (int) (CompressedRandomAccessFile.estimateWork(file) / 1000);
@@ -68,66 +75,78 @@ public class HprofIndexBuilder implements IIndexBuilder
         SimpleMonitor.Listener mon = (SimpleMonitor.Listener) monitor.nextMonitor();
         mon.beginTask(MessageUtil.format(Messages.HprofIndexBuilder_Scanning, new Object[] { file.getAbsolutePath() }),
                         pass1Work);
-        Pass1Parser pass1 = new Pass1Parser(handler, mon, strictnessPreference);
-        Serializable id = preliminary.getSnapshotInfo().getProperty("$runtimeId"); //$NON-NLS-1$
-        String dumpNrToRead;
-        if (id instanceof String)
-        {
-            dumpNrToRead = (String)id;
-        }
-        else
+        XParseStatistics.Timer timer = statistics.start(IParseStatistics.PHASE_PASS1);
+        try
         {
-            dumpNrToRead = pass1.determineDumpNumber();
-        }
-        pass1.read(file, prefix, dumpNrToRead, estimatedLength);
+            Pass1Parser pass1 = new Pass1Parser(handler, mon, strictnessPreference);
+            Serializable id = preliminary.getSnapshotInfo().getProperty("$runtimeId"); //$NON-NLS-1$
+            String dumpNrToRead;
+            if (id instanceof String)
+            {
+                dumpNrToRead = (String)id;
+            }
+            else
+            {
+                dumpNrToRead = pass1.determineDumpNumber();
+            }
+            pass1.read(file, prefix, dumpNrToRead, estimatedLength);
 
-        if (listener.isCanceled())
-            throw new IProgressListener.OperationCanceledException();
+            if (listener.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
 
-        mon.done();
+            mon.done();
 
-        handler.beforePass2(listener);
+            handler.beforePass2(listener);
 
-        long streamLength = pass1.streamLength();
+            long streamLength = pass1.streamLength();
+            int numberOfObjects = preliminary.getSnapshotInfo().getNumberOfObjects();
+            timer.stop(streamLength, numberOfObjects);
 
-        mon = (SimpleMonitor.Listener) monitor.nextMonitor();
-        mon.beginTask(MessageUtil.format(Messages.HprofIndexBuilder_ExtractingObjects,
-                        new Object[] { file.getAbsolutePath() }), (int) (streamLength / 1000));
+            mon = (SimpleMonitor.Listener) monitor.nextMonitor();
+            mon.beginTask(MessageUtil.format(Messages.HprofIndexBuilder_ExtractingObjects,
+                            new Object[] { file.getAbsolutePath() }), (int) (streamLength / 1000));
 
-        /*
-         * Estimate whether parallel processing of object arrays will cause an
-         * OutOfMemoryError.
-         */
-        long biggestArrays = pass1.biggestArrays();
-        // Just a guess from experimentation with a dumps with 100x[200000] and 2x[20000000] arrays
-        long memestimate = biggestArrays * 24;
-        Runtime runtime = Runtime.getRuntime();
-        // This free memory calculation is very approximate - we do a GC to get a better estimate
-        long maxFree = runtime.maxMemory() - runtime.totalMemory() + runtime.freeMemory();
-        if (!(maxFree > memestimate))
-        {
-            runtime.gc();
-            maxFree = runtime.maxMemory() - runtime.totalMemory() + runtime.freeMemory();
-        }
-        boolean parallel = maxFree > memestimate;
+            /*
+             * Estimate whether parallel processing of object arrays will cause an
+             * OutOfMemoryError.
+             */
+            boolean parallel = ParsePlanner.of(preliminary.getSnapshotInfo()).isParallelPass2(pass1.biggestArrays());
+
+            timer = statistics.start(IParseStatistics.PHASE_PASS2);
+            Pass2Parser pass2 = new Pass2Parser(handler, mon, strictnessPreference, streamLength, parallel);
+            pass2.stackFrameAlign = pass1.stackFrameAlign;
+            pass2.stackFrameBase = pass1.stackFrameBase;
+            pass2.read(file, prefix, dumpNrToRead);
 
-        Pass2Parser pass2 = new Pass2Parser(handler, mon, strictnessPreference, streamLength, parallel);
-        pass2.stackFrameAlign = pass1.stackFrameAlign;
-        pass2.stackFrameBase = pass1.stackFrameBase;
-        pass2.read(file, prefix, dumpNrToRead);
+            if (listener.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
 
-        if (listener.isCanceled())
-            throw new IProgressListener.OperationCanceledException();
+            mon.done();
+            timer.stop(streamLength, numberOfObjects);
 
-        mon.done();
+            if (listener.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
 
-        if (listener.isCanceled())
-            throw new IProgressListener.OperationCanceledException();
+            for (IParsingEnhancer enhancer : enhancers)
+                enhancer.onParsingCompleted(handler.getSnapshotInfo());
 
-        for (IParsingEnhancer enhancer : enhancers)
-            enhancer.onParsingCompleted(handler.getSnapshotInfo());
+            timer = statistics.start(IParseStatistics.PHASE_FILL_INDEXES);
+            id2position = handler.fillIn(preliminary, listener);
+            timer.stop(-1, numberOfObjects);
+        }
+        finally
+        {
+            // a failed or cancelled phase is no longer sampled
+            timer.discard();
+        }
 
-        id2position = handler.fillIn(preliminary, listener);
+        strings = handler.getStringExtractor();
+        if (strings != null)
+        {
+            listener.subTask(MessageUtil.format(Messages.HprofIndexBuilder_ExtractingStrings,
+                            new Object[] { file.getAbsolutePath() }));
+            strings.extract(file, prefix, id2position, listener);
+        }
     }
 
     public void clean(final int[] purgedMapping, IProgressListener listener) throws IOException
@@ -159,6 +178,19 @@ public class HprofIndexBuilder implements IIndexBuilder
 
         id2position.delete();
         id2position = null;
+
+        // //////////////////////////////////////////////////////////////
+        // string table
+        // //////////////////////////////////////////////////////////////
+
+        if (strings != null)
+        {
+            File stringsFile = StringTable.getFile(prefix);
+            listener.subTask(MessageUtil.format(Messages.HprofIndexBuilder_Writing,
+                            new Object[] { stringsFile.getAbsolutePath() }));
+            strings.write(stringsFile, purgedMapping);
+            strings = null;
+        }
     }
 
     public void cancel()
@@ -11,6 +11,7 @@
  *    SAP AG - initial API and implementation
  *    Andrew Johnson - bug fix for missing classes
  *    Netflix (Jason Koch) - refactors for increased performance and concurrency
+ *    Standalone adaptation - parse statistics, string table
  *******************************************************************************/
 package org.eclipse.mat.hprof;
 
@@ -52,6 +53,7 @@ import org.eclipse.mat.parser.model.ClassImpl;
 import org.eclipse.mat.parser.model.PrimitiveArrayImpl;
 import org.eclipse.mat.parser.model.XGCRootInfo;
 import org.eclipse.mat.parser.model.XSnapshotInfo;
+import org.eclipse.mat.snapshot.StringTable;
 import org.eclipse.mat.snapshot.UnreachableObjectsHistogram;
 import org.eclipse.mat.snapshot.model.Field;
 import org.eclipse.mat.snapshot.model.FieldDescriptor;
@@ -94,6 +96,9 @@ public class HprofParserHandlerImpl implements IHprofParserHandler
     /** Keep track of numbers and size of discarded objects */
     private ConcurrentHashMap<Integer, ClassImpl> discardedObjectsByClass = new ConcurrentHashMap<Integer, ClassImpl>();
 
+    /** collects the strings when the string table is wanted */
+    private StringExtractor strings;
+
     // The size of (possibly compressed) references in the heap
     private int refSize;
     // The size of uncompressed pointers in the object headers in the heap
@@ -260,6 +265,8 @@ public class HprofParserHandlerImpl implements IHprofParserHandler
         // informational messages to the user
         monitor.sendUserMessage(IProgressListener.Severity.INFO, MessageUtil.format(
                         Messages.HprofParserHandlerImpl_HeapContainsObjects, info.getPath(), identifiers0.size()), null);
+        // preliminary count, replaced once the unreachable objects are removed
+        info.setNumberOfObjects(identifiers0.size());
 
         // if instance dumps for classes are present, then fix up the classes
         addTypesAndDummyStatics();
@@ -294,6 +301,10 @@ public class HprofParserHandlerImpl implements IHprofParserHandler
         identifiers0.delete();
         identifiers0 = null;
 
+        if (Boolean.TRUE.equals(info.getProperty(StringTable.OPTION)))
+            strings = StringExtractor.of(this, classesByName.get("java.lang.String"), //$NON-NLS-1$
+                            classesByName.get("java.lang.StringUTF16")); //$NON-NLS-1$
+
         // create index writers
         outbound = new IntArray1NWriter(this.identifiers.size(), Index.OUTBOUND.getFile(info.getPrefix()
                         + "temp."));//$NON-NLS-1$
@@ -1078,6 +1089,9 @@ public class HprofParserHandlerImpl implements IHprofParserHandler
             return;
         }
 
+        if (strings != null && strings.accepts(object))
+            strings.add(index, object.instanceData);
+
         // check if some thread to local variables references have to be added
         HashMapLongObject<List<XGCRootInfo>> localVars = threadAddressToLocals.get(object.objectAddress);
         if (localVars != null)
@@ -1289,6 +1303,15 @@ public class HprofParserHandlerImpl implements IHprofParserHandler
         return info;
     }
 
+    /**
+     * The strings collected in pass 2.
+     * @return the extractor, or null if the string table is not wanted
+     */
+    StringExtractor getStringExtractor()
+    {
+        return strings;
+    }
+
     public long getObjectArrayHeapSize(ClassImpl arrayType, int size)
     {
         long usedHeapSize = alignUpToX(pointerSize + refSize + 4 + size * arrayType.getHeapSizePerInstance(), objectAlign);
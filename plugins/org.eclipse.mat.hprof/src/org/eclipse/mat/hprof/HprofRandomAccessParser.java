@@ -11,6 +11,7 @@
  *    SAP AG - initial API and implementation
  *    Netflix (Jason Koch) - refactors for increased performance and concurrency
  *    IBM Corporation (Andrew Johnson) - compressed dumps
+ *    Standalone adaptation - string table, bulk array decoding, field probe
  *******************************************************************************/
 package org.eclipse.mat.hprof;
 
@@ -18,6 +19,7 @@ import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -553,6 +555,100 @@ public class HprofRandomAccessParser extends AbstractParser
         return data;
     }
 
+    /**
+     * Read the whole contents of a <code>char[]</code> or <code>byte[]</code>
+     * array dump record.
+     * @param position the file position of the record
+     * @return a char[] or a byte[], or null for a record of another kind or
+     * a char[] with more bytes than a Java array can hold
+     * @throws IOException if the record could not be read
+     */
+    public synchronized Object readCharOrByteArray(long position) throws IOException
+    {
+        in.seek(position);
+        if (in.readUnsignedByte() != Constants.DumpSegment.PRIMITIVE_ARRAY_DUMP)
+            return null;
+        in.readID(idSize);
+        checkSkipBytes(4);
+        int arraySize = in.readInt();
+        int elementType = in.readByte();
+        if (arraySize < 0)
+            return null;
+        if (elementType == IObject.Type.BYTE)
+        {
+            byte[] data = new byte[arraySize];
+            in.readFully(data);
+            return data;
+        }
+        if (elementType == IObject.Type.CHAR && arraySize <= Integer.MAX_VALUE / 2)
+        {
+            byte[] bytes = new byte[arraySize * 2];
+            in.readFully(bytes);
+            char[] data = new char[arraySize];
+            ByteBuffer.wrap(bytes).asCharBuffer().get(data);
+            return data;
+        }
+        return null;
+    }
+
+    /**
+     * Whether a record is an instance dump, rather than for example the
+     * stack frame record of a stack frame pseudo-object.
+     * @param position the file position of the record
+     * @return true for an instance dump record
+     * @throws IOException if the record could not be read
+     */
+    public synchronized boolean isInstanceDump(long position) throws IOException
+    {
+        in.seek(position);
+        return in.readUnsignedByte() == Constants.DumpSegment.INSTANCE_DUMP;
+    }
+
+    /**
+     * Read one field of an instance dump record, without reading the others.
+     * @param position the file position of the record
+     * @param offset the offset of the field in the instance data of the record
+     * @param type the type of the field
+     * @param dump the snapshot
+     * @return the value as {@link Field#getValue()} gives it
+     * @throws IOException if the record is not an instance dump or could not be read
+     */
+    public synchronized Object readInstanceField(long position, int offset, int type, ISnapshot dump)
+                    throws IOException
+    {
+        in.seek(position);
+        int segmentType = in.readUnsignedByte();
+        if (segmentType != Constants.DumpSegment.INSTANCE_DUMP)
+            throw new IOException(MessageUtil.format(Messages.HprofRandomAccessParser_Error_IllegalDumpSegment,
+                            segmentType, Long.toHexString(position)));
+        // skip the address, serial number, class ID and length, then the fields before
+        int skip = 2 * idSize + 8 + offset;
+        if (checkSkipBytes(skip) != skip)
+            throw new IOException();
+        return readValue(in, dump, type);
+    }
+
+    /**
+     * Read the length of an array dump record, without reading its contents.
+     * @param position the file position of the record
+     * @return the length in elements
+     * @throws IOException if the record is not an array dump or could not be read
+     */
+    public synchronized int readArrayLength(long position) throws IOException
+    {
+        in.seek(position);
+        int segmentType = in.readUnsignedByte();
+        if (segmentType != Constants.DumpSegment.OBJECT_ARRAY_DUMP
+                        && segmentType != Constants.DumpSegment.PRIMITIVE_ARRAY_DUMP)
+            throw new IOException(MessageUtil.format(Messages.HprofRandomAccessParser_Error_IllegalDumpSegment,
+                            segmentType, Long.toHexString(position)));
+        // skip the address and serial number
+        int skip = idSize + 4;
+        if (checkSkipBytes(skip) != skip)
+            throw new IOException();
+        return in.readInt();
+    }
+
     private int skipRecords(int segmentType) throws IOException
     {
         boolean again = true;
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.hprof;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.eclipse.mat.hprof.ui.HprofPreferences;
+
+/**
+ * An uncompressed dump mapped into memory, so that the contents of primitive
+ * arrays can be read in place.
+ * <p>
+ * The file is mapped lazily in segments. A segment starts at every 1GB of
+ * the file and runs for up to 2GB, so that any array of up to 1GB lies wholly
+ * in the segment where it starts. Bigger arrays get a mapping of their own.
+ * @see HprofPreferences#useMappedDump()
+ */
+class MappedDump implements Closeable
+{
+    private static final int SEGMENT_SHIFT = 30;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long length;
+    private final MappedByteBuffer[] segments;
+
+    private MappedDump(RandomAccessFile file) throws IOException
+    {
+        this.file = file;
+        this.channel = file.getChannel();
+        this.length = channel.size();
+        this.segments = new MappedByteBuffer[(int) ((length >>> SEGMENT_SHIFT) + 1)];
+    }
+
+    /**
+     * Map a dump.
+     * @param dump the dump file
+     * @return the mapping, or null for a compressed dump, whose file positions are not those of the file
+     * @throws IOException if the dump could not be opened
+     */
+    static MappedDump open(File dump) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(dump, "r"); //$NON-NLS-1$
+        try
+        {
+            if (CompressedRandomAccessFile.isGZIP(raf))
+            {
+                raf.close();
+                return null;
+            }
+            return new MappedDump(raf);
+        }
+        catch (IOException e)
+        {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * A read-only, big endian view of a part of the dump, which is not copied.
+     * @param position the file position
+     * @param size the number of bytes
+     * @return the view, or null if the part is not in the file or is too big for a buffer
+     * @throws IOException if the file could not be mapped
+     */
+    ByteBuffer slice(long position, long size) throws IOException
+    {
+        if (position < 0 || size < 0 || size > Integer.MAX_VALUE || position + size > length)
+            return null;
+        int index = (int) (position >>> SEGMENT_SHIFT);
+        MappedByteBuffer segment = segment(index);
+        int offset = (int) (position - ((long) index << SEGMENT_SHIFT));
+        if (offset + size > segment.capacity())
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, size).asReadOnlyBuffer();
+        ByteBuffer slice = segment.duplicate();
+        // through Buffer, whose methods return the same types on all releases
+        ((Buffer) slice).position(offset).limit(offset + (int) size);
+        return slice.slice().asReadOnlyBuffer();
+    }
+
+    private MappedByteBuffer segment(int index) throws IOException
+    {
+        synchronized (segments)
+        {
+            MappedByteBuffer segment = segments[index];
+            if (segment == null)
+            {
+                long start = (long) index << SEGMENT_SHIFT;
+                segment = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                                Math.min(Integer.MAX_VALUE, length - start));
+                segments[index] = segment;
+            }
+            return segment;
+        }
+    }
+
+    /**
+     * Close the file. The mapped segments stay valid until they are garbage
+     * collected.
+     */
+    public void close() throws IOException
+    {
+        file.close();
+    }
+}
@@ -52,6 +52,7 @@ public class Messages extends NLS
     public static String GZIPInputStream2_TruncatedHeaderCRC;
     public static String GZIPInputStream2_TruncatedName;
     public static String HprofIndexBuilder_ExtractingObjects;
+    public static String HprofIndexBuilder_ExtractingStrings;
     public static String HprofIndexBuilder_Parsing;
     public static String HprofIndexBuilder_Scanning;
     public static String HprofIndexBuilder_Writing;
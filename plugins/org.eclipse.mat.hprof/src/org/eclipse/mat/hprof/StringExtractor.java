@@ -0,0 +1,303 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.hprof;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.mat.collect.ArrayInt;
+import org.eclipse.mat.collect.ArrayUtils;
+import org.eclipse.mat.collect.SetLong;
+import org.eclipse.mat.hprof.describer.Version;
+import org.eclipse.mat.hprof.ui.HprofPreferences;
+import org.eclipse.mat.parser.index.IIndexReader.IOne2LongIndex;
+import org.eclipse.mat.parser.model.ClassImpl;
+import org.eclipse.mat.snapshot.StringTable;
+import org.eclipse.mat.snapshot.model.Field;
+import org.eclipse.mat.snapshot.model.FieldDescriptor;
+import org.eclipse.mat.snapshot.model.IObject;
+import org.eclipse.mat.snapshot.model.IPrimitiveArray;
+import org.eclipse.mat.util.IProgressListener;
+
+/**
+ * Extracts the values of the <code>java.lang.String</code> objects of a dump
+ * for the {@link StringTable}.
+ * <p>
+ * While the objects are extracted the fields of each string are decoded from
+ * its instance data, and the string is kept with the id of its array. Strings
+ * and their arrays come in any order in the dump, so once all the objects are
+ * known the arrays are read sorted by file position, in one forward sweep.
+ */
+class StringExtractor
+{
+    private final IHprofParserHandler handler;
+    private final int idSize;
+    private final SetLong stringClasses = new SetLong();
+    /** offsets of the fields in the instance data, -1 if a field is missing */
+    private final int valueOffset;
+    private final int offsetOffset;
+    private final int countOffset;
+    private final int coderOffset;
+    private final int fieldsLength;
+    /** whether the two bytes of a character in a byte[] are high byte first */
+    private final boolean bigEndian;
+
+    private final ArrayInt stringIds = new ArrayInt();
+    private final ArrayInt arrayIds = new ArrayInt();
+    private final ArrayInt offsets;
+    private final ArrayInt counts;
+    private final ArrayInt coders;
+
+    /** after the extraction, sorted by string id */
+    private int[] ids;
+    private int[] values;
+    private StringTable.Builder builder;
+
+    private StringExtractor(IHprofParserHandler handler, List<ClassImpl> classes, int idSize, boolean bigEndian)
+    {
+        this.handler = handler;
+        this.idSize = idSize;
+        this.bigEndian = bigEndian;
+        for (ClassImpl cls : classes)
+            stringClasses.add(cls.getObjectAddress());
+
+        int value = -1, offset = -1, count = -1, coder = -1;
+        int pos = 0;
+        for (FieldDescriptor field : classes.get(0).getFieldDescriptors())
+        {
+            String name = field.getName();
+            int type = field.getType();
+            if (type == IObject.Type.OBJECT && "value".equals(name)) //$NON-NLS-1$
+                value = pos;
+            else if (type == IObject.Type.INT && "offset".equals(name)) //$NON-NLS-1$
+                offset = pos;
+            else if (type == IObject.Type.INT && "count".equals(name)) //$NON-NLS-1$
+                count = pos;
+            else if (type == IObject.Type.BYTE && "coder".equals(name)) //$NON-NLS-1$
+                coder = pos;
+            pos += type == IObject.Type.OBJECT ? idSize : IPrimitiveArray.ELEMENT_SIZE[type];
+        }
+        this.valueOffset = value;
+        this.offsetOffset = offset;
+        this.countOffset = count;
+        this.coderOffset = coder;
+        this.fieldsLength = pos;
+        this.offsets = offset >= 0 ? new ArrayInt() : null;
+        this.counts = count >= 0 ? new ArrayInt() : null;
+        this.coders = coder >= 0 ? new ArrayInt() : null;
+    }
+
+    /**
+     * Prepare the extraction, once the classes are known.
+     * @param handler the handler of the parse
+     * @param stringClasses the classes named java.lang.String
+     * @param stringUTF16Classes the classes named java.lang.StringUTF16, or null
+     * @return the extractor, or null if the strings have no value field
+     */
+    static StringExtractor of(IHprofParserHandler handler, List<ClassImpl> stringClasses,
+                    List<ClassImpl> stringUTF16Classes)
+    {
+        if (stringClasses == null || stringClasses.isEmpty())
+            return null;
+        // as PrettyPrinter, little endian unless the JDK says otherwise
+        boolean bigEndian = false;
+        if (stringUTF16Classes != null && !stringUTF16Classes.isEmpty())
+        {
+            for (Field field : stringUTF16Classes.get(0).getStaticFields())
+            {
+                if ("HI_BYTE_SHIFT".equals(field.getName())) //$NON-NLS-1$
+                    bigEndian = field.getValue() instanceof Integer && (Integer) field.getValue() == 8;
+            }
+        }
+        StringExtractor extractor = new StringExtractor(handler, stringClasses, handler.getIdentifierSize(),
+                        bigEndian);
+        return extractor.valueOffset >= 0 ? extractor : null;
+    }
+
+    /**
+     * Whether an object read in pass 2 is a string.
+     */
+    boolean accepts(IHprofParserHandler.HeapObject object)
+    {
+        return !object.isObjectArray && !object.isPrimitiveArray && object.instanceData != null
+                        && stringClasses.contains(object.classIdOrElementType);
+    }
+
+    /**
+     * Keep the fields of a string. Called from several threads.
+     * @param stringId the id of the string
+     * @param instanceData the fields of the string
+     */
+    void add(int stringId, byte[] instanceData)
+    {
+        if (instanceData.length < fieldsLength)
+            return;
+        long valueAddress = idSize == 4 ? readInt(instanceData, valueOffset) & 0xffffffffL
+                        : readLong(instanceData, valueOffset);
+        if (valueAddress == 0)
+            return;
+        int arrayId = handler.mapAddressToId(valueAddress);
+        if (arrayId < 0)
+            return;
+        synchronized (this)
+        {
+            stringIds.add(stringId);
+            arrayIds.add(arrayId);
+            if (offsets != null)
+                offsets.add(readInt(instanceData, offsetOffset));
+            if (counts != null)
+                counts.add(readInt(instanceData, countOffset));
+            if (coders != null)
+                coders.add(instanceData[coderOffset]);
+        }
+    }
+
+    /**
+     * Read the arrays of the strings, in order of file position.
+     * @param file the dump
+     * @param prefix the prefix of the index files
+     * @param id2position the file position of each object
+     * @param listener to check for cancellation
+     * @throws IOException if an array could not be read
+     */
+    void extract(File file, String prefix, IOne2LongIndex id2position, IProgressListener listener)
+                    throws IOException
+    {
+        int n = stringIds.size();
+        long[] positions = new long[n];
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++)
+        {
+            positions[i] = id2position.get(arrayIds.get(i));
+            order[i] = i;
+        }
+        ArrayUtils.sortDesc(positions, order);
+
+        Version version = Version.valueOf((String) handler.getSnapshotInfo().getProperty(
+                        HprofHeapObjectReader.VERSION_PROPERTY));
+        Long length = (Long) handler.getSnapshotInfo().getProperty(HprofHeapObjectReader.HPROF_LENGTH_PROPERTY);
+        HprofRandomAccessParser parser = new HprofRandomAccessParser(file, prefix, version, idSize,
+                        length != null ? length : -1, HprofPreferences.getCurrentStrictness());
+        builder = new StringTable.Builder();
+        ids = new int[n];
+        values = new int[n];
+        int kept = 0;
+        try
+        {
+            int lastArrayId = -1;
+            Object array = null;
+            char[] chars = new char[256];
+            // ascending file positions
+            for (int k = n - 1; k >= 0; k--)
+            {
+                if ((k & 0xffff) == 0 && listener.isCanceled())
+                    throw new IProgressListener.OperationCanceledException();
+                int i = order[k];
+                if (arrayIds.get(i) != lastArrayId)
+                {
+                    lastArrayId = arrayIds.get(i);
+                    array = parser.readCharOrByteArray(positions[k]);
+                }
+                int offset = offsets != null ? offsets.get(i) : 0;
+                int count = counts != null ? counts.get(i) : -1;
+                int value;
+                if (array instanceof char[])
+                {
+                    char[] a = (char[]) array;
+                    offset = Math.max(0, Math.min(offset, a.length));
+                    count = count >= 0 ? Math.min(count, a.length - offset) : a.length - offset;
+                    value = builder.add(a, offset, count, StringTable.CHARS);
+                }
+                else if (array instanceof byte[])
+                {
+                    byte[] a = (byte[]) array;
+                    boolean latin1 = coders != null && coders.get(i) == 0;
+                    if (latin1)
+                    {
+                        offset = Math.max(0, Math.min(offset, a.length));
+                        count = count >= 0 ? Math.min(count, a.length - offset) : a.length - offset;
+                        if (chars.length < count)
+                            chars = new char[count];
+                        for (int j = 0; j < count; j++)
+                            chars[j] = (char) (a[offset + j] & 0xff);
+                        value = builder.add(chars, 0, count, StringTable.LATIN1);
+                    }
+                    else
+                    {
+                        offset = Math.max(0, Math.min(offset, a.length / 2));
+                        count = count >= 0 ? Math.min(count, a.length / 2 - offset) : a.length / 2 - offset;
+                        if (chars.length < count)
+                            chars = new char[count];
+                        int hi = bigEndian ? 0 : 1;
+                        for (int j = 0, p = offset * 2; j < count; j++, p += 2)
+                            chars[j] = (char) ((a[p + hi] & 0xff) << 8 | (a[p + 1 - hi] & 0xff));
+                        value = builder.add(chars, 0, count, StringTable.UTF16);
+                    }
+                }
+                else
+                {
+                    continue;
+                }
+                ids[kept] = stringIds.get(i);
+                values[kept] = value;
+                kept++;
+            }
+        }
+        finally
+        {
+            parser.close();
+        }
+        if (kept < n)
+        {
+            ids = Arrays.copyOf(ids, kept);
+            values = Arrays.copyOf(values, kept);
+        }
+        ArrayUtils.sort(ids, values);
+    }
+
+    /**
+     * Write the table with the ids of the objects left after the garbage
+     * cleaning. Ids keep their order, so the records stay sorted.
+     * @param file the table file
+     * @param purgedMapping the new id of each old id, negative for a removed object
+     * @throws IOException if the table could not be written
+     */
+    void write(File file, int[] purgedMapping) throws IOException
+    {
+        int kept = 0;
+        for (int i = 0; i < ids.length; i++)
+        {
+            int newId = purgedMapping[ids[i]];
+            if (newId >= 0)
+            {
+                ids[kept] = newId;
+                values[kept] = values[i];
+                kept++;
+            }
+        }
+        builder.write(file, Arrays.copyOf(ids, kept), Arrays.copyOf(values, kept));
+    }
+
+    private static int readInt(byte[] data, int pos)
+    {
+        return (data[pos] & 0xff) << 24 | (data[pos + 1] & 0xff) << 16 | (data[pos + 2] & 0xff) << 8
+                        | (data[pos + 3] & 0xff);
+    }
+
+    private static long readLong(byte[] data, int pos)
+    {
+        return (readInt(data, pos) & 0xffffffffL) << 32 | (readInt(data, pos + 4) & 0xffffffffL);
+    }
+}
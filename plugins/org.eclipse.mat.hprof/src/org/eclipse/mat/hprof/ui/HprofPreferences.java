@@ -9,7 +9,7 @@
  *
  * Contributors:
  *    IBM Corporation - initial API and implementation
- *    Standalone adaptation - removed OSGi/Platform preferences
+ *    Standalone adaptation - removed OSGi/Platform preferences, mapped dump
  *******************************************************************************/
 package org.eclipse.mat.hprof.ui;
 
@@ -33,6 +33,12 @@ public class HprofPreferences
     public static final String RUNNING_METHODS_AS_CLASSES = "running"; //$NON-NLS-1$
     public static final String FRAMES_ONLY = "frames"; //$NON-NLS-1$
 
+    /**
+     * Whether to map an uncompressed dump into memory to read primitive arrays in place.
+     * @since 1.17
+     */
+    public static final String MAPPED_DUMP = "hprofMappedDump"; //$NON-NLS-1$
+
     /**
      * Return the currently selected preference for strictness.
      * Standalone: returns DEFAULT_STRICTNESS, but checks -D system properties.
@@ -89,6 +95,18 @@ public class HprofPreferences
         }
     }
 
+    /**
+     * Whether primitive arrays of an uncompressed dump are read in place from
+     * a memory mapping of the dump, rather than copied.
+     * Standalone: off unless -DhprofMappedDump=true.
+     * @return true if the dump is to be mapped
+     * @since 1.17
+     */
+    public static boolean useMappedDump()
+    {
+        return Boolean.getBoolean(MAPPED_DUMP);
+    }
+
     /**
      * Standalone: return false (no additional class references).
      */
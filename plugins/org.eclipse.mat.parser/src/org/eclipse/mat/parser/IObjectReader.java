@@ -10,15 +10,20 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    Andrew Johnson (IBM Corporation) - Javadoc
+ *    Standalone adaptation - mapped primitive arrays, field probe
  *******************************************************************************/
 package org.eclipse.mat.parser;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.parser.model.ObjectArrayImpl;
 import org.eclipse.mat.parser.model.PrimitiveArrayImpl;
 import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.model.Field;
+import org.eclipse.mat.snapshot.model.IArray;
+import org.eclipse.mat.snapshot.model.IInstance;
 import org.eclipse.mat.snapshot.model.IObject;
 
 /**
@@ -46,6 +51,44 @@ public interface IObjectReader
     IObject read(int objectId, ISnapshot snapshot) //
                     throws SnapshotException, IOException;
 
+    /**
+     * Get the value of one field of an object, without getting the others
+     * where the dump allows it.
+     * @param objectId the object id of an instance, not of a class or an array
+     * @param name the name of the field
+     * @param snapshot the snapshot
+     * @return the value as {@link Field#getValue()} gives it, or null if the object has no such field
+     * @throws SnapshotException some other problem such as where the object is incompatible with the snapshot
+     * @throws IOException an IO problem or unexpected data in the dump
+     * @since 1.17
+     */
+    default Object readField(int objectId, String name, ISnapshot snapshot) //
+                    throws SnapshotException, IOException
+    {
+        IObject object = read(objectId, snapshot);
+        if (!(object instanceof IInstance))
+            return null;
+        Field field = ((IInstance) object).getField(name);
+        return field != null ? field.getValue() : null;
+    }
+
+    /**
+     * Get the length of an array, without getting its contents where the
+     * dump allows it.
+     * @param objectId the object id of an array
+     * @param snapshot the snapshot
+     * @return the length in elements, or -1 if the object is not an array
+     * @throws SnapshotException some other problem such as where the object is incompatible with the snapshot
+     * @throws IOException an IO problem or unexpected data in the dump
+     * @since 1.17
+     */
+    default int readArrayLength(int objectId, ISnapshot snapshot) //
+                    throws SnapshotException, IOException
+    {
+        IObject object = read(objectId, snapshot);
+        return object instanceof IArray ? ((IArray) object).getLength() : -1;
+    }
+
     /**
      * Get detailed information about a primitive array
      * @param array the array
@@ -58,6 +101,21 @@ public interface IObjectReader
     Object readPrimitiveArrayContent(PrimitiveArrayImpl array, int offset, int length) //
                     throws IOException, SnapshotException;
 
+    /**
+     * Get the contents of a primitive array in place, without copying them.
+     * @param array the array
+     * @return a read-only, big endian view of the bytes of the elements,
+     *         or null if the contents can only be copied with {@link #readPrimitiveArrayContent(PrimitiveArrayImpl, int, int)}
+     * @throws SnapshotException some other problem such as where the object is incompatible with the snapshot
+     * @throws IOException an IO problem or unexpected data in the dump
+     * @since 1.17
+     */
+    default ByteBuffer readPrimitiveArrayBuffer(PrimitiveArrayImpl array) //
+                    throws IOException, SnapshotException
+    {
+        return null;
+    }
+
     /**
      * Get detailed information about a object array
      * @param array the array
@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser;
+
+import java.io.Serializable;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.parser.internal.Messages;
+import org.eclipse.mat.snapshot.SnapshotInfo;
+import org.eclipse.mat.util.MessageUtil;
+
+/**
+ * Decides how the phases of a parse use memory, based on a memory budget
+ * and the size of the dump found by the first pass.
+ * <p>
+ * The budget bounds the memory which a phase of the parse allocates for its
+ * own working arrays. The heap already used by the rest of the application,
+ * and by the indexes kept from the earlier phases, is not counted against it.
+ * The budget defaults to the maximum heap size of the JVM. It can be reduced
+ * with the open argument {@value #MEMORY_BUDGET}, for example
+ * <code>memory_budget=2g</code>, so that a parse in a fixed-size container
+ * leaves room for the rest of the application. The parse then prefers to
+ * write intermediate indexes to disk and to use fewer threads rather than
+ * allocate more than the budget. A phase is also given less than the budget
+ * when the heap of the JVM has less room free.
+ * <p>
+ * The estimates are deliberately simple, counting the large per-object
+ * arrays of each phase.
+ * @since 1.17
+ */
+public final class ParsePlanner
+{
+    /** Open argument and snapshot property holding the memory budget in bytes */
+    public static final String MEMORY_BUDGET = "memory_budget"; //$NON-NLS-1$
+
+    /** Bytes per object for garbage cleaning: reachable flags, the mapping, new identifiers and classes */
+    private static final int GARBAGE_CLEANER_BYTES_PER_OBJECT = 1 + 4 + 8 + 4;
+    /** Bytes per object for the seven int arrays of the dominator tree calculation */
+    private static final int DOMINATOR_TREE_BYTES_PER_OBJECT = 7 * 4;
+    /** Bytes per element of an object array decoded in parallel during pass 2 */
+    private static final int PASS2_BYTES_PER_ARRAY_ELEMENT = 24;
+    /** Memory needed for each extra thread, for its stacks and buffers */
+    private static final long BYTES_PER_THREAD = 32L * 1024 * 1024;
+
+    private static final Logger logger = Logger.getLogger(ParsePlanner.class.getName());
+
+    private final long budget;
+
+    /**
+     * The planner for a snapshot, using the budget stored in its properties.
+     * @param info the snapshot being parsed
+     * @return the planner
+     */
+    public static ParsePlanner of(SnapshotInfo info)
+    {
+        Serializable budget = info.getProperty(MEMORY_BUDGET);
+        if (budget instanceof Long && (Long) budget > 0)
+            return new ParsePlanner((Long) budget);
+        return new ParsePlanner(Runtime.getRuntime().maxMemory());
+    }
+
+    /**
+     * Convert the value of the {@value #MEMORY_BUDGET} argument.
+     * @param value a number of bytes, optionally followed by k, m or g
+     * @return the number of bytes
+     * @throws NumberFormatException if the value is not a positive size
+     */
+    public static long parseMemorySize(String value)
+    {
+        String v = value.trim().toLowerCase(Locale.ENGLISH);
+        long multiplier = 1;
+        if (v.endsWith("k")) //$NON-NLS-1$
+            multiplier = 1024L;
+        else if (v.endsWith("m")) //$NON-NLS-1$
+            multiplier = 1024L * 1024;
+        else if (v.endsWith("g")) //$NON-NLS-1$
+            multiplier = 1024L * 1024 * 1024;
+        if (multiplier > 1)
+            v = v.substring(0, v.length() - 1);
+        long size = Long.parseLong(v.trim());
+        if (size <= 0)
+            throw new NumberFormatException(value);
+        return size * multiplier;
+    }
+
+    private ParsePlanner(long budget)
+    {
+        this.budget = budget;
+    }
+
+    /**
+     * The memory budget for the parse.
+     * @return the budget in bytes, at most the maximum heap size
+     */
+    public long getMemoryBudget()
+    {
+        return Math.min(budget, Runtime.getRuntime().maxMemory());
+    }
+
+    /**
+     * How much a phase can allocate: the budget, or less if the heap of the
+     * JVM has less room free. A garbage collection is run if the free room
+     * is less than needed, as the heap is likely to hold garbage.
+     * @param needed the number of bytes wanted
+     * @return the available bytes
+     */
+    public long getAvailableMemory(long needed)
+    {
+        long free = freeHeap();
+        if (free < needed)
+        {
+            Runtime.getRuntime().gc();
+            free = freeHeap();
+        }
+        return Math.min(getMemoryBudget(), free);
+    }
+
+    /**
+     * The room left in the heap of the JVM.
+     */
+    private static long freeHeap()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        return Math.max(0, runtime.maxMemory() - used);
+    }
+
+    /**
+     * The number of threads a phase should use, limited by the processors and
+     * by the budget for the per-thread buffers.
+     * @return the number of threads, at least 1
+     */
+    public int getParallelism()
+    {
+        int processors = Runtime.getRuntime().availableProcessors();
+        long byBudget = getMemoryBudget() / (BYTES_PER_THREAD * 4);
+        return (int) Math.max(1, Math.min(processors, byBudget));
+    }
+
+    /**
+     * Whether pass 2 can decode object arrays in parallel.
+     * @param biggestArrays the total length of the biggest object arrays found by pass 1,
+     * one per thread that can work at the same time
+     * @return true if there is room for all of them
+     */
+    public boolean isParallelPass2(long biggestArrays)
+    {
+        if (getParallelism() < 2)
+            return false;
+        // Just a guess from experimentation with a dumps with 100x[200000] and 2x[20000000] arrays
+        long needed = biggestArrays * PASS2_BYTES_PER_ARRAY_ELEMENT;
+        return getAvailableMemory(needed) > needed;
+    }
+
+    /**
+     * Whether the preliminary indexes built by pass 2 should be written to
+     * disk before garbage cleaning, freeing the memory for marking the
+     * reachable objects and building the final indexes.
+     * @param numberOfObjects the number of objects found by the parser
+     * @return true to write the indexes to disk
+     */
+    public boolean isSpillPreliminaryIndexes(int numberOfObjects)
+    {
+        long needed = (long) numberOfObjects * GARBAGE_CLEANER_BYTES_PER_OBJECT;
+        // the preliminary indexes are already part of the used memory, so spilling frees them
+        return getAvailableMemory(needed) < needed;
+    }
+
+    /**
+     * Check before the dominator tree is calculated that its arrays fit into the
+     * budget, so that the calculation fails early rather than after the depth
+     * first search. Call it before any of the arrays is allocated.
+     * <p>
+     * The arrays cannot be written to disk, so if they fit into the budget but
+     * the heap has less room free, a warning is logged and the calculation is
+     * still attempted: other memory of the application may be freed meanwhile.
+     * @param numberOfObjects the number of objects in the snapshot
+     * @param reclaimable the bytes held by soft referenced caches, such as
+     * the index pages, which are freed before an OutOfMemoryError
+     * @throws SnapshotException if the estimate exceeds the budget
+     */
+    public void checkDominatorTree(int numberOfObjects, long reclaimable) throws SnapshotException
+    {
+        long needed = (numberOfObjects + 2L) * DOMINATOR_TREE_BYTES_PER_OBJECT;
+        long budget = getMemoryBudget();
+        if (needed > budget)
+            throw new SnapshotException(MessageUtil.format(Messages.ParsePlanner_Error_InsufficientMemory,
+                            Messages.DominatorTree_DominatorTreeCalculation, needed, budget));
+        long free = getAvailableMemory(needed - reclaimable) + Math.max(0, reclaimable);
+        if (free < needed)
+            logger.log(Level.WARNING, MessageUtil.format(Messages.ParsePlanner_Warning_LowMemory,
+                            Messages.DominatorTree_DominatorTreeCalculation, needed, free));
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ParsePlanner budget=" + getMemoryBudget() + " parallelism=" + getParallelism(); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+}
@@ -0,0 +1,312 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.index;
+
+import java.io.ByteArrayOutputStream;
+
+import org.eclipse.mat.collect.ArrayIntCompressed;
+
+/**
+ * A page of an int index compressed with a patched frame of reference codec,
+ * suited to the mostly ascending object ids in the bodies of the outbound,
+ * inbound and dominated indexes.
+ * <p>
+ * The page is split into blocks of {@link #BLOCK_SIZE} values. Each block
+ * is stored either as zigzag encoded differences from the previous value
+ * or as offsets from the smallest value of the block, whichever is smaller.
+ * The encoded values are bit packed with a width chosen so that only a few
+ * of them do not fit, and the high bits of those exceptions are stored after
+ * the packed values.
+ * <pre>
+ * number of values (4)
+ * block 0 start in page (4)
+ * ...
+ * block n start in page (4)
+ * block 0: base (4), mode (1), bit width (1), exceptions (1), packed values,
+ *          then for each exception: position in block (1), high bits (4)
+ * ...
+ * block n
+ * </pre>
+ * Values stay individually addressable so that positions into the body
+ * remain valid, but reading a run of values with
+ * {@link #get(int, int[], int, int)} decodes each block once.
+ */
+class ArrayIntDeltaCompressed extends ArrayIntCompressed
+{
+    /** Number of values in a block, a power of 2 */
+    static final int BLOCK_SIZE = 128;
+    private static final int BLOCK_SHIFT = 7;
+    private static final int BLOCK_HEADER = 7;
+    private static final int EXCEPTION_SIZE = 5;
+    private static final int MODE_OFFSET = 0;
+    private static final int MODE_DELTA = 1;
+
+    private final byte[] data;
+    private final int size;
+
+    /**
+     * Create the page from bytes formerly got from {@link #toByteArray()}.
+     * @param bytes the compressed page
+     */
+    ArrayIntDeltaCompressed(byte[] bytes)
+    {
+        super(bytes);
+        this.data = bytes;
+        this.size = readInt(bytes, 0);
+    }
+
+    /**
+     * Compress part of an array.
+     * @param ints the values
+     * @param offset the first value to compress
+     * @param length the number of values
+     */
+    ArrayIntDeltaCompressed(int[] ints, int offset, int length)
+    {
+        this(compress(ints, offset, length));
+    }
+
+    /**
+     * The number of values in the page.
+     * @return the number of values
+     */
+    int size()
+    {
+        return size;
+    }
+
+    @Override
+    public int get(int index)
+    {
+        return decode(index >>> BLOCK_SHIFT, index & (BLOCK_SIZE - 1), 1, null, 0);
+    }
+
+    /**
+     * Decode a run of values into a buffer.
+     * @param index the first value to read
+     * @param buf the buffer to fill
+     * @param off where to put the first value in the buffer
+     * @param length the number of values to read
+     */
+    void get(int index, int[] buf, int off, int length)
+    {
+        int block = index >>> BLOCK_SHIFT;
+        int skip = index & (BLOCK_SIZE - 1);
+        while (length > 0)
+        {
+            int n = Math.min(length, BLOCK_SIZE - skip);
+            decode(block++, skip, n, buf, off);
+            off += n;
+            length -= n;
+            skip = 0;
+        }
+    }
+
+    /**
+     * The pages are read only.
+     */
+    @Override
+    public void set(int index, int value)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Decode part of one block.
+     * @param block the block number
+     * @param skip values of the block to decode but not store
+     * @param length values to store after the skipped ones
+     * @param buf where to store the values, or null to only return the last one
+     * @param off the position in the buffer
+     * @return the last value decoded
+     */
+    private int decode(int block, int skip, int length, int[] buf, int off)
+    {
+        int p = readInt(data, 4 + 4 * block);
+        int base = readInt(data, p);
+        boolean delta = data[p + 4] == MODE_DELTA;
+        int bits = data[p + 5];
+        int exceptions = data[p + 6] & 0xff;
+        int blockLength = Math.min(BLOCK_SIZE, size - (block << BLOCK_SHIFT));
+        int encoded = delta ? blockLength - 1 : blockLength;
+        int idx = p + BLOCK_HEADER;
+        int exc = idx + (int) (((long) encoded * bits + 7) >>> 3);
+        int nextException = exceptions > 0 ? data[exc] & 0xff : -1;
+        long mask = (1L << bits) - 1;
+        int end = skip + length;
+
+        int value = base;
+        int j = 0;
+        if (delta)
+        {
+            if (skip == 0 && buf != null)
+                buf[off++] = base;
+            j = 1;
+        }
+        long acc = 0;
+        int accBits = 0;
+        for (int e = 0; j < end; ++j, ++e)
+        {
+            while (accBits < bits)
+            {
+                acc = (acc << 8) | (data[idx++] & 0xff);
+                accBits += 8;
+            }
+            accBits -= bits;
+            int x = (int) ((acc >>> accBits) & mask);
+            if (e == nextException)
+            {
+                x |= readInt(data, exc + 1) << bits;
+                exc += EXCEPTION_SIZE;
+                nextException = --exceptions > 0 ? data[exc] & 0xff : -1;
+            }
+            if (delta)
+                value += (x >>> 1) ^ -(x & 1);
+            else
+                value = base + x;
+            if (j >= skip && buf != null)
+                buf[off++] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Compress the values into the bytes of a page.
+     */
+    static byte[] compress(int[] ints, int offset, int length)
+    {
+        int blocks = (length + BLOCK_SIZE - 1) >>> BLOCK_SHIFT;
+        int headerLength = 4 + 4 * blocks;
+        ByteArrayOutputStream body = new ByteArrayOutputStream(length + 16);
+        int[] starts = new int[blocks];
+        int[] deltas = new int[BLOCK_SIZE];
+        int[] offsets = new int[BLOCK_SIZE];
+        for (int b = 0; b < blocks; ++b)
+        {
+            starts[b] = headerLength + body.size();
+            int from = offset + (b << BLOCK_SHIFT);
+            int n = Math.min(BLOCK_SIZE, offset + length - from);
+
+            int min = ints[from];
+            for (int i = 1; i < n; ++i)
+            {
+                int d = ints[from + i] - ints[from + i - 1];
+                deltas[i - 1] = (d << 1) ^ (d >> 31);
+                min = Math.min(min, ints[from + i]);
+            }
+            for (int i = 0; i < n; ++i)
+                offsets[i] = ints[from + i] - min;
+
+            long deltaCost = cost(deltas, n - 1);
+            long offsetCost = cost(offsets, n);
+            if ((int) deltaCost <= (int) offsetCost)
+                writeBlock(body, ints[from], MODE_DELTA, deltas, n - 1, (int) (deltaCost >>> 32));
+            else
+                writeBlock(body, min, MODE_OFFSET, offsets, n, (int) (offsetCost >>> 32));
+        }
+
+        byte[] result = new byte[headerLength + body.size()];
+        writeInt(result, 0, length);
+        for (int b = 0; b < blocks; ++b)
+            writeInt(result, 4 + 4 * b, starts[b]);
+        byte[] bytes = body.toByteArray();
+        System.arraycopy(bytes, 0, result, headerLength, bytes.length);
+        return result;
+    }
+
+    /**
+     * Find the cheapest bit width for the encoded values of a block.
+     * @return the bit width in the high word, the size in bytes in the low word
+     */
+    private static long cost(int[] values, int n)
+    {
+        int[] lengths = new int[33];
+        for (int i = 0; i < n; ++i)
+            lengths[32 - Integer.numberOfLeadingZeros(values[i])]++;
+
+        int bestBits = 32;
+        long best = ((long) n * 32 + 7) >>> 3;
+        int exceptions = 0;
+        for (int bits = 31; bits >= 0; --bits)
+        {
+            exceptions += lengths[bits + 1];
+            if (exceptions >= BLOCK_SIZE)
+                break;
+            long size = (((long) n * bits + 7) >>> 3) + (long) exceptions * EXCEPTION_SIZE;
+            if (size <= best)
+            {
+                best = size;
+                bestBits = bits;
+            }
+        }
+        return ((long) bestBits << 32) | (BLOCK_HEADER + best);
+    }
+
+    private static void writeBlock(ByteArrayOutputStream out, int base, int mode, int[] values, int n, int bits)
+    {
+        int exceptions = 0;
+        if (bits < 32)
+        {
+            for (int i = 0; i < n; ++i)
+                if ((values[i] >>> bits) != 0)
+                    exceptions++;
+        }
+        int packed = (int) (((long) n * bits + 7) >>> 3);
+        byte[] block = new byte[BLOCK_HEADER + packed + exceptions * EXCEPTION_SIZE];
+        writeInt(block, 0, base);
+        block[4] = (byte) mode;
+        block[5] = (byte) bits;
+        block[6] = (byte) exceptions;
+
+        int idx = BLOCK_HEADER;
+        long acc = 0;
+        int accBits = 0;
+        long mask = (1L << bits) - 1;
+        for (int i = 0; i < n; ++i)
+        {
+            acc = (acc << bits) | (values[i] & mask);
+            accBits += bits;
+            while (accBits >= 8)
+            {
+                accBits -= 8;
+                block[idx++] = (byte) (acc >>> accBits);
+            }
+        }
+        if (accBits > 0)
+            block[idx++] = (byte) (acc << (8 - accBits));
+
+        for (int i = 0; exceptions > 0 && i < n; ++i)
+        {
+            if ((values[i] >>> bits) != 0)
+            {
+                block[idx] = (byte) i;
+                writeInt(block, idx + 1, values[i] >>> bits);
+                idx += EXCEPTION_SIZE;
+            }
+        }
+        out.write(block, 0, block.length);
+    }
+
+    private static int readInt(byte[] b, int p)
+    {
+        return (b[p] << 24) | ((b[p + 1] & 0xff) << 16) | ((b[p + 2] & 0xff) << 8) | (b[p + 3] & 0xff);
+    }
+
+    private static void writeInt(byte[] b, int p, int v)
+    {
+        b[p] = (byte) (v >>> 24);
+        b[p + 1] = (byte) (v >>> 16);
+        b[p + 2] = (byte) (v >>> 8);
+        b[p + 3] = (byte) v;
+    }
+}
@@ -9,11 +9,13 @@
  *
  * Contributors:
  *    SAP AG - initial API and implementation
+ *    Standalone adaptation - reading into a caller supplied buffer, cached size, ranges
  *******************************************************************************/
 package org.eclipse.mat.parser.index;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.Arrays;
 
 import org.eclipse.mat.SnapshotException;
 
@@ -109,6 +111,56 @@ public interface IIndexReader
          * @return an array holding the object IDs
          */
         int[] get(int index);
+
+        /**
+         * Get the object IDs corresponding to the input object ID into a
+         * buffer supplied by the caller, so that traversals visiting many
+         * objects need not allocate an array for each one.
+         * If the object IDs do not fit into the buffer after the offset then
+         * nothing is stored, and the caller can retry with a bigger buffer.
+         * @param index the input object ID
+         * @param buf the buffer to fill
+         * @param off the position in the buffer for the first object ID
+         * @return the number of object IDs
+         * @since 1.17
+         */
+        default int get(int index, int[] buf, int off)
+        {
+            int[] ids = get(index);
+            if (ids.length <= buf.length - off)
+                System.arraycopy(ids, 0, buf, off, ids.length);
+            return ids.length;
+        }
+
+        /**
+         * Get the number of object IDs corresponding to the input object ID
+         * without reading them.
+         * @param index the input object ID
+         * @return the number of object IDs
+         * @since 1.17
+         */
+        default int getLength(int index)
+        {
+            return get(index).length;
+        }
+
+        /**
+         * Get part of the object IDs corresponding to the input object ID,
+         * so that a caller showing a long list page by page only reads the
+         * page it needs.
+         * @param index the input object ID
+         * @param offset the position of the first object ID to return
+         * @param limit the most object IDs to return
+         * @return an array holding the object IDs, empty if the offset is past the end
+         * @since 1.17
+         */
+        default int[] getRange(int index, int offset, int limit)
+        {
+            int[] ids = get(index);
+            int from = Math.min(Math.max(offset, 0), ids.length);
+            int count = Math.max(0, Math.min(limit, ids.length - from));
+            return Arrays.copyOfRange(ids, from, from + count);
+        }
     }
 
     /**
@@ -140,6 +192,18 @@ public interface IIndexReader
      */
     void unload() throws IOException;
 
+    /**
+     * An estimate of the memory held by the page caches of the index which
+     * {@link #unload()} would free, the pages being read again from the index
+     * file when next needed.
+     * @return the number of bytes, 0 if the index has no such cache or cannot be reloaded
+     * @since 1.17
+     */
+    default long getCachedSize()
+    {
+        return 0;
+    }
+
     /**
      * Close the backing file.
      * @throws IOException
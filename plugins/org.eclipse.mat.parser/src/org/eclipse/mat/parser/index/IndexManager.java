@@ -9,6 +9,7 @@
  *
  * Contributors:
  *    SAP AG - initial API and implementation
+ *    Standalone adaptation - object flags index, unloading the page caches
  *******************************************************************************/
 package org.eclipse.mat.parser.index;
 
@@ -52,7 +53,12 @@ public class IndexManager
          * Retained size cache for a class loader: loader+all classes+all instances. 
          * @since 1.2
          */
-        I2RETAINED("i2sv2", RetainedSizeCache.class); //$NON-NLS-1$
+        I2RETAINED("i2sv2", RetainedSizeCache.class), //$NON-NLS-1$
+        /**
+         * Object to flags: object id to a byte classifying the object as array, class, GC root etc.
+         * @since 1.17
+         */
+        O2FLAGS("o2f", ObjectFlagsIndex.class); //$NON-NLS-1$
         /*
          * Other indexes:
          * i2s
@@ -126,6 +132,11 @@ public class IndexManager
      * @noreference This field is not intended to be referenced by clients.
      */
     public RetainedSizeCache i2sv2;
+    /**
+     * The index from object ID to its flags, missing for snapshots parsed by older versions
+     * @since 1.17
+     */
+    public ObjectFlagsIndex o2f;
 
     /**
      * Add index reader corresponding to the index to the index manager
@@ -309,6 +320,55 @@ public class IndexManager
         return domIn;
     }
 
+    /**
+     * The index reader for each object to its flags, such as {@link ObjectFlagsIndex#CLASS}
+     * @return the index reader, or null if the snapshot was parsed without the flags index
+     * @since 1.17
+     */
+    public ObjectFlagsIndex o2flags()
+    {
+        return o2f;
+    }
+
+    /**
+     * An estimate of the memory held by the page caches of all the index readers.
+     * @return the number of bytes
+     * @since 1.17
+     */
+    public long getCachedSize()
+    {
+        long size = 0;
+        for (Index index : Index.values())
+        {
+            IIndexReader reader = getReader(index);
+            if (reader != null)
+                size += reader.getCachedSize();
+        }
+        return size;
+    }
+
+    /**
+     * Free the page caches of the index readers, leaving the files open so
+     * that the pages are read again when next needed. Readers holding the only
+     * copy of their data, such as those built in memory while parsing, are left alone.
+     * @throws IOException if there is a problem unloading a reader
+     * @since 1.17
+     */
+    public void unload() throws IOException
+    {
+        new Visitor()
+        {
+
+            @Override
+            void visit(Index index, IIndexReader reader) throws IOException
+            {
+                if (reader != null && reader.getCachedSize() > 0)
+                    reader.unload();
+            }
+
+        }.doIt();
+    }
+
     /**
      * Closes all the index reader files
      * @throws IOException if there is a problem closing the files
@@ -11,6 +11,8 @@
  *    SAP AG - initial API and implementation
  *    Andrew Johnson - enhancements for huge dumps
  *    Jason Koch (Netflix, Inc) - enhancements IO on slower devices
+ *    Standalone adaptation - delta compressed pages for 1 to N indexes, reading into a buffer, cached size,
+ *                            ranges of 1 to N entries
  *******************************************************************************/
 package org.eclipse.mat.parser.index;
 
@@ -31,6 +33,7 @@ import org.eclipse.mat.collect.HashMapIntObject;
 import org.eclipse.mat.parser.index.IndexWriter.ArrayIntLongCompressed;
 import org.eclipse.mat.parser.internal.Messages;
 import org.eclipse.mat.parser.io.SimpleBufferedRandomAccessInputStream;
+import org.eclipse.mat.util.MessageUtil;
 
 /**
  * Implementations to read index files.
@@ -42,6 +45,8 @@ public abstract class IndexReader
      */
     public static final boolean DEBUG = false;
     private static final Logger logger = Logger.getLogger(IndexReader.class.getName());
+    /** Estimated bytes of a cached page besides its data: the page, its soft reference and the map entry */
+    private static final int PAGE_OVERHEAD = 128;
 
     /**
      * An int to int index reader.
@@ -70,6 +75,12 @@ public abstract class IndexReader
      * This is experimental and index files with 2^31 entries or more
      * are not compatible with 1.1 or earlier and might not be compatible
      * with 1.3 or later.
+     * 
+     * Since 1.17 the top 8 bits of the page size field give the page format.
+     * 0 is the original ArrayIntCompressed page and 1 is a page compressed
+     * with differences and bit packing, used for the bodies of the outbound,
+     * inbound and dominated indexes. Files without the format bits are read
+     * as before.
      */
     public static class IntIndexReader extends IndexWriter.IntIndex<SoftReference<ArrayIntCompressed>> implements
                     IIndexReader.IOne2OneIndex
@@ -85,9 +96,18 @@ public abstract class IndexReader
          */
         public SimpleBufferedRandomAccessInputStream in;
         long[] pageStart;
+        /** How the pages are compressed */
+        int pageFormat = IndexWriter.PAGE_FORMAT_COMPRESSED;
         /** Thread-safe page cache */
         final ConcurrentHashMap<Integer,SoftReference<ArrayIntCompressed>> pages2 = new ConcurrentHashMap<Integer,SoftReference<ArrayIntCompressed>>();
 
+        IntIndexReader(File indexFile, IndexWriter.Pages<SoftReference<ArrayIntCompressed>> pages, long size,
+                        int pageSize, long[] pageStart, int pageFormat)
+        {
+            this(indexFile, pages, size, pageSize, pageStart);
+            this.pageFormat = pageFormat;
+        }
+
         IntIndexReader(File indexFile, IndexWriter.Pages<SoftReference<ArrayIntCompressed>> pages, long size,
                         int pageSize, long[] pageStart)
         {
@@ -129,6 +149,11 @@ public abstract class IndexReader
             int pageSize = this.in.readInt();
             int size = this.in.readInt();
 
+            pageFormat = pageSize >>> IndexWriter.PAGE_FORMAT_SHIFT;
+            if (pageFormat > IndexWriter.PAGE_FORMAT_DELTA)
+                throw new IOException(MessageUtil.format(Messages.IndexReader_Error_UnknownPageFormat, pageFormat));
+            pageSize &= (1 << IndexWriter.PAGE_FORMAT_SHIFT) - 1;
+
             int pages;
             if (size >= 0)
             {
@@ -175,6 +200,22 @@ public abstract class IndexReader
             super.unload();
         }
 
+        @Override
+        public long getCachedSize()
+        {
+            // pages of an index without a file cannot be read again
+            if (in == null && indexFile == null)
+                return 0;
+            long size = 0;
+            for (SoftReference<ArrayIntCompressed> ref : pages2.values())
+            {
+                ArrayIntCompressed array = ref.get();
+                if (array != null)
+                    size += array.toByteArray().length + PAGE_OVERHEAD;
+            }
+            return size;
+        }
+
         public synchronized void close()
         {
             unload();
@@ -234,7 +275,10 @@ public abstract class IndexReader
                     return array;
                 }
 
-                array = new ArrayIntCompressed(buffer);
+                if (pageFormat == IndexWriter.PAGE_FORMAT_DELTA)
+                    array = new ArrayIntDeltaCompressed(buffer);
+                else
+                    array = new ArrayIntCompressed(buffer);
 
                 // no need for putIfAbsent because we only do this inside sync block
                 pages2.put(page, new SoftReference<>(array));
@@ -416,6 +460,15 @@ public abstract class IndexReader
         {
             idx.unload();
         }
+
+        /**
+         * Delegate to the int index.
+         */
+        @Override
+        public long getCachedSize()
+        {
+            return idx.getCachedSize();
+        }
     }
 
     /* package */static class IntIndex1NReader implements IIndexReader.IOne2ManyIndex
@@ -470,6 +523,33 @@ public abstract class IndexReader
             return body.getNext(p + 1, length);
         }
 
+        public int get(int index, int[] buf, int off)
+        {
+            long p = header.getPos(index);
+
+            int length = body.get(p);
+
+            if (length <= buf.length - off)
+                body.getNext(p + 1, length, buf, off);
+            return length;
+        }
+
+        public int getLength(int index)
+        {
+            return body.get(header.getPos(index));
+        }
+
+        public int[] getRange(int index, int offset, int limit)
+        {
+            long p = header.getPos(index);
+
+            int length = body.get(p);
+            int from = Math.min(Math.max(offset, 0), length);
+            int count = Math.max(0, Math.min(limit, length - from));
+
+            return body.getNext(p + 1 + from, count);
+        }
+
         protected synchronized void open()
         {
             try
@@ -526,6 +606,12 @@ public abstract class IndexReader
             body.unload();
         }
 
+        @Override
+        public long getCachedSize()
+        {
+            return header.getCachedSize() + body.getCachedSize();
+        }
+
         public int size()
         {
             return header.size();
@@ -578,15 +664,57 @@ public abstract class IndexReader
          */
         public int[] get(int index)
         {
-            long p0;
+            long p0 = header.getPos(index);
+            if (p0 == 0)
+                return new int[0];
+
+            return body.getNext(p0 - 1, length(index, p0));
+        }
+
+        public int get(int index, int[] buf, int off)
+        {
+            long p0 = header.getPos(index);
+            if (p0 == 0)
+                return 0;
+
+            int length = length(index, p0);
+            if (length <= buf.length - off)
+                body.getNext(p0 - 1, length, buf, off);
+            return length;
+        }
+
+        @Override
+        public int getLength(int index)
+        {
+            long p0 = header.getPos(index);
+            return p0 == 0 ? 0 : length(index, p0);
+        }
+
+        @Override
+        public int[] getRange(int index, int offset, int limit)
+        {
+            long p0 = header.getPos(index);
+            if (p0 == 0)
+                return new int[0];
+
+            int length = length(index, p0);
+            int from = Math.min(Math.max(offset, 0), length);
+            int count = Math.max(0, Math.min(limit, length - from));
+
+            return body.getNext(p0 - 1 + from, count);
+        }
+
+        /**
+         * The length of an entry is up to the next non-empty entry,
+         * or to the end of the body.
+         */
+        private int length(int index, long p0)
+        {
             long p1;
 
             if (index + 1 < header.size())
             {
-                p0 = header.getPos(index++);
-                p1 = header.getPos(index);
-                if (p0 == 0)
-                    return new int[0];
+                p1 = header.getPos(++index);
 
                 for (index++; p1 < p0 && index < header.size(); index++)
                     p1 = header.getPos(index);
@@ -596,13 +724,10 @@ public abstract class IndexReader
             }
             else
             {
-                p0 = header.getPos(index);
-                if (p0 == 0)
-                    return new int[0];
                 p1 = body.size + 1;
             }
 
-            return body.getNext(p0 - 1, (int)(p1 - p0));
+            return (int)(p1 - p0);
         }
 
     }
@@ -832,6 +957,21 @@ public abstract class IndexReader
             super.unload();
         }
 
+        @Override
+        public long getCachedSize()
+        {
+            if (in == null && indexFile == null)
+                return 0;
+            long size = 0;
+            for (SoftReference<ArrayLongCompressed> ref : pages2.values())
+            {
+                ArrayLongCompressed array = ref.get();
+                if (array != null)
+                    size += array.toByteArray().length + PAGE_OVERHEAD;
+            }
+            return size;
+        }
+
         @Override
         protected ArrayLongCompressed getPage(int page)
         {
@@ -981,6 +1121,12 @@ public abstract class IndexReader
             body.unload();
         }
 
+        @Override
+        public long getCachedSize()
+        {
+            return header.getCachedSize() + body.getCachedSize();
+        }
+
         public int size()
         {
             return header.size();
@@ -11,6 +11,8 @@
  *    SAP AG - initial API and implementation
  *    Andrew Johnson - enhancements for huge dumps
  *    Netflix (Jason Koch) - refactors for increased performance and concurrency
+ *    Standalone adaptation - delta compressed pages for 1 to N indexes, reusable buffers,
+ *                            pages computed in parallel
  *******************************************************************************/
 package org.eclipse.mat.parser.index;
 
@@ -22,6 +24,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.lang.ref.SoftReference;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -83,6 +86,12 @@ public abstract class IndexWriter
     private static final long MAX_OLD_HEADER_VALUE = 0xffffffffL >>> TESTSCALE;
     /** Switch point for inbound key to using longs */
     private static final long INBOUND_MAX_KEY1 = Integer.MAX_VALUE >>> TESTSCALE;
+    /** Pages of an int index compressed with {@link ArrayIntCompressed} */
+    static final int PAGE_FORMAT_COMPRESSED = 0;
+    /** Pages of an int index compressed with {@link ArrayIntDeltaCompressed} */
+    static final int PAGE_FORMAT_DELTA = 1;
+    /** The page format is stored in the top bits of the page size field */
+    static final int PAGE_FORMAT_SHIFT = 24;
 
     private static final Logger logger = Logger.getLogger(RetainedSizeCache.class.getName());
 
@@ -99,6 +108,42 @@ public abstract class IndexWriter
         public void storeKey(int index, Serializable key);
     }
 
+    /**
+     * Computes the entries of an int index page by page, see
+     * {@link IntIndexStreamer#writeTo(File, int, IntRangeSource, ExecutorService, int)}.
+     * Called from several threads at once for different pages.
+     * @since 1.17
+     */
+    public interface IntRangeSource
+    {
+        /**
+         * Compute a range of entries.
+         * @param start the index of the first entry
+         * @param values where to store the entries, from position 0
+         * @param length the number of entries
+         * @throws IOException if the entries could not be read
+         */
+        public void fill(int start, int[] values, int length) throws IOException;
+    }
+
+    /**
+     * Computes the entries of a long index page by page, see
+     * {@link LongIndexStreamer#writeTo(File, int, LongRangeSource, ExecutorService, int)}.
+     * Called from several threads at once for different pages.
+     * @since 1.17
+     */
+    public interface LongRangeSource
+    {
+        /**
+         * Compute a range of entries.
+         * @param start the index of the first entry
+         * @param values where to store the entries, from position 0
+         * @param length the number of entries
+         * @throws IOException if the entries could not be read
+         */
+        public void fill(int start, long[] values, int length) throws IOException;
+    }
+
     // //////////////////////////////////////////////////////////////
     // integer based indices
     // //////////////////////////////////////////////////////////////
@@ -542,23 +587,38 @@ public abstract class IndexWriter
         private int[] getNext0(long index, int length)
             {
             int answer[] = new int[length];
-            if (length == 0)
-                return answer;
-            int page = page(index);
-            int pageIndex = offset(index);
+            getNext(index, length, answer, 0);
+            return answer;
+        }
 
-            ArrayIntCompressed array = getPage(page);
-            for (int ii = 0; ii < length; ii++)
+        /**
+         * Read consecutive entries into a buffer, decoding delta compressed
+         * pages a block at a time.
+         * @param index the first entry
+         * @param length the number of entries
+         * @param buf the buffer to fill
+         * @param off the position in the buffer of the first entry
+         */
+        void getNext(long index, int length, int[] buf, int off)
+        {
+            while (length > 0)
             {
-                answer[ii] = array.get(pageIndex++);
-                if (pageIndex >= pageSize && ii + 1 < length)
+                int pageIndex = offset(index);
+                int n = Math.min(length, pageSize - pageIndex);
+                ArrayIntCompressed array = getPage(page(index));
+                if (array instanceof ArrayIntDeltaCompressed)
                 {
-                    array = getPage(++page);
-                    pageIndex = 0;
+                    ((ArrayIntDeltaCompressed) array).get(pageIndex, buf, off, n);
+                }
+                else
+                {
+                    for (int ii = 0; ii < n; ii++)
+                        buf[off + ii] = array.get(pageIndex + ii);
                 }
+                index += n;
+                off += n;
+                length -= n;
             }
-
-            return answer;
         }
 
         public int[] getAll(int index[])
@@ -782,6 +842,26 @@ public abstract class IndexWriter
         final ExecutorService compressor = singleThreadedExecutor("IntIndexStreamer-Compressor"); //$NON-NLS-1$
         final ExecutorService writer = singleThreadedExecutor("IntIndexStreamer-Writer"); //$NON-NLS-1$
 
+        // how the pages are compressed
+        final int pageFormat;
+
+        /**
+         * Create a streamer writing pages compressed with {@link ArrayIntCompressed}.
+         */
+        public IntIndexStreamer()
+        {
+            this(PAGE_FORMAT_COMPRESSED);
+        }
+
+        /**
+         * Create a streamer writing pages in the given format.
+         * @param pageFormat {@link #PAGE_FORMAT_COMPRESSED} or {@link #PAGE_FORMAT_DELTA}
+         */
+        IntIndexStreamer(int pageFormat)
+        {
+            this.pageFormat = pageFormat;
+        }
+
         public IIndexReader.IOne2OneIndex writeTo(File indexFile, IteratorInt iterator) throws IOException
         {
             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
@@ -795,6 +875,68 @@ public abstract class IndexWriter
             return getReader(indexFile);
         }
 
+        /**
+         * Write an index of a known size to a file, computing and compressing
+         * the pages on an executor. The pages are written in order as they
+         * are ready, with at most twice the parallelism of pages in memory.
+         * @param indexFile the file
+         * @param size the number of entries
+         * @param source computes the entries of a page, called concurrently
+         * @param es runs the page tasks
+         * @param parallelism the number of pages to compute at the same time
+         * @return the index reader
+         * @throws IOException if a problem occurs with the source or the write
+         * @since 1.17
+         */
+        public IIndexReader.IOne2OneIndex writeTo(File indexFile, final int size, final IntRangeSource source,
+                        ExecutorService es, int parallelism) throws IOException
+        {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+            try
+            {
+                openStream(out, 0);
+                int noOfPages = (int) (((long) size + pageSize - 1) / pageSize);
+                ArrayDeque<Future<ArrayIntCompressed>> inFlight = new ArrayDeque<Future<ArrayIntCompressed>>();
+                try
+                {
+                    for (int ii = 0, submitted = 0; ii < noOfPages; ii++)
+                    {
+                        for (; submitted < noOfPages && submitted - ii < 2 * parallelism; submitted++)
+                        {
+                            final int start = submitted * pageSize;
+                            final int length = Math.min(pageSize, size - start);
+                            inFlight.add(es.submit(() -> {
+                                int[] values = new int[length];
+                                source.fill(start, values, length);
+                                return pageFormat == PAGE_FORMAT_DELTA
+                                                ? new ArrayIntDeltaCompressed(values, 0, length)
+                                                : new ArrayIntCompressed(values, 0, length);
+                            }));
+                        }
+                        ArrayIntCompressed array = getResult(inFlight.removeFirst());
+                        byte[] buffer = array.toByteArray();
+                        out.write(buffer);
+                        pageStart.add(pageStart.lastElement() + buffer.length);
+                        pages.put(ii, new SoftReference<ArrayIntCompressed>(array));
+                    }
+                }
+                finally
+                {
+                    for (Future<ArrayIntCompressed> f : inFlight)
+                        f.cancel(true);
+                }
+                pagesAdded = noOfPages;
+                this.size = size;
+                closeStream();
+            }
+            finally
+            {
+                out.close();
+            }
+
+            return getReader(indexFile);
+        }
+
         /**
          * Write an array to a file and return an index reader.
          * @param indexFile the file
@@ -907,7 +1049,7 @@ public abstract class IndexWriter
             for (int jj = 0; jj < pageStart.size(); jj++)
                 out.writeLong(pageStart.get(jj));
 
-            out.writeInt(pageSize);
+            out.writeInt(pageSize | pageFormat << PAGE_FORMAT_SHIFT);
             // Encoded size is the negative number of entries in the last page
             int s = size <= FORMAT1_MAX_SIZE ? (int)size : -(int)((size + pageSize - 1) % pageSize + 1);
             out.writeInt(s);
@@ -921,7 +1063,7 @@ public abstract class IndexWriter
 
         IndexReader.IntIndexReader getReader(File indexFile)
         {
-            return new IndexReader.IntIndexReader(indexFile, pages, size, pageSize, pageStart.toArray());
+            return new IndexReader.IntIndexReader(indexFile, pages, size, pageSize, pageStart.toArray(), pageFormat);
         }
 
         void addAll(IteratorInt iterator) throws IOException
@@ -1005,7 +1147,9 @@ public abstract class IndexWriter
 
             public byte[] call()
             {
-                ArrayIntCompressed array = new ArrayIntCompressed(page, 0, page.length - left);
+                ArrayIntCompressed array = pageFormat == PAGE_FORMAT_DELTA
+                                ? new ArrayIntDeltaCompressed(page, 0, page.length - left)
+                                : new ArrayIntCompressed(page, 0, page.length - left);
                 pages.put(pageNumber, new SoftReference<ArrayIntCompressed>(array));
                 return array.toByteArray();
             }
@@ -1079,13 +1223,28 @@ public abstract class IndexWriter
          * @throws IOException if there is a problem writing the file
          */
         public IntArray1NWriter(int size, File indexFile) throws IOException
+        {
+            this(size, indexFile, false);
+        }
+
+        /**
+         * Construct a writer of the required size, choosing how the body is compressed.
+         * Delta compression suits lists of mostly ascending or clustered ids.
+         * @param size the number of entries
+         * @param indexFile the file to be written to
+         * @param deltaCompressed true to write the body with delta compressed pages,
+         * which cannot be read by versions before 1.17
+         * @throws IOException if there is a problem writing the file
+         * @since 1.17
+         */
+        public IntArray1NWriter(int size, File indexFile, boolean deltaCompressed) throws IOException
         {
             this.header = new int[size];
             this.header2 = new byte[size];
             this.indexFile = indexFile;
 
             this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
-            this.body = new IntIndexStreamer();
+            this.body = new IntIndexStreamer(deltaCompressed ? PAGE_FORMAT_DELTA : PAGE_FORMAT_COMPRESSED);
             this.body.openStream(this.out, 0);
         }
 
@@ -1343,7 +1502,36 @@ public abstract class IndexWriter
          */
         public IntArray1NSortedWriter(int size, File indexFile) throws IOException
         {
-            super(size, indexFile);
+            super(size, indexFile, true);
+        }
+
+        /**
+         * Record the first values of a buffer.
+         * The values are copied before returning, so the buffer can be reused.
+         * @param index the index of the entry
+         * @param values the buffer holding the values
+         * @param length the number of values
+         * @throws IOException if there is a problem writing the data
+         * @since 1.17
+         */
+        public void log(int index, int[] values, int length) throws IOException
+        {
+            this.set(index, values, 0, length);
+        }
+
+        /**
+         * Record a range of a buffer.
+         * The values are copied before returning, so the buffer can be reused.
+         * @param index the index of the entry
+         * @param values the buffer holding the values
+         * @param offset the position of the first value
+         * @param length the number of values
+         * @throws IOException if there is a problem writing the data
+         * @since 1.17
+         */
+        public void log(int index, int[] values, int offset, int length) throws IOException
+        {
+            this.set(index, values, offset, length);
         }
 
         protected void set(int index, int[] values, int offset, int length) throws IOException
@@ -1462,7 +1650,7 @@ public abstract class IndexWriter
             DataOutputStream index = new DataOutputStream(new BufferedOutputStream(
                             new FileOutputStream(this.indexFile), 1024 * 256));
 
-            IntIndexStreamer body = new IntIndexStreamer();
+            IntIndexStreamer body = new IntIndexStreamer(PAGE_FORMAT_DELTA);
             body.openStream(index, 0);
             boolean bodyopen = true;
             try
@@ -2323,6 +2511,66 @@ public abstract class IndexWriter
             return getReader(indexFile);
         }
 
+        /**
+         * Write an index of a known size to a file, computing and compressing
+         * the pages on an executor. The pages are written in order as they
+         * are ready, with at most twice the parallelism of pages in memory.
+         * @param indexFile the file
+         * @param size the number of entries
+         * @param source computes the entries of a page, called concurrently
+         * @param es runs the page tasks
+         * @param parallelism the number of pages to compute at the same time
+         * @return the index reader
+         * @throws IOException if a problem occurs with the source or the write
+         * @since 1.17
+         */
+        public IOne2LongIndex writeTo(File indexFile, final int size, final LongRangeSource source,
+                        ExecutorService es, int parallelism) throws IOException
+        {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+            try
+            {
+                openStream(out, 0);
+                int noOfPages = (int) (((long) size + pageSize - 1) / pageSize);
+                ArrayDeque<Future<ArrayLongCompressed>> inFlight = new ArrayDeque<Future<ArrayLongCompressed>>();
+                try
+                {
+                    for (int ii = 0, submitted = 0; ii < noOfPages; ii++)
+                    {
+                        for (; submitted < noOfPages && submitted - ii < 2 * parallelism; submitted++)
+                        {
+                            final int start = submitted * pageSize;
+                            final int length = Math.min(pageSize, size - start);
+                            inFlight.add(es.submit(() -> {
+                                long[] values = new long[length];
+                                source.fill(start, values, length);
+                                return new ArrayLongCompressed(values, 0, length);
+                            }));
+                        }
+                        ArrayLongCompressed array = getResult(inFlight.removeFirst());
+                        byte[] buffer = array.toByteArray();
+                        out.write(buffer);
+                        pageStart.add(pageStart.lastElement() + buffer.length);
+                        pages.put(ii, new SoftReference<ArrayLongCompressed>(array));
+                    }
+                }
+                finally
+                {
+                    for (Future<ArrayLongCompressed> f : inFlight)
+                        f.cancel(true);
+                }
+                pagesAdded = noOfPages;
+                this.size = size;
+                closeStream();
+            }
+            finally
+            {
+                out.close();
+            }
+
+            return getReader(indexFile);
+        }
+
         /**
          * Output a whole long array
          * @param indexFile the output file
@@ -2814,6 +3062,32 @@ public abstract class IndexWriter
         return lead == 0x0 ? mostSignificantBit((int) x) : 32 + mostSignificantBit((int) lead);
     }
 
+    /**
+     * Wait for a page task, passing on its exception.
+     */
+    private static <T> T getResult(Future<T> future) throws IOException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            throw new IOException(e);
+        }
+        catch (ExecutionException e)
+        {
+            Throwable t = e.getCause();
+            if (t instanceof IOException)
+                throw (IOException) t;
+            if (t instanceof RuntimeException)
+                throw (RuntimeException) t;
+            if (t instanceof Error)
+                throw (Error) t;
+            throw new IOException(t);
+        }
+    }
+
     static ExecutorService singleThreadedExecutor(String name)
     {
         final int poolSize = 1;
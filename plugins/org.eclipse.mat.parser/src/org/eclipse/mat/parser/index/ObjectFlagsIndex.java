@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.eclipse.mat.parser.internal.Messages;
+import org.eclipse.mat.util.MessageUtil;
+
+/**
+ * Index from object id to a byte of flags classifying the object, so that
+ * hot loops can test what kind of object an id refers to with one memory
+ * access instead of looking up the classes, the GC roots or the class loaders.
+ * <p>
+ * The file holds a small header followed by one byte per object, and is
+ * memory mapped when read.
+ * @since 1.17
+ */
+public class ObjectFlagsIndex implements IIndexReader
+{
+    /** The object is an object or primitive array */
+    public static final int ARRAY = 0x01;
+    /** The object is a primitive array */
+    public static final int PRIMITIVE_ARRAY = 0x02;
+    /** The object is a class */
+    public static final int CLASS = 0x04;
+    /** The object is a class loader */
+    public static final int CLASS_LOADER = 0x08;
+    /** The object is a GC root */
+    public static final int GC_ROOT = 0x10;
+    /** The object is a finalizable or unfinalized GC root */
+    public static final int FINALIZABLE = 0x20;
+    /** The object is an instance of a subclass of java.lang.ref.Reference */
+    public static final int REFERENCE = 0x40;
+
+    private static final int MAGIC = 0x4d415446; // MATF
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+
+    private final File indexFile;
+    private final int size;
+    private ByteBuffer flags;
+
+    /**
+     * Memory map an existing flags index.
+     * @param indexFile the index file
+     * @throws IOException if the file cannot be read or is not a flags index
+     */
+    public ObjectFlagsIndex(File indexFile) throws IOException
+    {
+        this.indexFile = indexFile;
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile, "r"); //$NON-NLS-1$
+             FileChannel channel = raf.getChannel())
+        {
+            if (raf.length() < HEADER_SIZE || raf.readInt() != MAGIC || raf.readInt() != VERSION)
+                throw new IOException(MessageUtil.format(Messages.ObjectFlagsIndex_Error_WrongFormat, indexFile));
+            this.size = raf.readInt();
+            if (raf.length() != HEADER_SIZE + (long) size)
+                throw new IOException(MessageUtil.format(Messages.ObjectFlagsIndex_Error_WrongFormat, indexFile));
+            // the mapping stays valid after the channel is closed
+            this.flags = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, size);
+        }
+    }
+
+    /**
+     * Write the flags to a file and map it.
+     * @param indexFile the file to write
+     * @param flags one byte of flags per object
+     * @return the index reader for the new file
+     * @throws IOException if the file cannot be written
+     */
+    public static ObjectFlagsIndex write(File indexFile, byte[] flags) throws IOException
+    {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile))))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(flags.length);
+            out.write(flags);
+        }
+        return new ObjectFlagsIndex(indexFile);
+    }
+
+    /**
+     * All the flags of an object.
+     * @param objectId the object
+     * @return the flags, a combination of {@link #ARRAY}, {@link #CLASS} etc.
+     */
+    public int get(int objectId)
+    {
+        return flags.get(objectId);
+    }
+
+    /**
+     * Test whether an object has any of the given flags.
+     * @param objectId the object
+     * @param flag one or more flags, such as {@link #CLASS}
+     * @return true if any of the flags is set for the object
+     */
+    public boolean is(int objectId, int flag)
+    {
+        return (flags.get(objectId) & flag) != 0;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public void unload()
+    {
+        // the operating system manages the mapped pages
+    }
+
+    public void close()
+    {
+        // the mapping is released once the reader is garbage collected
+    }
+
+    public void delete()
+    {
+        // drop the mapping so the file can be deleted on all platforms as soon as possible
+        flags = ByteBuffer.allocate(0);
+        indexFile.delete();
+    }
+}
@@ -10,6 +10,8 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    IBM Corporation - allow larger resize of arrays 
+ *    Standalone adaptation - memory budget, delta compressed dominated index, fewer allocations,
+ *                            table of the biggest retained sizes
  *******************************************************************************/
 package org.eclipse.mat.parser.internal;
 
@@ -21,11 +23,13 @@ import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayUtils;
 import org.eclipse.mat.collect.BitField;
 import org.eclipse.mat.collect.IteratorInt;
+import org.eclipse.mat.parser.ParsePlanner;
 import org.eclipse.mat.parser.index.IIndexReader;
 import org.eclipse.mat.parser.index.IndexManager;
 import org.eclipse.mat.parser.index.IndexWriter;
 import org.eclipse.mat.parser.index.IndexManager.Index;
 import org.eclipse.mat.parser.internal.util.IntStack;
+import org.eclipse.mat.snapshot.TopRetainedTable;
 import org.eclipse.mat.util.IProgressListener;
 import org.eclipse.mat.util.SimpleMonitor;
 
@@ -58,7 +62,9 @@ public class DominatorTree
         private int[] semi;
 
         private static int ROOT_VALUE = -1;
-        private static int[] ROOT_VALUE_ARR = new int[] { ROOT_VALUE };
+
+        /** Reused buffer for the predecessors of a vertex */
+        private int[] predecessors = new int[64];
 
         public Calculator(SnapshotImpl snapshot, IProgressListener listener) throws SnapshotException
         {
@@ -87,6 +93,15 @@ public class DominatorTree
                 throw new SnapshotException(e);
             }
 
+            /*
+             * Check the estimate for all the arrays up front to fail early,
+             * before any of them is allocated. dom and bucket are allocated
+             * after dfs() so that it can use the space for outbound index
+             * caching, which is soft referenced and so counts as available.
+             */
+            ParsePlanner.of(snapshot.getSnapshotInfo()).checkDominatorTree(
+                            snapshot.getSnapshotInfo().getNumberOfObjects(), manager.getCachedSize());
+
             n = snapshot.getSnapshotInfo().getNumberOfObjects() + 1;
             r = 1;
 
@@ -95,15 +110,6 @@ public class DominatorTree
             vertex = new int[n + 1];
             label = new int[n + 1];
             semi = new int[n + 1];
-
-            /*
-             * Allocate these up front, to check for early OOM, but then free
-             * so that dfs() can use the space for outbound index caching.  
-             */
-            dom = new int[n + 1];
-            bucket = new int[n + 1];
-            dom = null;
-            bucket = null;
         }
 
         public void compute() throws IOException, SnapshotException, IProgressListener.OperationCanceledException
@@ -130,9 +136,10 @@ public class DominatorTree
             for (int i = n; i >= 2; i--)
             {
                 int w = vertex[i];
-                for (int v : getPredecessors(w))
+                int count = getPredecessors(w);
+                for (int j = 0; j < count; j++)
                 {
-                    v += 2;
+                    int v = predecessors[j] + 2;
                     if (v < 0)
                         continue;
                     int u = eval(v);
@@ -240,29 +247,32 @@ public class DominatorTree
 
             // a stack for each parameter - stack code is inlined for
             // performance
-            // currentElementStack - for v, successorsStack - for the successors
-            // array,
-            // currentSuccessorStack - for the index in the array
+            // currentElementStack - for v, successorsEndStack - for the end
+            // of its successors in the successors array,
+            // currentSuccessorStack - for the index in the successors array
+            // The successors of all the vertices on the stack are read into
+            // one array, so that no array is allocated per vertex.
             int capacity = 2047; // capacity for the arrays - allows resize up to 2047<<20
             int size = 0; // one size for all arrays
             int[] currentElementStack = new int[capacity];
             int[] currentSuccessorStack = new int[capacity];
-            Object[] successorsStack = new Object[capacity];
+            int[] successorsEndStack = new int[capacity];
+            int[] successors = Arrays.copyOf(gcRootsArray, Math.max(gcRootsArray.length, 1024));
 
             int v = root;
-            int[] successors = gcRootsArray;
             int currentSuccessor = 0;
+            int successorsEnd = gcRootsArray.length;
 
             // push the initial values
             currentElementStack[size] = root;
-            successorsStack[size] = successors;
+            successorsEndStack[size] = successorsEnd;
             currentSuccessorStack[size] = currentSuccessor;
             size++;
 
             while (size > 0)
             {
                 v = currentElementStack[size - 1];
-                successors = (int[]) successorsStack[size - 1];
+                successorsEnd = successorsEndStack[size - 1];
                 currentSuccessor = currentSuccessorStack[size - 1];
 
                 if (semi[v] == 0)
@@ -274,7 +284,7 @@ public class DominatorTree
                     anchestor[v] = 0;
                 }
 
-                if (currentSuccessor < successors.length)
+                if (currentSuccessor < successorsEnd)
                 {
                     int w = successors[currentSuccessor++] + 2;
                     currentSuccessorStack[size - 1] = currentSuccessor; // update
@@ -285,8 +295,15 @@ public class DominatorTree
                     if (semi[w] == 0)
                     {
                         parent[w] = v;
-                        successors = outboundIndex.get(w - 2); // get the
-                        // successors of w
+                        // get the successors of w, after those of v
+                        int count = outboundIndex.get(w - 2, successors, successorsEnd);
+                        if (count > successors.length - successorsEnd)
+                        {
+                            int newLength = (int) Math.min(Integer.MAX_VALUE - 8,
+                                            Math.max((long) successors.length << 1, (long) successorsEnd + count));
+                            successors = Arrays.copyOf(successors, newLength);
+                            outboundIndex.get(w - 2, successors, successorsEnd);
+                        }
 
                         /* start push() */
                         // is expanding needed?
@@ -303,17 +320,17 @@ public class DominatorTree
                             System.arraycopy(currentSuccessorStack, 0, newArr, 0, capacity);
                             currentSuccessorStack = newArr;
 
-                            // resize successorsStack
-                            Object[] newSuccessorsArr = new Object[newCapacity];
-                            System.arraycopy(successorsStack, 0, newSuccessorsArr, 0, capacity);
-                            successorsStack = newSuccessorsArr;
+                            // resize successorsEndStack
+                            newArr = new int[newCapacity];
+                            System.arraycopy(successorsEndStack, 0, newArr, 0, capacity);
+                            successorsEndStack = newArr;
 
                             capacity = newCapacity;
 
                         }
                         currentElementStack[size] = w;
-                        successorsStack[size] = successors;
-                        currentSuccessorStack[size] = 0;
+                        successorsEndStack[size] = successorsEnd + count;
+                        currentSuccessorStack[size] = successorsEnd;
                         size++;
                         /* end push() */
 
@@ -337,18 +354,25 @@ public class DominatorTree
 
         }
 
-        // gets retained set idx and returns the real indexes
-        private int[] getPredecessors(int v)
+        // gets retained set idx and reads the real indexes into predecessors
+        private int getPredecessors(int v)
         {
             v -= 2;
             // for the GC roots return the artificial root
             if (gcRootsSet.get(v))
             {
-                return ROOT_VALUE_ARR;
+                predecessors[0] = ROOT_VALUE;
+                return 1;
             }
             else
             {
-                return inboundIndex.get(v);
+                int count = inboundIndex.get(v, predecessors, 0);
+                if (count > predecessors.length)
+                {
+                    predecessors = new int[count];
+                    inboundIndex.get(v, predecessors, 0);
+                }
+                return count;
             }
         }
 
@@ -394,8 +418,9 @@ public class DominatorTree
         private void writeIndexFiles(FlatDominatorTree tree) throws IOException
         {
 
+            // ordered by retained size, but often clustered, so delta compression helps
             IndexWriter.IntArray1NWriter writer = new IndexWriter.IntArray1NWriter(dom.length - 1,
-                            IndexManager.Index.DOMINATED.getFile(snapshot.getSnapshotInfo().getPrefix()));
+                            IndexManager.Index.DOMINATED.getFile(snapshot.getSnapshotInfo().getPrefix()), true);
 
             int numberOfObjects = snapshot.getSnapshotInfo().getNumberOfObjects();
 
@@ -540,6 +565,9 @@ public class DominatorTree
                 IndexWriter.LongIndexCollector retained = new IndexWriter.LongIndexCollector(dump.getSnapshotInfo()
                                 .getNumberOfObjects(), IndexWriter.mostSignificantBit(dump.getSnapshotInfo()
                                 .getUsedHeapSize()));
+                IIndexReader.IOne2OneIndex o2class = dump.getIndexManager().o2class();
+                TopRetainedTable.Collector top = new TopRetainedTable.Collector(TopRetainedTable.DEFAULT_OBJECTS,
+                                TopRetainedTable.DEFAULT_OBJECTS_PER_CLASS);
 
                 int capacity = 2047; // capacity for the arrays - allows resize up to 2047<<20
                 int size = 0;
@@ -596,6 +624,8 @@ public class DominatorTree
                         if (currentEntry >= 0)
                         {
                             retained.set(currentEntry, ts[currentEntry + 2]);
+                            // the stack now holds the ancestors, from the root at depth 0
+                            top.add(currentEntry, o2class.get(currentEntry), ts[currentEntry + 2], size);
                             if (++counter % 1000 == 0)
                             {
                                 if (progressListener.isCanceled())
@@ -613,6 +643,10 @@ public class DominatorTree
                                                 .getPrefix())));
                 retained = null;
 
+                TopRetainedTable table = top.build();
+                table.write(TopRetainedTable.getFile(dump.getSnapshotInfo().getPrefix()));
+                dump.setTopRetainedTable(table);
+
                 progressListener.done();
             }
         }
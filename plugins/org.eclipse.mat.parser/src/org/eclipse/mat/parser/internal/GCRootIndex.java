@@ -0,0 +1,300 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.internal;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.mat.collect.ArrayInt;
+import org.eclipse.mat.collect.HashMapIntObject;
+import org.eclipse.mat.parser.model.XGCRootInfo;
+import org.eclipse.mat.snapshot.model.GCRootInfo;
+import org.eclipse.mat.util.MessageUtil;
+
+/**
+ * The GC roots of a snapshot partitioned by root type, for all the roots and
+ * for the roots of each thread, so that the roots of one type are read
+ * without looking at the others.
+ * <p>
+ * The file has a header, then a table of the partitions sorted by thread id
+ * and type, with the file position of each, then the partitions. The thread
+ * id of the partitions of all the roots is -1. A partition is the object ids,
+ * ascending, of the objects with at least one root of its type.
+ */
+/* package */class GCRootIndex implements Closeable
+{
+    /** file name after the prefix of the snapshot */
+    static final String FILE_SUFFIX = "roots.index"; //$NON-NLS-1$
+
+    /** the thread id of the partitions of all the roots */
+    static final int ALL_THREADS = -1;
+
+    private static final int MAGIC = 0x4d415452;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int ENTRY_SIZE = 16;
+
+    private static final Logger logger = Logger.getLogger(GCRootIndex.class.getName());
+
+    /** read with seek and readFully, as an interrupt would close a FileChannel for good */
+    private final RandomAccessFile raf;
+    /** thread id and type of each partition */
+    private final long[] keys;
+    /** position of each partition, and the end of the file */
+    private final long[] positions;
+
+    private GCRootIndex(RandomAccessFile raf, long[] keys, long[] positions)
+    {
+        this.raf = raf;
+        this.keys = keys;
+        this.positions = positions;
+    }
+
+    /**
+     * Open the index of a snapshot, writing it first if it is missing or older
+     * than the master index file which holds the roots.
+     * @param prefix the prefix of the index files of the snapshot
+     * @param roots all the GC roots
+     * @param rootsPerThread the GC roots of each thread, or null
+     * @return the index, or null if it could not be written
+     */
+    static GCRootIndex openOrWrite(String prefix, HashMapIntObject<XGCRootInfo[]> roots,
+                    HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> rootsPerThread)
+    {
+        File master = new File(prefix + "index"); //$NON-NLS-1$
+        File file = new File(prefix + FILE_SUFFIX);
+        if (file.exists() && file.lastModified() >= master.lastModified())
+        {
+            try
+            {
+                return open(file);
+            }
+            catch (IOException e)
+            {
+                logger.log(Level.WARNING, MessageUtil.format(Messages.GCRootIndex_ErrorReadingIndex, file,
+                                e.getLocalizedMessage()));
+            }
+        }
+
+        try
+        {
+            write(file, roots, rootsPerThread);
+            return open(file);
+        }
+        catch (IOException e)
+        {
+            logger.log(Level.WARNING, MessageUtil.format(Messages.GCRootIndex_ErrorWritingIndex, file,
+                            e.getLocalizedMessage()));
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Open an index.
+     * @param file the index file
+     * @return the index
+     * @throws IOException if the file could not be read or is not an index
+     */
+    static GCRootIndex open(File file) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+        try
+        {
+            if (raf.length() < HEADER_SIZE || raf.readInt() != MAGIC || raf.readInt() != VERSION)
+                throw new IOException(MessageUtil.format(Messages.GCRootIndex_Error_WrongFormat, file));
+            int count = raf.readInt();
+            byte[] table = new byte[count * ENTRY_SIZE];
+            raf.readFully(table);
+            ByteBuffer entries = ByteBuffer.wrap(table);
+            long[] keys = new long[count];
+            long[] positions = new long[count + 1];
+            for (int ii = 0; ii < count; ii++)
+            {
+                keys[ii] = key(entries.getInt(), entries.getInt());
+                positions[ii] = entries.getLong();
+            }
+            positions[count] = raf.length();
+            return new GCRootIndex(raf, keys, positions);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Write an index.
+     * @param file the index file
+     * @param roots all the GC roots
+     * @param rootsPerThread the GC roots of each thread, or null
+     * @throws IOException if the file could not be written
+     */
+    static void write(File file, HashMapIntObject<XGCRootInfo[]> roots,
+                    HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> rootsPerThread) throws IOException
+    {
+        ArrayInt threadIds = new ArrayInt();
+        ArrayInt types = new ArrayInt();
+        ArrayInt counts = new ArrayInt();
+        ArrayInt ids = new ArrayInt();
+
+        partition(ALL_THREADS, roots, threadIds, types, counts, ids);
+        if (rootsPerThread != null)
+        {
+            int[] threads = rootsPerThread.getAllKeys();
+            Arrays.sort(threads);
+            for (int threadId : threads)
+                partition(threadId, rootsPerThread.get(threadId), threadIds, types, counts, ids);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(counts.size());
+            long position = HEADER_SIZE + (long) counts.size() * ENTRY_SIZE;
+            for (int ii = 0; ii < counts.size(); ii++)
+            {
+                out.writeInt(threadIds.get(ii));
+                out.writeInt(types.get(ii));
+                out.writeLong(position);
+                position += 4L * counts.get(ii);
+            }
+            for (int ii = 0; ii < ids.size(); ii++)
+                out.writeInt(ids.get(ii));
+        }
+    }
+
+    /**
+     * Split the roots of one thread, or all the roots, by type.
+     */
+    private static void partition(int threadId, HashMapIntObject<XGCRootInfo[]> roots, ArrayInt threadIds,
+                    ArrayInt types, ArrayInt counts, ArrayInt ids)
+    {
+        ArrayInt[] byType = new ArrayInt[Integer.SIZE];
+        for (Iterator<HashMapIntObject.Entry<XGCRootInfo[]>> iter = roots.entries(); iter.hasNext();)
+        {
+            HashMapIntObject.Entry<XGCRootInfo[]> entry = iter.next();
+            int typeSet = 0;
+            for (GCRootInfo info : entry.getValue())
+                typeSet |= info.getType();
+            for (int bit = 0; bit < Integer.SIZE; bit++)
+            {
+                if ((typeSet & (1 << bit)) == 0)
+                    continue;
+                if (byType[bit] == null)
+                    byType[bit] = new ArrayInt();
+                byType[bit].add(entry.getKey());
+            }
+        }
+
+        for (int bit = 0; bit < Integer.SIZE; bit++)
+        {
+            if (byType[bit] == null)
+                continue;
+            int[] partition = byType[bit].toArray();
+            Arrays.sort(partition);
+            threadIds.add(threadId);
+            types.add(1 << bit);
+            counts.add(partition.length);
+            ids.addAll(partition);
+        }
+    }
+
+    private static long key(int threadId, int type)
+    {
+        return (long) threadId << 32 | (type & 0xffffffffL);
+    }
+
+    /**
+     * Read the roots of some types.
+     * @param threadId the id of the thread object, or {@link #ALL_THREADS}
+     * @param typeMask the types of {@link GCRootInfo.Type} or'ed together
+     * @return the ids, ascending, of the objects with a root of one of the types
+     * @throws IOException if a partition could not be read
+     */
+    int[] get(int threadId, int typeMask) throws IOException
+    {
+        int[] result = null;
+        int partitions = 0;
+        for (int bit = 0; bit < Integer.SIZE; bit++)
+        {
+            if ((typeMask & (1 << bit)) == 0)
+                continue;
+            int[] partition = read(threadId, 1 << bit);
+            if (partition.length == 0)
+                continue;
+            if (result == null)
+            {
+                result = partition;
+            }
+            else
+            {
+                int[] merged = Arrays.copyOf(result, result.length + partition.length);
+                System.arraycopy(partition, 0, merged, result.length, partition.length);
+                result = merged;
+            }
+            partitions++;
+        }
+        if (result == null)
+            return new int[0];
+        if (partitions == 1)
+            return result;
+
+        // an object can have roots of several of the types
+        Arrays.sort(result);
+        int length = 0;
+        for (int ii = 0; ii < result.length; ii++)
+        {
+            if (length == 0 || result[length - 1] != result[ii])
+                result[length++] = result[ii];
+        }
+        return length < result.length ? Arrays.copyOf(result, length) : result;
+    }
+
+    /**
+     * Read one partition. Can be called from several threads at once.
+     */
+    private int[] read(int threadId, int type) throws IOException
+    {
+        int index = Arrays.binarySearch(keys, key(threadId, type));
+        if (index < 0)
+            return new int[0];
+        byte[] partition = new byte[(int) (positions[index + 1] - positions[index])];
+        synchronized (raf)
+        {
+            raf.seek(positions[index]);
+            raf.readFully(partition);
+        }
+
+        int[] ids = new int[partition.length / 4];
+        ByteBuffer.wrap(partition).asIntBuffer().get(ids);
+        return ids;
+    }
+
+    public void close() throws IOException
+    {
+        raf.close();
+    }
+}
@@ -11,19 +11,21 @@
  *    SAP AG - initial API and implementation
  *    Netflix (Jason Koch) - refactors for increased performance and concurrency
  *    Andrew Johnson (IBM) - release some indexes for GC
+ *    Standalone adaptation - parse statistics, memory budget, object flags index, reused buffers,
+ *                            parallel re-indexing
  *******************************************************************************/
 package org.eclipse.mat.parser.internal;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -35,7 +37,7 @@ import org.eclipse.mat.collect.ArrayInt;
 import org.eclipse.mat.collect.BitField;
 import org.eclipse.mat.collect.HashMapIntObject;
 import org.eclipse.mat.collect.IteratorInt;
-import org.eclipse.mat.collect.IteratorLong;
+import org.eclipse.mat.parser.ParsePlanner;
 import org.eclipse.mat.parser.index.IIndexReader.IOne2LongIndex;
 import org.eclipse.mat.parser.index.IIndexReader.IOne2ManyIndex;
 import org.eclipse.mat.parser.index.IIndexReader.IOne2OneIndex;
@@ -48,13 +50,18 @@ import org.eclipse.mat.parser.index.IndexWriter.Identifier;
 import org.eclipse.mat.parser.index.IndexWriter.IntIndexCollector;
 import org.eclipse.mat.parser.index.IndexWriter.IntIndexStreamer;
 import org.eclipse.mat.parser.index.IndexWriter.LongIndexStreamer;
+import org.eclipse.mat.parser.index.ObjectFlagsIndex;
 import org.eclipse.mat.parser.internal.snapshot.IObjectMarker;
 import org.eclipse.mat.parser.internal.snapshot.ObjectMarker;
 import org.eclipse.mat.parser.internal.snapshot.ObjectMarkerFactory;
 import org.eclipse.mat.parser.model.ClassImpl;
 import org.eclipse.mat.parser.model.XGCRootInfo;
+import org.eclipse.mat.parser.model.XParseStatistics;
+import org.eclipse.mat.snapshot.IParseStatistics;
 import org.eclipse.mat.snapshot.UnreachableObjectsHistogram;
+import org.eclipse.mat.snapshot.model.GCRootInfo;
 import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.model.IPrimitiveArray;
 import org.eclipse.mat.util.IProgressListener;
 import org.eclipse.mat.util.IProgressListener.OperationCanceledException;
 import org.eclipse.mat.util.IProgressListener.Severity;
@@ -65,12 +72,19 @@ import org.eclipse.mat.util.SilentProgressListener;
 {
 
     private final static int PARALLEL_CHUNK_SIZE = 16*1024*1024;
+    /** Objects per task when numbering the reachable objects */
+    private final static int REMAP_CHUNK_SIZE = 1 << 20;
+    /** Objects per task when mapping the outbound references */
+    private final static int OUTBOUND_CHUNK_SIZE = 1 << 16;
+    private final static String REFERENCE_CLASS = "java.lang.ref.Reference"; //$NON-NLS-1$
     public static int[] clean(final PreliminaryIndexImpl idx, final SnapshotImplBuilder builder,
                     Map<String, String> arguments, IProgressListener listener)
             throws IOException, InterruptedException, ExecutionException
     {
         IndexManager idxManager = new IndexManager();
-        ExecutorService es = Executors.newWorkStealingPool();
+        ParsePlanner planner = ParsePlanner.of(idx.getSnapshotInfo());
+        int numProcessors = planner.getParallelism();
+        ExecutorService es = Executors.newWorkStealingPool(numProcessors);
 
         try
         {
@@ -84,7 +98,9 @@ import org.eclipse.mat.util.SilentProgressListener;
             int newNoOfObjects = 0;
             int[] newRoots = idx.gcRoots.getAllKeys();
 
-            if (idx.identifiers instanceof Identifier && oldNoOfObjects > 5000000)
+            // free the in-memory preliminary indexes if marking and re-indexing need the space
+            boolean spill = planner.isSpillPreliminaryIndexes(oldNoOfObjects);
+            if (idx.identifiers instanceof Identifier && spill)
             {
                 IOne2LongIndex identifiersOld = idx.identifiers;
                 File tempIndexFile = Index.IDENTIFIER.getFile(idx.snapshotInfo.getPrefix() + "temp."); //$NON-NLS-1$
@@ -96,7 +112,7 @@ import org.eclipse.mat.util.SilentProgressListener;
             }
             IOne2LongIndex identifiers = idx.identifiers;
             IOne2ManyIndex preOutbound = idx.outbound;
-            if (idx.object2classId instanceof IntIndexCollector && oldNoOfObjects > 5000000)
+            if (idx.object2classId instanceof IntIndexCollector && spill)
             {
                 IOne2OneIndex object2classIdOld = idx.object2classId;
                 File tempIndexFile = Index.O2CLASS.getFile(idx.snapshotInfo.getPrefix() + "temp."); //$NON-NLS-1$
@@ -114,7 +130,6 @@ import org.eclipse.mat.util.SilentProgressListener;
              */
             IObjectMarker marker = ObjectMarkerFactory.getObjectMarker(newRoots, reachable, preOutbound, new SilentProgressListener(
                             listener));
-            int numProcessors = Runtime.getRuntime().availableProcessors();
             if (numProcessors > 1)
             {
                 try
@@ -177,23 +192,13 @@ import org.eclipse.mat.util.SilentProgressListener;
             listener.subTask(Messages.GarbageCleaner_ReIndexingObjects);
 
             // create re-index map
-            final int[] map = new int[oldNoOfObjects];
+            final Remap remap = new Remap(es, reachable);
+            final int[] map = remap.map;
 
             List<ClassImpl> classes2remove = new ArrayList<ClassImpl>();
 
             final IOne2SizeIndex preA2size = idx.array2size;
             long memFree = 0;
-            for (int ii = 0, jj = 0; ii < oldNoOfObjects; ii++)
-            {
-                if (reachable[ii])
-                {
-                    map[ii] = jj++;
-                }
-                else
-                {
-                    map[ii] = -1;
-                }
-            }
 
             ArrayList<Callable<CleanupWrapper>> tasks = new ArrayList<Callable<CleanupWrapper>>();
 
@@ -231,8 +236,6 @@ import org.eclipse.mat.util.SilentProgressListener;
                                                 - newNoOfObjects, memFree), null);
             }
 
-            es.shutdown();
-
             // classes cannot be removed right away
             // as they are needed to remove instances of this class
             for (ClassImpl c : classes2remove)
@@ -278,24 +281,12 @@ import org.eclipse.mat.util.SilentProgressListener;
 
             File indexFile = Index.IDENTIFIER.getFile(idx.snapshotInfo.getPrefix());
             listener.subTask(MessageUtil.format(Messages.GarbageCleaner_Writing, indexFile.getAbsolutePath()));
-            idxManager.setReader(Index.IDENTIFIER, new LongIndexStreamer().writeTo(indexFile, new IteratorLong() {
-                int i = 0;
-                @Override
-                public boolean hasNext()
-                {
-                    while (i < map.length && map[i] == -1)
-                        ++i;
-                    return i < map.length;
-                }
-
-                @Override
-                public long next()
-                {
-                    if (hasNext())
-                        return identifiers.get(i++);
-                    throw new NoSuchElementException();
-                }
-            }));
+            idxManager.setReader(Index.IDENTIFIER, new LongIndexStreamer().writeTo(indexFile, newNoOfObjects,
+                            (start, values, length) -> {
+                                for (int ii = remap.oldId(start), n = 0; n < length; ii++)
+                                    if (map[ii] >= 0)
+                                        values[n++] = identifiers.get(ii);
+                            }, es, numProcessors));
             identifiers.close();
             identifiers.delete();
 
@@ -309,23 +300,12 @@ import org.eclipse.mat.util.SilentProgressListener;
 
             indexFile = Index.O2CLASS.getFile(idx.snapshotInfo.getPrefix());
             listener.subTask(MessageUtil.format(Messages.GarbageCleaner_Writing, indexFile.getAbsolutePath()));
-            idxManager.setReader(Index.O2CLASS, new IntIndexStreamer().writeTo(indexFile,
-                            new NewObjectIntIterator()
-                            {
-                                @Override
-                                int doGetNextInt(int index)
-                                {
-                                    return map[idx.object2classId.get(nextIndex)];
-                                    // return
-                                    // map[object2classId.get(nextIndex)];
-                                }
-
-                                @Override
-                                int[] getMap()
-                                {
-                                    return map;
-                                }
-                            }));
+            idxManager.setReader(Index.O2CLASS, new IntIndexStreamer().writeTo(indexFile, newNoOfObjects,
+                            (start, values, length) -> {
+                                for (int ii = remap.oldId(start), n = 0; n < length; ii++)
+                                    if (map[ii] >= 0)
+                                        values[n++] = map[idx.object2classId.get(ii)];
+                            }, es, numProcessors));
 
             object2classId.close();
             object2classId.delete();
@@ -343,30 +323,20 @@ import org.eclipse.mat.util.SilentProgressListener;
             listener.subTask(MessageUtil.format(Messages.GarbageCleaner_Writing, new Object[] { indexFile
                             .getAbsolutePath() }));
             final BitField arrayObjects = new BitField(newNoOfObjects);
-            // arrayObjects
-            IOne2OneIndex newIdx = new IntIndexStreamer().writeTo(indexFile,
-                            new NewObjectIntIterator()
-                            {
-                                IOne2SizeIndex a2size = preA2size;
-                                int newIndex = 0;
-
-                                @Override
-                                int doGetNextInt(int index)
+            // arrayObjects, the pages are a multiple of 32 objects so do not share words of the bit field
+            IOne2OneIndex newIdx = new IntIndexStreamer().writeTo(indexFile, newNoOfObjects,
+                            (start, values, length) -> {
+                                for (int ii = remap.oldId(start), n = 0; n < length; ii++)
                                 {
-                                    int size = a2size.get(nextIndex);
+                                    if (map[ii] < 0)
+                                        continue;
+                                    int size = preA2size.get(ii);
                                     // Get the compressed size, 0 means 0
                                     if (size != 0)
-                                        arrayObjects.set(newIndex);
-                                    newIndex++;
-                                    return size;
-                                }
-
-                                @Override
-                                int[] getMap()
-                                {
-                                    return map;
+                                        arrayObjects.set(start + n);
+                                    values[n++] = size;
                                 }
-                            });
+                            }, es, numProcessors);
 
             idxManager.setReader(Index.A2SIZE, new SizeIndexReader(newIdx)); 
 
@@ -388,26 +358,7 @@ import org.eclipse.mat.util.SilentProgressListener;
             IndexWriter.InboundWriter w_in = new IndexWriter.InboundWriter(newNoOfObjects, IndexManager.Index.INBOUND
                             .getFile(idx.snapshotInfo.getPrefix()));
 
-            for (int ii = 0; ii < oldNoOfObjects; ii++)
-            {
-                int k = map[ii];
-				if (k < 0) continue;
-
-				int[] a = preOutbound.get(ii);
-				int[] tl = new int[a.length];
-				for (int jj = 0; jj < a.length; jj++)
-				{
-					int t = map[a[jj]];
-
-					/* No check if the referenced objects are alive */
-					/* The garbage can't be reached from a live object */
-					// removed if (t >= 0) ...
-					tl[jj] = t;
-					w_in.log(t, k, jj == 0);
-				}
-
-				w_out.log(k, tl);
-            }
+            reindexReferences(es, numProcessors, preOutbound, map, w_out, w_in);
 
             preOutbound.close();
             preOutbound.delete();
@@ -425,7 +376,16 @@ import org.eclipse.mat.util.SilentProgressListener;
                             .subTask(MessageUtil.format(Messages.GarbageCleaner_Writing, w_in.getIndexFile()
                                             .getAbsolutePath()));
 
-            idxManager.setReader(Index.INBOUND, w_in.flush(listener, new KeyWriterImpl(classesByNewId)));
+            XParseStatistics.Timer timer = XParseStatistics.of(idx.snapshotInfo).start(IParseStatistics.PHASE_INBOUND_INDEX);
+            try
+            {
+                idxManager.setReader(Index.INBOUND, w_in.flush(listener, new KeyWriterImpl(classesByNewId)));
+                timer.stop(-1, newNoOfObjects);
+            }
+            finally
+            {
+                timer.discard();
+            }
             w_in = null;
             if (listener.isCanceled())
             {
@@ -459,6 +419,16 @@ import org.eclipse.mat.util.SilentProgressListener;
                 rootsPerThread.put(fixedThreadId, fix(idx.thread2objects2roots.get(threadId), map));
             }
 
+            // //////////////////////////////////////////////////////////////
+            // object flags
+            // //////////////////////////////////////////////////////////////
+
+            indexFile = Index.O2FLAGS.getFile(idx.snapshotInfo.getPrefix());
+            listener.subTask(MessageUtil.format(Messages.GarbageCleaner_Writing, indexFile.getAbsolutePath()));
+            byte[] flags = calculateFlags(newNoOfObjects, idxManager.o2class(), classesByNewId, arrayObjects, roots);
+            idxManager.setReader(Index.O2FLAGS, ObjectFlagsIndex.write(indexFile, flags));
+            flags = null;
+
             // fill stuff into builder
             builder.setIndexManager(idxManager);
             builder.setClassCache(classesByNewId);
@@ -470,6 +440,8 @@ import org.eclipse.mat.util.SilentProgressListener;
         }
         finally
         {
+            es.shutdown();
+
             // delete all temporary indices
             idx.delete();
 
@@ -479,63 +451,244 @@ import org.eclipse.mat.util.SilentProgressListener;
         }
     }
 
-    private static HashMapIntObject<XGCRootInfo[]> fix(HashMapIntObject<List<XGCRootInfo>> roots, final int[] map)
+    /**
+     * The map from old to new object ids. The reachable objects are numbered
+     * in order with a parallel prefix sum: count the reachable objects of each
+     * chunk, add up the counts for the first new id of each chunk, then number
+     * the chunks.
+     */
+    private static final class Remap
     {
-        HashMapIntObject<XGCRootInfo[]> answer = new HashMapIntObject<XGCRootInfo[]>(roots.size());
-        for (Iterator<List<XGCRootInfo>> iter = roots.values(); iter.hasNext();)
+        final int[] map;
+        /** the first new id of each chunk, and the number of new ids at the end */
+        final int[] base;
+
+        Remap(ExecutorService es, final boolean[] reachable) throws InterruptedException, ExecutionException
         {
-            List<XGCRootInfo> r = iter.next();
-            XGCRootInfo[] a = new XGCRootInfo[r.size()];
-            for (int ii = 0; ii < a.length; ii++)
+            map = new int[reachable.length];
+            int chunks = (int) (((long) reachable.length + REMAP_CHUNK_SIZE - 1) / REMAP_CHUNK_SIZE);
+
+            List<Callable<Integer>> counts = new ArrayList<Callable<Integer>>(chunks);
+            for (int c = 0; c < chunks; c++)
             {
-                a[ii] = r.get(ii);
-                a[ii].setObjectId(map[a[ii].getObjectId()]);
-                if (a[ii].getContextAddress() != 0)
-                    a[ii].setContextId(map[a[ii].getContextId()]);
+                final int start = c * REMAP_CHUNK_SIZE;
+                final int end = Math.min(reachable.length, start + REMAP_CHUNK_SIZE);
+                counts.add(() -> {
+                    int n = 0;
+                    for (int ii = start; ii < end; ii++)
+                        if (reachable[ii])
+                            n++;
+                    return n;
+                });
             }
+            base = new int[chunks + 1];
+            List<Future<Integer>> results = es.invokeAll(counts);
+            for (int c = 0; c < chunks; c++)
+                base[c + 1] = base[c] + results.get(c).get();
 
-            answer.put(a[0].getObjectId(), a);
+            List<Callable<Void>> numbering = new ArrayList<Callable<Void>>(chunks);
+            for (int c = 0; c < chunks; c++)
+            {
+                final int start = c * REMAP_CHUNK_SIZE;
+                final int end = Math.min(reachable.length, start + REMAP_CHUNK_SIZE);
+                final int first = base[c];
+                numbering.add(() -> {
+                    for (int ii = start, jj = first; ii < end; ii++)
+                        map[ii] = reachable[ii] ? jj++ : -1;
+                    return null;
+                });
+            }
+            for (Future<Void> f : es.invokeAll(numbering))
+                f.get();
+        }
+
+        /**
+         * The old id of a reachable object, found from the chunk holding the new id.
+         */
+        int oldId(int newId)
+        {
+            // the first chunk whose objects go past the new id
+            int lo = 0, hi = base.length - 2;
+            while (lo < hi)
+            {
+                int mid = (lo + hi) >>> 1;
+                if (base[mid + 1] > newId)
+                    hi = mid;
+                else
+                    lo = mid + 1;
+            }
+            int ii = lo * REMAP_CHUNK_SIZE;
+            while (map[ii] != newId)
+                ii++;
+            return ii;
         }
-        return answer;
     }
 
-    private static abstract class NewObjectIterator
+    /**
+     * Map the outbound references to the new ids and log them as outbound and
+     * inbound references. Chunks of objects are mapped in parallel into
+     * buffers of [new id, count, references...], which are passed to the
+     * writers in order as they are ready.
+     */
+    private static void reindexReferences(ExecutorService es, int parallelism, final IOne2ManyIndex preOutbound,
+                    final int[] map, IndexWriter.IntArray1NSortedWriter w_out, IndexWriter.InboundWriter w_in)
+                    throws IOException, InterruptedException, ExecutionException
     {
-        int nextIndex = -1;
-        int[] $map;
+        int chunks = (int) (((long) map.length + OUTBOUND_CHUNK_SIZE - 1) / OUTBOUND_CHUNK_SIZE);
+        ArrayDeque<Future<int[]>> inFlight = new ArrayDeque<Future<int[]>>();
+        try
+        {
+            for (int c = 0, submitted = 0; c < chunks; c++)
+            {
+                for (; submitted < chunks && submitted - c < 2 * parallelism; submitted++)
+                {
+                    final int start = submitted * OUTBOUND_CHUNK_SIZE;
+                    final int end = Math.min(map.length, start + OUTBOUND_CHUNK_SIZE);
+                    inFlight.add(es.submit(() -> {
+                        ArrayInt mapped = new ArrayInt();
+                        int[] a = new int[64];
+                        for (int ii = start; ii < end; ii++)
+                        {
+                            int k = map[ii];
+                            if (k < 0)
+                                continue;
+
+                            int length = preOutbound.get(ii, a, 0);
+                            if (length > a.length)
+                            {
+                                a = new int[length];
+                                preOutbound.get(ii, a, 0);
+                            }
+                            mapped.add(k);
+                            mapped.add(length);
+                            /* No check if the referenced objects are alive */
+                            /* The garbage can't be reached from a live object */
+                            for (int jj = 0; jj < length; jj++)
+                                mapped.add(map[a[jj]]);
+                        }
+                        return mapped.toArray();
+                    }));
+                }
 
-        public NewObjectIterator()
+                // the writers are not thread safe, so are fed in order here
+                int[] mapped = inFlight.removeFirst().get();
+                for (int pos = 0; pos < mapped.length;)
+                {
+                    int k = mapped[pos++];
+                    int length = mapped[pos++];
+                    for (int jj = 0; jj < length; jj++)
+                        w_in.log(mapped[pos + jj], k, jj == 0);
+                    w_out.log(k, mapped, pos, length);
+                    pos += length;
+                }
+            }
+        }
+        finally
+        {
+            for (Future<int[]> f : inFlight)
+                f.cancel(true);
+        }
+    }
+
+    /**
+     * Classify every object for the {@link ObjectFlagsIndex}, from the final
+     * object to class index, the classes and the GC roots.
+     */
+    private static byte[] calculateFlags(int noOfObjects, IOne2OneIndex o2class,
+                    HashMapIntObject<ClassImpl> classesByNewId, BitField arrayObjects,
+                    HashMapIntObject<XGCRootInfo[]> roots)
+    {
+        byte[] flags = new byte[noOfObjects];
+
+        // flags shared by all the instances of a class
+        HashMapIntObject<Byte> instanceFlags = new HashMapIntObject<Byte>(classesByNewId.size());
+        for (Iterator<ClassImpl> iter = classesByNewId.values(); iter.hasNext();)
         {
-            $map = getMap();
-            findNext();
+            ClassImpl clazz = iter.next();
+            int f = 0;
+            if (clazz.isArrayType())
+            {
+                f |= ObjectFlagsIndex.ARRAY;
+                for (int ii = 0; ii < IPrimitiveArray.TYPE.length; ii++)
+                {
+                    if (clazz.getName().equals(IPrimitiveArray.TYPE[ii]))
+                        f |= ObjectFlagsIndex.PRIMITIVE_ARRAY;
+                }
+            }
+            else
+            {
+                for (ClassImpl c = clazz; c != null; c = classesByNewId.get(c.getSuperClassId()))
+                {
+                    if (IClass.JAVA_LANG_CLASSLOADER.equals(c.getName()))
+                        f |= ObjectFlagsIndex.CLASS_LOADER;
+                    else if (REFERENCE_CLASS.equals(c.getName()))
+                        f |= ObjectFlagsIndex.REFERENCE;
+                    if (c.getSuperClassId() < 0)
+                        break;
+                }
+            }
+            if (f != 0)
+                instanceFlags.put(clazz.getObjectId(), (byte) f);
         }
 
-        protected void findNext()
+        final int chunk = 1 << 16;
+        for (int start = 0; start < noOfObjects; start += chunk)
         {
-            nextIndex++;
-            while (nextIndex < $map.length && $map[nextIndex] < 0)
-                nextIndex++;
+            int[] classIds = o2class.getNext(start, Math.min(chunk, noOfObjects - start));
+            for (int ii = 0; ii < classIds.length; ii++)
+            {
+                Byte f = instanceFlags.get(classIds[ii]);
+                if (f == null)
+                    continue;
+                int objectId = start + ii;
+                int v = f;
+                // a variable sized object without a size is not treated as an array by the snapshot
+                if ((v & ObjectFlagsIndex.ARRAY) != 0 && !arrayObjects.get(objectId))
+                    v &= ~(ObjectFlagsIndex.ARRAY | ObjectFlagsIndex.PRIMITIVE_ARRAY);
+                flags[objectId] |= v;
+            }
         }
 
-        public boolean hasNext()
+        for (Iterator<ClassImpl> iter = classesByNewId.values(); iter.hasNext();)
         {
-            return nextIndex < $map.length;
+            ClassImpl clazz = iter.next();
+            flags[clazz.getObjectId()] |= ObjectFlagsIndex.CLASS;
+            if (clazz.getClassLoaderId() >= 0)
+                flags[clazz.getClassLoaderId()] |= ObjectFlagsIndex.CLASS_LOADER;
         }
 
-        abstract int[] getMap();
+        for (Iterator<XGCRootInfo[]> iter = roots.values(); iter.hasNext();)
+        {
+            XGCRootInfo[] r = iter.next();
+            int objectId = r[0].getObjectId();
+            flags[objectId] |= ObjectFlagsIndex.GC_ROOT;
+            for (XGCRootInfo root : r)
+            {
+                if ((root.getType() & (GCRootInfo.Type.FINALIZABLE | GCRootInfo.Type.UNFINALIZED)) != 0)
+                    flags[objectId] |= ObjectFlagsIndex.FINALIZABLE;
+            }
+        }
+        return flags;
     }
 
-    private static abstract class NewObjectIntIterator extends NewObjectIterator implements IteratorInt
+    private static HashMapIntObject<XGCRootInfo[]> fix(HashMapIntObject<List<XGCRootInfo>> roots, final int[] map)
     {
-        public int next()
+        HashMapIntObject<XGCRootInfo[]> answer = new HashMapIntObject<XGCRootInfo[]>(roots.size());
+        for (Iterator<List<XGCRootInfo>> iter = roots.values(); iter.hasNext();)
         {
-            int answer = doGetNextInt(nextIndex);
-            findNext();
-            return answer;
-        }
-
-        abstract int doGetNextInt(int nextIndex);
+            List<XGCRootInfo> r = iter.next();
+            XGCRootInfo[] a = new XGCRootInfo[r.size()];
+            for (int ii = 0; ii < a.length; ii++)
+            {
+                a[ii] = r.get(ii);
+                a[ii].setObjectId(map[a[ii].getObjectId()]);
+                if (a[ii].getContextAddress() != 0)
+                    a[ii].setContextId(map[a[ii].getContextId()]);
+            }
 
+            answer.put(a[0].getObjectId(), a);
+        }
+        return answer;
     }
 
     private static class KeyWriterImpl implements IndexWriter.KeyWriter
@@ -810,6 +963,7 @@ import org.eclipse.mat.util.SilentProgressListener;
 
         // find objects not referenced by any other object
         byte inbounds[] = new byte[noOfObjects];
+        int[] outs = new int[64];
         for (int ii = 0; ii < noOfObjects; ++ii)
         {
             if (!reachable[ii])
@@ -817,8 +971,15 @@ import org.eclipse.mat.util.SilentProgressListener;
                 // We only need search the unreachable objects as
                 // the reachable ones will have already marked
                 // its outbound refs.
-                for (int out : preOutbound.get(ii))
+                int length = preOutbound.get(ii, outs, 0);
+                if (length > outs.length)
                 {
+                    outs = new int[length];
+                    preOutbound.get(ii, outs, 0);
+                }
+                for (int jj = 0; jj < length; jj++)
+                {
+                    int out = outs[jj];
                     // Exclude objects pointing to themselves
                     if (out != ii)
                     {
@@ -849,7 +1010,7 @@ import org.eclipse.mat.util.SilentProgressListener;
         }
         // See what else is now reachable
         IObjectMarker marker2 = ObjectMarkerFactory.getObjectMarker(unref.toArray(), reachable, preOutbound, new SilentProgressListener(listener));
-        int numProcessors = Runtime.getRuntime().availableProcessors();
+        int numProcessors = ParsePlanner.of(idx.getSnapshotInfo()).getParallelism();
         if (numProcessors > 1 && unref.size() > 1)
         {
             try
@@ -904,8 +1065,15 @@ import org.eclipse.mat.util.SilentProgressListener;
                     // the reachable ones will have already marked
                     // its outbound refs.
                     unref2.add(ii);
-                    for (int out : preOutbound.get(ii))
+                    int length = preOutbound.get(ii, outs, 0);
+                    if (length > outs.length)
+                    {
+                        outs = new int[length];
+                        preOutbound.get(ii, outs, 0);
+                    }
+                    for (int jj = 0; jj < length; jj++)
                     {
+                        int out = outs[jj];
                         // Exclude objects pointing to themselves
                         // and only count unreachable refs
                         // We only need to recount outbound refs as the
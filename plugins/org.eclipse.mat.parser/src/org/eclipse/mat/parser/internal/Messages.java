@@ -32,6 +32,9 @@ public class Messages extends NLS
     public static String Function_Error_NeedsNumberAsInput;
     public static String Function_ErrorNoFunction;
     public static String Function_unknown;
+    public static String GCRootIndex_Error_WrongFormat;
+    public static String GCRootIndex_ErrorReadingIndex;
+    public static String GCRootIndex_ErrorWritingIndex;
     public static String GarbageCleaner_ReIndexingClasses;
     public static String GarbageCleaner_ReIndexingObjects;
     public static String GarbageCleaner_ReIndexingOutboundIndex;
@@ -43,6 +46,7 @@ public class Messages extends NLS
     public static String HistogramBuilder_Error_FailedToStoreInHistogram;
     public static String IndexReader_Error_IndexIsEmbedded;
     public static String IndexReader_Error_PageReadOverflow;
+    public static String IndexReader_Error_UnknownPageFormat;
     public static String IndexWriter_Error_ArrayLength;
     public static String IndexWriter_Error_ObjectArrayLength;
     public static String IndexWriter_NotImplemented;
@@ -60,9 +64,11 @@ public class Messages extends NLS
     public static String SnapshotFactoryImpl_ClassIndexNotEqualClassObjectID;
     public static String SnapshotFactoryImpl_ConcurrentParsingError;
     public static String SnapshotFactoryImpl_EmptyOutbounds;
+    public static String SnapshotFactoryImpl_Error_ClassIdentityTable;
     public static String SnapshotFactoryImpl_Error_NoParserRegistered;
     public static String SnapshotFactoryImpl_Error_OpeningHeapDump;
     public static String SnapshotFactoryImpl_Error_ReparsingHeapDump;
+    public static String SnapshotFactoryImpl_Error_UnloadingCaches;
     public static String SnapshotFactoryImpl_ErrorOpeningHeapDump;
     public static String SnapshotFactoryImpl_FinishOpeningDump;
     public static String SnapshotFactoryImpl_GCRootContextIDDoesNotMatchAddress;
@@ -107,6 +113,7 @@ public class Messages extends NLS
     public static String SnapshotImpl_RetainedSetProgressName;
     public static String SnapshotImpl_RetrievingDominators;
     public static String ObjectArrayImpl_forArray;
+    public static String ObjectFlagsIndex_Error_WrongFormat;
     public static String ObjectMarker_MarkingObjects;
     public static String ObjectMarker_ErrorMarkingObjects;
     public static String ObjectMarker_WarningMarkingObjects;
@@ -139,6 +146,8 @@ public class Messages extends NLS
     public static String PathExpression_Error_UnknownElementInPath;
     public static String PositionInputStream_mark;
     public static String PositionInputStream_reset;
+    public static String ParsePlanner_Error_InsufficientMemory;
+    public static String ParsePlanner_Warning_LowMemory;
     public static String PositionInputStream_seek;
     public static String RetainedSizeCache_ErrorReadingRetainedSizes;
     public static String RetainedSizeCache_Warning_IgnoreError;
@@ -146,8 +155,13 @@ public class Messages extends NLS
     public static String OQLParser_Encountered_X_at_line_X_column_X_Was_expecting_one_of_X;
     public static String OQLParser_Missing_return_statement_in_function;
 
+    public static String ThreadStackHelper_ErrorReadingIndex;
+    public static String ThreadStackHelper_ErrorWritingIndex;
     public static String ThreadStackHelper_InvalidThread;
     public static String ThreadStackHelper_InvalidThreadLocal;
+    public static String ThreadStackIndex_Error_WrongFormat;
+
+    public static String WarmUpScheduler_ErrorComputingPiece;
 
     static
     {
@@ -11,6 +11,8 @@
  *    SAP AG - initial API and implementation
  *    IBM Corporation - validation of indices
  *    Standalone adaptation - removed OSGi/Platform/IContentType dependency
+ *    Standalone adaptation - parse statistics, memory budget, class identity table, snapshot pool,
+ *                            string table, warm-up
  *******************************************************************************/
 package org.eclipse.mat.parser.internal;
 
@@ -36,44 +38,103 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.regex.Pattern;
 
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.HashMapIntObject;
 import org.eclipse.mat.collect.IteratorInt;
 import org.eclipse.mat.parser.IIndexBuilder;
+import org.eclipse.mat.parser.ParsePlanner;
 import org.eclipse.mat.parser.internal.oql.OQLQueryImpl;
 import org.eclipse.mat.parser.internal.util.ParserRegistry;
 import org.eclipse.mat.parser.internal.util.ParserRegistry.Parser;
 import org.eclipse.mat.parser.model.ClassImpl;
 import org.eclipse.mat.parser.model.XGCRootInfo;
+import org.eclipse.mat.parser.model.XParseStatistics;
 import org.eclipse.mat.parser.model.XSnapshotInfo;
+import org.eclipse.mat.snapshot.ClassIdentityTable;
 import org.eclipse.mat.snapshot.IOQLQuery;
+import org.eclipse.mat.snapshot.IParseStatistics;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.SnapshotFactory;
 import org.eclipse.mat.snapshot.SnapshotFormat;
+import org.eclipse.mat.snapshot.SnapshotWarmUp;
+import org.eclipse.mat.snapshot.StringTable;
 import org.eclipse.mat.snapshot.model.GCRootInfo;
 import org.eclipse.mat.util.IProgressListener;
 import org.eclipse.mat.util.IProgressListener.Severity;
 import org.eclipse.mat.util.MessageUtil;
+import org.eclipse.mat.util.SilentProgressListener;
 import org.eclipse.mat.util.SimpleMonitor;
 import org.eclipse.mat.util.WrappedLoggingProgressListener;
 
 public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
 {
+    /**
+     * System property with the initial budget for the index page caches of
+     * all the open snapshots, for example <code>2g</code>.
+     */
+    public static final String CACHE_BUDGET_PROPERTY = "org.eclipse.mat.snapshot.cache_budget"; //$NON-NLS-1$
+    /** How often the page caches are checked against the budget while snapshots are in use */
+    private static final long TRIM_INTERVAL_SECONDS = 5;
+    private static final Logger logger = Logger.getLogger(SnapshotFactoryImpl.class.getName());
+
     private static class SnapshotEntry
     {
         private int usageCount;
         private WeakReference<ISnapshot> snapshot;
+        /** when the snapshot was last seen in use, for unloading the least recently used first */
+        private long lastUsed;
+        /** the size of the page caches at the last check */
+        private long cachedSize;
 
         public SnapshotEntry(int usageCount, ISnapshot snapshot)
         {
             this.usageCount = usageCount;
             this.snapshot = new WeakReference<ISnapshot>(snapshot);
+            this.lastUsed = System.nanoTime();
         }
     }
 
+    private static final class OpenLock
+    {
+        /** the threads opening the dump, guarded by the map of locks */
+        int opening;
+    }
+
+    /** guarded by this */
     private Map<File, SnapshotEntry> snapshotCache = new HashMap<File, SnapshotEntry>();
+    /**
+     * one lock per dump, so that a dump is only parsed once when opened by
+     * several threads, kept only while the dump is being opened
+     */
+    private final ConcurrentHashMap<File, OpenLock> openLocks = new ConcurrentHashMap<File, OpenLock>();
+    /** guarded by this */
+    private long cacheBudget = Long.MAX_VALUE;
+    /** checks the page caches while a budget is set, guarded by this */
+    private ScheduledExecutorService trimmer;
+
+    public SnapshotFactoryImpl()
+    {
+        String budget = System.getProperty(CACHE_BUDGET_PROPERTY);
+        if (budget != null)
+        {
+            try
+            {
+                setCacheBudget(ParsePlanner.parseMemorySize(budget));
+            }
+            catch (NumberFormatException e)
+            {
+                logger.log(Level.WARNING, e.getMessage(), e);
+            }
+        }
+    }
 
     public ISnapshot openSnapshot(File file, Map<String, String> args, IProgressListener listener) throws SnapshotException
     {
@@ -86,9 +147,55 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
 
         try
         {
-            ISnapshot answer = null;
+            ISnapshot answer;
+            OpenLock lock = openLocks.compute(file, (f, l) -> {
+                OpenLock answerLock = l != null ? l : new OpenLock();
+                answerLock.opening++;
+                return answerLock;
+            });
+            try
+            {
+                synchronized (lock)
+                {
+                    answer = openOrReuse(file, args, wrappedListener);
+                }
+            }
+            finally
+            {
+                // the last thread opening the dump removes its lock
+                openLocks.compute(file, (f, l) -> --l.opening == 0 ? null : l);
+            }
+            if (Boolean.parseBoolean(args.get(SnapshotWarmUp.OPTION)) && answer instanceof SnapshotImpl)
+                ((SnapshotImpl) answer).startWarmUp();
+            trimCaches(answer);
+            return answer;
+        }
+        finally
+        {
+            ZonedDateTime end = ZonedDateTime.now();
+            Duration duration = Duration.between(start, end);
+            String humanDuration = duration.toString().substring(2)
+                            .replaceAll("([HMS])", "$1 ").toLowerCase().trim();
+            double durationSeconds = (double) duration.toMillis() / 1000D;
+            wrappedListener.sendUserMessage(Severity.INFO,
+                            MessageUtil.format(Messages.SnapshotFactoryImpl_FinishOpeningDump,
+                                            new DecimalFormat("#,###.00").format(durationSeconds), humanDuration,
+                                            DateTimeFormatter.ISO_ZONED_DATE_TIME.format(end)),
+                            null);
+        }
+    }
+
+    /**
+     * Open a dump while holding its lock, reusing the snapshot if it is already open.
+     */
+    private ISnapshot openOrReuse(File file, Map<String, String> args, WrappedLoggingProgressListener wrappedListener)
+                    throws SnapshotException
+    {
+        ISnapshot answer = null;
 
-            // lookup in cache
+        // lookup in cache
+        synchronized (this)
+        {
             SnapshotEntry entry = snapshotCache.get(file);
             if (entry != null)
             {
@@ -97,84 +204,203 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
                 if (answer != null)
                 {
                     entry.usageCount++;
+                    entry.lastUsed = System.nanoTime();
                     return answer;
                 }
             }
+        }
 
-            String name = file.getName();
+        String name = file.getName();
 
-            // Standalone: no IContentType matching, just use file extension
-            int p = name.lastIndexOf('.');
-            name = p >= 0 ? name.substring(0, p + 1) : name + ".";//$NON-NLS-1$
-            String prefix = new File(file.getParentFile(), name).getAbsolutePath();
-            String snapshot_identifier = args.get("snapshot_identifier"); //$NON-NLS-1$
-            if (snapshot_identifier != null)
-            {
-                prefix += snapshot_identifier + "."; //$NON-NLS-1$
-            }
+        // Standalone: no IContentType matching, just use file extension
+        int p = name.lastIndexOf('.');
+        name = p >= 0 ? name.substring(0, p + 1) : name + ".";//$NON-NLS-1$
+        String prefix = new File(file.getParentFile(), name).getAbsolutePath();
+        String snapshot_identifier = args.get("snapshot_identifier"); //$NON-NLS-1$
+        if (snapshot_identifier != null)
+        {
+            prefix += snapshot_identifier + "."; //$NON-NLS-1$
+        }
 
-            wrappedListener.setFile(new File(prefix + "log.index"));
+        wrappedListener.setFile(new File(prefix + "log.index"));
 
-            try
+        try
+        {
+            File indexFile = new File(prefix + "index");//$NON-NLS-1$
+            if (indexFile.exists())
             {
-                File indexFile = new File(prefix + "index");//$NON-NLS-1$
-                if (indexFile.exists())
+                // check if hprof file is newer than index file
+                if (file.lastModified() <= indexFile.lastModified())
                 {
-                    // check if hprof file is newer than index file
-                    if (file.lastModified() <= indexFile.lastModified())
-                    {
-                        answer = SnapshotImpl.readFromFile(file, prefix, wrappedListener);
-                    }
-                    else
-                    {
-                        String message = MessageUtil.format(
-                                        Messages.SnapshotFactoryImpl_ReparsingHeapDumpAsIndexOutOfDate, file.getPath(),
-                                        new Date(file.lastModified()), indexFile.getPath(),
-                                        new Date(indexFile.lastModified()));
-                        wrappedListener.sendUserMessage(Severity.INFO, message, null);
-                        wrappedListener.subTask(Messages.SnapshotFactoryImpl_ReparsingHeapDumpWithOutOfDateIndex);
-                    }
+                    answer = SnapshotImpl.readFromFile(file, prefix, wrappedListener);
+                    // parsed before the class identity tables were written
+                    if (!ClassIdentityTable.getFile(prefix).exists())
+                        writeClassIdentityTable(answer, wrappedListener);
+                }
+                else
+                {
+                    String message = MessageUtil.format(
+                                    Messages.SnapshotFactoryImpl_ReparsingHeapDumpAsIndexOutOfDate, file.getPath(),
+                                    new Date(file.lastModified()), indexFile.getPath(),
+                                    new Date(indexFile.lastModified()));
+                    wrappedListener.sendUserMessage(Severity.INFO, message, null);
+                    wrappedListener.subTask(Messages.SnapshotFactoryImpl_ReparsingHeapDumpWithOutOfDateIndex);
                 }
             }
-            catch (IOException ignore_and_reparse)
+        }
+        catch (IOException ignore_and_reparse)
+        {
+            String text = ignore_and_reparse.getMessage() != null ? ignore_and_reparse.getMessage()
+                            : ignore_and_reparse.getClass().getName();
+            String message = MessageUtil.format(Messages.SnapshotFactoryImpl_Error_ReparsingHeapDump, text);
+            wrappedListener.sendUserMessage(Severity.WARNING, message, ignore_and_reparse);
+            wrappedListener.subTask(message);
+        }
+
+        if (answer == null)
+        {
+            File lockFile = new File(prefix + "lock.index"); //$NON-NLS-1$
+            try (Closeable ac = lockParse(file, lockFile, wrappedListener))
+            {
+                deleteIndexFiles(file, prefix, lockFile, wrappedListener);
+                answer = parse(file, prefix, args, wrappedListener);
+            }
+            catch (IOException e)
             {
-                String text = ignore_and_reparse.getMessage() != null ? ignore_and_reparse.getMessage()
-                                : ignore_and_reparse.getClass().getName();
-                String message = MessageUtil.format(Messages.SnapshotFactoryImpl_Error_ReparsingHeapDump, text);
-                wrappedListener.sendUserMessage(Severity.WARNING, message, ignore_and_reparse);
-                wrappedListener.subTask(message);
+                throw new SnapshotException(e);
             }
+        }
 
-            if (answer == null)
+        synchronized (this)
+        {
+            snapshotCache.put(file, new SnapshotEntry(1, answer));
+        }
+        return answer;
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // memory budget for the index page caches
+    // //////////////////////////////////////////////////////////////
+
+    /**
+     * Set the budget for the index page caches of all the open snapshots.
+     * When the caches grow beyond the budget those of the least recently
+     * used snapshots are freed, and their pages are read again from the
+     * index files when next needed.
+     * @param budget the number of bytes, or {@link Long#MAX_VALUE} for no limit
+     */
+    public synchronized void setCacheBudget(long budget)
+    {
+        if (budget <= 0)
+            throw new IllegalArgumentException(Long.toString(budget));
+        cacheBudget = budget;
+        if (budget == Long.MAX_VALUE)
+        {
+            if (trimmer != null)
             {
-                File lockFile = new File(prefix + "lock.index"); //$NON-NLS-1$
-                try (Closeable ac = lockParse(file, lockFile, wrappedListener))
-                {
-                    deleteIndexFiles(file, prefix, lockFile, wrappedListener);
-                    answer = parse(file, prefix, args, wrappedListener);
-                }
-                catch (IOException e)
-                {
-                    throw new SnapshotException(e);
-                }
+                trimmer.shutdown();
+                trimmer = null;
             }
+        }
+        else if (trimmer == null)
+        {
+            trimmer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "MAT snapshot cache trimmer"); //$NON-NLS-1$
+                t.setDaemon(true);
+                return t;
+            });
+            trimmer.scheduleWithFixedDelay(() -> trimCaches(null), TRIM_INTERVAL_SECONDS, TRIM_INTERVAL_SECONDS,
+                            TimeUnit.SECONDS);
+        }
+        trimCaches(null);
+    }
 
-            entry = new SnapshotEntry(1, answer);
-            snapshotCache.put(file, entry);
-            return answer;
+    /**
+     * The budget for the index page caches of all the open snapshots.
+     * @return the number of bytes, {@link Long#MAX_VALUE} for no limit
+     */
+    public synchronized long getCacheBudget()
+    {
+        return cacheBudget;
+    }
+
+    /**
+     * An estimate of the memory held by the index page caches of all the open snapshots.
+     * @return the number of bytes
+     */
+    public synchronized long getCachedSize()
+    {
+        long size = 0;
+        for (SnapshotEntry entry : snapshotCache.values())
+        {
+            ISnapshot s = entry.snapshot.get();
+            if (s instanceof SnapshotImpl)
+                size += ((SnapshotImpl) s).getIndexManager().getCachedSize();
         }
-        finally
+        return size;
+    }
+
+    /**
+     * Free the page caches of the least recently used snapshots until all the
+     * caches fit into the budget.
+     * <p>
+     * The snapshots are not told when they are used, so a snapshot counts as
+     * used when it is opened or when its caches have grown since the last
+     * check, as pages are only loaded when an index is read.
+     * @param keep a snapshot just opened, whose caches are only freed if the others are not enough, or null
+     */
+    synchronized void trimCaches(ISnapshot keep)
+    {
+        long now = System.nanoTime();
+        long total = 0;
+        List<SnapshotEntry> entries = new ArrayList<SnapshotEntry>(snapshotCache.size());
+        for (Iterator<SnapshotEntry> iter = snapshotCache.values().iterator(); iter.hasNext();)
         {
-            ZonedDateTime end = ZonedDateTime.now();
-            Duration duration = Duration.between(start, end);
-            String humanDuration = duration.toString().substring(2)
-                            .replaceAll("([HMS])", "$1 ").toLowerCase().trim();
-            double durationSeconds = (double) duration.toMillis() / 1000D;
-            wrappedListener.sendUserMessage(Severity.INFO,
-                            MessageUtil.format(Messages.SnapshotFactoryImpl_FinishOpeningDump,
-                                            new DecimalFormat("#,###.00").format(durationSeconds), humanDuration,
-                                            DateTimeFormatter.ISO_ZONED_DATE_TIME.format(end)),
-                            null);
+            SnapshotEntry entry = iter.next();
+            ISnapshot s = entry.snapshot.get();
+            if (s == null)
+            {
+                iter.remove();
+                continue;
+            }
+            if (!(s instanceof SnapshotImpl))
+                continue;
+            long size = ((SnapshotImpl) s).getIndexManager().getCachedSize();
+            if (size > entry.cachedSize)
+                entry.lastUsed = now;
+            entry.cachedSize = size;
+            total += size;
+            entries.add(entry);
+        }
+        if (total <= cacheBudget)
+            return;
+
+        entries.sort((a, b) -> {
+            // the kept snapshot last, then the least recently used first
+            boolean ka = a.snapshot.get() == keep;
+            boolean kb = b.snapshot.get() == keep;
+            if (ka != kb)
+                return ka ? 1 : -1;
+            return Long.compare(a.lastUsed - now, b.lastUsed - now);
+        });
+        for (SnapshotEntry entry : entries)
+        {
+            if (total <= cacheBudget)
+                break;
+            SnapshotImpl s = (SnapshotImpl) entry.snapshot.get();
+            if (s == null || entry.cachedSize == 0)
+                continue;
+            try
+            {
+                s.getIndexManager().unload();
+            }
+            catch (IOException e)
+            {
+                logger.log(Level.WARNING, MessageUtil.format(Messages.SnapshotFactoryImpl_Error_UnloadingCaches,
+                                s.getSnapshotInfo().getPath()), e);
+            }
+            total -= entry.cachedSize;
+            entry.cachedSize = 0;
         }
     }
 
@@ -360,12 +586,24 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
                         snapshotInfo.setProperty("discard_seed", Integer.parseInt(args.get("discard_seed"))); //$NON-NLS-1$ //$NON-NLS-2$
                 }
 
+                if (args.containsKey(ParsePlanner.MEMORY_BUDGET))
+                {
+                    snapshotInfo.setProperty(ParsePlanner.MEMORY_BUDGET, ParsePlanner.parseMemorySize(args.get(ParsePlanner.MEMORY_BUDGET)));
+                }
+
+                if (Boolean.parseBoolean(args.get(StringTable.OPTION)))
+                {
+                    snapshotInfo.setProperty(StringTable.OPTION, Boolean.TRUE);
+                }
+
                 String snapshot_identifier = args.get("snapshot_identifier"); //$NON-NLS-1$
                 if (snapshot_identifier != null)
                 {
                     snapshotInfo.setProperty("$runtimeId", snapshot_identifier);//$NON-NLS-1$
                 }
 
+                XParseStatistics statistics = XParseStatistics.of(snapshotInfo);
+
                 PreliminaryIndexImpl idx = new PreliminaryIndexImpl(snapshotInfo);
                 SimpleMonitor monitor = new SimpleMonitor(MessageUtil
                                 .format(Messages.SnapshotFactoryImpl_ParsingHeapDump, file.getAbsolutePath()), listener,
@@ -382,30 +620,55 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
 
                 SnapshotImplBuilder builder = new SnapshotImplBuilder(idx.getSnapshotInfo());
 
-                int[] purgedMapping = GarbageCleaner.clean(idx, builder, args, monitor.nextMonitor());
+                XParseStatistics.Timer timer = statistics.start(IParseStatistics.PHASE_GARBAGE_CLEANING);
+                try
+                {
+                    int[] purgedMapping = GarbageCleaner.clean(idx, builder, args, monitor.nextMonitor());
+                    timer.stop(-1, purgedMapping.length);
 
-                indexBuilder.clean(purgedMapping, monitor.nextMonitor());
+                    timer = statistics.start(IParseStatistics.PHASE_PURGE_INDEXES);
+                    indexBuilder.clean(purgedMapping, monitor.nextMonitor());
+                    timer.stop(-1, purgedMapping.length);
 
-                purgedMapping = null;
+                    purgedMapping = null;
 
-                SnapshotImpl snapshot = builder.create(parser, listener);
-                boolean done = false;
-                try
-                {
-                    snapshot.calculateDominatorTree(monitor.nextMonitor());
-                    snapshot.calculateMinRetainedHeapSizeForClasses(monitor.nextMonitor());
-                    done = true;
+                    timer = statistics.start(IParseStatistics.PHASE_CREATE_SNAPSHOT);
+                    SnapshotImpl snapshot = builder.create(parser, listener);
+                    int numberOfObjects = snapshot.getSnapshotInfo().getNumberOfObjects();
+                    timer.stop(-1, numberOfObjects);
+                    boolean done = false;
+                    try
+                    {
+                        timer = statistics.start(IParseStatistics.PHASE_DOMINATOR_TREE);
+                        snapshot.calculateDominatorTree(monitor.nextMonitor());
+                        timer.stop(-1, numberOfObjects);
+
+                        timer = statistics.start(IParseStatistics.PHASE_MIN_RETAINED_SIZES);
+                        snapshot.calculateMinRetainedHeapSizeForClasses(monitor.nextMonitor());
+                        timer.stop(-1, snapshot.getSnapshotInfo().getNumberOfClasses());
+
+                        writeClassIdentityTable(snapshot, listener);
+
+                        // keep the statistics of the phases which ran after the index file was first written
+                        snapshot.writeIndexFile(parser.getUniqueIdentifier(), listener);
+                        done = true;
+                    }
+                    finally
+                    {
+                        if (!done)
+                        {
+                            snapshot.dispose();
+                        }
+                    }
+
+                    listener.done();
+                    return snapshot;
                 }
                 finally
                 {
-                    if (!done)
-                    {
-                        snapshot.dispose();
-                    }
+                    // a failed or cancelled phase is no longer sampled
+                    timer.discard();
                 }
-
-                listener.done();
-                return snapshot;
             }
             catch (IOException ioe)
             {
@@ -443,6 +706,24 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
         }
     }
 
+    /**
+     * Record the classes with their sizes for comparing many dumps without opening them.
+     * The table is optional, so failing to write it does not stop the snapshot being opened.
+     */
+    private static void writeClassIdentityTable(ISnapshot snapshot, IProgressListener listener)
+    {
+        File file = ClassIdentityTable.getFile(snapshot.getSnapshotInfo().getPrefix());
+        try
+        {
+            ClassIdentityTable.of(snapshot, new SilentProgressListener(listener)).write(file);
+        }
+        catch (IOException | SnapshotException e)
+        {
+            listener.sendUserMessage(Severity.WARNING,
+                            MessageUtil.format(Messages.SnapshotFactoryImpl_Error_ClassIdentityTable, file), e);
+        }
+    }
+
     /**
      * Check that indices look valid
      */
@@ -11,6 +11,10 @@
  *    SAP AG - initial API and implementation
  *    IBM Corporation - validation of indices
  *    Jason Koch - performance enhancements
+ *    Standalone adaptation - object flags index, reused reference buffers, concurrent use,
+ *                            incremental retained sets, paged dominator tree, biggest retained sizes,
+ *                            string table, thread stacks index, GC roots by type, field probe,
+ *                            warm-up
  *******************************************************************************/
 package org.eclipse.mat.parser.internal;
 
@@ -51,8 +55,10 @@ import org.eclipse.mat.parser.index.IIndexReader.IOne2OneIndex;
 import org.eclipse.mat.parser.index.IIndexReader.IOne2SizeIndex;
 import org.eclipse.mat.parser.index.IndexManager;
 import org.eclipse.mat.parser.index.IndexManager.Index;
+import org.eclipse.mat.parser.index.ObjectFlagsIndex;
 import org.eclipse.mat.parser.internal.snapshot.HistogramBuilder;
 import org.eclipse.mat.parser.internal.snapshot.IObjectMarker;
+import org.eclipse.mat.parser.internal.snapshot.IncrementalRetainedSet;
 import org.eclipse.mat.parser.internal.snapshot.MultiplePathsFromGCRootsComputerImpl;
 import org.eclipse.mat.parser.internal.snapshot.ObjectCache;
 import org.eclipse.mat.parser.internal.snapshot.ObjectMarker;
@@ -80,6 +86,9 @@ import org.eclipse.mat.snapshot.IPathsFromGCRootsComputer;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.PathsFromGCRootsTree;
 import org.eclipse.mat.snapshot.SnapshotInfo;
+import org.eclipse.mat.snapshot.SnapshotWarmUp;
+import org.eclipse.mat.snapshot.StringTable;
+import org.eclipse.mat.snapshot.TopRetainedTable;
 import org.eclipse.mat.snapshot.UnreachableObjectsHistogram;
 import org.eclipse.mat.snapshot.model.GCRootInfo;
 import org.eclipse.mat.snapshot.model.IClass;
@@ -88,6 +97,7 @@ import org.eclipse.mat.snapshot.model.IPrimitiveArray;
 import org.eclipse.mat.snapshot.model.IThreadStack;
 import org.eclipse.mat.snapshot.model.NamedReference;
 import org.eclipse.mat.snapshot.model.ObjectReference;
+import org.eclipse.mat.snapshot.registry.ClassSpecificNameResolverRegistry;
 import org.eclipse.mat.util.IProgressListener;
 import org.eclipse.mat.util.IProgressListener.OperationCanceledException;
 import org.eclipse.mat.util.MessageUtil;
@@ -317,26 +327,38 @@ public final class SnapshotImpl implements ISnapshot
 
         answer.calculateLoaderLabels();
 
+        answer.writeIndexFile(objectReaderUniqueIdentifier, listener);
+
+        return answer;
+    }
+
+    /**
+     * Write the master index file, which holds the snapshot info and the
+     * data not kept in separate index files. Called again once the parse has
+     * finished, so that the properties recorded by the later phases are kept.
+     */
+    void writeIndexFile(String objectReaderUniqueIdentifier, IProgressListener listener) throws SnapshotException
+    {
         try (
             FileOutputStream fos = new FileOutputStream(snapshotInfo.getPrefix() + "index");//$NON-NLS-1$
             ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(fos));)
         {
             out.writeUTF(VERSION);
             out.writeUTF(objectReaderUniqueIdentifier);
-            out.writeObject(answer.snapshotInfo);
-            out.writeObject(answer.classCache);
+            out.writeObject(snapshotInfo);
+            out.writeObject(classCache);
 
             if (listener.isCanceled())
                 throw new IProgressListener.OperationCanceledException();
 
-            out.writeObject(answer.roots);
-            out.writeObject(answer.rootsPerThread);
+            out.writeObject(roots);
+            out.writeObject(rootsPerThread);
 
             if (listener.isCanceled())
                 throw new IProgressListener.OperationCanceledException();
 
-            out.writeObject(answer.loaderLabels);
-            out.writeObject(answer.arrayObjects);
+            out.writeObject(loaderLabels);
+            out.writeObject(arrayObjects);
         }
         catch (IOException e)
         {
@@ -344,8 +366,6 @@ public final class SnapshotImpl implements ISnapshot
             // we don't retry with a different parser.
             throw new SnapshotException(e);
         }
-
-        return answer;
     }
 
     // //////////////////////////////////////////////////////////////
@@ -372,6 +392,18 @@ public final class SnapshotImpl implements ISnapshot
     
     private boolean parsedThreads = false;
     HashMapIntObject<IThreadStack> threadId2stack;
+    private ThreadStackIndex threadStackIndex;
+    private boolean openedGCRootIndex;
+    private GCRootIndex gcRootIndex;
+    private TopRetainedTable topRetainedTable;
+    private volatile StringTable stringTable;
+    private volatile boolean stringTableOpened;
+    // each lazily opened piece has its own lock, so that opening one does not block the others
+    private final Object threadsLock = new Object();
+    private final Object gcRootIndexLock = new Object();
+    private final Object topRetainedTableLock = new Object();
+    private final Object stringTableLock = new Object();
+    private volatile WarmUpScheduler warmUp;
 
     // //////////////////////////////////////////////////////////////
     // constructor
@@ -451,7 +483,8 @@ public final class SnapshotImpl implements ISnapshot
             else
             {
                 IObject classLoader = getObject(classLoaderId);
-                label = classLoader.getClassSpecificName();
+                // the loader is not labelled yet, so resolve the name directly
+                label = ClassSpecificNameResolverRegistry.resolve(classLoader);
                 if (label == null)
                     label = ClassLoaderImpl.NO_LABEL;
             }
@@ -479,7 +512,7 @@ public final class SnapshotImpl implements ISnapshot
                     else
                     {
                         IObject classLoader = getObject(classLoaderId);
-                        label = classLoader.getClassSpecificName();
+                        label = ClassSpecificNameResolverRegistry.resolve(classLoader);
                         if (label == null)
                             label = ClassLoaderImpl.NO_LABEL;
                     }
@@ -523,6 +556,74 @@ public final class SnapshotImpl implements ISnapshot
         // GCRootInfo[roots.size()]));
     }
 
+    @Override
+    public int[] getGCRoots(int typeMask) throws SnapshotException
+    {
+        GCRootIndex index = getGCRootIndex();
+        if (index == null)
+            return rootsOfType(roots, typeMask);
+        try
+        {
+            return index.get(GCRootIndex.ALL_THREADS, typeMask);
+        }
+        catch (IOException e)
+        {
+            throw new SnapshotException(e);
+        }
+    }
+
+    @Override
+    public int[] getGCRootsOfThread(int threadId, int typeMask) throws SnapshotException
+    {
+        GCRootIndex index = getGCRootIndex();
+        if (index == null)
+        {
+            HashMapIntObject<XGCRootInfo[]> locals = rootsPerThread != null ? rootsPerThread.get(threadId) : null;
+            return locals != null ? rootsOfType(locals, typeMask) : new int[0];
+        }
+        try
+        {
+            return index.get(threadId, typeMask);
+        }
+        catch (IOException e)
+        {
+            throw new SnapshotException(e);
+        }
+    }
+
+    private GCRootIndex getGCRootIndex()
+    {
+        synchronized (gcRootIndexLock)
+        {
+            if (!openedGCRootIndex)
+            {
+                // the roots are then filtered in memory if the index could not be written
+                gcRootIndex = GCRootIndex.openOrWrite(snapshotInfo.getPrefix(), roots, rootsPerThread);
+                openedGCRootIndex = true;
+            }
+            return gcRootIndex;
+        }
+    }
+
+    private static int[] rootsOfType(HashMapIntObject<XGCRootInfo[]> roots, int typeMask)
+    {
+        ArrayInt result = new ArrayInt();
+        for (Iterator<HashMapIntObject.Entry<XGCRootInfo[]>> iter = roots.entries(); iter.hasNext();)
+        {
+            HashMapIntObject.Entry<XGCRootInfo[]> entry = iter.next();
+            for (XGCRootInfo info : entry.getValue())
+            {
+                if ((info.getType() & typeMask) != 0)
+                {
+                    result.add(entry.getKey());
+                    break;
+                }
+            }
+        }
+        result.sort();
+        return result.toArray();
+    }
+
     @Override
     public Collection<IClass> getClasses() throws SnapshotException
     {
@@ -602,6 +703,7 @@ public final class SnapshotImpl implements ISnapshot
         Arrays.sort(sortedObjectIds);
 
         IOne2OneIndex o2class = indexManager.o2class();
+        ObjectFlagsIndex flags = indexManager.o2flags();
 
         // firstly, arrays we collect the size for each array separately
         for(int i = 0; i < sortedObjectIds.length; i++) {
@@ -636,7 +738,7 @@ public final class SnapshotImpl implements ISnapshot
                 // it would be preferable to call getHeapSize once per class id, but on occasion
                 // objects with the same class id might get a different reference in the classCache
                 final long heapSize;
-                IClass clazz = classCache.get(objectId);
+                IClass clazz = flags == null || flags.is(objectId, ObjectFlagsIndex.CLASS) ? classCache.get(objectId) : null;
                 if (clazz != null) {
                     heapSize = clazz.getUsedHeapSize();
                 } else {
@@ -690,6 +792,7 @@ public final class SnapshotImpl implements ISnapshot
 
         // Add a useful error message
         int nobjs = indexManager.inbound().size();
+        int[] referees = new int[64];
         for (int ii = 0; ii < objectIds.length; ii++)
         {
             int objectId = objectIds[ii];
@@ -697,9 +800,14 @@ public final class SnapshotImpl implements ISnapshot
             {
                 throw new SnapshotException(MessageUtil.format(Messages.SnapshotImpl_Error_ObjectNotFound, objectId));
             }
-            int[] referees = inbound.get(objectId);
-            for (int refereeId : referees)
-                result.add(refereeId);
+            int length = inbound.get(objectId, referees, 0);
+            if (length > referees.length)
+            {
+                referees = new int[length];
+                inbound.get(objectId, referees, 0);
+            }
+            for (int jj = 0; jj < length; jj++)
+                result.add(referees[jj]);
 
             if (ii % 100 == 0)
             {
@@ -732,6 +840,7 @@ public final class SnapshotImpl implements ISnapshot
 
         // Add a useful error message
         int nobjs = indexManager.outbound().size();
+        int[] referees = new int[64];
         for (int ii = 0; ii < objectIds.length; ii++)
         {
             int objectId = objectIds[ii];
@@ -739,9 +848,14 @@ public final class SnapshotImpl implements ISnapshot
             {
                 throw new SnapshotException(MessageUtil.format(Messages.SnapshotImpl_Error_ObjectNotFound, objectId));
             }
-            int[] referees = outbound.get(objectId);
-            for (int refereeId : referees)
-                result.add(refereeId);
+            int length = outbound.get(objectId, referees, 0);
+            if (length > referees.length)
+            {
+                referees = new int[length];
+                outbound.get(objectId, referees, 0);
+            }
+            for (int jj = 0; jj < length; jj++)
+                result.add(referees[jj]);
 
             if (ii % 100 == 0)
             {
@@ -938,6 +1052,12 @@ public final class SnapshotImpl implements ISnapshot
         }
     }
 
+    /**
+     * Incremental retained sets give up and mark the whole heap once the
+     * affected region passes this fraction of the objects.
+     */
+    private static final int INCREMENTAL_REGION_FRACTION = 4;
+
     @Override
     public int[] getRetainedSet(int[] objectIds, String[] fieldNames, IProgressListener listener)
                     throws SnapshotException
@@ -956,6 +1076,16 @@ public final class SnapshotImpl implements ISnapshot
         if (listener.isCanceled())
             return null;
 
+        if (isDominatorTreeCalculated())
+        {
+            IncrementalRetainedSet incremental = new IncrementalRetainedSet(this, indexManager,
+                            numberOfObjects / INCREMENTAL_REGION_FRACTION);
+            incremental.removeReferences(objectIds, new HashSet<String>(Arrays.asList(fieldNames)));
+            int[] retained = incremental.getUnreachable(listener);
+            if (retained != null)
+                return retained;
+        }
+
         BitField reachable = new BitField(numberOfObjects);
 
         int markedObjects = dfs2(reachable, initialSet, fieldNames);
@@ -979,6 +1109,20 @@ public final class SnapshotImpl implements ISnapshot
     {
         if (progressMonitor == null)
             progressMonitor = new VoidProgressListener();
+
+        if (isDominatorTreeCalculated())
+        {
+            // the initial objects are followed by neither pass below
+            IncrementalRetainedSet incremental = new IncrementalRetainedSet(this, indexManager,
+                            getSnapshotInfo().getNumberOfObjects() / INCREMENTAL_REGION_FRACTION);
+            incremental.removeReferences(objectIds, null);
+            for (ExcludedReferencesDescriptor excluded : excludedReferences)
+                incremental.removeReferences(excluded.getObjectIds(), excluded.getFields());
+            int[] unreachable = incremental.getUnreachable(progressMonitor);
+            if (unreachable != null)
+                return reachableThrough(objectIds, unreachable);
+        }
+
         SimpleMonitor monitor = new SimpleMonitor(Messages.SnapshotImpl_RetainedSetProgressName, progressMonitor, new int[] {50,50});
         /*
          * first pass - mark starting from the GC roots, avoiding
@@ -1033,6 +1177,56 @@ public final class SnapshotImpl implements ISnapshot
         return retainedSet.toArray();
     }
 
+    /**
+     * The initial objects and all the objects reachable from them through
+     * the given objects only, as the second pass of
+     * {@link #getRetainedSet(int[], ExcludedReferencesDescriptor[], IProgressListener)}.
+     */
+    private int[] reachableThrough(int[] objectIds, int[] through)
+    {
+        int numberOfObjects = getSnapshotInfo().getNumberOfObjects();
+        BitField allowed = new BitField(numberOfObjects);
+        for (int objectId : through)
+            allowed.set(objectId);
+        BitField visited = new BitField(numberOfObjects);
+        ArrayIntBig retainedSet = new ArrayIntBig();
+        IntStack stack = new IntStack();
+        for (int objectId : objectIds)
+        {
+            if (!visited.get(objectId))
+            {
+                visited.set(objectId);
+                retainedSet.add(objectId);
+                stack.push(objectId);
+            }
+        }
+        IIndexReader.IOne2ManyIndex outbound = indexManager.outbound();
+        int[] children = new int[64];
+        while (stack.size() > 0)
+        {
+            int current = stack.pop();
+            int length = outbound.get(current, children, 0);
+            if (length > children.length)
+            {
+                children = new int[length];
+                outbound.get(current, children, 0);
+            }
+            for (int jj = 0; jj < length; jj++)
+            {
+                int child = children[jj];
+                if (allowed.get(child) && !visited.get(child))
+                {
+                    visited.set(child);
+                    retainedSet.add(child);
+                    stack.push(child);
+                }
+            }
+        }
+        int[] answer = retainedSet.toArray();
+        Arrays.sort(answer);
+        return answer;
+    }
+
     @Override
     public long getMinRetainedSize(int[] objectIds, IProgressListener progressMonitor)
                     throws UnsupportedOperationException, SnapshotException
@@ -1161,21 +1355,18 @@ public final class SnapshotImpl implements ISnapshot
                     current = stack[--size]; // pop
                     retainedSet.add(current);
 
-                    int[] next = dominated.get(current + 1);
-                    for (int i : next)
+                    // push the dominated objects, read directly onto the stack
+                    int length = dominated.get(current + 1, stack, size);
+                    if (length > capacity - size)
                     {
-                        // push, check capacity first
-                        if (size == capacity)
-                        {
-                            int newCapacity = capacity << 1;
-                            int[] newArr = new int[newCapacity];
-                            System.arraycopy(stack, 0, newArr, 0, capacity);
-                            stack = newArr;
-                            capacity = newCapacity;
-
-                        }
-                        stack[size++] = i;
+                        int newCapacity = Math.max(capacity << 1, size + length);
+                        int[] newArr = new int[newCapacity];
+                        System.arraycopy(stack, 0, newArr, 0, size);
+                        stack = newArr;
+                        capacity = newCapacity;
+                        dominated.get(current + 1, stack, size);
                     }
+                    size += length;
                 }
             }
         }
@@ -1448,6 +1639,176 @@ public final class SnapshotImpl implements ISnapshot
 
     @Override
     public int[] getImmediateDominatedIds(int objectId) throws SnapshotException
+    {
+        checkDominatedId(objectId);
+        return indexManager.dominated().get(objectId + 1);
+    }
+
+    @Override
+    public int[] getImmediateDominatedIds(int objectId, int offset, int limit) throws SnapshotException
+    {
+        checkDominatedId(objectId);
+        // the children were written biggest first when the dominator tree was built
+        return indexManager.dominated().getRange(objectId + 1, offset, limit);
+    }
+
+    @Override
+    public int getImmediateDominatedCount(int objectId) throws SnapshotException
+    {
+        checkDominatedId(objectId);
+        return indexManager.dominated().getLength(objectId + 1);
+    }
+
+    @Override
+    public TopRetainedTable getTopRetainedTable() throws SnapshotException
+    {
+        return getTopRetainedTable(new VoidProgressListener());
+    }
+
+    /**
+     * The biggest retained sizes, collected from the indexes if the table
+     * was not written with the dominator tree.
+     * @param listener to stop collecting the table
+     */
+    /* package */TopRetainedTable getTopRetainedTable(IProgressListener listener) throws SnapshotException
+    {
+        if (!isDominatorTreeCalculated())
+            return null;
+        synchronized (topRetainedTableLock)
+        {
+            if (topRetainedTable == null)
+            {
+                File file = TopRetainedTable.getFile(getSnapshotInfo().getPrefix());
+                try
+                {
+                    topRetainedTable = TopRetainedTable.read(file);
+                }
+                catch (IOException e)
+                {
+                    // indexes written before the table was introduced
+                    topRetainedTable = collectTopRetainedTable(listener);
+                    try
+                    {
+                        topRetainedTable.write(file);
+                    }
+                    catch (IOException ignore)
+                    {
+                        // only a summary of the indexes, collected again on the next open
+                    }
+                }
+            }
+            return topRetainedTable;
+        }
+    }
+
+    /* package */void setTopRetainedTable(TopRetainedTable table)
+    {
+        synchronized (topRetainedTableLock)
+        {
+            topRetainedTable = table;
+        }
+    }
+
+    @Override
+    public StringTable getStringTable() throws SnapshotException
+    {
+        if (!stringTableOpened)
+        {
+            synchronized (stringTableLock)
+            {
+                if (!stringTableOpened)
+                {
+                    File file = StringTable.getFile(getSnapshotInfo().getPrefix());
+                    if (file.exists())
+                    {
+                        try
+                        {
+                            stringTable = StringTable.open(file);
+                        }
+                        catch (IOException e)
+                        {
+                            throw new SnapshotException(e);
+                        }
+                    }
+                    stringTableOpened = true;
+                }
+            }
+        }
+        return stringTable;
+    }
+
+    /**
+     * Write the string table of a snapshot parsed without it, and open it.
+     * Queries are not blocked meanwhile, they read the strings from the dump.
+     * @param listener to stop writing the table
+     * @return the table, or null if the snapshot has no strings
+     */
+    /* package */StringTable buildStringTable(IProgressListener listener) throws SnapshotException
+    {
+        StringTable table = getStringTable();
+        if (table != null)
+            return table;
+        File file = StringTable.getFile(getSnapshotInfo().getPrefix());
+        try
+        {
+            if (!StringTableWriter.write(this, file, listener))
+                return null;
+            synchronized (stringTableLock)
+            {
+                if (stringTable == null)
+                {
+                    stringTable = StringTable.open(file);
+                    stringTableOpened = true;
+                }
+                return stringTable;
+            }
+        }
+        catch (IOException e)
+        {
+            throw new SnapshotException(e);
+        }
+    }
+
+    /**
+     * Collect the table of the biggest retained sizes from the dominator and
+     * retained size indexes, without reading the dominated objects.
+     */
+    private TopRetainedTable collectTopRetainedTable(IProgressListener listener)
+    {
+        int numberOfObjects = getSnapshotInfo().getNumberOfObjects();
+        IIndexReader.IOne2OneIndex dominator = indexManager.dominator();
+        IIndexReader.IOne2LongIndex retained = indexManager.o2retained();
+        IIndexReader.IOne2OneIndex o2class = indexManager.o2class();
+        TopRetainedTable.Collector collector = new TopRetainedTable.Collector(TopRetainedTable.DEFAULT_OBJECTS,
+                        TopRetainedTable.DEFAULT_OBJECTS_PER_CLASS);
+
+        // depth in the dominator tree, 0 until known
+        int[] depth = new int[numberOfObjects];
+        IntStack path = new IntStack();
+        for (int objectId = 0; objectId < numberOfObjects; objectId++)
+        {
+            if ((objectId & 0xffff) == 0 && listener.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
+            int d = objectId;
+            while (depth[d] == 0)
+            {
+                int idom = dominator.get(d) - 2;
+                if (idom < 0)
+                {
+                    depth[d] = 1;
+                    break;
+                }
+                path.push(d);
+                d = idom;
+            }
+            for (int level = depth[d]; path.size() > 0;)
+                depth[path.pop()] = ++level;
+            collector.add(objectId, o2class.get(objectId), retained.get(objectId), depth[objectId]);
+        }
+        return collector.build();
+    }
+
+    private void checkDominatedId(int objectId) throws SnapshotException
     {
         if (!isDominatorTreeCalculated())
             throw new SnapshotException(Messages.SnapshotImpl_Error_DomTreeNotAvailable);
@@ -1458,7 +1819,6 @@ public final class SnapshotImpl implements ISnapshot
         {
             throw new SnapshotException(MessageUtil.format(Messages.SnapshotImpl_Error_ObjectNotFound, objectId));
         }
-        return indexManager.dominated().get(objectId + 1);
     }
 
     @Override
@@ -1613,6 +1973,73 @@ public final class SnapshotImpl implements ISnapshot
         }
     }
 
+    @Override
+    public Object readField(int objectId, String name) throws SnapshotException
+    {
+        int p = name.indexOf('.');
+        String n = p < 0 ? name : name.substring(0, p);
+        Object value;
+        if (isClass(objectId))
+        {
+            // static fields, from the class in memory
+            value = ISnapshot.super.readField(objectId, n);
+        }
+        else if (isArray(objectId) || isClassLoader(objectId) && mapIdToAddress(objectId) == 0)
+        {
+            // no instance fields, nor for the system class loader, which is not in the dump
+            value = null;
+        }
+        else
+        {
+            try
+            {
+                value = heapObjectReader.readField(objectId, n, this);
+            }
+            catch (IOException e)
+            {
+                throw new SnapshotException(e);
+            }
+        }
+        if (p < 0 || value == null)
+            return value;
+
+        if (!(value instanceof ObjectReference))
+        {
+            String msg = MessageUtil.format(Messages.AbstractObjectImpl_Error_FieldIsNotReference, new Object[] { n,
+                            getObject(objectId).getTechnicalName(), name.substring(p + 1) });
+            throw new SnapshotException(msg);
+        }
+        ObjectReference ref = (ObjectReference) value;
+        int next;
+        try
+        {
+            next = mapAddressToId(ref.getObjectAddress());
+        }
+        catch (SnapshotException e)
+        {
+            String msg = MessageUtil.format(Messages.AbstractObjectImpl_Error_FieldContainsIllegalReference,
+                            new Object[] { n, getObject(objectId).getTechnicalName(),
+                                            Long.toHexString(ref.getObjectAddress()) });
+            throw new SnapshotException(msg, e);
+        }
+        return readField(next, name.substring(p + 1));
+    }
+
+    @Override
+    public int getArrayLength(int objectId) throws SnapshotException
+    {
+        if (!isArray(objectId))
+            return -1;
+        try
+        {
+            return heapObjectReader.readArrayLength(objectId, this);
+        }
+        catch (IOException e)
+        {
+            throw new SnapshotException(e);
+        }
+    }
+
     @Override
     public GCRootInfo[] getGCRootInfo(int objectId) throws SnapshotException
     {
@@ -1664,7 +2091,8 @@ public final class SnapshotImpl implements ISnapshot
         }
         else
         {
-            IClass clazz = classCache.get(objectId);
+            ObjectFlagsIndex flags = indexManager.o2flags();
+            IClass clazz = flags == null || flags.is(objectId, ObjectFlagsIndex.CLASS) ? classCache.get(objectId) : null;
 
             if (clazz != null)
             {
@@ -1687,6 +2115,7 @@ public final class SnapshotImpl implements ISnapshot
         long total = 0;
         IOne2OneIndex o2class = indexManager.o2class();
         IOne2SizeIndex a2size = indexManager.a2size();
+        ObjectFlagsIndex flags = indexManager.o2flags();
         // Add a useful error message
         int nobjs = indexManager.idx.size();
         for (int objectId : objectIds)
@@ -1702,7 +2131,7 @@ public final class SnapshotImpl implements ISnapshot
             }
             else
             {
-                IClass clazz = classCache.get(objectId);
+                IClass clazz = flags == null || flags.is(objectId, ObjectFlagsIndex.CLASS) ? classCache.get(objectId) : null;
 
                 if (clazz != null)
                 {
@@ -1776,6 +2205,9 @@ public final class SnapshotImpl implements ISnapshot
                             MessageUtil.format(Messages.SnapshotImpl_Error_ObjectNotFound, objectId));
             throw new IllegalArgumentException(e);
         }
+        ObjectFlagsIndex flags = indexManager.o2flags();
+        if (flags != null)
+            return flags.is(objectId, ObjectFlagsIndex.ARRAY);
         if (arrayObjects.get(objectId))
         {
             // Variable size, so see if actually an array
@@ -1793,12 +2225,18 @@ public final class SnapshotImpl implements ISnapshot
     @Override
     public boolean isClass(int objectId)
     {
+        ObjectFlagsIndex flags = indexManager.o2flags();
+        if (flags != null)
+            return flags.is(objectId, ObjectFlagsIndex.CLASS);
         return classCache.containsKey(objectId);
     }
 
     @Override
     public boolean isGCRoot(int objectId)
     {
+        ObjectFlagsIndex flags = indexManager.o2flags();
+        if (flags != null)
+            return flags.is(objectId, ObjectFlagsIndex.GC_ROOT);
         return roots.containsKey(objectId);
     }
 
@@ -1818,6 +2256,15 @@ public final class SnapshotImpl implements ISnapshot
     {
         IOException error = null;
 
+        WarmUpScheduler scheduler;
+        synchronized (this)
+        {
+            scheduler = warmUp;
+            warmUp = null;
+        }
+        if (scheduler != null)
+            scheduler.close();
+
         try
         {
             heapObjectReader.close();
@@ -1836,6 +2283,56 @@ public final class SnapshotImpl implements ISnapshot
             error = e1;
         }
 
+        ThreadStackIndex threads;
+        GCRootIndex rootIndex;
+        synchronized (threadsLock)
+        {
+            threads = threadStackIndex;
+            threadStackIndex = null;
+            parsedThreads = false;
+        }
+        synchronized (gcRootIndexLock)
+        {
+            rootIndex = gcRootIndex;
+            gcRootIndex = null;
+            openedGCRootIndex = false;
+        }
+        if (threads != null)
+        {
+            try
+            {
+                threads.close();
+            }
+            catch (IOException e1)
+            {
+                error = e1;
+            }
+        }
+        if (rootIndex != null)
+        {
+            try
+            {
+                rootIndex.close();
+            }
+            catch (IOException e1)
+            {
+                error = e1;
+            }
+        }
+
+        StringTable strings = stringTable;
+        if (strings != null)
+        {
+            try
+            {
+                strings.close();
+            }
+            catch (IOException e1)
+            {
+                error = e1;
+            }
+        }
+
         classCacheByName.clear();
 
         if (error != null)
@@ -1885,7 +2382,13 @@ public final class SnapshotImpl implements ISnapshot
     @Override
     public boolean isClassLoader(int objectId)
     {
-        return loaderLabels.containsKey(objectId);
+        ObjectFlagsIndex flags = indexManager.o2flags();
+        if (flags != null)
+            return flags.is(objectId, ObjectFlagsIndex.CLASS_LOADER);
+        synchronized (loaderLabels)
+        {
+            return loaderLabels.containsKey(objectId);
+        }
     }
 
     /**
@@ -1895,7 +2398,11 @@ public final class SnapshotImpl implements ISnapshot
      */
     public String getClassLoaderLabel(int objectId)
     {
-        return loaderLabels.get(objectId);
+        // labels are resolved lazily, so can be set while other threads read them
+        synchronized (loaderLabels)
+        {
+            return loaderLabels.get(objectId);
+        }
     }
 
     /**
@@ -1908,7 +2415,11 @@ public final class SnapshotImpl implements ISnapshot
         if (label == null)
             throw new NullPointerException(Messages.SnapshotImpl_Label);
 
-        String old = loaderLabels.put(objectId, label);
+        String old;
+        synchronized (loaderLabels)
+        {
+            old = loaderLabels.put(objectId, label);
+        }
         if (old == null)
             throw new RuntimeException(Messages.SnapshotImpl_Error_ReplacingNonExistentClassLoader);
     }
@@ -1924,6 +2435,7 @@ public final class SnapshotImpl implements ISnapshot
         }
 
         IIndexReader.IOne2ManyIndex outbound = indexManager.outbound();
+        int[] children = new int[64];
 
         IntStack stack = new IntStack();
 
@@ -1955,8 +2467,15 @@ public final class SnapshotImpl implements ISnapshot
                     refs = new ArrayList<NamedReference>(refs);
                     refs.sort(CompObjectReference.INSTANCE);
                 }
-                for (int child : outbound.get(current))
+                int length = outbound.get(current, children, 0);
+                if (length > children.length)
+                {
+                    children = new int[length];
+                    outbound.get(current, children, 0);
+                }
+                for (int jj = 0; jj < length; jj++)
                 {
+                    int child = children[jj];
                     if (bits.get(child))
                         continue;
                     long childAddress = mapIdToAddress(child);
@@ -2002,8 +2521,15 @@ public final class SnapshotImpl implements ISnapshot
             }
             else
             {
-                for (int child : outbound.get(current))
+                int length = outbound.get(current, children, 0);
+                if (length > children.length)
+                {
+                    children = new int[length];
+                    outbound.get(current, children, 0);
+                }
+                for (int jj = 0; jj < length; jj++)
                 {
+                    int child = children[jj];
                     if (!bits.get(child))
                     {
                         stack.push(child);
@@ -2411,6 +2937,17 @@ public final class SnapshotImpl implements ISnapshot
         return heapObjectReader;
     }
 
+    /**
+     * Start computing the derived data of the snapshot in the background,
+     * unless it has already been started.
+     * @see SnapshotWarmUp
+     */
+    /* package */synchronized void startWarmUp()
+    {
+        if (warmUp == null)
+            warmUp = WarmUpScheduler.start(this);
+    }
+
     /**
      * The cache to speed the finding of the retained size for each object.
      * @return the cache
@@ -2445,6 +2982,10 @@ public final class SnapshotImpl implements ISnapshot
         {
             return (A) this.getSnapshotInfo().getProperty(UnreachableObjectsHistogram.class.getName());
         }
+        else if (addon == SnapshotWarmUp.class)
+        {
+            return (A) warmUp;
+        }
         else
         {
             return heapObjectReader.getAddon(addon);
@@ -2454,15 +2995,39 @@ public final class SnapshotImpl implements ISnapshot
     @Override
     public IThreadStack getThreadStack(int objectId) throws SnapshotException
     {
-        if (!parsedThreads)
+        ThreadStackIndex index;
+        HashMapIntObject<IThreadStack> stacks;
+        synchronized (threadsLock)
         {
-            threadId2stack = ThreadStackHelper.loadThreadsData(this);
-            parsedThreads = true;
+            if (!parsedThreads)
+            {
+                ThreadStackHelper.ThreadStacks threadStacks = ThreadStackHelper.openThreadsIndex(this);
+                if (threadStacks != null)
+                {
+                    threadStackIndex = threadStacks.index;
+                    // the index could not be written, so the stacks are kept in memory
+                    threadId2stack = threadStacks.stacks;
+                }
+                parsedThreads = true;
+            }
+            index = threadStackIndex;
+            stacks = threadId2stack;
         }
 
-        if (threadId2stack != null)
+        if (index != null)
+        {
+            try
+            {
+                return index.get(objectId);
+            }
+            catch (IOException e)
+            {
+                throw new SnapshotException(e);
+            }
+        }
+        if (stacks != null)
         {
-            return threadId2stack.get(objectId);
+            return stacks.get(objectId);
         }
         return null;
     }
@@ -2492,7 +3057,9 @@ public final class SnapshotImpl implements ISnapshot
                 {
                     // Lazy loading of array length
                     ClassImpl classImpl = (ClassImpl) snapshot.getObject(snapshot.indexManager.o2class().get(objectId));
-                    for (int i = 0; i < IPrimitiveArray.TYPE.length; ++i)
+                    ObjectFlagsIndex flags = snapshot.indexManager.o2flags();
+                    for (int i = 0; (flags == null || flags.is(objectId, ObjectFlagsIndex.PRIMITIVE_ARRAY))
+                                    && i < IPrimitiveArray.TYPE.length; ++i)
                     {
                         String an = IPrimitiveArray.TYPE[i];
                         if (classImpl.getName().equals(an))
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.ArrayInt;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.StringTable;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.model.IObject;
+import org.eclipse.mat.snapshot.model.IPrimitiveArray;
+import org.eclipse.mat.util.IProgressListener;
+
+/**
+ * Writes the {@link StringTable} of a snapshot which was parsed without it,
+ * from the strings read through the snapshot. The values are decoded as
+ * {@link org.eclipse.mat.snapshot.model.PrettyPrinter#objectAsString(IObject, int)}
+ * decodes them, so the table holds what the parser would have extracted.
+ */
+/* package */class StringTableWriter
+{
+    /** whether the two bytes of a character in a byte[] are high byte first */
+    private final boolean bigEndian;
+    private final StringTable.Builder builder = new StringTable.Builder();
+    private char[] chars = new char[256];
+
+    private StringTableWriter(ISnapshot snapshot) throws SnapshotException
+    {
+        boolean big = false;
+        Collection<IClass> utf16 = snapshot.getClassesByName("java.lang.StringUTF16", false); //$NON-NLS-1$
+        if (utf16 != null && !utf16.isEmpty())
+        {
+            Object shift = utf16.iterator().next().resolveValue("HI_BYTE_SHIFT"); //$NON-NLS-1$
+            big = shift instanceof Integer && (Integer) shift == 8;
+        }
+        this.bigEndian = big;
+    }
+
+    /**
+     * Write the table of a snapshot.
+     * @param snapshot the snapshot
+     * @param file the table file, written as a whole or not at all
+     * @param listener to check for cancellation
+     * @return false if the snapshot has no strings
+     * @throws SnapshotException if a string could not be read
+     * @throws IOException if the table could not be written
+     */
+    static boolean write(ISnapshot snapshot, File file, IProgressListener listener)
+                    throws SnapshotException, IOException
+    {
+        Collection<IClass> classes = snapshot.getClassesByName("java.lang.String", false); //$NON-NLS-1$
+        if (classes == null || classes.isEmpty())
+            return false;
+        ArrayInt all = new ArrayInt();
+        for (IClass cls : classes)
+            all.addAll(cls.getObjectIds());
+        int[] stringIds = all.toArray();
+        Arrays.sort(stringIds);
+
+        StringTableWriter writer = new StringTableWriter(snapshot);
+        int[] ids = new int[stringIds.length];
+        int[] values = new int[stringIds.length];
+        int kept = 0;
+        for (int i = 0; i < stringIds.length; i++)
+        {
+            if (listener.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
+            int value = writer.add(snapshot.getObject(stringIds[i]));
+            if (value >= 0)
+            {
+                ids[kept] = stringIds[i];
+                values[kept] = value;
+                kept++;
+            }
+        }
+
+        File temp = new File(file.getPath() + ".tmp"); //$NON-NLS-1$
+        try
+        {
+            writer.builder.write(temp, Arrays.copyOf(ids, kept), Arrays.copyOf(values, kept));
+            if (!temp.renameTo(file))
+                throw new IOException(file.getPath());
+        }
+        finally
+        {
+            temp.delete();
+        }
+        return true;
+    }
+
+    /**
+     * Add the value of a string.
+     * @return the value number, or -1 if the string has no value
+     */
+    private int add(IObject string) throws SnapshotException
+    {
+        Object valueObj = string.resolveValue("value"); //$NON-NLS-1$
+        if (!(valueObj instanceof IPrimitiveArray))
+            return -1;
+        Object array = ((IPrimitiveArray) valueObj).getValueArray();
+        // count and offset fields were removed with JDK7u6
+        Object offsetObj = string.resolveValue("offset"); //$NON-NLS-1$
+        Object countObj = string.resolveValue("count"); //$NON-NLS-1$
+        int offset = offsetObj instanceof Integer ? (Integer) offsetObj : 0;
+        int count = countObj instanceof Integer ? (Integer) countObj : -1;
+        if (array instanceof char[])
+        {
+            char[] a = (char[]) array;
+            offset = Math.max(0, Math.min(offset, a.length));
+            count = count >= 0 ? Math.min(count, a.length - offset) : a.length - offset;
+            return builder.add(a, offset, count, StringTable.CHARS);
+        }
+        if (!(array instanceof byte[]))
+            return -1;
+        byte[] a = (byte[]) array;
+        Object coder = string.resolveValue("coder"); //$NON-NLS-1$
+        if (coder instanceof Byte && (Byte) coder == 0)
+        {
+            offset = Math.max(0, Math.min(offset, a.length));
+            count = count >= 0 ? Math.min(count, a.length - offset) : a.length - offset;
+            if (chars.length < count)
+                chars = new char[count];
+            for (int j = 0; j < count; j++)
+                chars[j] = (char) (a[offset + j] & 0xff);
+            return builder.add(chars, 0, count, StringTable.LATIN1);
+        }
+        offset = Math.max(0, Math.min(offset, a.length / 2));
+        count = count >= 0 ? Math.min(count, a.length / 2 - offset) : a.length / 2 - offset;
+        if (chars.length < count)
+            chars = new char[count];
+        int hi = bigEndian ? 0 : 1;
+        for (int j = 0, p = offset * 2; j < count; j++, p += 2)
+            chars[j] = (char) ((a[p + hi] & 0xff) << 8 | (a[p + 1 - hi] & 0xff));
+        return builder.add(chars, 0, count, StringTable.UTF16);
+    }
+}
@@ -10,6 +10,7 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    Andrew Johnson (IBM Corporation) - FindBugs fix
+ *    Standalone adaptation - binary thread stacks index
  *******************************************************************************/
 package org.eclipse.mat.parser.internal;
 
@@ -35,6 +36,65 @@ import org.eclipse.mat.util.MessageUtil;
 {
     private static final Logger logger = Logger.getLogger(ThreadStackHelper.class.getName());
 
+    /**
+     * The thread stacks of a snapshot, either in the binary index or, if the
+     * index could not be written, in memory.
+     */
+    /* package */static final class ThreadStacks
+    {
+        /* package */final ThreadStackIndex index;
+        /* package */final HashMapIntObject<IThreadStack> stacks;
+
+        private ThreadStacks(ThreadStackIndex index, HashMapIntObject<IThreadStack> stacks)
+        {
+            this.index = index;
+            this.stacks = stacks;
+        }
+    }
+
+    /**
+     * Open the binary index of the thread stacks, first building it from the
+     * text file of the stacks if the index is missing or older.
+     * @param snapshot the snapshot
+     * @return the index, or the stacks read from the text file if the index
+     *         could not be written, or null if the snapshot has no thread stacks
+     */
+    /* package */static ThreadStacks openThreadsIndex(ISnapshot snapshot) throws SnapshotException
+    {
+        String prefix = snapshot.getSnapshotInfo().getPrefix();
+        File text = new File(prefix + "threads"); //$NON-NLS-1$
+        File binary = new File(prefix + ThreadStackIndex.FILE_SUFFIX);
+        if (binary.exists() && (!text.exists() || binary.lastModified() >= text.lastModified()))
+        {
+            try
+            {
+                return new ThreadStacks(ThreadStackIndex.open(binary), null);
+            }
+            catch (IOException e)
+            {
+                logger.log(Level.WARNING, MessageUtil.format(Messages.ThreadStackHelper_ErrorReadingIndex, binary,
+                                e.getLocalizedMessage()));
+            }
+        }
+
+        HashMapIntObject<IThreadStack> stacks = loadThreadsData(snapshot);
+        if (stacks == null)
+            return null;
+        try
+        {
+            ThreadStackIndex.write(binary, stacks);
+            return new ThreadStacks(ThreadStackIndex.open(binary), null);
+        }
+        catch (IOException e)
+        {
+            logger.log(Level.WARNING, MessageUtil.format(Messages.ThreadStackHelper_ErrorWritingIndex, binary,
+                            e.getLocalizedMessage()));
+            binary.delete();
+            // keep the stacks already read in memory
+            return new ThreadStacks(null, stacks);
+        }
+    }
+
     /* package */static HashMapIntObject<IThreadStack> loadThreadsData(ISnapshot snapshot) throws SnapshotException
     {
         String fileName = snapshot.getSnapshotInfo().getPrefix() + "threads"; //$NON-NLS-1$
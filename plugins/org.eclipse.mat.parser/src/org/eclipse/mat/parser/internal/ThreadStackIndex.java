@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.internal;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.eclipse.mat.collect.HashMapIntObject;
+import org.eclipse.mat.snapshot.model.IStackFrame;
+import org.eclipse.mat.snapshot.model.IThreadStack;
+import org.eclipse.mat.util.MessageUtil;
+
+/**
+ * The thread stacks of a snapshot in binary form, indexed by thread id, so
+ * that the stack of one thread is read without reading the others.
+ * <p>
+ * The file has a header, then the thread ids in ascending order with the
+ * file position of the stack of each, then the stacks. A stack is the number
+ * of frames followed by each frame: the UTF-8 text and the ids of its local
+ * objects.
+ */
+/* package */class ThreadStackIndex implements Closeable
+{
+    /** file name after the prefix of the snapshot */
+    static final String FILE_SUFFIX = "threads.index"; //$NON-NLS-1$
+
+    private static final int MAGIC = 0x4d415454;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int ENTRY_SIZE = 12;
+
+    /** read with seek and readFully, as an interrupt would close a FileChannel for good */
+    private final RandomAccessFile raf;
+    private final int[] threadIds;
+    /** position of the stack of each thread, and the end of the file */
+    private final long[] positions;
+
+    private ThreadStackIndex(RandomAccessFile raf, int[] threadIds, long[] positions)
+    {
+        this.raf = raf;
+        this.threadIds = threadIds;
+        this.positions = positions;
+    }
+
+    /**
+     * Open an index.
+     * @param file the index file
+     * @return the index
+     * @throws IOException if the file could not be read or is not an index
+     */
+    static ThreadStackIndex open(File file) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+        try
+        {
+            if (raf.length() < HEADER_SIZE || raf.readInt() != MAGIC || raf.readInt() != VERSION)
+                throw new IOException(MessageUtil.format(Messages.ThreadStackIndex_Error_WrongFormat, file));
+            int count = raf.readInt();
+            byte[] table = new byte[count * ENTRY_SIZE];
+            raf.readFully(table);
+            ByteBuffer entries = ByteBuffer.wrap(table);
+            int[] threadIds = new int[count];
+            long[] positions = new long[count + 1];
+            for (int ii = 0; ii < count; ii++)
+            {
+                threadIds[ii] = entries.getInt();
+                positions[ii] = entries.getLong();
+            }
+            positions[count] = raf.length();
+            return new ThreadStackIndex(raf, threadIds, positions);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Write an index.
+     * @param file the index file
+     * @param stacks the stacks by thread id
+     * @throws IOException if the file could not be written
+     */
+    static void write(File file, HashMapIntObject<IThreadStack> stacks) throws IOException
+    {
+        int[] threadIds = stacks.getAllKeys();
+        Arrays.sort(threadIds);
+        byte[][] records = new byte[threadIds.length][];
+        for (int ii = 0; ii < threadIds.length; ii++)
+            records[ii] = encode(stacks.get(threadIds[ii]));
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(threadIds.length);
+            long position = HEADER_SIZE + (long) threadIds.length * ENTRY_SIZE;
+            for (int ii = 0; ii < threadIds.length; ii++)
+            {
+                out.writeInt(threadIds[ii]);
+                out.writeLong(position);
+                position += records[ii].length;
+            }
+            for (byte[] record : records)
+                out.write(record);
+        }
+    }
+
+    private static byte[] encode(IThreadStack stack)
+    {
+        IStackFrame[] frames = stack.getStackFrames();
+        byte[][] texts = new byte[frames.length][];
+        int size = 4;
+        for (int ii = 0; ii < frames.length; ii++)
+        {
+            texts[ii] = frames[ii].getText().getBytes(StandardCharsets.UTF_8);
+            size += 8 + texts[ii].length + 4 * frames[ii].getLocalObjectsIds().length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(frames.length);
+        for (int ii = 0; ii < frames.length; ii++)
+        {
+            buffer.putInt(texts[ii].length);
+            buffer.put(texts[ii]);
+            int[] locals = frames[ii].getLocalObjectsIds();
+            buffer.putInt(locals.length);
+            for (int local : locals)
+                buffer.putInt(local);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * The number of threads with a stack.
+     */
+    int size()
+    {
+        return threadIds.length;
+    }
+
+    /**
+     * Read the stack of a thread. Can be called from several threads at once.
+     * @param threadId the id of the thread object
+     * @return the stack, or null if the thread has none
+     * @throws IOException if the stack could not be read
+     */
+    IThreadStack get(int threadId) throws IOException
+    {
+        int index = Arrays.binarySearch(threadIds, threadId);
+        if (index < 0)
+            return null;
+        byte[] record = new byte[(int) (positions[index + 1] - positions[index])];
+        synchronized (raf)
+        {
+            raf.seek(positions[index]);
+            raf.readFully(record);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        StackFrameImpl[] frames = new StackFrameImpl[buffer.getInt()];
+        for (int ii = 0; ii < frames.length; ii++)
+        {
+            byte[] text = new byte[buffer.getInt()];
+            buffer.get(text);
+            int[] locals = new int[buffer.getInt()];
+            for (int jj = 0; jj < locals.length; jj++)
+                locals[jj] = buffer.getInt();
+            frames[ii] = new StackFrameImpl(new String(text, StandardCharsets.UTF_8), locals.length > 0 ? locals : null);
+        }
+        return new ThreadStackImpl(threadId, frames);
+    }
+
+    public void close() throws IOException
+    {
+        raf.close();
+    }
+}
@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.internal;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.SetInt;
+import org.eclipse.mat.snapshot.SnapshotWarmUp;
+import org.eclipse.mat.snapshot.model.GCRootInfo;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.model.IClassLoader;
+import org.eclipse.mat.snapshot.model.IObject;
+import org.eclipse.mat.util.IProgressListener.OperationCanceledException;
+import org.eclipse.mat.util.MessageUtil;
+import org.eclipse.mat.util.VoidProgressListener;
+
+/**
+ * Computes the pieces of a {@link SnapshotWarmUp} on a few daemon threads of
+ * the lowest priority, in the order of {@link SnapshotWarmUp.Piece}.
+ * <p>
+ * Each piece is computed through the same methods of the snapshot as the
+ * queries use, so a query which needs a piece being computed waits on the
+ * lock of that piece only. The retained sizes are written to the index
+ * directory as soon as they are computed. Stopping is cooperative, through a
+ * progress listener, as an interrupt could close the index files.
+ */
+/* package */class WarmUpScheduler implements SnapshotWarmUp
+{
+    private static final Logger logger = Logger.getLogger(WarmUpScheduler.class.getName());
+
+    private final SnapshotImpl snapshot;
+    private final VoidProgressListener listener = new VoidProgressListener();
+    private final ExecutorService workers;
+    private final Map<Piece, FutureTask<Void>> pieces = new EnumMap<Piece, FutureTask<Void>>(Piece.class);
+
+    private WarmUpScheduler(SnapshotImpl snapshot)
+    {
+        this.snapshot = snapshot;
+        // the pieces are independent, but leave most processors to the queries
+        int threads = Math.max(1, Math.min(Piece.values().length, Runtime.getRuntime().availableProcessors() / 2));
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                        new LinkedBlockingQueue<Runnable>(), new LowPriorityThreadFactory("MAT warm-up-")); //$NON-NLS-1$
+    }
+
+    /**
+     * Start warming up a snapshot.
+     * @param snapshot the snapshot, just opened
+     * @return the warm-up, to be closed before the snapshot is disposed
+     */
+    static WarmUpScheduler start(SnapshotImpl snapshot)
+    {
+        WarmUpScheduler warmUp = new WarmUpScheduler(snapshot);
+        for (Piece piece : Piece.values())
+            warmUp.pieces.put(piece, new FutureTask<Void>(warmUp.task(piece)));
+        for (FutureTask<Void> task : warmUp.pieces.values())
+            warmUp.workers.execute(task);
+        warmUp.workers.shutdown();
+        return warmUp;
+    }
+
+    private Callable<Void> task(final Piece piece)
+    {
+        return () -> {
+            if (listener.isCanceled())
+                return null;
+            try
+            {
+                compute(piece);
+            }
+            catch (OperationCanceledException e)
+            {
+                // stopped by close
+            }
+            catch (SnapshotException | RuntimeException e)
+            {
+                logger.log(Level.WARNING, MessageUtil.format(Messages.WarmUpScheduler_ErrorComputingPiece, piece,
+                                e.getLocalizedMessage()), e);
+                throw e;
+            }
+            return null;
+        };
+    }
+
+    private void compute(Piece piece) throws SnapshotException
+    {
+        switch (piece)
+        {
+            case STRING_TABLE:
+                // written by the parse with the option, otherwise here
+                snapshot.buildStringTable(listener);
+                break;
+            case TOP_RETAINED:
+                snapshot.getTopRetainedTable(listener);
+                break;
+            case THREADS:
+                // opens or writes both the GC roots index and the thread stacks index
+                int[] threads = snapshot.getGCRoots(GCRootInfo.Type.THREAD_OBJ);
+                if (threads.length > 0)
+                    snapshot.getThreadStack(threads[0]);
+                break;
+            case CLASS_RETAINED_SIZES:
+                for (IClass cls : snapshot.getClasses())
+                {
+                    if (listener.isCanceled())
+                        break;
+                    cls.getRetainedHeapSizeOfObjects(true, true, listener);
+                }
+                snapshot.getRetainedSizeCache().flush();
+                break;
+            case CLASSLOADER_RETAINED_SIZES:
+                SetInt loaderIds = new SetInt();
+                for (IClass cls : snapshot.getClasses())
+                {
+                    if (listener.isCanceled())
+                        break;
+                    if (!loaderIds.add(cls.getClassLoaderId()))
+                        continue;
+                    IObject loader = snapshot.getObject(cls.getClassLoaderId());
+                    if (loader instanceof IClassLoader)
+                        ((IClassLoader) loader).getRetainedHeapSizeOfObjects(true, true, listener);
+                }
+                snapshot.getRetainedSizeCache().flush();
+                break;
+            default:
+                break;
+        }
+    }
+
+    public boolean isDone(Piece piece)
+    {
+        return pieces.get(piece).isDone();
+    }
+
+    public void await(Piece piece) throws SnapshotException, InterruptedException
+    {
+        try
+        {
+            pieces.get(piece).get();
+        }
+        catch (CancellationException e)
+        {
+            // not computed, so the caller computes it
+        }
+        catch (ExecutionException e)
+        {
+            throw SnapshotException.rethrow(e.getCause());
+        }
+    }
+
+    public void close()
+    {
+        listener.setCanceled(true);
+        // not interrupted, as an interrupt closes the channels of the index files
+        for (FutureTask<Void> task : pieces.values())
+            task.cancel(false);
+        try
+        {
+            while (!workers.awaitTermination(1, TimeUnit.SECONDS))
+            {
+                // each piece checks the listener as it goes
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class LowPriorityThreadFactory implements ThreadFactory
+    {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        LowPriorityThreadFactory(String prefix)
+        {
+            this.prefix = prefix;
+        }
+
+        public Thread newThread(Runnable r)
+        {
+            Thread t = new Thread(r, prefix + count.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        }
+    }
+}
@@ -10,14 +10,15 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    Andrew Johnson - Integer arithmetic as well as Long
+ *    Standalone adaptation - concurrent use by analysis sessions
  *******************************************************************************/
 package org.eclipse.mat.parser.internal.oql.compiler;
 
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import org.eclipse.mat.SnapshotException;
@@ -684,7 +685,7 @@ abstract class Operation extends Expression
 
     static class InstanceOf extends Operation
     {
-        private static Map<String, Set<String>> class2intf = new HashMap<String, Set<String>>();
+        private static final Map<String, Set<String>> class2intf = new ConcurrentHashMap<String, Set<String>>();
 
         String className;
 
@@ -727,8 +728,10 @@ abstract class Operation extends Expression
             Set<String> intf = class2intf.get(context.getName());
             if (intf == null)
             {
-                class2intf.put(context.getName(), intf = new HashSet<String>());
+                // only publish the set once it is complete, as queries can run concurrently
+                intf = new HashSet<String>();
                 inspect(intf, context);
+                class2intf.put(context.getName(), intf);
             }
             return intf;
         }
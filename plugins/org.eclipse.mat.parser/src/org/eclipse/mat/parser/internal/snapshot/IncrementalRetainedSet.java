@@ -0,0 +1,299 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.internal.snapshot;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.ArrayInt;
+import org.eclipse.mat.collect.BitField;
+import org.eclipse.mat.collect.HashMapIntObject;
+import org.eclipse.mat.collect.IteratorInt;
+import org.eclipse.mat.collect.SetLong;
+import org.eclipse.mat.parser.index.IIndexReader;
+import org.eclipse.mat.parser.index.IndexManager;
+import org.eclipse.mat.parser.internal.util.IntStack;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.model.NamedReference;
+import org.eclipse.mat.util.IProgressListener;
+
+/**
+ * Finds the objects which become unreachable from the GC roots when some
+ * references are removed, starting from the dominator tree instead of marking
+ * the whole heap.
+ * <p>
+ * An object which becomes unreachable is reached from the target of a removed
+ * reference only through objects which also become unreachable, and its
+ * immediate dominator either becomes unreachable too or dominates one of the
+ * referrers of the removed references. Only the objects reachable from the
+ * targets which pass that test form the affected region. Objects of the
+ * region with a remaining reference from outside the region stay reachable,
+ * as does everything they reach inside the region; the rest of the region is
+ * the answer, exactly as a full marking would find it.
+ * <p>
+ * When the region grows past a limit the calculation gives up, and the caller
+ * marks the whole heap instead.
+ */
+public class IncrementalRetainedSet
+{
+    private final ISnapshot snapshot;
+    private final IIndexReader.IOne2ManyIndex outbound;
+    private final IIndexReader.IOne2ManyIndex inbound;
+    private final IIndexReader.IOne2OneIndex dominator;
+    private final int numberOfObjects;
+    private final int regionLimit;
+
+    /** the removed references of each referrer, as sorted referent ids */
+    private final HashMapIntObject<int[]> removed = new HashMapIntObject<int[]>();
+    private int[] buffer = new int[64];
+
+    /**
+     * Prepare a calculation.
+     * @param snapshot the snapshot, which must have a dominator tree
+     * @param indexManager the indexes of the snapshot
+     * @param regionLimit the most objects to examine before giving up
+     */
+    public IncrementalRetainedSet(ISnapshot snapshot, IndexManager indexManager, int regionLimit)
+    {
+        this.snapshot = snapshot;
+        this.outbound = indexManager.outbound();
+        this.inbound = indexManager.inbound();
+        this.dominator = indexManager.dominator();
+        this.numberOfObjects = snapshot.getSnapshotInfo().getNumberOfObjects();
+        this.regionLimit = regionLimit;
+    }
+
+    /**
+     * Remove the references from some objects through some fields. A
+     * reference is removed when none of the fields holding it is outside the
+     * given fields. A referrer given again keeps its first set of fields, as
+     * with {@link org.eclipse.mat.snapshot.ExcludedReferencesDescriptor}.
+     * @param objectIds the referrers
+     * @param fieldNames the fields, or null for all the references
+     * @throws SnapshotException if a referrer could not be read
+     */
+    public void removeReferences(int[] objectIds, Set<String> fieldNames) throws SnapshotException
+    {
+        for (int objectId : objectIds)
+        {
+            if (removed.containsKey(objectId))
+                continue;
+            int length = outbound.get(objectId, buffer, 0);
+            if (length > buffer.length)
+            {
+                buffer = new int[length];
+                outbound.get(objectId, buffer, 0);
+            }
+            int[] referents;
+            if (fieldNames == null)
+            {
+                referents = Arrays.copyOf(buffer, length);
+            }
+            else
+            {
+                // the addresses still referenced through another field
+                SetLong kept = new SetLong();
+                for (NamedReference reference : snapshot.getObject(objectId).getOutboundReferences())
+                {
+                    if (!fieldNames.contains(reference.getName()))
+                        kept.add(reference.getObjectAddress());
+                }
+                ArrayInt cut = new ArrayInt();
+                for (int jj = 0; jj < length; jj++)
+                {
+                    if (!kept.contains(snapshot.mapIdToAddress(buffer[jj])))
+                        cut.add(buffer[jj]);
+                }
+                referents = cut.toArray();
+            }
+            Arrays.sort(referents);
+            removed.put(objectId, referents);
+        }
+    }
+
+    /**
+     * The objects which are no longer reachable from the GC roots.
+     * @param listener to check for cancellation
+     * @return the object ids in ascending order, or null if the affected
+     *         region is larger than the limit
+     * @throws SnapshotException if an object could not be read
+     */
+    public int[] getUnreachable(IProgressListener listener) throws SnapshotException
+    {
+        // the dominator tree ancestors of the referrers
+        BitField ancestors = new BitField(numberOfObjects);
+        for (IteratorInt it = removed.keys(); it.hasNext();)
+        {
+            for (int d = it.next(); d >= 0 && !ancestors.get(d); d = immediateDominator(d))
+                ancestors.set(d);
+        }
+
+        Region region = new Region(ancestors);
+        for (IteratorInt it = removed.keys(); it.hasNext();)
+        {
+            for (int referent : removed.get(it.next()))
+                region.admit(referent);
+        }
+        int steps = 0;
+        while (region.stack.size() > 0)
+        {
+            if (region.members.size() > regionLimit)
+                return null;
+            if (++steps % 10000 == 0 && listener.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
+            int current = region.stack.pop();
+            int length = readOutbound(current);
+            for (int jj = 0; jj < length; jj++)
+                region.admit(buffer[jj]);
+        }
+
+        // objects of the region still referenced from outside it
+        BitField reachable = new BitField(numberOfObjects);
+        IntStack stack = new IntStack();
+        for (int ii = 0; ii < region.members.size(); ii++)
+        {
+            int objectId = region.members.get(ii);
+            int length = inbound.get(objectId, buffer, 0);
+            if (length > buffer.length)
+            {
+                buffer = new int[length];
+                inbound.get(objectId, buffer, 0);
+            }
+            for (int jj = 0; jj < length; jj++)
+            {
+                int referrer = buffer[jj];
+                if (!region.contains(referrer) && !isRemoved(referrer, objectId))
+                {
+                    reachable.set(objectId);
+                    stack.push(objectId);
+                    break;
+                }
+            }
+        }
+        if (listener.isCanceled())
+            throw new IProgressListener.OperationCanceledException();
+
+        // and what they reach inside the region
+        while (stack.size() > 0)
+        {
+            int current = stack.pop();
+            int length = readOutbound(current);
+            for (int jj = 0; jj < length; jj++)
+            {
+                int child = buffer[jj];
+                if (region.contains(child) && !reachable.get(child) && !isRemoved(current, child))
+                {
+                    reachable.set(child);
+                    stack.push(child);
+                }
+            }
+        }
+
+        ArrayInt unreachable = new ArrayInt();
+        for (int ii = 0; ii < region.members.size(); ii++)
+        {
+            int objectId = region.members.get(ii);
+            if (!reachable.get(objectId))
+                unreachable.add(objectId);
+        }
+        int[] answer = unreachable.toArray();
+        Arrays.sort(answer);
+        return answer;
+    }
+
+    private int readOutbound(int objectId)
+    {
+        int length = outbound.get(objectId, buffer, 0);
+        if (length > buffer.length)
+        {
+            buffer = new int[length];
+            outbound.get(objectId, buffer, 0);
+        }
+        return length;
+    }
+
+    private boolean isRemoved(int referrer, int referent)
+    {
+        int[] referents = removed.get(referrer);
+        return referents != null && Arrays.binarySearch(referents, referent) >= 0;
+    }
+
+    /**
+     * @return the immediate dominator, or -1 for the root of the dominator tree
+     */
+    private int immediateDominator(int objectId)
+    {
+        return dominator.get(objectId) - 2;
+    }
+
+    /**
+     * The objects which could become unreachable. An object waits for its
+     * immediate dominator to join, unless the dominator is an ancestor of a
+     * referrer.
+     */
+    private final class Region
+    {
+        final BitField ancestors;
+        final BitField contained = new BitField(numberOfObjects);
+        final ArrayInt members = new ArrayInt();
+        /** the members whose references are still to be followed */
+        final IntStack stack = new IntStack();
+        final HashMapIntObject<ArrayInt> waiting = new HashMapIntObject<ArrayInt>();
+
+        Region(BitField ancestors)
+        {
+            this.ancestors = ancestors;
+        }
+
+        boolean contains(int objectId)
+        {
+            return contained.get(objectId);
+        }
+
+        void admit(int objectId)
+        {
+            // GC roots stay reachable
+            if (contained.get(objectId) || snapshot.isGCRoot(objectId))
+                return;
+            int d = immediateDominator(objectId);
+            if (d >= 0 && !ancestors.get(d) && !contained.get(d))
+            {
+                ArrayInt w = waiting.get(d);
+                if (w == null)
+                    waiting.put(d, w = new ArrayInt(2));
+                w.add(objectId);
+                return;
+            }
+
+            // the objects waiting for a new member join with it
+            IntStack joining = new IntStack();
+            joining.push(objectId);
+            while (joining.size() > 0)
+            {
+                int member = joining.pop();
+                if (contained.get(member))
+                    continue;
+                contained.set(member);
+                members.add(member);
+                stack.push(member);
+                ArrayInt w = waiting.remove(member);
+                if (w != null)
+                {
+                    for (int ii = 0; ii < w.size(); ii++)
+                        joining.push(w.get(ii));
+                }
+            }
+        }
+    }
+}
@@ -11,6 +11,7 @@
  *    SAP AG - initial API and implementation
  *    Andrew Johnson (IBM Corporation) - performance improvements
  *    Jason Koch (Netflix, Inc) - performance improvements
+ *    Standalone adaptation - reused outbound buffer
  *******************************************************************************/
 package org.eclipse.mat.parser.internal.snapshot;
 
@@ -287,6 +288,7 @@ public class MultiplePathsFromGCRootsComputerImpl implements IMultiplePathsFromG
 
 		// Used for performance
 		List<NamedReference>refCache = new ArrayList<NamedReference>();
+		int[] outbound = new int[64];
 		// loop until the queue is empty, or all necessary paths are found
 		while (next.size() > 0 && count > 0)
 		{
@@ -312,10 +314,16 @@ public class MultiplePathsFromGCRootsComputerImpl implements IMultiplePathsFromG
 				}
 
 				// queue any unprocessed referenced object
-				int[] outbound = outboundIndex.get(objectId);
+				int length = outboundIndex.get(objectId, outbound, 0);
+				if (length > outbound.length)
+				{
+					outbound = new int[length];
+					outboundIndex.get(objectId, outbound, 0);
+				}
 				refCache.clear();
-				for (int child : outbound)
+				for (int i = 0; i < length; i++)
 				{
+					int child = outbound[i];
 					if (parent[child] == NOT_VISITED)
 					{
 						if (skipReferences)
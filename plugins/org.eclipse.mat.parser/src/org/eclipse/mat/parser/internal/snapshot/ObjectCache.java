@@ -9,6 +9,7 @@
  *
  * Contributors:
  *    SAP AG - initial API and implementation
+ *    Standalone adaptation - concurrent use by analysis sessions
  *******************************************************************************/
 package org.eclipse.mat.parser.internal.snapshot;
 
@@ -41,26 +42,42 @@ abstract public class ObjectCache<E>
         this.maxLfuBuckets = maxSize / 3;
     }
 
-    public synchronized E get(int objectId)
+    public E get(int objectId)
     {
-        Entry<E> e = map.get(objectId);
-        if (e != null)
+        synchronized (this)
         {
-            revalueEntry(e);
+            Entry<E> e = map.get(objectId);
+            if (e != null)
+            {
+                revalueEntry(e);
+                return e.object;
+            }
         }
-        else
+
+        // load without the lock so that concurrent queries do not wait for each other's reads
+        E object = load(objectId);
+
+        synchronized (this)
         {
+            // another thread may have loaded the object meanwhile, keep just one copy
+            Entry<E> e = map.get(objectId);
+            if (e != null)
+            {
+                revalueEntry(e);
+                return e.object;
+            }
+
             e = new Entry<E>();
-            e.object = load(objectId);
+            e.object = object;
             e.key = objectId;
 
             doInsert(e);
 
             while (map.size() > maxSize)
                 removeLeastValuableNode();
-        }
 
-        return e.object;
+            return e.object;
+        }
     }
 
     public synchronized void clear()
@@ -11,6 +11,7 @@
  *    SAP AG - initial API and implementation
  *    Andrew Johnson (IBM Corporation) - improved multithreading using local stacks
  *    Jason Koch (Netflix, Inc) - switch implementation to use FJ Pool
+ *    Standalone adaptation - read outbound references into reused buffers
  *******************************************************************************/
 package org.eclipse.mat.parser.internal.snapshot;
 
@@ -64,6 +65,24 @@ public class ObjectMarker implements IObjectMarker
     
     final int LEVELS_RUN_INLINE = 4;
 
+    // Lists longer than this are read into a temporary array rather than
+    // kept in the per-thread buffers
+    static final int MAX_CACHED_BUFFER = 64 * 1024;
+
+    // A buffer per inlined level for each worker thread. A task never waits
+    // for another task, so a thread only runs one task at a time.
+    final ThreadLocal<int[][]> buffers = new ThreadLocal<int[][]>()
+    {
+        @Override
+        protected int[][] initialValue()
+        {
+            int[][] levels = new int[LEVELS_RUN_INLINE + 1][];
+            for (int i = 0; i < levels.length; i++)
+                levels[i] = new int[64];
+            return levels;
+        }
+    };
+
     public ObjectMarker(int[] roots, boolean[] bits, IIndexReader.IOne2ManyIndex outbound,
                     IProgressListener progressListener)
     {
@@ -99,7 +118,7 @@ public class ObjectMarker implements IObjectMarker
             if (progressListener.isCanceled())
             { return; }
 
-            compute(position, LEVELS_RUN_INLINE);
+            compute(position, LEVELS_RUN_INLINE, buffers.get());
 
             // only mark progress from the top level tasks; as each root level element
             // is completed, a progress marker is updated
@@ -111,15 +130,22 @@ public class ObjectMarker implements IObjectMarker
             }
         }
 
-        void compute(final int outboundPosition, final int levelsLeft)
+        void compute(final int outboundPosition, final int levelsLeft, final int[][] levels)
         {
-            // TODO can this be an IteratorInt to avoid allocating arrays?
-            //      not yet supported by IndexReader but could be in future;
-            //      esp. for very large outbounds (ie: arrays)
-            final int[] process = outbound.get(outboundPosition);
+            // each level has its own buffer as the outer levels are still being processed
+            int[] process = levels[levelsLeft];
+            final int length = outbound.get(outboundPosition, process, 0);
+            if (length > process.length)
+            {
+                process = new int[length];
+                if (length <= MAX_CACHED_BUFFER)
+                    levels[levelsLeft] = process;
+                outbound.get(outboundPosition, process, 0);
+            }
 
-            for (int r : process)
+            for (int i = 0; i < length; i++)
             {
+                int r = process[i];
                 if (!visited[r])
                 {
                     visited[r] = true;
@@ -127,7 +153,7 @@ public class ObjectMarker implements IObjectMarker
                     if (levelsLeft <= 0) {
                         new FjObjectMarker(r, visited, false).fork();
                     } else {
-                        compute(r, levelsLeft - 1);
+                        compute(r, levelsLeft - 1, levels);
                     }
                 }
             }
@@ -233,6 +259,7 @@ public class ObjectMarker implements IObjectMarker
         // Used for performance
         List<NamedReference>refCache = new ArrayList<NamedReference>();
         int current;
+        int[] children = new int[64];
 
         while (size > 0) // loop until there are elements in the stack
         {
@@ -249,8 +276,15 @@ public class ObjectMarker implements IObjectMarker
             }
 
             refCache.clear();
-            for (int child : outbound.get(current))
+            int length = outbound.get(current, children, 0);
+            if (length > children.length)
+            {
+                children = new int[length];
+                outbound.get(current, children, 0);
+            }
+            for (int i = 0; i < length; i++)
             {
+                int child = children[i];
                 if (!bits[child]) // already visited?
                 {
                     if (!refersOnlyThroughExcluded(current, child, excludeSets, excludeObjectsBF, refCache, snapshot))
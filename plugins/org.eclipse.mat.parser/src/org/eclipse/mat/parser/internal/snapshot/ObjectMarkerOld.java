@@ -9,6 +9,7 @@
  *
  * Contributors:
  *    IBM
+ *    Standalone adaptation - reused outbound buffers
  *******************************************************************************/
 package org.eclipse.mat.parser.internal.snapshot;
 
@@ -95,6 +96,7 @@ public class ObjectMarkerOld implements IObjectMarker
         progressListener.beginTask(Messages.ObjectMarker_MarkingObjects, rootsToProcess);
 
         int current;
+        int[] children = new int[64];
 
         while (size > 0)
         {
@@ -109,8 +111,15 @@ public class ObjectMarkerOld implements IObjectMarker
                     throw new IProgressListener.OperationCanceledException();
             }
 
-            for (int child : outbound.get(current))
+            int length = outbound.get(current, children, 0);
+            if (length > children.length)
             {
+                children = new int[length];
+                outbound.get(current, children, 0);
+            }
+            for (int i = 0; i < length; i++)
+            {
+                int child = children[i];
                 if (!bits[child])
                 {
                     // stack.push(child);
@@ -187,6 +196,7 @@ public class ObjectMarkerOld implements IObjectMarker
         // Used for performance
         List<NamedReference>refCache = new ArrayList<NamedReference>();
         int current;
+        int[] children = new int[64];
 
         while (size > 0) // loop until there are elements in the stack
         {
@@ -203,8 +213,15 @@ public class ObjectMarkerOld implements IObjectMarker
             }
 
             refCache.clear();
-            for (int child : outbound.get(current))
+            int length = outbound.get(current, children, 0);
+            if (length > children.length)
+            {
+                children = new int[length];
+                outbound.get(current, children, 0);
+            }
+            for (int i = 0; i < length; i++)
             {
+                int child = children[i];
                 if (!bits[child]) // already visited?
                 {
                     if (!refersOnlyThroughExcluded(current, child, excludeSets, excludeObjectsBF, refCache, snapshot))
@@ -475,6 +492,7 @@ public class ObjectMarkerOld implements IObjectMarker
         int[] data = new int[10 * 1024]; // start with 10k
         IntStack rootsStack;
         int current = -1;
+        int[] children = new int[64]; // reused for the outbound references
         Throwable failure; // Exception/Error
 
         public DfsThread(IntStack roots)
@@ -513,8 +531,15 @@ public class ObjectMarkerOld implements IObjectMarker
                         current = data[--size];
                         /* end stack.pop */
 
-                        for (int child : outbound.get(current))
+                        int length = outbound.get(current, children, 0);
+                        if (length > children.length)
                         {
+                            children = new int[length];
+                            outbound.get(current, children, 0);
+                        }
+                        for (int i = 0; i < length; i++)
+                        {
+                            int child = children[i];
                             /*
                              * No synchronization here. It costs a lot of
                              * performance It is possible that some bits are marked
@@ -665,8 +690,15 @@ public class ObjectMarkerOld implements IObjectMarker
                             }
 
                             // Examine each outbound reference
-                            for (int child : outbound.get(current))
+                            int length = outbound.get(current, children, 0);
+                            if (length > children.length)
+                            {
+                                children = new int[length];
+                                outbound.get(current, children, 0);
+                            }
+                            for (int i = 0; i < length; i++)
                             {
+                                int child = children[i];
                                 /*
                                  * No synchronization here. It costs a lot of
                                  * performance It is possible that some bits are
@@ -9,6 +9,7 @@
  *
  * Contributors:
  *    SAP AG - initial API and implementation
+ *    Standalone adaptation - concurrent use by analysis sessions, warm-up
  *******************************************************************************/
 package org.eclipse.mat.parser.internal.snapshot;
 
@@ -57,7 +58,7 @@ public class RetainedSizeCache implements IIndexReader
         readId2Size(snapshotInfo.getPrefix());
     }
 
-    public long get(int key)
+    public synchronized long get(int key)
     {
         try
         {
@@ -70,13 +71,22 @@ public class RetainedSizeCache implements IIndexReader
         }
     }
 
-    public void put(int key, long value)
+    public synchronized void put(int key, long value)
     {
         id2size.put(key, value);
         isDirty = true;
     }
 
     public void close()
+    {
+        flush();
+    }
+
+    /**
+     * Write the sizes put since the file was last written. The cache stays
+     * open.
+     */
+    public synchronized void flush()
     {
         if (!isDirty)
             return;
@@ -161,7 +171,7 @@ public class RetainedSizeCache implements IIndexReader
         }
     }
 
-    public int size()
+    public synchronized int size()
     {
         return id2size.size();
     }
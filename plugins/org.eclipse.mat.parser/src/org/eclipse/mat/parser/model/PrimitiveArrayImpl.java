@@ -10,12 +10,15 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    Andrew Johnson - lazy loading of length
+ *    Standalone adaptation - mapped primitive arrays
  *******************************************************************************/
 package org.eclipse.mat.parser.model;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.lang.reflect.Array;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -103,6 +106,116 @@ public class PrimitiveArrayImpl extends AbstractArrayImpl implements IPrimitiveA
         }
     }
 
+    @Override
+    public ByteBuffer getValueBuffer()
+    {
+        ByteBuffer buffer = mappedBuffer();
+        return buffer != null ? buffer : IPrimitiveArray.super.getValueBuffer();
+    }
+
+    /**
+     * Decodes the chunks from the mapped dump when there is one, rather than
+     * reading each chunk from the dump file.
+     */
+    @Override
+    public boolean visitValueArray(int chunkLength, ChunkVisitor visitor)
+    {
+        ByteBuffer buffer = mappedBuffer();
+        if (buffer == null)
+            return IPrimitiveArray.super.visitValueArray(chunkLength, visitor);
+        if (chunkLength <= 0)
+            throw new IllegalArgumentException();
+        int length = getLength();
+        int elementSize = ELEMENT_SIZE[type];
+        for (int offset = 0; offset < length; offset += chunkLength)
+        {
+            int n = Math.min(chunkLength, length - offset);
+            ((Buffer) buffer).position(offset * elementSize);
+            Object chunk;
+            switch (type)
+            {
+                case Type.BOOLEAN:
+                {
+                    boolean[] values = new boolean[n];
+                    for (int ii = 0; ii < n; ii++)
+                        values[ii] = buffer.get() != 0;
+                    chunk = values;
+                    break;
+                }
+                case Type.BYTE:
+                {
+                    byte[] values = new byte[n];
+                    buffer.get(values);
+                    chunk = values;
+                    break;
+                }
+                case Type.CHAR:
+                {
+                    char[] values = new char[n];
+                    buffer.asCharBuffer().get(values);
+                    chunk = values;
+                    break;
+                }
+                case Type.SHORT:
+                {
+                    short[] values = new short[n];
+                    buffer.asShortBuffer().get(values);
+                    chunk = values;
+                    break;
+                }
+                case Type.INT:
+                {
+                    int[] values = new int[n];
+                    buffer.asIntBuffer().get(values);
+                    chunk = values;
+                    break;
+                }
+                case Type.LONG:
+                {
+                    long[] values = new long[n];
+                    buffer.asLongBuffer().get(values);
+                    chunk = values;
+                    break;
+                }
+                case Type.FLOAT:
+                {
+                    float[] values = new float[n];
+                    buffer.asFloatBuffer().get(values);
+                    chunk = values;
+                    break;
+                }
+                case Type.DOUBLE:
+                {
+                    double[] values = new double[n];
+                    buffer.asDoubleBuffer().get(values);
+                    chunk = values;
+                    break;
+                }
+                default:
+                    throw new IllegalStateException();
+            }
+            if (!visitor.visit(offset, chunk))
+                return false;
+        }
+        return true;
+    }
+
+    private ByteBuffer mappedBuffer()
+    {
+        try
+        {
+            return source.getHeapObjectReader().readPrimitiveArrayBuffer(this);
+        }
+        catch (SnapshotException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     @Override
     protected Field internalGetField(String name)
     {
@@ -0,0 +1,397 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.model;
+
+import java.io.File;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.mat.snapshot.IParseStatistics;
+
+/**
+ * Records the parse statistics of a snapshot as the phases run.
+ * The statistics are kept as a property of the {@link XSnapshotInfo},
+ * so they are written with the master index file of the snapshot.
+ * <pre>
+ * XParseStatistics.Timer timer = XParseStatistics.of(info).start(IParseStatistics.PHASE_PASS1);
+ * try
+ * {
+ *     ...
+ *     timer.stop(bytesRead, objects);
+ * }
+ * finally
+ * {
+ *     timer.discard();
+ * }
+ * </pre>
+ * The peak heap usage of a phase is sampled by a daemon thread while phases
+ * are running, rather than by resetting the peaks of the memory pools of the
+ * JVM, which belong to the whole application and to other parses too.
+ * @since 1.17
+ */
+public final class XParseStatistics implements IParseStatistics, Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    /** How often the heap usage is sampled while phases are running */
+    private static final long SAMPLE_MILLIS = 20;
+
+    /** The timers whose peak heap usage is sampled, guarded by itself */
+    private static final Set<Timer> sampled = new HashSet<Timer>();
+    private static Thread sampler;
+
+    private final List<PhaseRecord> phases = new ArrayList<PhaseRecord>();
+    private long totalWallNanos;
+
+    // runtime data
+    private transient String prefix;
+    private transient boolean started;
+    private transient long firstStartNanos;
+
+    /**
+     * Find the statistics of the snapshot, adding them to the snapshot info if needed.
+     * @param info the snapshot being parsed
+     * @return the statistics
+     */
+    public static XParseStatistics of(XSnapshotInfo info)
+    {
+        String key = IParseStatistics.class.getName();
+        XParseStatistics statistics;
+        Serializable existing = info.getProperty(key);
+        if (existing instanceof XParseStatistics)
+        {
+            statistics = (XParseStatistics) existing;
+        }
+        else
+        {
+            statistics = new XParseStatistics();
+            info.setProperty(key, statistics);
+        }
+        statistics.prefix = info.getPrefix();
+        return statistics;
+    }
+
+    private XParseStatistics()
+    {}
+
+    /**
+     * Start measuring a phase.
+     * @param name the name of the phase, for example {@link IParseStatistics#PHASE_PASS1}
+     * @return the timer to stop at the end of the phase
+     */
+    public synchronized Timer start(String name)
+    {
+        Timer timer = new Timer(name);
+        if (!started)
+        {
+            // continue the total of the phases already recorded
+            firstStartNanos = timer.startNanos - totalWallNanos;
+            started = true;
+        }
+        watch(timer);
+        return timer;
+    }
+
+    private synchronized PhaseRecord stop(Timer timer, long bytesRead, long objects)
+    {
+        long wallNanos = System.nanoTime() - timer.startNanos;
+        long cpu = processCpuTime();
+        long cpuNanos = cpu >= 0 && timer.startCpu >= 0 ? cpu - timer.startCpu : -1;
+        long peakHeap = unwatch(timer);
+
+        PhaseRecord phase = new PhaseRecord(timer.name, wallNanos, cpuNanos, bytesRead, objects, peakHeap,
+                        indexFileSize());
+        phases.add(phase);
+        // the same clock as the phases, so that no phase is longer than the total
+        totalWallNanos = Math.max(totalWallNanos, timer.startNanos + wallNanos - firstStartNanos);
+        return phase;
+    }
+
+    public synchronized List<? extends Phase> getPhases()
+    {
+        return Collections.unmodifiableList(new ArrayList<PhaseRecord>(phases));
+    }
+
+    public synchronized Phase getPhase(String name)
+    {
+        for (PhaseRecord phase : phases)
+        {
+            if (phase.name.equals(name))
+                return phase;
+        }
+        return null;
+    }
+
+    public synchronized long getTotalWallTimeMillis()
+    {
+        return totalWallNanos / 1000000L;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        StringBuilder buf = new StringBuilder();
+        for (PhaseRecord phase : phases)
+            buf.append(phase).append('\n');
+        return buf.toString();
+    }
+
+    private long indexFileSize()
+    {
+        if (prefix == null)
+            return 0;
+        File prefixFile = new File(prefix);
+        final String start = prefixFile.getName();
+        File dir = prefixFile.getAbsoluteFile().getParentFile();
+        File[] files = dir != null ? dir.listFiles() : null;
+        long total = 0;
+        if (files != null)
+        {
+            for (File f : files)
+            {
+                String name = f.getName();
+                if (name.startsWith(start) && name.endsWith("index") && f.isFile()) //$NON-NLS-1$
+                    total += f.length();
+            }
+        }
+        return total;
+    }
+
+    private static long processCpuTime()
+    {
+        try
+        {
+            OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+            if (os instanceof com.sun.management.OperatingSystemMXBean)
+                return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        catch (LinkageError e)
+        {
+            // $JL-EXC$ management extensions not available on this JVM
+        }
+        return -1;
+    }
+
+    /**
+     * The heap usage now, or the peak heap usage since the JVM started, as the
+     * sum over the heap memory pools.
+     * @return the bytes, or -1 if not available
+     */
+    private static long heapUsage(boolean peak)
+    {
+        long total = -1;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid())
+            {
+                MemoryUsage usage = peak ? pool.getPeakUsage() : pool.getUsage();
+                if (usage != null)
+                    total = Math.max(total, 0) + usage.getUsed();
+            }
+        }
+        return total;
+    }
+
+    private static void watch(Timer timer)
+    {
+        synchronized (sampled)
+        {
+            sampled.add(timer);
+            if (sampler == null)
+            {
+                sampler = new Thread(XParseStatistics::sample, "MAT parse statistics"); //$NON-NLS-1$
+                sampler.setDaemon(true);
+                sampler.start();
+            }
+        }
+    }
+
+    /**
+     * Stop sampling for a phase.
+     * @return the peak heap usage of the phase, or -1 if not available
+     */
+    private static long unwatch(Timer timer)
+    {
+        long peak = heapUsage(true);
+        long used = heapUsage(false);
+        synchronized (sampled)
+        {
+            sampled.remove(timer);
+            if (peak < 0)
+                return -1;
+            long sampledPeak = Math.max(timer.peakHeap, used);
+            // a peak of the JVM reached since the phase started was reached during the phase
+            return peak > timer.startPeak ? Math.max(peak, sampledPeak) : sampledPeak;
+        }
+    }
+
+    private static void sample()
+    {
+        while (true)
+        {
+            long used = heapUsage(false);
+            synchronized (sampled)
+            {
+                if (sampled.isEmpty())
+                {
+                    sampler = null;
+                    return;
+                }
+                for (Timer t : sampled)
+                    t.peakHeap = Math.max(t.peakHeap, used);
+            }
+            try
+            {
+                Thread.sleep(SAMPLE_MILLIS);
+            }
+            catch (InterruptedException e)
+            {
+                synchronized (sampled)
+                {
+                    sampler = null;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Measures one running phase.
+     */
+    public final class Timer
+    {
+        private final String name;
+        private final long startNanos;
+        private final long startCpu;
+        /** the peak heap usage of the JVM when the phase started */
+        private final long startPeak;
+        /** the highest heap usage sampled during the phase, guarded by the sampled set */
+        private long peakHeap;
+
+        private Timer(String name)
+        {
+            this.name = name;
+            this.startNanos = System.nanoTime();
+            this.startCpu = processCpuTime();
+            this.startPeak = heapUsage(true);
+            this.peakHeap = heapUsage(false);
+        }
+
+        /**
+         * Finish the phase and record its measurements.
+         * @param bytesRead the number of bytes of the dump processed, or -1 if not applicable
+         * @param objects the number of objects processed, or -1 if not known
+         * @return the recorded phase
+         */
+        public Phase stop(long bytesRead, long objects)
+        {
+            return XParseStatistics.this.stop(this, bytesRead, objects);
+        }
+
+        /**
+         * Stop sampling for a phase which failed or was cancelled, without
+         * recording it. Does nothing if the timer was already stopped, so
+         * it can be called in a finally block after {@link #stop(long, long)}.
+         */
+        public void discard()
+        {
+            synchronized (sampled)
+            {
+                sampled.remove(this);
+            }
+        }
+    }
+
+    private static final class PhaseRecord implements Phase, Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final String name;
+        private final long wallNanos;
+        private final long cpuNanos;
+        private final long bytesRead;
+        private final long objects;
+        private final long peakHeap;
+        private final long indexFileBytes;
+
+        PhaseRecord(String name, long wallNanos, long cpuNanos, long bytesRead, long objects, long peakHeap,
+                        long indexFileBytes)
+        {
+            this.name = name;
+            this.wallNanos = wallNanos;
+            this.cpuNanos = cpuNanos;
+            this.bytesRead = bytesRead;
+            this.objects = objects;
+            this.peakHeap = peakHeap;
+            this.indexFileBytes = indexFileBytes;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public long getWallTimeMillis()
+        {
+            return wallNanos / 1000000L;
+        }
+
+        public long getCpuTimeMillis()
+        {
+            return cpuNanos >= 0 ? cpuNanos / 1000000L : -1;
+        }
+
+        public long getBytesRead()
+        {
+            return bytesRead;
+        }
+
+        public long getObjects()
+        {
+            return objects;
+        }
+
+        public double getObjectsPerSecond()
+        {
+            if (objects < 0 || wallNanos <= 0)
+                return -1;
+            return objects * 1e9 / wallNanos;
+        }
+
+        public long getPeakHeapBytes()
+        {
+            return peakHeap;
+        }
+
+        public long getIndexFileBytes()
+        {
+            return indexFileBytes;
+        }
+
+        @Override
+        public String toString()
+        {
+            return name + " wall=" + getWallTimeMillis() + "ms cpu=" + getCpuTimeMillis() + "ms bytes=" + bytesRead //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+                            + " objects=" + objects + " peakHeap=" + peakHeap + " indexFiles=" + indexFileBytes; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        }
+    }
+}
@@ -9,9 +9,12 @@
  *
  * Contributors:
  *    SAP AG - initial API and implementation
+ *    Standalone adaptation - streaming export
  *******************************************************************************/
 package org.eclipse.mat.query.registry;
 
+import java.io.File;
+import java.io.IOException;
 import java.text.ParsePosition;
 import java.util.ArrayList;
 import java.util.List;
@@ -21,8 +24,10 @@ import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.query.IQueryContext;
 import org.eclipse.mat.query.IResult;
 import org.eclipse.mat.report.internal.Messages;
+import org.eclipse.mat.report.internal.StreamingExporter;
 import org.eclipse.mat.util.IProgressListener;
 import org.eclipse.mat.util.MessageUtil;
+import org.eclipse.mat.util.SimpleMonitor;
 
 public class CommandLine
 {
@@ -97,6 +102,31 @@ public class CommandLine
         return result != null ? result.getSubject() : null;
     }
 
+    /**
+     * Run a command and write its table or tree result to a file row by row,
+     * without refining the whole result in memory. This suits batch jobs which
+     * dump complete tables, for example the histogram of all objects, for
+     * offline analysis.
+     * @param context the context for the query, for example the snapshot
+     * @param commandLine the command and its arguments
+     * @param exporter the output format and options
+     * @param file the output file
+     * @param listener to report progress and to check for cancellation
+     * @return the number of rows written
+     * @throws SnapshotException if the command fails or does not return a table or tree
+     * @throws IOException if the file cannot be written
+     * @since 1.17
+     */
+    public static long export(IQueryContext context, String commandLine, StreamingExporter exporter, File file,
+                    IProgressListener listener) throws SnapshotException, IOException
+    {
+        SimpleMonitor monitor = new SimpleMonitor(commandLine, listener, new int[] { 80, 20 });
+        IResult result = execute(context, commandLine, monitor.nextMonitor());
+        if (!StreamingExporter.canExport(result))
+            throw new SnapshotException(MessageUtil.format(Messages.CommandLine_Error_NotExportable, commandLine));
+        return exporter.export(result, file, monitor.nextMonitor());
+    }
+
     public static ArgumentSet parse(IQueryContext context, String line) throws SnapshotException
     {
         String[] args = CommandLine.tokenize(line);
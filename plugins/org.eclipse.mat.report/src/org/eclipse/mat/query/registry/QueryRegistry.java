@@ -10,6 +10,7 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    IBM Corporation - localization of icons
+ *    Standalone adaptation - concurrent use by analysis sessions
  *******************************************************************************/
 package org.eclipse.mat.query.registry;
 
@@ -94,7 +95,7 @@ public class QueryRegistry extends RegistryReader<IQuery>
         return Collections.unmodifiableCollection(commandsByIdentifier.values());
     }
 
-    public List<QueryDescriptor> getQueries(Pattern pattern)
+    public synchronized List<QueryDescriptor> getQueries(Pattern pattern)
     {
         List<QueryDescriptor> answer = new ArrayList<QueryDescriptor>();
 
@@ -10,6 +10,7 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    Andrew Johnson/IBM Corporation - documentation
+ *    Standalone adaptation - streaming export
  *******************************************************************************/
 package org.eclipse.mat.report;
 
@@ -38,7 +39,7 @@ public interface Params
      * The format parameter determines the renderer to be used. By default, the
      * "html" format is used, but one could use "csv" to create a comma separated
      * file or "txt" to create a text file. Matches {@link Renderer#target()} of
-     * an {@link IOutputter}.
+     * an {@link IOutputter}. With {@link #STREAM}, "tsv" can also be used.
      */
     String FORMAT = "format";
 
@@ -61,6 +62,25 @@ public interface Params
      */
     String FILENAME_SUFFIX = "filename_suffix";
 
+    /**
+     * If set to Boolean.TRUE.toString() and the format is "csv" or "tsv", a
+     * table or the first level of a tree is written to its file row by row,
+     * without building a refined result in memory. Sorting by
+     * {@link Rendering#SORT_COLUMN} spills to temporary files, columns can be
+     * hidden with {@link Rendering#HIDE_COLUMN} and there is no limit unless
+     * {@link Rendering#LIMIT} is given. Filters and derived columns are not
+     * supported.
+     * @since 1.17
+     */
+    String STREAM = "stream";
+
+    /**
+     * If set to Boolean.TRUE.toString(), a streamed export is compressed with gzip.
+     * @see #STREAM
+     * @since 1.17
+     */
+    String GZIP = "gzip";
+
     /**
      * Parameters specific to HTML reports.
      * @noimplement
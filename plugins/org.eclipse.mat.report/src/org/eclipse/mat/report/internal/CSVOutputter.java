@@ -10,6 +10,7 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    Andrew Johnson/IBM Corporation - Bytes values
+ *    Standalone adaptation - share escaping with the streaming exporter
  *******************************************************************************/
 package org.eclipse.mat.report.internal;
 
@@ -29,7 +30,7 @@ import java.text.DecimalFormatSymbols;
 @Renderer(target = "csv", result = { IResultTree.class, IResultTable.class })
 public class CSVOutputter extends OutputterBase
 {
-    private static final char SEPARATOR = new DecimalFormatSymbols().getDecimalSeparator() == ',' ? ';' : ',';
+    static final char SEPARATOR = new DecimalFormatSymbols().getDecimalSeparator() == ',' ? ';' : ',';
 
     public void process(Context context, IResult result, Writer writer) throws IOException
     {
@@ -50,7 +51,7 @@ public class CSVOutputter extends OutputterBase
             if (context.isColumnVisible(columnIndex))
             {
                 if (columns[columnIndex].getLabel() != null)
-                    escape(writer, columns[columnIndex].getLabel());
+                    escape(writer, columns[columnIndex].getLabel(), SEPARATOR);
                 writer.append(SEPARATOR);
             }
 
@@ -71,7 +72,7 @@ public class CSVOutputter extends OutputterBase
                     {
                         Object columnValue = table.getColumnValue(table.getRow(row), column);
                         if (columnValue != null)
-                            escape(writer, getStringValue(columnValue, filter[column]));
+                            escape(writer, getStringValue(columnValue, filter[column]), SEPARATOR);
 
                         writer.append(SEPARATOR);
                     }
@@ -94,7 +95,7 @@ public class CSVOutputter extends OutputterBase
                     {
                         Object columnValue = tree.getColumnValue(elements.get(row), column);
                         if (columnValue != null)
-                            escape(writer, getStringValue(columnValue, filter[column]));
+                            escape(writer, getStringValue(columnValue, filter[column]), SEPARATOR);
 
                         writer.append(SEPARATOR);
                     }
@@ -108,12 +109,12 @@ public class CSVOutputter extends OutputterBase
      * Escape data for use in csv files.
      * https://en.wikipedia.org/wiki/Comma-separated_values
      */
-    private static void escape(Writer writer, String data) throws IOException
+    static void escape(Appendable writer, String data, char separator) throws IOException
     {
         if (data == null)
             return;
 
-        boolean hasSeparator = data.indexOf(SEPARATOR) >= 0;
+        boolean hasSeparator = data.indexOf(separator) >= 0;
         boolean hasQuote = data.indexOf('"') >= 0;
         boolean hasNewLine = data.indexOf('\n') >= 0 || data.indexOf('\r') >= 0 && data.indexOf('\f') >= 0;
 
@@ -37,6 +37,7 @@ public final class Messages extends NLS
     public static String CommandLine_Error_InvalidCommand;
     public static String CommandLine_Error_MissingArgument;
     public static String CommandLine_Error_MissingValue;
+    public static String CommandLine_Error_NotExportable;
     public static String CommandLine_Error_NotFound;
     public static String CommandLine_Error_NoUnflaggedArguments;
     public static String ConsoleProgressListener_Label_Subtask;
@@ -120,6 +121,9 @@ public final class Messages extends NLS
     public static String SpecFactory_ReportDefinitionError;
     public static String SpecFactory_ReportDefinitionSevereError;
     public static String SpecFactory_ReportDefinitionWarning;
+    public static String StreamingExporter_Error_UnsupportedResult;
+    public static String StreamingExporter_Msg_Exporting;
+    public static String StreamingExporter_Msg_Merging;
 
     public static String TestSuite_FailedToUnzipReport;
     public static String TextOutputter_PieChart;
@@ -10,6 +10,7 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    Andrew Johnson/IBM Corporation - internationalization of filters
+ *    Standalone adaptation - streaming export
  *******************************************************************************/
 package org.eclipse.mat.report.internal;
 
@@ -143,7 +144,11 @@ public class QueryPart extends AbstractPart
 
         // read and process parameters for tree and table and pass 'em on to the
         // renderer
-        if (result instanceof RefinedTable && !hasParameterThatNeedRefining)
+        if (isStreaming(result))
+        {
+            renderer.processStreaming(this, result, createExporter(result), monitor.nextMonitor());
+        }
+        else if (result instanceof RefinedTable && !hasParameterThatNeedRefining)
         {
             readParamsAndProcess(renderer, (RefinedStructuredResult) result);
         }
@@ -203,6 +208,58 @@ public class QueryPart extends AbstractPart
         return false;
     }
 
+    private boolean isStreaming(IResult result)
+    {
+        return StreamingExporter.canExport(result) && params().getBoolean(Params.STREAM, false)
+                        && StreamingExporter.Format.of(params().get(Params.FORMAT)) != null;
+    }
+
+    private StreamingExporter createExporter(IResult result)
+    {
+        StreamingExporter exporter = new StreamingExporter(StreamingExporter.Format.of(params().get(Params.FORMAT)));
+        exporter.setGzip(params().getBoolean(Params.GZIP, false));
+        // a streamed export is meant for the whole table
+        exporter.setLimit(params().getInt(Params.Rendering.LIMIT, -1));
+
+        Column[] columns = StreamingExporter.getColumns(result);
+        String[] hidden = params().getStringArray(Params.Rendering.HIDE_COLUMN);
+        if (hidden != null)
+        {
+            for (String column : hidden)
+            {
+                int columnIndex = StreamingExporter.getColumnIndex(columns, column);
+                if (columnIndex < 0)
+                    Logger.getLogger(getClass().getName()).log(Level.SEVERE,
+                                    MessageUtil.format(Messages.QueryPart_Error_ColumnNotFound, column));
+                else
+                    exporter.setColumnVisible(columnIndex, false);
+            }
+        }
+
+        String[] sortColumns = params().getStringArray(Params.Rendering.SORT_COLUMN);
+        if (sortColumns != null && sortColumns.length > 0)
+        {
+            ArrayInt indices = new ArrayInt(sortColumns.length);
+            List<Column.SortDirection> directions = new ArrayList<Column.SortDirection>(sortColumns.length);
+            for (String column : sortColumns)
+            {
+                int p = column.indexOf('=');
+                String name = p < 0 ? column : column.substring(0, p);
+                int columnIndex = StreamingExporter.getColumnIndex(columns, name);
+                if (columnIndex < 0)
+                {
+                    Logger.getLogger(getClass().getName()).log(Level.WARNING,
+                                    MessageUtil.format(Messages.QueryPart_Error_SortColumnNotFound, name));
+                    continue;
+                }
+                indices.add(columnIndex);
+                directions.add(p < 0 ? null : Column.SortDirection.valueOf(column.substring(p + 1)));
+            }
+            exporter.setSortOrder(indices.toArray(), directions.toArray(new Column.SortDirection[0]));
+        }
+        return exporter;
+    }
+
     // //////////////////////////////////////////////////////////////
     // build specs for an existing composite result
     // //////////////////////////////////////////////////////////////
@@ -10,6 +10,7 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    IBM Corporation - paths for icon localization
+ *    Standalone adaptation - streaming export
  *******************************************************************************/
 package org.eclipse.mat.report.internal;
 
@@ -47,6 +48,7 @@ import org.eclipse.mat.report.RendererRegistry;
 import org.eclipse.mat.report.TestSuite;
 import org.eclipse.mat.util.FileUtils;
 import org.eclipse.mat.util.HTMLUtils;
+import org.eclipse.mat.util.IProgressListener;
 import org.eclipse.mat.util.MessageUtil;
 
 public class ResultRenderer
@@ -257,6 +259,31 @@ public class ResultRenderer
             doProcessAlien(format, outputter, test, result, rInfo);
     }
 
+    /**
+     * Write a table or tree straight to its own file, linked from the report.
+     */
+    public void processStreaming(QueryPart test, IResult result, StreamingExporter exporter, IProgressListener listener)
+                    throws IOException
+    {
+        HtmlArtefact artefact = (HtmlArtefact) test.getObject(Key.ARTEFACT);
+        if (artefact == null)
+            artefact = (HtmlArtefact) test.getParent().getObject(Key.ARTEFACT);
+
+        String extension = exporter.getFormat().getExtension();
+        if (exporter.isGzip())
+            extension += ".gz"; //$NON-NLS-1$
+        String filename = test.getDataFile().getSuggestedFile();
+        if (filename == null)
+            filename = test.params().shallow().get(Params.FILENAME);
+        if (filename == null)
+            filename = DIR_PAGES + File.separator + FileUtils.toFilename(test.spec().getName(), test.getId(), extension);
+        test.getDataFile().setUrl(filename);
+
+        PageSnippets.linkedHeading(artefact, test, 5, filename);
+
+        exporter.export(result, new File(this.directory, filename), listener);
+    }
+
     public void processLink(LinkedPart linkedPart)
     {
         HtmlArtefact srcArtefact = (HtmlArtefact) linkedPart.getObject(Key.ARTEFACT);
@@ -0,0 +1,794 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.report.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.mat.query.Bytes;
+import org.eclipse.mat.query.Column;
+import org.eclipse.mat.query.IResult;
+import org.eclipse.mat.query.IResultTable;
+import org.eclipse.mat.query.IResultTree;
+import org.eclipse.mat.query.refined.Filter;
+import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.MessageUtil;
+
+/**
+ * Writes a table, or the top level of a tree, as CSV or TSV row by row.
+ * <p>
+ * Unlike the {@link CSVOutputter} the result is not wrapped in a
+ * {@link org.eclipse.mat.query.refined.RefinedStructuredResult}, so no list
+ * of all the rows is sorted in memory and no totals are calculated. When a
+ * sort order is set, runs of at most {@link #setMaxRowsInMemory(int)} rows
+ * are sorted and written to temporary files, which are then merged.
+ * Rows are sorted by their column values; the comparators of the columns
+ * are not used.
+ * @since 1.17
+ */
+public class StreamingExporter
+{
+    /**
+     * The output formats.
+     */
+    public enum Format
+    {
+        /** Comma separated values, in the same layout as the csv report format */
+        CSV("csv"), //$NON-NLS-1$
+        /** Tab separated values, with tabs, new lines and back slashes escaped */
+        TSV("tsv"); //$NON-NLS-1$
+
+        private final String extension;
+
+        private Format(String extension)
+        {
+            this.extension = extension;
+        }
+
+        /**
+         * The file extension, also the name of the report format.
+         * @return the extension, without the dot
+         */
+        public String getExtension()
+        {
+            return extension;
+        }
+
+        /**
+         * Find the format for a report format name.
+         * @param name for example "csv"
+         * @return the format, or null if not supported
+         */
+        public static Format of(String name)
+        {
+            if (name == null)
+                return null;
+            for (Format f : values())
+            {
+                if (f.extension.equals(name.toLowerCase(Locale.ENGLISH)))
+                    return f;
+            }
+            return null;
+        }
+    }
+
+    private static final int DEFAULT_MAX_ROWS_IN_MEMORY = 100000;
+    private static final int ROWS_PER_WORK_UNIT = 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** The most runs merged at once, to bound the open files and the buffers */
+    private static final int MAX_MERGE_RUNS = 64;
+
+    private static final byte KEY_NULL = 0;
+    private static final byte KEY_LONG = 1;
+    private static final byte KEY_DOUBLE = 2;
+    private static final byte KEY_STRING = 3;
+
+    private final Format format;
+    private boolean gzip;
+    private int limit = -1;
+    private int[] sortColumns = new int[0];
+    private Column.SortDirection[] sortDirections = new Column.SortDirection[0];
+    private final BitSet hiddenColumns = new BitSet();
+    private int maxRowsInMemory = DEFAULT_MAX_ROWS_IN_MEMORY;
+    private File tempDirectory;
+
+    // formats reused for all the rows, as in OutputterBase.getStringValue
+    private final DecimalFormat integerFormat = new DecimalFormat("0"); //$NON-NLS-1$
+    private final DecimalFormat decimalFormat = new DecimalFormat("0.#####"); //$NON-NLS-1$
+
+    public StreamingExporter(Format format)
+    {
+        if (format == null)
+            throw new NullPointerException();
+        this.format = format;
+    }
+
+    public Format getFormat()
+    {
+        return format;
+    }
+
+    /**
+     * Compress the output with gzip.
+     * @param gzip true to compress
+     */
+    public void setGzip(boolean gzip)
+    {
+        this.gzip = gzip;
+    }
+
+    public boolean isGzip()
+    {
+        return gzip;
+    }
+
+    /**
+     * The maximum number of rows to write.
+     * @param limit the number of rows, or a negative number for all rows
+     */
+    public void setLimit(int limit)
+    {
+        this.limit = limit;
+    }
+
+    /**
+     * Sort the rows before writing them.
+     * @param columns the column indexes, the most significant first
+     * @param directions the direction for each column, null entries use the
+     *            default direction of the column
+     */
+    public void setSortOrder(int[] columns, Column.SortDirection[] directions)
+    {
+        if (directions.length != columns.length)
+            throw new IllegalArgumentException();
+        this.sortColumns = columns.clone();
+        this.sortDirections = directions.clone();
+    }
+
+    public void setColumnVisible(int columnIndex, boolean visible)
+    {
+        hiddenColumns.set(columnIndex, !visible);
+    }
+
+    /**
+     * How many rows are sorted in memory before a run is written to a temporary file.
+     * @param maxRowsInMemory the number of rows, at least 1
+     */
+    public void setMaxRowsInMemory(int maxRowsInMemory)
+    {
+        this.maxRowsInMemory = Math.max(1, maxRowsInMemory);
+    }
+
+    /**
+     * Where the sorted runs are written.
+     * @param tempDirectory the directory, or null for the default temporary directory
+     */
+    public void setTempDirectory(File tempDirectory)
+    {
+        this.tempDirectory = tempDirectory;
+    }
+
+    /**
+     * Whether a result can be exported.
+     * @param result the result of a query
+     * @return true for tables and trees
+     */
+    public static boolean canExport(IResult result)
+    {
+        return result instanceof IResultTable || result instanceof IResultTree;
+    }
+
+    /**
+     * The columns of a result which can be exported.
+     * @param result a table or tree
+     * @return the columns
+     */
+    public static Column[] getColumns(IResult result)
+    {
+        if (result instanceof IResultTable)
+            return ((IResultTable) result).getColumns();
+        else if (result instanceof IResultTree)
+            return ((IResultTree) result).getColumns();
+        throw new IllegalArgumentException(MessageUtil.format(Messages.StreamingExporter_Error_UnsupportedResult,
+                        result != null ? result.getClass().getName() : null));
+    }
+
+    /**
+     * Find a column by label or by number.
+     * @param columns the columns of the result
+     * @param column the label, or #0, #1 etc.
+     * @return the column index, or -1 if not found
+     */
+    public static int getColumnIndex(Column[] columns, String column)
+    {
+        if (column.length() > 1 && column.charAt(0) == '#')
+        {
+            try
+            {
+                int index = Integer.parseInt(column.substring(1));
+                return index >= 0 && index < columns.length ? index : -1;
+            }
+            catch (NumberFormatException ignore)
+            {
+                // fall back: lookup by name
+            }
+        }
+        for (int ii = 0; ii < columns.length; ii++)
+        {
+            if (column.equals(columns[ii].getLabel()))
+                return ii;
+        }
+        return -1;
+    }
+
+    /**
+     * Export to a file.
+     * @param result a table or tree
+     * @param file the output file, compressed if {@link #setGzip(boolean)} is set
+     * @param listener to report progress and to check for cancellation
+     * @return the number of rows written
+     * @throws IOException if the file or a temporary file cannot be written
+     */
+    public long export(IResult result, File file, IProgressListener listener) throws IOException
+    {
+        try (OutputStream out = new FileOutputStream(file))
+        {
+            return export(result, out, listener);
+        }
+    }
+
+    /**
+     * Export to a stream, which is not closed.
+     * @param result a table or tree
+     * @param out the output, compressed if {@link #setGzip(boolean)} is set
+     * @param listener to report progress and to check for cancellation
+     * @return the number of rows written
+     * @throws IOException if the output or a temporary file cannot be written
+     */
+    public long export(IResult result, OutputStream out, IProgressListener listener) throws IOException
+    {
+        Column[] columns = getColumns(result);
+        Filter.ValueConverter[] converters = new Filter.ValueConverter[columns.length];
+        for (int ii = 0; ii < columns.length; ii++)
+            converters[ii] = (Filter.ValueConverter) columns[ii].getData(Filter.ValueConverter.class);
+
+        IResultTable table = result instanceof IResultTable ? (IResultTable) result : null;
+        List<?> elements = table == null ? ((IResultTree) result).getElements() : null;
+        int rowCount = table != null ? table.getRowCount() : elements.size();
+
+        listener.beginTask(Messages.StreamingExporter_Msg_Exporting, rowCount / ROWS_PER_WORK_UNIT + 1);
+
+        GZIPOutputStream gz = gzip ? new GZIPOutputStream(new NonClosingOutputStream(out), BUFFER_SIZE) : null;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(gz != null ? gz : new NonClosingOutputStream(out),
+                        StandardCharsets.UTF_8), BUFFER_SIZE);
+        try
+        {
+            StringBuilder line = new StringBuilder();
+            String[] labels = new String[columns.length];
+            for (int ii = 0; ii < columns.length; ii++)
+                labels[ii] = columns[ii].getLabel();
+            appendLine(line, labels);
+            writer.append(line);
+
+            long written;
+            if (sortColumns.length == 0)
+            {
+                int n = limit >= 0 ? Math.min(limit, rowCount) : rowCount;
+                String[] cells = new String[columns.length];
+                for (int row = 0; row < n; row++)
+                {
+                    Object element = table != null ? table.getRow(row) : elements.get(row);
+                    for (int column = 0; column < columns.length; column++)
+                    {
+                        if (!hiddenColumns.get(column))
+                            cells[column] = toString(columnValue(table, result, element, column), converters[column]);
+                    }
+                    line.setLength(0);
+                    appendLine(line, cells);
+                    writer.append(line);
+                    progress(listener, row);
+                }
+                written = n;
+            }
+            else
+            {
+                written = sortAndWrite(table, result, elements, rowCount, columns, converters, writer, listener);
+            }
+
+            writer.flush();
+            if (gz != null)
+                gz.finish();
+            return written;
+        }
+        finally
+        {
+            writer.close();
+            listener.done();
+        }
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // sorting
+    // //////////////////////////////////////////////////////////////
+
+    private long sortAndWrite(IResultTable table, IResult result, List<?> elements, int rowCount, Column[] columns,
+                    Filter.ValueConverter[] converters, Writer writer, IProgressListener listener) throws IOException
+    {
+        final boolean[] descending = new boolean[sortColumns.length];
+        for (int ii = 0; ii < sortColumns.length; ii++)
+        {
+            Column.SortDirection direction = sortDirections[ii] != null ? sortDirections[ii]
+                            : Column.SortDirection.defaultFor(columns[sortColumns[ii]]);
+            descending[ii] = direction == Column.SortDirection.DESC;
+        }
+        Comparator<SortRow> comparator = new Comparator<SortRow>()
+        {
+            public int compare(SortRow o1, SortRow o2)
+            {
+                for (int ii = 0; ii < descending.length; ii++)
+                {
+                    int c = compareKeys(o1.keys[ii], o2.keys[ii], descending[ii]);
+                    if (c != 0)
+                        return c;
+                }
+                return 0;
+            }
+        };
+
+        // each run only needs the rows which can be within the limit
+        int keep = limit >= 0 ? limit : Integer.MAX_VALUE;
+        int runSize = Math.min(maxRowsInMemory, Math.max(1, rowCount));
+        List<SortRow> run = new ArrayList<SortRow>(runSize);
+        List<File> runFiles = new ArrayList<File>();
+        // every temporary file, including the intermediate runs, deleted at the end
+        List<File> tempFiles = new ArrayList<File>();
+        StringBuilder line = new StringBuilder();
+        String[] cells = new String[columns.length];
+        try
+        {
+            for (int row = 0; row < rowCount; row++)
+            {
+                Object element = table != null ? table.getRow(row) : elements.get(row);
+                Object[] keys = new Object[sortColumns.length];
+                for (int ii = 0; ii < sortColumns.length; ii++)
+                    keys[ii] = toKey(columnValue(table, result, element, sortColumns[ii]));
+                for (int column = 0; column < columns.length; column++)
+                {
+                    if (!hiddenColumns.get(column))
+                        cells[column] = toString(columnValue(table, result, element, column), converters[column]);
+                }
+                line.setLength(0);
+                appendLine(line, cells);
+                run.add(new SortRow(keys, line.toString()));
+
+                if (run.size() >= runSize)
+                {
+                    Collections.sort(run, comparator);
+                    runFiles.add(spill(run.subList(0, Math.min(keep, run.size())), tempFiles));
+                    run.clear();
+                }
+                progress(listener, row);
+            }
+
+            Collections.sort(run, comparator);
+            if (runFiles.isEmpty())
+            {
+                int n = Math.min(keep, run.size());
+                for (int ii = 0; ii < n; ii++)
+                    writer.append(run.get(ii).line);
+                return n;
+            }
+
+            if (!run.isEmpty())
+                runFiles.add(spill(run.subList(0, Math.min(keep, run.size())), tempFiles));
+            run = null;
+
+            listener.subTask(MessageUtil.format(Messages.StreamingExporter_Msg_Merging, runFiles.size()));
+            // merge consecutive groups of runs into longer runs, which keeps the sort stable
+            while (runFiles.size() > MAX_MERGE_RUNS)
+            {
+                List<File> merged = new ArrayList<File>();
+                for (int start = 0; start < runFiles.size(); start += MAX_MERGE_RUNS)
+                {
+                    List<File> group = runFiles.subList(start, Math.min(start + MAX_MERGE_RUNS, runFiles.size()));
+                    if (group.size() == 1)
+                    {
+                        merged.add(group.get(0));
+                        continue;
+                    }
+                    File file = createRunFile(tempFiles);
+                    try (final DataOutputStream out = new DataOutputStream(
+                                    new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE)))
+                    {
+                        merge(group, comparator, keep, row -> writeRow(out, row), listener);
+                    }
+                    for (File f : group)
+                        f.delete();
+                    merged.add(file);
+                }
+                runFiles = merged;
+            }
+            return merge(runFiles, comparator, keep, row -> writer.append(row.line), listener);
+        }
+        finally
+        {
+            for (File f : tempFiles)
+                f.delete();
+        }
+    }
+
+    private long merge(List<File> runFiles, final Comparator<SortRow> comparator, int keep, RowWriter writer,
+                    IProgressListener listener) throws IOException
+    {
+        // equal rows are taken from the earlier run, so the sort stays stable
+        PriorityQueue<RunReader> queue = new PriorityQueue<RunReader>(runFiles.size(), new Comparator<RunReader>()
+        {
+            public int compare(RunReader r1, RunReader r2)
+            {
+                int c = comparator.compare(r1.current, r2.current);
+                return c != 0 ? c : Integer.compare(r1.index, r2.index);
+            }
+        });
+        List<RunReader> readers = new ArrayList<RunReader>(runFiles.size());
+        try
+        {
+            for (int ii = 0; ii < runFiles.size(); ii++)
+            {
+                RunReader reader = new RunReader(runFiles.get(ii), ii, sortColumns.length);
+                readers.add(reader);
+                if (reader.next())
+                    queue.add(reader);
+            }
+
+            long written = 0;
+            while (!queue.isEmpty() && written < keep)
+            {
+                RunReader reader = queue.poll();
+                writer.write(reader.current);
+                if (reader.next())
+                    queue.add(reader);
+                if (++written % ROWS_PER_WORK_UNIT == 0 && listener.isCanceled())
+                    throw new IProgressListener.OperationCanceledException();
+            }
+            return written;
+        }
+        finally
+        {
+            for (RunReader reader : readers)
+                reader.close();
+        }
+    }
+
+    private File createRunFile(List<File> tempFiles) throws IOException
+    {
+        File file = File.createTempFile("mat", ".run", tempDirectory); //$NON-NLS-1$ //$NON-NLS-2$
+        tempFiles.add(file);
+        return file;
+    }
+
+    private File spill(List<SortRow> rows, List<File> tempFiles) throws IOException
+    {
+        File file = createRunFile(tempFiles);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file),
+                        BUFFER_SIZE)))
+        {
+            for (SortRow row : rows)
+                writeRow(out, row);
+        }
+        return file;
+    }
+
+    private static void writeRow(DataOutputStream out, SortRow row) throws IOException
+    {
+        for (Object key : row.keys)
+        {
+            if (key == null)
+            {
+                out.writeByte(KEY_NULL);
+            }
+            else if (key instanceof Long)
+            {
+                out.writeByte(KEY_LONG);
+                out.writeLong((Long) key);
+            }
+            else if (key instanceof Double)
+            {
+                out.writeByte(KEY_DOUBLE);
+                out.writeDouble((Double) key);
+            }
+            else
+            {
+                out.writeByte(KEY_STRING);
+                writeString(out, (String) key);
+            }
+        }
+        writeString(out, row.line);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException
+    {
+        // not writeUTF, which is limited to 64k bytes
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(DataInputStream in) throws IOException
+    {
+        byte[] b = new byte[in.readInt()];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reduce a column value to a key which can be written to a run file.
+     */
+    private static Object toKey(Object value)
+    {
+        if (value == null)
+            return null;
+        if (value instanceof Bytes)
+            return ((Bytes) value).getValue();
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+            return ((Number) value).longValue();
+        if (value instanceof Number)
+            return ((Number) value).doubleValue();
+        return value.toString();
+    }
+
+    /**
+     * Null values come last in either direction, numbers before strings.
+     */
+    private static int compareKeys(Object k1, Object k2, boolean descending)
+    {
+        if (k1 == null)
+            return k2 == null ? 0 : 1;
+        if (k2 == null)
+            return -1;
+
+        int c;
+        if (k1 instanceof Long && k2 instanceof Long)
+            c = Long.compare((Long) k1, (Long) k2);
+        else if (k1 instanceof Number && k2 instanceof Number)
+            c = Double.compare(((Number) k1).doubleValue(), ((Number) k2).doubleValue());
+        else if (k1 instanceof String && k2 instanceof String)
+            c = ((String) k1).compareTo((String) k2);
+        else
+            c = k1 instanceof Number ? -1 : 1;
+        return descending ? -c : c;
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // formatting
+    // //////////////////////////////////////////////////////////////
+
+    private static Object columnValue(IResultTable table, IResult result, Object element, int column)
+    {
+        return table != null ? table.getColumnValue(element, column)
+                        : ((IResultTree) result).getColumnValue(element, column);
+    }
+
+    private void appendLine(StringBuilder line, String[] cells) throws IOException
+    {
+        boolean first = true;
+        for (int column = 0; column < cells.length; column++)
+        {
+            if (hiddenColumns.get(column))
+                continue;
+            if (format == Format.CSV)
+            {
+                // same layout as CSVOutputter, with a separator after each cell
+                CSVOutputter.escape(line, cells[column], CSVOutputter.SEPARATOR);
+                line.append(CSVOutputter.SEPARATOR);
+            }
+            else
+            {
+                if (!first)
+                    line.append('\t');
+                escapeTab(line, cells[column]);
+            }
+            first = false;
+        }
+        line.append('\n');
+    }
+
+    private static void escapeTab(StringBuilder line, String data)
+    {
+        if (data == null)
+            return;
+        int len = data.length();
+        for (int ii = 0; ii < len; ii++)
+        {
+            char c = data.charAt(ii);
+            switch (c)
+            {
+                case '\t':
+                    line.append("\\t"); //$NON-NLS-1$
+                    break;
+                case '\n':
+                    line.append("\\n"); //$NON-NLS-1$
+                    break;
+                case '\r':
+                    line.append("\\r"); //$NON-NLS-1$
+                    break;
+                case '\\':
+                    line.append("\\\\"); //$NON-NLS-1$
+                    break;
+                default:
+                    line.append(c);
+            }
+        }
+    }
+
+    /**
+     * As {@link OutputterBase#getStringValue(Object, Filter.ValueConverter)}, reusing the formats.
+     */
+    private String toString(Object columnValue, Filter.ValueConverter converter)
+    {
+        if (columnValue == null)
+            return ""; //$NON-NLS-1$
+
+        // check first the format: the converter can change the type to double!
+        java.text.Format fmt = null;
+        if (columnValue instanceof Long || columnValue instanceof Integer)
+            fmt = integerFormat;
+        else if (columnValue instanceof Bytes)
+        {
+            columnValue = ((Bytes) columnValue).getValue();
+            fmt = integerFormat;
+        }
+        else if (columnValue instanceof Double || columnValue instanceof Float)
+            fmt = decimalFormat;
+
+        if (converter != null)
+            columnValue = converter.convert(((Number) columnValue).doubleValue());
+
+        if (fmt != null)
+            return fmt.format(columnValue);
+        else
+            return columnValue.toString();
+    }
+
+    private static void progress(IProgressListener listener, int row)
+    {
+        if ((row + 1) % ROWS_PER_WORK_UNIT == 0)
+        {
+            if (listener.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
+            listener.worked(1);
+        }
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // internal classes
+    // //////////////////////////////////////////////////////////////
+
+    private static final class SortRow
+    {
+        final Object[] keys;
+        final String line;
+
+        SortRow(Object[] keys, String line)
+        {
+            this.keys = keys;
+            this.line = line;
+        }
+    }
+
+    /**
+     * Where the merged rows go, the output or an intermediate run.
+     */
+    private interface RowWriter
+    {
+        void write(SortRow row) throws IOException;
+    }
+
+    private static final class RunReader
+    {
+        final int index;
+        final int noOfKeys;
+        final DataInputStream in;
+        SortRow current;
+
+        RunReader(File file, int index, int noOfKeys) throws IOException
+        {
+            this.index = index;
+            this.noOfKeys = noOfKeys;
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+        }
+
+        boolean next() throws IOException
+        {
+            Object[] keys = new Object[noOfKeys];
+            try
+            {
+                for (int ii = 0; ii < noOfKeys; ii++)
+                {
+                    byte type = in.readByte();
+                    switch (type)
+                    {
+                        case KEY_LONG:
+                            keys[ii] = in.readLong();
+                            break;
+                        case KEY_DOUBLE:
+                            keys[ii] = in.readDouble();
+                            break;
+                        case KEY_STRING:
+                            keys[ii] = readString(in);
+                            break;
+                        default:
+                            keys[ii] = null;
+                    }
+                }
+            }
+            catch (EOFException e)
+            {
+                // $JL-EXC$ end of the run
+                current = null;
+                return false;
+            }
+            current = new SortRow(keys, readString(in));
+            return true;
+        }
+
+        void close() throws IOException
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Lets the writers be closed without closing the caller's stream.
+     */
+    private static final class NonClosingOutputStream extends FilterOutputStream
+    {
+        NonClosingOutputStream(OutputStream out)
+        {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            flush();
+        }
+    }
+}
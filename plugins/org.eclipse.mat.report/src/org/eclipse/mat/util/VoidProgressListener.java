@@ -9,6 +9,7 @@
  *
  * Contributors:
  *    SAP AG - initial API and implementation
+ *    Standalone adaptation - concurrent use by analysis sessions
  *******************************************************************************/
 package org.eclipse.mat.util;
 
@@ -21,7 +22,7 @@ package org.eclipse.mat.util;
  */
 public class VoidProgressListener implements IProgressListener
 {
-    private boolean cancelled = false;
+    private volatile boolean cancelled = false;
 
     /**
      * Does nothing.
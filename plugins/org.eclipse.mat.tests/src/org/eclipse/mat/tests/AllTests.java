@@ -33,6 +33,9 @@ import org.junit.runners.Suite.SuiteClasses;
                 org.eclipse.mat.tests.parser.GzipTests.class, //
                 org.eclipse.mat.tests.parser.TestIndex.class, //
                 org.eclipse.mat.tests.parser.TestIndex1to1.class, //
+                org.eclipse.mat.tests.parser.ParsePlannerTest.class, //
+                org.eclipse.mat.tests.parser.DeltaCompressedIndexTest.class, //
+                org.eclipse.mat.tests.report.StreamingExporterTest.class, //
                 org.eclipse.mat.tests.snapshot.DominatorTreeTest.class, //
                 org.eclipse.mat.tests.snapshot.TestUnreachableObjects.class, //
                 org.eclipse.mat.tests.snapshot.GeneralSnapshotTests.class, //
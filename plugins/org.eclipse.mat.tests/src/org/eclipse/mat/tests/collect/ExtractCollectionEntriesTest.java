@@ -10,13 +10,23 @@
  * Contributors:
  *    SAP AG - initial API and implementation
  *    Andrew Johnson - lots of extra tests including all Java 7 collections
+ *    Standalone adaptation - parallel extraction
  *******************************************************************************/
 package org.eclipse.mat.tests.collect;
 
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.query.ContextProvider;
+import org.eclipse.mat.query.IContextObject;
 import org.eclipse.mat.query.IResult;
 import org.eclipse.mat.query.IResultTable;
 import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.model.IClass;
 import org.eclipse.mat.snapshot.query.SnapshotQuery;
 import org.eclipse.mat.tests.TestSnapshots;
 import org.eclipse.mat.util.MessageUtil;
@@ -351,4 +361,47 @@ public class ExtractCollectionEntriesTest extends ExtractCollectionEntriesBase
         assert rowCount == numEntries : MessageUtil.format("Expected to extract {0} entries from collections of type {1} [{2}], but got {3} entries in the result", //$NON-NLS-1$
                         numEntries, type, snapshot.getSnapshotInfo().getPath(), rowCount);
     }
+
+    /**
+     * The entries of many maps extracted together, on several threads, come
+     * in the same order as the entries of each map extracted on its own.
+     */
+    @Test
+    public void testHashEntriesOfManyMaps_Sun_JDK6() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK6_18_32BIT, false);
+        IResultTable all = (IResultTable) SnapshotQuery.parse("hash_entries java.util.HashMap", snapshot) //$NON-NLS-1$
+                        .execute(new VoidProgressListener());
+
+        List<String> expected = new ArrayList<String>();
+        for (IClass cls : snapshot.getClassesByName("java.util.HashMap", false)) //$NON-NLS-1$
+        {
+            for (int id : cls.getObjectIds())
+            {
+                IResultTable one = (IResultTable) SnapshotQuery.parse("hash_entries 0x" //$NON-NLS-1$
+                                + Long.toHexString(snapshot.mapIdToAddress(id)), snapshot)
+                                .execute(new VoidProgressListener());
+                expected.addAll(rows(one));
+            }
+        }
+        assertThat(rows(all), equalTo(expected));
+    }
+
+    private static List<String> rows(IResultTable table)
+    {
+        List<ContextProvider> contexts = table.getResultMetaData().getContextProviders();
+        List<String> rows = new ArrayList<String>();
+        for (int ii = 0; ii < table.getRowCount(); ii++)
+        {
+            Object row = table.getRow(ii);
+            StringBuilder sb = new StringBuilder(String.valueOf(table.getColumnValue(row, 0)));
+            for (ContextProvider provider : contexts)
+            {
+                IContextObject context = provider.getContext(row);
+                sb.append(' ').append(context != null ? context.getObjectId() : -1);
+            }
+            rows.add(sb.toString());
+        }
+        return rows;
+    }
 }
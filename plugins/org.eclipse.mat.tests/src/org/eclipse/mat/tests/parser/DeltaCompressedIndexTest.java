@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.parser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.eclipse.mat.parser.index.IIndexReader.IOne2ManyIndex;
+import org.eclipse.mat.parser.index.IndexReader;
+import org.eclipse.mat.parser.index.IndexWriter;
+import org.junit.Test;
+
+public class DeltaCompressedIndexTest
+{
+    private static final int M = 20000;
+
+    /**
+     * Lists like outbound references: a pseudo reference, then ascending ids
+     * with the occasional large gap.
+     */
+    private static int[][] lists(boolean sorted)
+    {
+        Random r = new Random(M);
+        int[][] lists = new int[M][];
+        for (int i = 0; i < M; ++i)
+        {
+            int n = i % 100 == 0 ? r.nextInt(1000) : r.nextInt(8);
+            int[] list = new int[n];
+            int cur = r.nextInt(M);
+            for (int j = 0; j < n; ++j)
+            {
+                cur += r.nextInt(20) == 0 ? r.nextInt(1 << 20) : r.nextInt(5) + 1;
+                list[j] = sorted ? cur : r.nextInt(Integer.MAX_VALUE);
+            }
+            if (sorted && n > 0)
+                list[0] = r.nextInt(M);
+            lists[i] = list;
+        }
+        return lists;
+    }
+
+    private static void check(int[][] lists, IOne2ManyIndex index)
+    {
+        for (int i = 0; i < lists.length; ++i)
+        {
+            int[] got = index.get(i);
+            // Junit array comparison is too slow
+            if (!Arrays.equals(lists[i], got))
+                assertArrayEquals(lists[i], got);
+        }
+    }
+
+    private static IOne2ManyIndex write(IndexWriter.IntArray1NWriter writer, int[][] lists) throws IOException
+    {
+        for (int i = 0; i < lists.length; ++i)
+            writer.log(i, lists[i]);
+        return writer.flush();
+    }
+
+    @Test
+    public void sortedReopened() throws IOException
+    {
+        int[][] lists = lists(true);
+        File indexFile = File.createTempFile("sorted", ".index"); //$NON-NLS-1$//$NON-NLS-2$
+        try
+        {
+            IOne2ManyIndex index = write(new IndexWriter.IntArray1NSortedWriter(M, indexFile), lists);
+            check(lists, index);
+            index.close();
+            index = new IndexReader.IntIndex1NSortedReader(indexFile);
+            try
+            {
+                check(lists, index);
+            }
+            finally
+            {
+                index.close();
+            }
+        }
+        finally
+        {
+            assertTrue(indexFile.delete());
+        }
+    }
+
+    @Test
+    public void unsortedReloaded() throws IOException
+    {
+        int[][] lists = lists(false);
+        File indexFile = File.createTempFile("unsorted", ".index"); //$NON-NLS-1$//$NON-NLS-2$
+        try
+        {
+            IOne2ManyIndex index = write(new IndexWriter.IntArray1NWriter(M, indexFile, true), lists);
+            try
+            {
+                check(lists, index);
+                // read the pages back from the file
+                index.unload();
+                check(lists, index);
+            }
+            finally
+            {
+                index.close();
+            }
+        }
+        finally
+        {
+            assertTrue(indexFile.delete());
+        }
+    }
+
+    @Test
+    public void smallerThanOldFormat() throws IOException
+    {
+        int[][] lists = lists(true);
+        File oldFile = File.createTempFile("old", ".index"); //$NON-NLS-1$//$NON-NLS-2$
+        File newFile = File.createTempFile("new", ".index"); //$NON-NLS-1$//$NON-NLS-2$
+        try
+        {
+            IOne2ManyIndex oldIndex = write(new IndexWriter.IntArray1NWriter(M, oldFile, false), lists);
+            IOne2ManyIndex newIndex = write(new IndexWriter.IntArray1NWriter(M, newFile, true), lists);
+            try
+            {
+                oldIndex.unload();
+                newIndex.unload();
+                check(lists, oldIndex);
+                check(lists, newIndex);
+            }
+            finally
+            {
+                oldIndex.close();
+                newIndex.close();
+            }
+            assertThat(newFile.length(), lessThan(oldFile.length()));
+        }
+        finally
+        {
+            assertTrue(oldFile.delete());
+            assertTrue(newFile.delete());
+        }
+    }
+}
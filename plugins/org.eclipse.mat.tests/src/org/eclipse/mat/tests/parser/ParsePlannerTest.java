@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.parser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.parser.ParsePlanner;
+import org.eclipse.mat.parser.model.XSnapshotInfo;
+import org.junit.Test;
+
+public class ParsePlannerTest
+{
+    private static ParsePlanner planner(long budget)
+    {
+        XSnapshotInfo info = new XSnapshotInfo();
+        info.setProperty(ParsePlanner.MEMORY_BUDGET, budget);
+        return ParsePlanner.of(info);
+    }
+
+    @Test
+    public void parseMemorySize()
+    {
+        assertEquals(1000L, ParsePlanner.parseMemorySize("1000")); //$NON-NLS-1$
+        assertEquals(2048L, ParsePlanner.parseMemorySize("2k")); //$NON-NLS-1$
+        assertEquals(3L * 1024 * 1024, ParsePlanner.parseMemorySize("3M")); //$NON-NLS-1$
+        assertEquals(4L * 1024 * 1024 * 1024, ParsePlanner.parseMemorySize(" 4g ")); //$NON-NLS-1$
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void parseMemorySizeNegative()
+    {
+        ParsePlanner.parseMemorySize("-1m"); //$NON-NLS-1$
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void parseMemorySizeUnknownUnit()
+    {
+        ParsePlanner.parseMemorySize("1t"); //$NON-NLS-1$
+    }
+
+    @Test
+    public void defaultBudgetIsMaxHeap()
+    {
+        ParsePlanner planner = ParsePlanner.of(new XSnapshotInfo());
+        assertEquals(Runtime.getRuntime().maxMemory(), planner.getMemoryBudget());
+        assertThat(planner.getParallelism(), greaterThanOrEqualTo(1));
+        assertThat(planner.getParallelism(), lessThanOrEqualTo(Runtime.getRuntime().availableProcessors()));
+    }
+
+    @Test
+    public void smallBudget()
+    {
+        ParsePlanner planner = planner(1024);
+        assertEquals(1024L, planner.getMemoryBudget());
+        assertEquals(1, planner.getParallelism());
+        assertFalse(planner.isParallelPass2(1000));
+        assertTrue(planner.isSpillPreliminaryIndexes(1000));
+    }
+
+    @Test(expected = SnapshotException.class)
+    public void dominatorTreeOverBudget() throws SnapshotException
+    {
+        planner(1024).checkDominatorTree(1000000, 0);
+    }
+
+    @Test
+    public void dominatorTreeInReclaimableCaches() throws SnapshotException
+    {
+        planner(1024 * 1024).checkDominatorTree(1000, 1024 * 1024);
+    }
+
+    @Test
+    public void dominatorTreeOverFreeHeap() throws SnapshotException
+    {
+        // seven int arrays per object filling the whole heap, so more than is free but within the budget
+        long maxMemory = Runtime.getRuntime().maxMemory();
+        int numberOfObjects = (int) Math.min(Integer.MAX_VALUE - 2, maxMemory / (7 * 4) - 2);
+        planner(Long.MAX_VALUE).checkDominatorTree(numberOfObjects, 0);
+    }
+
+    @Test
+    public void emptyDominatorTree() throws SnapshotException
+    {
+        planner(Long.MAX_VALUE).checkDominatorTree(0, 0);
+    }
+}
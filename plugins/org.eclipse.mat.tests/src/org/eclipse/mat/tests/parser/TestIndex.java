@@ -9,9 +9,11 @@
  *
  * Contributors:
  *    IBM Corporation - initial API and implementation
+ *    Standalone adaptation - reading into a buffer
  *******************************************************************************/
 package org.eclipse.mat.tests.parser;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeTrue;
 
@@ -88,6 +90,25 @@ public class TestIndex
         this.P = p;
     }
 
+    /**
+     * Check reading into a buffer, and that a buffer which is too small is left alone.
+     */
+    private static void checkBuffered(IOne2ManyIndex i2, int j, int[] expected)
+    {
+        int buf[] = new int[expected.length + 1];
+        assertEquals(expected.length, i2.get(j, buf, 1));
+        int i3[] = Arrays.copyOfRange(buf, 1, buf.length);
+        if (!Arrays.equals(expected, i3))
+            Assert.assertArrayEquals(expected, i3);
+        if (expected.length > 0)
+        {
+            int before[] = buf.clone();
+            assertEquals(expected.length, i2.get(j, buf, 2));
+            if (!Arrays.equals(before, buf))
+                Assert.assertArrayEquals(before, buf);
+        }
+    }
+
     @Test
     public void test1ToN() throws IOException
     {
@@ -126,6 +147,7 @@ public class TestIndex
                     // Junit array comparison is too slow
                     if (!Arrays.equals(ii[p], i3))
                         Assert.assertArrayEquals(ii[p], i3);
+                    checkBuffered(i2, j, ii[p]);
                 }
             }
             finally
@@ -195,6 +217,7 @@ public class TestIndex
                     if (!Arrays.equals(ii[p], i2)) {
                         Assert.assertArrayEquals(ii[p], i2);
                     }
+                    checkBuffered(z, j, ii[p]);
                 }
             }
             finally
@@ -353,6 +376,7 @@ public class TestIndex
                     // Junit array comparison is too slow
                     if (!Arrays.equals(ii[p], i3))
                         Assert.assertArrayEquals(ii[p], i3);
+                    checkBuffered(i2, j, ii[p]);
                 }
             }
             finally
@@ -9,6 +9,7 @@
  *
  * Contributors:
  *    IBM Corporation - initial API and implementation
+ *    Standalone adaptation - pages written in parallel
  *******************************************************************************/
 package org.eclipse.mat.tests.parser;
 
@@ -22,6 +23,8 @@ import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.eclipse.mat.collect.IteratorInt;
 import org.eclipse.mat.collect.IteratorLong;
@@ -298,6 +301,84 @@ public class TestIndex1to1
         }
     }
 
+    @Test
+    public void intIndexParallel() throws IOException
+    {
+        assumeTrue(N < MAXELEMENTS);
+        File indexFile = File.createTempFile("int1_", ".index");
+        final int n2 = (int) N;
+        ExecutorService es = Executors.newFixedThreadPool(3);
+        try
+        {
+            IIndexReader.IOne2OneIndex i2 = new IndexWriter.IntIndexStreamer().writeTo(indexFile, n2,
+                            (start, values, length) -> {
+                                for (int i = 0; i < length; ++i)
+                                    values[i] = start + i;
+                            }, es, 2);
+            i2.close();
+            i2 = new IndexReader.IntIndexReader(indexFile);
+            try
+            {
+                assertEquals(n2, i2.size());
+                for (int i = 0; i < n2; ++i)
+                {
+                    int in = i2.get(i);
+                    if (i != in)
+                        assertEquals(i, in);
+                }
+            }
+            finally
+            {
+                i2.close();
+            }
+        }
+        finally
+        {
+            es.shutdown();
+            assertTrue(indexFile.delete());
+        }
+    }
+
+    @Test
+    public void longIndexParallel() throws IOException
+    {
+        assumeTrue(N < MAXELEMENTS);
+        File indexFile = File.createTempFile("long1_", ".index");
+        final int n2 = (int) N;
+        ExecutorService es = Executors.newFixedThreadPool(3);
+        try
+        {
+            IOne2LongIndex i2 = new IndexWriter.LongIndexStreamer().writeTo(indexFile, n2,
+                            (start, values, length) -> {
+                                for (int i = 0; i < length; ++i)
+                                    values[i] = (start + i) * 10L;
+                            }, es, 2);
+            i2.close();
+            i2 = new IndexReader.LongIndexReader(indexFile);
+            try
+            {
+                assertEquals(n2, i2.size());
+                for (int i = 0; i < n2; ++i)
+                {
+                    long in = i2.get(i);
+                    if (i * 10L != in)
+                        assertEquals(i * 10L, in);
+                }
+                if (n2 > 0)
+                    assertEquals(n2 - 1, i2.reverse((n2 - 1) * 10L));
+            }
+            finally
+            {
+                i2.close();
+            }
+        }
+        finally
+        {
+            es.shutdown();
+            assertTrue(indexFile.delete());
+        }
+    }
+
     @Test
     public void intIdentifier1()
     {
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Standalone adaptation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.report;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.eclipse.mat.query.Bytes;
+import org.eclipse.mat.query.Column;
+import org.eclipse.mat.query.IContextObject;
+import org.eclipse.mat.query.IResultTable;
+import org.eclipse.mat.query.ResultMetaData;
+import org.eclipse.mat.report.internal.StreamingExporter;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.junit.Test;
+
+public class StreamingExporterTest
+{
+    private static final int ROWS = 10000;
+
+    private static IResultTable table(final int rows)
+    {
+        return new IResultTable()
+        {
+            public ResultMetaData getResultMetaData()
+            {
+                return null;
+            }
+
+            public Column[] getColumns()
+            {
+                return new Column[] { new Column("Name"), new Column("Count", long.class),
+                                new Column("Ratio", double.class), new Column("Size", Bytes.class) };
+            }
+
+            public int getRowCount()
+            {
+                return rows;
+            }
+
+            public Object getRow(int rowId)
+            {
+                return rowId;
+            }
+
+            public Object getColumnValue(Object row, int columnIndex)
+            {
+                int i = (Integer) row;
+                switch (columnIndex)
+                {
+                    case 0:
+                        return i % 7 == 0 ? null : "n,\"" + (i * 31 % 97) + "\t";
+                    case 1:
+                        return (long) (i * 7919 % 1000);
+                    case 2:
+                        return i / 3.0;
+                    default:
+                        return new Bytes(i % 13);
+                }
+            }
+
+            public IContextObject getContext(Object row)
+            {
+                return null;
+            }
+        };
+    }
+
+    private static String export(StreamingExporter exporter, int expectedRows) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = exporter.export(table(ROWS), out, new VoidProgressListener());
+        assertEquals(expectedRows, rows);
+        InputStream in = new ByteArrayInputStream(out.toByteArray());
+        if (exporter.isGzip())
+            in = new GZIPInputStream(in);
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        int n;
+        while ((n = in.read(buf)) > 0)
+            text.write(buf, 0, n);
+        String s = new String(text.toByteArray(), StandardCharsets.UTF_8);
+        assertEquals("lines", expectedRows + 1, s.split("\n").length);
+        return s;
+    }
+
+    private static StreamingExporter sorted()
+    {
+        StreamingExporter exporter = new StreamingExporter(StreamingExporter.Format.CSV);
+        exporter.setSortOrder(new int[] { 1, 0 }, new Column.SortDirection[] { null, Column.SortDirection.ASC });
+        return exporter;
+    }
+
+    @Test
+    public void unsorted() throws IOException
+    {
+        String csv = export(new StreamingExporter(StreamingExporter.Format.CSV), ROWS);
+        String sep = csv.substring(4, 5);
+        assertThat(csv, startsWith("Name" + sep + "Count" + sep + "Ratio" + sep + "Size" + sep + "\n"
+                        + sep + "0" + sep + "0" + sep + "0" + sep + "\n"));
+    }
+
+    @Test
+    public void spilledSortMatchesInMemorySort() throws IOException
+    {
+        String inMemory = export(sorted(), ROWS);
+        StreamingExporter exporter = sorted();
+        exporter.setMaxRowsInMemory(333);
+        assertEquals(inMemory, export(exporter, ROWS));
+    }
+
+    @Test
+    public void mergedInSeveralPasses() throws IOException
+    {
+        String inMemory = export(sorted(), ROWS);
+        StreamingExporter exporter = sorted();
+        // 1000 runs, more than are merged at once
+        exporter.setMaxRowsInMemory(10);
+        assertEquals(inMemory, export(exporter, ROWS));
+    }
+
+    @Test
+    public void sortedWithLimit() throws IOException
+    {
+        String all = export(sorted(), ROWS);
+        StreamingExporter exporter = sorted();
+        exporter.setMaxRowsInMemory(100);
+        exporter.setLimit(50);
+        String top = export(exporter, 50);
+        assertThat(all, startsWith(top));
+    }
+
+    @Test
+    public void gzip() throws IOException
+    {
+        String plain = export(sorted(), ROWS);
+        StreamingExporter exporter = sorted();
+        exporter.setGzip(true);
+        exporter.setMaxRowsInMemory(500);
+        assertEquals(plain, export(exporter, ROWS));
+    }
+
+    @Test
+    public void tsvWithHiddenColumn() throws IOException
+    {
+        StreamingExporter exporter = new StreamingExporter(StreamingExporter.Format.TSV);
+        exporter.setColumnVisible(2, false);
+        String tsv = export(exporter, ROWS);
+        assertThat(tsv, startsWith("Name\tCount\tSize\n\t0\t0\nn,\"31\\t\t919\t1\n"));
+    }
+}
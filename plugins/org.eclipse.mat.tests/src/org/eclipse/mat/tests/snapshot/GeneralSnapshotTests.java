@@ -10,6 +10,11 @@
  * Contributors:
  *    IBM Corporation - initial API and implementation
  *    Andrew Johnson - test class specific name for Strings etc.
+ *    Standalone adaptation - parse statistics, object flags, class identity table, cache budget, analysis session,
+ *                            incremental retained sets, paged dominator tree, biggest retained sizes,
+ *                            string table, resolver cache, chunked array reading, mapped dump,
+ *                            thread stacks index, GC roots by type, field probe, warm-up,
+ *                            retained size estimate
  *******************************************************************************/
 package org.eclipse.mat.tests.snapshot;
 
@@ -33,6 +38,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.junit.Assume.assumeNotNull;
 import static org.junit.Assume.assumeThat;
 import static org.junit.Assume.assumeTrue;
@@ -44,18 +50,26 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Serializable;
+import java.lang.reflect.Array;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -63,6 +77,7 @@ import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences;
 import org.eclipse.core.runtime.preferences.InstanceScope;
 import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.HashMapIntLong;
 import org.eclipse.mat.collect.SetInt;
 import org.eclipse.mat.internal.snapshot.SnapshotQueryContext;
 import org.eclipse.mat.query.IResult;
@@ -72,18 +87,37 @@ import org.eclipse.mat.query.ISelectionProvider;
 import org.eclipse.mat.query.registry.QueryObjectLink;
 import org.eclipse.mat.query.results.CompositeResult;
 import org.eclipse.mat.query.results.DisplayFileResult;
+import org.eclipse.mat.snapshot.AnalysisSession;
+import org.eclipse.mat.snapshot.ClassGrowthSeries;
+import org.eclipse.mat.snapshot.ClassIdentityTable;
+import org.eclipse.mat.snapshot.Histogram;
+import org.eclipse.mat.snapshot.IParseStatistics;
 import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.RetainedSizeEstimate;
 import org.eclipse.mat.snapshot.SnapshotFactory;
 import org.eclipse.mat.snapshot.SnapshotInfo;
+import org.eclipse.mat.snapshot.SnapshotWarmUp;
+import org.eclipse.mat.snapshot.StringTable;
+import org.eclipse.mat.snapshot.TopRetainedTable;
 import org.eclipse.mat.snapshot.UnreachableObjectsHistogram;
+import org.eclipse.mat.snapshot.model.Field;
+import org.eclipse.mat.snapshot.model.FieldDescriptor;
 import org.eclipse.mat.snapshot.model.GCRootInfo;
 import org.eclipse.mat.snapshot.model.GCRootInfo.Type;
+import org.eclipse.mat.snapshot.model.IArray;
 import org.eclipse.mat.snapshot.model.IClass;
 import org.eclipse.mat.snapshot.model.IClassLoader;
+import org.eclipse.mat.snapshot.model.IInstance;
 import org.eclipse.mat.snapshot.model.IObject;
+import org.eclipse.mat.snapshot.model.IPrimitiveArray;
 import org.eclipse.mat.snapshot.model.IStackFrame;
 import org.eclipse.mat.snapshot.model.IThreadStack;
+import org.eclipse.mat.snapshot.model.NamedReference;
+import org.eclipse.mat.snapshot.model.ObjectReference;
+import org.eclipse.mat.snapshot.model.PrettyPrinter;
+import org.eclipse.mat.snapshot.model.ThreadToLocalReference;
 import org.eclipse.mat.snapshot.query.SnapshotQuery;
+import org.eclipse.mat.snapshot.registry.ClassSpecificNameResolverRegistry;
 import org.eclipse.mat.tests.TestSnapshots;
 import org.eclipse.mat.util.IProgressListener;
 import org.eclipse.mat.util.VoidProgressListener;
@@ -312,6 +346,768 @@ public class GeneralSnapshotTests
         assertEquals("Total objects", n, no);
     }
 
+    @Test
+    public void parseStatistics()
+    {
+        IParseStatistics statistics = snapshot.getSnapshotInfo().getParseStatistics();
+        assertNotNull("Parse statistics", statistics);
+        IParseStatistics.Phase phase = statistics.getPhase(IParseStatistics.PHASE_DOMINATOR_TREE);
+        assertNotNull("Dominator tree phase", phase);
+        assertEquals("Objects", snapshot.getSnapshotInfo().getNumberOfObjects(), phase.getObjects());
+        assertThat("Index files", phase.getIndexFileBytes(), greaterThan(0L));
+        for (IParseStatistics.Phase p : statistics.getPhases())
+        {
+            assertThat(p.getName(), p.getWallTimeMillis(), greaterThanOrEqualTo(0L));
+            assertThat(p.getName(), p.getWallTimeMillis(), lessThanOrEqualTo(statistics.getTotalWallTimeMillis()));
+        }
+    }
+
+    /**
+     * A parse which is cancelled leaves none of its phases sampled, so the
+     * thread sampling the heap usage for the parse statistics stops.
+     */
+    @Test
+    public void parseStatisticsCancelled() throws IOException, SnapshotException, InterruptedException
+    {
+        File source = new File(snapshot.getSnapshotInfo().getPath());
+        assumeTrue(source.getName().contains(".hprof"));
+        File copy = new File(TestSnapshots.createGeneratedName("cancel", null), source.getName());
+        Files.copy(source.toPath(), copy.toPath());
+        VoidProgressListener listener = new VoidProgressListener()
+        {
+            @Override
+            public void worked(int work)
+            {
+                // cancel during the first pass
+                setCanceled(true);
+            }
+        };
+        try
+        {
+            SnapshotFactory.openSnapshot(copy, Collections.<String, String> emptyMap(), listener);
+            fail("Parse should have been cancelled");
+        }
+        catch (IProgressListener.OperationCanceledException e)
+        {
+            // expected
+        }
+        long end = System.currentTimeMillis() + 10000;
+        while (parseStatisticsSampling() && System.currentTimeMillis() < end)
+            Thread.sleep(10);
+        assertFalse("Parse statistics still sampling", parseStatisticsSampling());
+    }
+
+    private static boolean parseStatisticsSampling()
+    {
+        for (Thread thread : Thread.getAllStackTraces().keySet())
+        {
+            if (thread.getName().equals("MAT parse statistics") && thread.isAlive())
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * The kind of each object, as answered by the object flags index,
+     * agrees with the classes, class loaders and GC roots.
+     */
+    @Test
+    public void objectKinds() throws SnapshotException
+    {
+        for (IClass cls : snapshot.getClasses())
+        {
+            assertTrue(cls.getName(), snapshot.isClass(cls.getObjectId()));
+            assertTrue(cls.getName(), snapshot.isClassLoader(cls.getClassLoaderId()));
+            for (int objectId : cls.getObjectIds())
+            {
+                assertEquals(cls.getName(), cls.isArrayType(), snapshot.isArray(objectId));
+                if (cls.doesExtend(IClass.JAVA_LANG_CLASSLOADER))
+                    assertTrue(cls.getName(), snapshot.isClassLoader(objectId));
+                if (!IClass.JAVA_LANG_CLASS.equals(cls.getName()))
+                    assertFalse(cls.getName(), snapshot.isClass(objectId));
+            }
+        }
+        int[] roots = snapshot.getGCRoots();
+        for (int objectId : roots)
+            assertTrue(snapshot.isGCRoot(objectId));
+        int count = 0;
+        for (int objectId = 0; objectId < snapshot.getSnapshotInfo().getNumberOfObjects(); objectId++)
+        {
+            if (snapshot.isGCRoot(objectId))
+                count++;
+        }
+        assertEquals("GC roots", roots.length, count);
+    }
+
+    /**
+     * The class identity table written when the snapshot was opened
+     * agrees with the snapshot, and a series of it shows no growth.
+     */
+    @Test
+    public void classIdentityTable() throws IOException
+    {
+        File file = ClassIdentityTable.getFile(snapshot.getSnapshotInfo().getPrefix());
+        assertTrue(file.getPath(), file.exists());
+        ClassIdentityTable table = ClassIdentityTable.read(file);
+        assertThat(table.size(), lessThanOrEqualTo(snapshot.getSnapshotInfo().getNumberOfClasses()));
+        long objects = 0, used = 0;
+        for (long n : table.getNumberOfObjects())
+            objects += n;
+        for (long n : table.getUsedHeapSize())
+            used += n;
+        assertEquals(snapshot.getSnapshotInfo().getNumberOfObjects(), objects);
+        assertEquals(snapshot.getSnapshotInfo().getUsedHeapSize(), used);
+
+        ClassGrowthSeries series = ClassGrowthSeries.of(table, table);
+        assertEquals(table.size(), series.getRowCount());
+        for (long growth : series.getUsedHeapSizeGrowth())
+            assertEquals(0, growth);
+        for (int increases : series.getUsedHeapSizeIncreases())
+            assertEquals(0, increases);
+    }
+
+    /**
+     * A budget for the page caches frees them, and the indexes still answer
+     * the same once the pages are read again.
+     */
+    @Test
+    public void cacheBudget() throws SnapshotException
+    {
+        int n = snapshot.getSnapshotInfo().getNumberOfObjects();
+        long before = 0;
+        for (int objectId = 0; objectId < n; objectId++)
+            before += snapshot.getOutboundReferentIds(objectId).length + snapshot.getRetainedHeapSize(objectId);
+        long budget = SnapshotFactory.getCacheBudget();
+        try
+        {
+            SnapshotFactory.setCacheBudget(1);
+            assertThat(SnapshotFactory.getCachedSize(), lessThanOrEqualTo(1L));
+            long after = 0;
+            for (int objectId = 0; objectId < n; objectId++)
+                after += snapshot.getOutboundReferentIds(objectId).length + snapshot.getRetainedHeapSize(objectId);
+            assertEquals(before, after);
+        }
+        finally
+        {
+            SnapshotFactory.setCacheBudget(budget);
+        }
+        assertEquals(budget, SnapshotFactory.getCacheBudget());
+    }
+
+    /**
+     * Queries run concurrently by a session agree with the same queries run
+     * one at a time, and a query which runs out of time is cancelled.
+     */
+    @Test
+    public void analysisSession() throws SnapshotException, InterruptedException, ExecutionException
+    {
+        Histogram histogram = snapshot.getHistogram(new VoidProgressListener());
+        int[] roots = snapshot.getImmediateDominatedIds(-1);
+        try (AnalysisSession session = new AnalysisSession(snapshot, 4, 100))
+        {
+            List<AnalysisSession.Query<Histogram>> histograms = new ArrayList<AnalysisSession.Query<Histogram>>();
+            List<AnalysisSession.Query<int[]>> dominators = new ArrayList<AnalysisSession.Query<int[]>>();
+            for (int i = 0; i < 8; ++i)
+            {
+                histograms.add(session.histogram(0, TimeUnit.SECONDS));
+                dominators.add(session.dominatorTree(-1, 0, TimeUnit.SECONDS));
+            }
+            for (AnalysisSession.Query<Histogram> query : histograms)
+            {
+                assertEquals(histogram.getNumberOfObjects(), query.get().getNumberOfObjects());
+                assertEquals(histogram.getUsedHeapSize(), query.get().getUsedHeapSize());
+            }
+            for (AnalysisSession.Query<int[]> query : dominators)
+                assertTrue(Arrays.equals(roots, query.get()));
+
+            AnalysisSession.Query<Object> slow = session.submit((s, listener) -> {
+                while (!listener.isCanceled())
+                    Thread.sleep(5);
+                throw new IProgressListener.OperationCanceledException();
+            }, 50, TimeUnit.MILLISECONDS);
+            try
+            {
+                slow.get();
+                fail("Query should have timed out");
+            }
+            catch (CancellationException e)
+            {
+                assertTrue(slow.isTimedOut());
+            }
+        }
+    }
+
+    /**
+     * Pages of the dominated objects join up to the whole list, biggest first.
+     */
+    @Test
+    public void dominatedPages() throws SnapshotException
+    {
+        int[] roots = snapshot.getImmediateDominatedIds(-1);
+        assertEquals(roots.length, snapshot.getImmediateDominatedCount(-1));
+        int[] parents = roots.length > 0 ? new int[] { -1, roots[0] } : new int[] { -1 };
+        for (int parent : parents)
+        {
+            int[] all = snapshot.getImmediateDominatedIds(parent);
+            assertEquals(all.length, snapshot.getImmediateDominatedCount(parent));
+            for (int pageSize : new int[] { 1, 7, 1000 })
+            {
+                for (int offset = 0; offset < all.length + pageSize; offset += pageSize)
+                {
+                    int[] page = snapshot.getImmediateDominatedIds(parent, offset, pageSize);
+                    int from = Math.min(offset, all.length);
+                    int to = Math.min(offset + pageSize, all.length);
+                    assertTrue(Arrays.equals(Arrays.copyOfRange(all, from, to), page));
+                }
+            }
+            for (int ii = 1; ii < all.length; ii++)
+                assertThat(snapshot.getRetainedHeapSize(all[ii]),
+                                lessThanOrEqualTo(snapshot.getRetainedHeapSize(all[ii - 1])));
+        }
+    }
+
+    /**
+     * The table of the biggest retained sizes agrees with the dominator tree.
+     */
+    @Test
+    public void topRetainedTable() throws SnapshotException
+    {
+        TopRetainedTable top = snapshot.getTopRetainedTable();
+        assertNotNull(top);
+        int[] objectIds = top.getObjectIds();
+        long[] sizes = top.getRetainedHeapSizes();
+        int[] depths = top.getDepths();
+        for (int ii = 0; ii < objectIds.length; ii++)
+        {
+            assertEquals(snapshot.getRetainedHeapSize(objectIds[ii]), sizes[ii]);
+            if (ii > 0)
+                assertThat(sizes[ii], lessThanOrEqualTo(sizes[ii - 1]));
+            int depth = 0;
+            for (int d = objectIds[ii]; d != -1; d = snapshot.getImmediateDominatorId(d))
+                depth++;
+            assertEquals(depth, depths[ii]);
+        }
+
+        long threshold = snapshot.getSnapshotInfo().getUsedHeapSize() / 100;
+        int[] roots = snapshot.getImmediateDominatedIds(-1);
+        SetInt expected = new SetInt();
+        for (int root : roots)
+        {
+            if (snapshot.getRetainedHeapSize(root) > threshold)
+                expected.add(root);
+        }
+        int[] topLevel = top.getTopLevelObjectIds(threshold);
+        if (topLevel != null)
+        {
+            assertEquals(expected.size(), topLevel.length);
+            for (int objectId : topLevel)
+                assertTrue(expected.contains(objectId));
+        }
+
+        HashMapIntLong classRetained = new HashMapIntLong();
+        for (int root : roots)
+        {
+            int classId = snapshot.getClassOf(root).getObjectId();
+            long sum = classRetained.containsKey(classId) ? classRetained.get(classId) : 0;
+            classRetained.put(classId, sum + snapshot.getRetainedHeapSize(root));
+        }
+        for (int classId : top.getClassIds())
+        {
+            long sum = classRetained.containsKey(classId) ? classRetained.get(classId) : 0;
+            assertEquals(sum, top.getTopLevelRetainedHeapSize(classId));
+        }
+    }
+
+    /**
+     * The string table extracted while parsing shows each string as it is
+     * shown from the dump.
+     */
+    @Test
+    public void stringTable() throws SnapshotException, IOException
+    {
+        Map<String, String> options = new HashMap<String, String>();
+        options.put(StringTable.OPTION, "true");
+        ISnapshot withTable = TestSnapshots.getSnapshot(snapshotname, options, true);
+        try
+        {
+            StringTable table = withTable.getStringTable();
+            assertNotNull(table);
+            assertThat(snapshot.getStringTable(), nullValue());
+            int count = 0;
+            Set<String> values = new HashSet<String>();
+            for (IClass cls : snapshot.getClassesByName("java.lang.String", false))
+            {
+                for (int objectId : cls.getObjectIds())
+                {
+                    String shown = table.getDisplayValue(objectId, 1024);
+                    if (shown == null)
+                        continue;
+                    count++;
+                    IObject o = snapshot.getObject(objectId);
+                    assertEquals(PrettyPrinter.objectAsString(o, 1024), shown);
+                    assertEquals(PrettyPrinter.objectAsString(o, 5), table.getDisplayValue(objectId, 5));
+                    String value = table.getValue(objectId);
+                    assertEquals(value.hashCode(), table.getHashCode(objectId));
+                    values.add(value);
+                }
+            }
+            assertEquals(table.size(), count);
+            assertEquals(table.getDistinctCount(), values.size());
+
+            StringTable closed = StringTable.open(StringTable.getFile(withTable.getSnapshotInfo().getPrefix()));
+            closed.close();
+            try
+            {
+                closed.contains(0);
+                fail("Closed string table should not be read");
+            }
+            catch (IllegalStateException e)
+            {
+                // expected
+            }
+        }
+        finally
+        {
+            withTable.dispose();
+        }
+    }
+
+    /**
+     * A snapshot opened with the warm-up option has the retained sizes of the
+     * classes and class loaders ready, as they would be calculated.
+     */
+    @Test
+    public void warmUp() throws SnapshotException, IOException, InterruptedException
+    {
+        assertThat(snapshot.getSnapshotAddons(SnapshotWarmUp.class), nullValue());
+        Map<String, String> options = new HashMap<String, String>();
+        options.put(SnapshotWarmUp.OPTION, "true");
+        ISnapshot warm = TestSnapshots.getSnapshot(snapshotname, options, true);
+        try
+        {
+            SnapshotWarmUp warmUp = warm.getSnapshotAddons(SnapshotWarmUp.class);
+            assertNotNull(warmUp);
+            for (SnapshotWarmUp.Piece piece : SnapshotWarmUp.Piece.values())
+            {
+                warmUp.await(piece);
+                assertTrue(piece.toString(), warmUp.isDone(piece));
+            }
+            // written by the warm-up when the dump was parsed without the option
+            StringTable strings = warm.getStringTable();
+            assertNotNull(strings);
+            for (IClass cls : warm.getClassesByName("java.lang.String", false))
+            {
+                for (int objectId : cls.getObjectIds())
+                {
+                    String expected = PrettyPrinter.objectAsString(snapshot.getObject(objectId), 100);
+                    if (expected != null)
+                        assertEquals(expected, strings.getDisplayValue(objectId, 100));
+                }
+            }
+            for (IClass cls : warm.getClasses())
+            {
+                IClass expectedClass = (IClass) snapshot.getObject(cls.getObjectId());
+                long expected = expectedClass.getRetainedHeapSizeOfObjects(true, true, null);
+                assertEquals(cls.getName(), expected, cls.getRetainedHeapSizeOfObjects(false, true, null));
+                IObject loader = warm.getObject(cls.getClassLoaderId());
+                if (loader instanceof IClassLoader)
+                {
+                    IClassLoader expectedLoader = (IClassLoader) snapshot.getObject(cls.getClassLoaderId());
+                    assertEquals(loader.getTechnicalName(),
+                                    expectedLoader.getRetainedHeapSizeOfObjects(true, true, null),
+                                    ((IClassLoader) loader).getRetainedHeapSizeOfObjects(false, true, null));
+                }
+            }
+        }
+        finally
+        {
+            warm.dispose();
+        }
+    }
+
+    /**
+     * The estimate of the retained size of a class is exact when all its
+     * objects are sampled. Otherwise the estimate lies between its own bounds,
+     * and the size counted from the sample is a hard lower bound of the
+     * minimum retained size.
+     */
+    @Test
+    public void estimateRetainedSize() throws SnapshotException
+    {
+        for (IClass cls : snapshot.getClasses())
+        {
+            int[] objectIds = cls.getObjectIds();
+            if (objectIds.length < 2)
+                continue;
+            long min = snapshot.getMinRetainedSize(objectIds, new VoidProgressListener());
+            RetainedSizeEstimate all = snapshot.estimateRetainedSize(objectIds, objectIds.length,
+                            new VoidProgressListener());
+            assertTrue(cls.getName(), all.isExact());
+            assertEquals(cls.getName(), min, all.getEstimate());
+            assertEquals(cls.getName(), 0, all.getErrorBound());
+
+            int sampleSize = Math.max(1, objectIds.length / 4);
+            RetainedSizeEstimate estimate = snapshot.estimateRetainedSize(objectIds, sampleSize,
+                            new VoidProgressListener());
+            assertEquals(cls.getName(), objectIds.length, estimate.getPopulationSize());
+            assertThat(cls.getName(), estimate.getLowerBound(), greaterThanOrEqualTo(0L));
+            assertThat(cls.getName(), estimate.getEstimate(), greaterThanOrEqualTo(estimate.getLowerBound()));
+            assertThat(cls.getName(), estimate.getEstimate(), lessThanOrEqualTo(estimate.getUpperBound()));
+            assertThat(cls.getName(), estimate.getCountedSize(), lessThanOrEqualTo(estimate.getLowerBound()));
+            assertThat(cls.getName(), estimate.getCountedSize(), lessThanOrEqualTo(min));
+            // the same sample each time
+            assertEquals(cls.getName(), estimate, snapshot.estimateRetainedSize(objectIds, sampleSize,
+                            new VoidProgressListener()));
+        }
+    }
+
+    /**
+     * Names from the name cache are the names resolved each time.
+     */
+    @Test
+    public void classSpecificNameCache() throws SnapshotException
+    {
+        int n = Math.min(snapshot.getSnapshotInfo().getNumberOfObjects(), 5000);
+        String[] names = new String[n];
+        for (int o = 0; o < n; o++)
+            names[o] = snapshot.getObject(o).getClassSpecificName();
+        ClassSpecificNameResolverRegistry.setNameCacheSize(1024);
+        try
+        {
+            for (int pass = 0; pass < 2; pass++)
+            {
+                for (int o = 0; o < n; o++)
+                    assertEquals("object " + o, names[o], snapshot.getObject(o).getClassSpecificName());
+            }
+        }
+        finally
+        {
+            ClassSpecificNameResolverRegistry.setNameCacheSize(0);
+        }
+    }
+
+    /**
+     * Chunks of a primitive array put together are the whole array.
+     */
+    @Test
+    public void primitiveArrayChunks() throws SnapshotException
+    {
+        int checked = 0;
+        for (int o = 0; o < snapshot.getSnapshotInfo().getNumberOfObjects() && checked < 200; o++)
+        {
+            if (!snapshot.isArray(o))
+                continue;
+            IObject obj = snapshot.getObject(o);
+            if (!(obj instanceof IPrimitiveArray))
+                continue;
+            IPrimitiveArray array = (IPrimitiveArray) obj;
+            Object whole = array.getValueArray();
+            final Object joined = Array.newInstance(array.getComponentType(), array.getLength());
+            assertTrue(array.visitValueArray(7, (offset, chunk) -> {
+                int n = Array.getLength(chunk);
+                assertThat(n, lessThanOrEqualTo(7));
+                System.arraycopy(chunk, 0, joined, offset, n);
+                return true;
+            }));
+            for (int i = 0; i < array.getLength(); i++)
+                assertEquals(Array.get(whole, i), Array.get(joined, i));
+            if (array.getLength() > 7)
+                assertFalse(array.visitValueArray(7, (offset, chunk) -> false));
+            checked++;
+        }
+    }
+
+    /**
+     * Buffers of primitive arrays from a mapped dump hold the same values as
+     * the arrays read from the dump file.
+     */
+    @Test
+    public void mappedPrimitiveArrays() throws SnapshotException
+    {
+        System.setProperty("hprofMappedDump", "true");
+        ISnapshot mapped;
+        try
+        {
+            mapped = TestSnapshots.getSnapshot(snapshotname, true);
+        }
+        finally
+        {
+            System.clearProperty("hprofMappedDump");
+        }
+        try
+        {
+            int checked = 0;
+            for (int o = 0; o < snapshot.getSnapshotInfo().getNumberOfObjects() && checked < 200; o++)
+            {
+                if (!snapshot.isArray(o))
+                    continue;
+                IObject obj = snapshot.getObject(o);
+                if (!(obj instanceof IPrimitiveArray))
+                    continue;
+                IPrimitiveArray array = (IPrimitiveArray) obj;
+                Object expected = array.getValueArray();
+                for (IPrimitiveArray a : new IPrimitiveArray[] { array, (IPrimitiveArray) mapped.getObject(o) })
+                {
+                    ByteBuffer buffer = a.getValueBuffer();
+                    assertTrue(buffer.isReadOnly());
+                    assertEquals(array.getLength() * IPrimitiveArray.ELEMENT_SIZE[array.getType()], buffer.remaining());
+                    if (expected instanceof char[])
+                    {
+                        char[] chars = new char[array.getLength()];
+                        buffer.asCharBuffer().get(chars);
+                        assertTrue(Arrays.equals((char[]) expected, chars));
+                    }
+                    else if (expected instanceof byte[])
+                    {
+                        byte[] bytes = new byte[array.getLength()];
+                        buffer.get(bytes);
+                        assertTrue(Arrays.equals((byte[]) expected, bytes));
+                    }
+                    else if (expected instanceof int[])
+                    {
+                        int[] ints = new int[array.getLength()];
+                        buffer.asIntBuffer().get(ints);
+                        assertTrue(Arrays.equals((int[]) expected, ints));
+                    }
+                    else if (expected instanceof long[])
+                    {
+                        long[] longs = new long[array.getLength()];
+                        buffer.asLongBuffer().get(longs);
+                        assertTrue(Arrays.equals((long[]) expected, longs));
+                    }
+                    Object joined = Array.newInstance(array.getComponentType(), array.getLength());
+                    a.visitValueArray(100, (offset, chunk) -> {
+                        System.arraycopy(chunk, 0, joined, offset, Array.getLength(chunk));
+                        return true;
+                    });
+                    for (int i = 0; i < array.getLength(); i++)
+                        assertEquals(Array.get(expected, i), Array.get(joined, i));
+                }
+                checked++;
+            }
+        }
+        finally
+        {
+            mapped.dispose();
+        }
+    }
+
+    /**
+     * Thread stacks read back from the binary index are the stacks built
+     * from the text file.
+     */
+    @Test
+    public void threadStacksIndex() throws SnapshotException
+    {
+        ISnapshot fresh = TestSnapshots.getSnapshot(snapshotname, true);
+        File file = new File(fresh.getSnapshotInfo().getPath());
+        File index = new File(fresh.getSnapshotInfo().getPrefix() + "threads.index");
+        String built;
+        try
+        {
+            built = threadStacks(fresh);
+        }
+        finally
+        {
+            fresh.dispose();
+        }
+        assertEquals(threadStacks(snapshot), built);
+        assumeTrue(built.length() > 0);
+        assertTrue(index.exists());
+
+        ISnapshot reopened = SnapshotFactory.openSnapshot(file, new CheckedWorkProgressListener(collector));
+        try
+        {
+            assertEquals(built, threadStacks(reopened));
+        }
+        finally
+        {
+            SnapshotFactory.dispose(reopened);
+        }
+    }
+
+    private static String threadStacks(ISnapshot snapshot) throws SnapshotException
+    {
+        StringBuilder sb = new StringBuilder();
+        Collection<IClass> classes = snapshot.getClassesByName("java.lang.Thread", true);
+        if (classes == null)
+            return "";
+        for (IClass cls : classes)
+        {
+            for (int objectId : cls.getObjectIds())
+            {
+                IThreadStack stack = snapshot.getThreadStack(objectId);
+                if (stack == null)
+                    continue;
+                sb.append(snapshot.mapIdToAddress(objectId)).append('\n');
+                for (IStackFrame frame : stack.getStackFrames())
+                {
+                    sb.append(frame.getText());
+                    for (int local : frame.getLocalObjectsIds())
+                        sb.append(' ').append(snapshot.mapIdToAddress(local));
+                    sb.append('\n');
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The GC roots of some types, overall and of each thread, are those with
+     * a root of one of the types in the root information.
+     */
+    @Test
+    public void gcRootsByType() throws SnapshotException
+    {
+        int[] roots = snapshot.getGCRoots();
+        for (int type = Type.UNKNOWN; type <= Type.JAVA_STACK_FRAME; type <<= 1)
+            assertThat(GCRootInfo.getTypeAsString(type), snapshot.getGCRoots(type), equalTo(rootsOfType(roots, type)));
+        int finalizers = Type.FINALIZABLE | Type.UNFINALIZED;
+        assertThat(snapshot.getGCRoots(finalizers), equalTo(rootsOfType(roots, finalizers)));
+        assertThat(snapshot.getGCRoots(-1).length, equalTo(roots.length));
+
+        for (int threadId : snapshot.getGCRoots(Type.THREAD_OBJ))
+        {
+            SetInt locals = new SetInt();
+            for (NamedReference ref : snapshot.getObject(threadId).getOutboundReferences())
+            {
+                if (ref instanceof ThreadToLocalReference)
+                    locals.add(((ThreadToLocalReference) ref).getObjectId());
+            }
+            int[] expected = locals.toArray();
+            Arrays.sort(expected);
+            assertThat(snapshot.getGCRootsOfThread(threadId, -1), equalTo(expected));
+        }
+    }
+
+    private int[] rootsOfType(int[] roots, int typeMask) throws SnapshotException
+    {
+        SetInt result = new SetInt();
+        for (int root : roots)
+        {
+            for (GCRootInfo info : snapshot.getGCRootInfo(root))
+            {
+                if ((info.getType() & typeMask) != 0)
+                    result.add(root);
+            }
+        }
+        int[] ids = result.toArray();
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * A field read on its own has the value of the field of the object, and
+     * the length of an array is read without its contents.
+     */
+    @Test
+    public void readFieldMatchesObject() throws SnapshotException
+    {
+        int n = snapshot.getSnapshotInfo().getNumberOfObjects();
+        for (int objectId = 0; objectId < n; objectId += Math.max(1, n / 2000))
+        {
+            if (snapshot.isClass(objectId))
+                continue;
+            if (snapshot.isArray(objectId))
+            {
+                int length = snapshot.getArrayLength(objectId);
+                assertThat(length, equalTo(((IArray) snapshot.getObject(objectId)).getLength()));
+                continue;
+            }
+            IInstance instance = (IInstance) snapshot.getObject(objectId);
+            assertThat(snapshot.getArrayLength(objectId), equalTo(-1));
+            for (IClass cls = instance.getClazz(); cls != null; cls = cls.getSuperClass())
+            {
+                for (FieldDescriptor fd : cls.getFieldDescriptors())
+                {
+                    Object value = snapshot.readField(objectId, fd.getName());
+                    Field field = instance.getField(fd.getName());
+                    assertThat(instance.getTechnicalName() + " " + fd.getName(), valueOf(value), equalTo(valueOf(field.getValue())));
+                }
+            }
+            assertThat(snapshot.readField(objectId, "no such field"), nullValue()); //$NON-NLS-1$
+        }
+
+        // a path of fields
+        Collection<IClass> sets = snapshot.getClassesByName("java.util.HashSet", false); //$NON-NLS-1$
+        assumeNotNull(sets);
+        for (IClass cls : sets)
+        {
+            for (int objectId : cls.getObjectIds())
+            {
+                IObject set = snapshot.getObject(objectId);
+                assertThat(valueOf(snapshot.readField(objectId, "map.size")), equalTo(set.resolveValue("map.size"))); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+        }
+    }
+
+    /**
+     * A field is read on its own for objects without an instance dump too:
+     * the static fields of classes and the fields of stack frame pseudo-objects.
+     */
+    @Test
+    public void readFieldOfClassesAndFrames() throws SnapshotException
+    {
+        int frames = 0;
+        for (IClass cls : snapshot.getClasses())
+        {
+            for (Field field : cls.getStaticFields())
+            {
+                Object value = snapshot.readField(cls.getObjectId(), field.getName());
+                assertThat(cls.getName() + " " + field.getName(), valueOf(value), equalTo(valueOf(field.getValue())));
+            }
+            if (!cls.getName().contains("(") && !cls.getName().equals("<stack frame>"))
+                continue;
+            for (int objectId : cls.getObjectIds())
+            {
+                IObject frame = snapshot.getObject(objectId);
+                if (!(frame instanceof IInstance))
+                    continue;
+                for (Field field : ((IInstance) frame).getFields())
+                {
+                    Object value = snapshot.readField(objectId, field.getName());
+                    assertThat(cls.getName() + " " + field.getName(), valueOf(value), equalTo(valueOf(field.getValue())));
+                }
+                ++frames;
+            }
+        }
+        if (hasMethods == Methods.RUNNING_METHODS || hasMethods == Methods.FRAMES_ONLY)
+            assertThat(frames, greaterThan(0));
+    }
+
+    private static Object valueOf(Object value)
+    {
+        return value instanceof ObjectReference ? ((ObjectReference) value).getObjectAddress() : value;
+    }
+
+    /**
+     * Removing all the references of an object leaves unreachable exactly the
+     * other objects it dominates.
+     */
+    @Test
+    public void retainedSetExcludingFields() throws SnapshotException
+    {
+        int checked = 0;
+        for (int o = 0; o < snapshot.getSnapshotInfo().getNumberOfObjects() && checked < 50; o += 97)
+        {
+            Set<String> fields = new HashSet<String>();
+            for (NamedReference ref : snapshot.getObject(o).getOutboundReferences())
+                fields.add(ref.getName());
+            int[] got = snapshot.getRetainedSet(new int[] { o }, fields.toArray(new String[0]),
+                            new VoidProgressListener());
+            int[] retained = snapshot.getRetainedSet(new int[] { o }, new VoidProgressListener());
+            int[] expected = new int[retained.length - 1];
+            int j = 0;
+            for (int r : retained)
+                if (r != o)
+                    expected[j++] = r;
+            Arrays.sort(expected);
+            Arrays.sort(got);
+            assertTrue("object " + o, Arrays.equals(expected, got));
+            ++checked;
+        }
+    }
+
     @Test
     public void totalHeapSize() throws SnapshotException
     {
@@ -9,6 +9,7 @@
  *
  * Contributors:
  *    Andrew Johnson (IBM Corporation) - initial API and implementation
+ *    Standalone adaptation - histogram comparison
  *******************************************************************************/
 package org.eclipse.mat.tests.snapshot;
 
@@ -61,6 +62,7 @@ import org.eclipse.mat.report.SectionSpec;
 import org.eclipse.mat.report.Spec;
 import org.eclipse.mat.snapshot.ClassHistogramRecord;
 import org.eclipse.mat.snapshot.Histogram;
+import org.eclipse.mat.snapshot.HistogramComparison;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.SnapshotFactory;
 import org.eclipse.mat.snapshot.model.IClass;
@@ -1288,6 +1290,41 @@ public class QueriesTest
         }
     }
 
+    /**
+     * Test the multi-way histogram comparison against the snapshot totals.
+     * @throws SnapshotException
+     */
+    @Test
+    public void testHistogramComparison() throws SnapshotException
+    {
+        ISnapshot snapshot2 = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK6_18_64BIT, false); // Do not dispose this as shared
+        HistogramComparison comparison = HistogramComparison.compare(snapshot, Arrays.asList(snapshot, snapshot2),
+                        new CheckedWorkProgressListener(collector));
+        assertThat(comparison.getSnapshotCount(), equalTo(3));
+        assertThat(comparison.getRowCount(), greaterThan(0));
+        assertThat(comparison.getColumns().length, equalTo(8));
+
+        long objects = 0, used = 0, objects2 = 0, delta2 = 0;
+        long[] deltaSelf = comparison.getNumberOfObjectsDelta(1);
+        long[] base = comparison.getNumberOfObjects(0);
+        long[] usedBase = comparison.getUsedHeapSize(0);
+        long[] counts2 = comparison.getNumberOfObjects(2);
+        long[] deltas2 = comparison.getNumberOfObjectsDelta(2);
+        for (int i = 0; i < comparison.getRowCount(); ++i)
+        {
+            assertThat(deltaSelf[i], equalTo(0L));
+            objects += base[i];
+            used += usedBase[i];
+            objects2 += counts2[i];
+            delta2 += deltas2[i];
+            assertThat(comparison.getColumnValue(comparison.getRow(i), 6), equalTo((Object) deltas2[i]));
+        }
+        assertThat(objects, equalTo((long) snapshot.getSnapshotInfo().getNumberOfObjects()));
+        assertThat(used, equalTo(snapshot.getSnapshotInfo().getUsedHeapSize()));
+        assertThat(objects2, equalTo((long) snapshot2.getSnapshotInfo().getNumberOfObjects()));
+        assertThat(delta2, equalTo(objects2 - objects));
+    }
+
     /**
      * Test running the compare snapshots report defined in a plugin, with parameters.
      * @throws SnapshotException